@@ -0,0 +1,51 @@
+package com.kleadingsolutions.loyalty.api;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QuoteHandler's currency/cabin validation helpers. Lives in the handler's package because the
+ * helpers are package-private; the handler is built without clients since only validation runs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuoteValidationBenchmark {
+
+  @Param({"USD", "usd", "GBP"})
+  public String currency;
+
+  @Param({"ECONOMY", "premium_economy", "UNKNOWN"})
+  public String cabin;
+
+  private QuoteHandler handler;
+
+  @Setup
+  public void setup() {
+    handler = new QuoteHandler(null, null);
+  }
+
+  @Benchmark
+  public boolean isValidCurrency() {
+    return handler.isValidCurrency(currency);
+  }
+
+  @Benchmark
+  public boolean isValidCabin() {
+    return handler.isValidCabin(cabin);
+  }
+}
@@ -0,0 +1,97 @@
+package com.kleadingsolutions.loyalty.benchmarks;
+
+import com.kleadingsolutions.loyalty.dto.Promo;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.service.CabinClass;
+import com.kleadingsolutions.loyalty.service.CustomerTier;
+import com.kleadingsolutions.loyalty.service.FareKernel;
+import com.kleadingsolutions.loyalty.service.FareKernels;
+import com.kleadingsolutions.loyalty.service.PointsBatch;
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+import com.kleadingsolutions.loyalty.service.PointsResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A search results page of {@code n} fares: {@link PointsCalculatorService#calculate} per fare (as
+ * the single-quote endpoint does, a request and response DTO each) and the allocation-free
+ * {@code calculateInto} per fare, against {@link PointsCalculatorService#calculateBatch} with the
+ * scalar and the Vector API kernel.
+ * Reported per batch; divide by {@code n} for per-fare cost. The fork adds
+ * {@code --add-modules jdk.incubator.vector}; {@code vector} falls back to scalar without it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class BatchQuoteBenchmark {
+
+  @Param({"16", "256", "1000"})
+  public int n;
+
+  private final PointsCalculatorService calc = PointsCalculatorService.shared();
+  private final PointsResult result = new PointsResult();
+  private double[] fares;
+  private PointsBatch batch;
+  private Promo promo;
+  private FareKernel vector;
+
+  @Setup
+  public void setUp() {
+    SplittableRandom random = new SplittableRandom(42);
+    fares = new double[n];
+    for (int i = 0; i < n; i++) {
+      fares[i] = Math.round(random.nextDouble(50.0, 5_000.0) * 100) / 100.0;
+    }
+    batch = new PointsBatch(n);
+    promo = new Promo();
+    promo.setCode("SUMMER25");
+    promo.setPercent(0.25);
+    promo.setExpiresInDays(1);
+    vector = FareKernels.vector() != null ? FareKernels.vector() : FareKernels.scalar();
+  }
+
+  @Benchmark
+  public void perFareCalculate(Blackhole bh) {
+    for (int i = 0; i < n; i++) {
+      QuoteRequest req = new QuoteRequest();
+      req.setFareAmount(fares[i]);
+      req.setCurrency("USD");
+      req.setCabinClass("ECONOMY");
+      req.setCustomerTier("GOLD");
+      bh.consume(calc.calculate(req, 3.67, promo));
+    }
+  }
+
+  @Benchmark
+  public void perFareInto(Blackhole bh) {
+    for (int i = 0; i < n; i++) {
+      bh.consume(calc.calculateInto(fares[i], CustomerTier.GOLD, CabinClass.ECONOMY, 3.67, promo, result).getTotalPoints());
+    }
+  }
+
+  @Benchmark
+  public PointsBatch batchScalar() {
+    return calc.calculateBatch(FareKernels.scalar(), fares, n, CustomerTier.GOLD, CabinClass.ECONOMY, 3.67, promo, batch);
+  }
+
+  @Benchmark
+  public PointsBatch batchVector() {
+    return calc.calculateBatch(vector, fares, n, CustomerTier.GOLD, CabinClass.ECONOMY, 3.67, promo, batch);
+  }
+}
@@ -0,0 +1,46 @@
+package com.kleadingsolutions.loyalty.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Accepts the usual JMH command line, but defaults to
+ * allocation profiling ({@code -prof gc}) and a JSON result file so ns/op and B/op
+ * ({@code gc.alloc.rate.norm}) can be tracked across releases.
+ * Any explicit {@code -prof}, {@code -rf} or {@code -rff} on the command line wins.
+ */
+public final class BenchmarkMain {
+
+  static final String DEFAULT_RESULT_FILE = "jmh-result.json";
+
+  private BenchmarkMain() {
+  }
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions cmd = new CommandLineOptions(args);
+    if (cmd.shouldHelp()) {
+      cmd.showHelp();
+      return;
+    }
+    if (cmd.shouldList()) {
+      new Runner(cmd).list();
+      return;
+    }
+
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+    if (cmd.getProfilers().isEmpty()) {
+      options.addProfiler(GCProfiler.class);
+    }
+    if (!cmd.getResultFormat().hasValue()) {
+      options.resultFormat(ResultFormatType.JSON);
+    }
+    if (!cmd.getResult().hasValue()) {
+      options.result(DEFAULT_RESULT_FILE);
+    }
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,126 @@
+package com.kleadingsolutions.loyalty.benchmarks;
+
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A quote from a caller on the same host over loopback TCP against the same quote over the
+ * service's Unix domain socket ({@code server.domain-socket.path}): one MainVerticle with stub
+ * FX/promo clients serving both listeners, a WebClient on a separate Vert.x instance, HTTP/1.1, both
+ * on the native transport (domain sockets need epoll or kqueue). {@code listener} picks the socket;
+ * {@code quote_cN} keeps N requests in flight; SampleTime reports the latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class DomainSocketBenchmark {
+
+  @Param({"tcp", "uds"})
+  public String listener;
+
+  private Path dir;
+  private Vertx serverVertx;
+  private Vertx clientVertx;
+  private WebClient client;
+  private SocketAddress server;
+  private RequestOptions request;
+  private Buffer body;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    dir = Files.createTempDirectory("loyalty-bench-uds");
+    Path socket = dir.resolve("loyalty.sock");
+    System.setProperty("http.port", "0");
+    System.setProperty("http.domain.socket", socket.toString());
+
+    VertxOptions options = new VertxOptions().setPreferNativeTransport(true);
+    serverVertx = Vertx.vertx(options);
+    if (!serverVertx.isNativeTransportEnabled()) {
+      throw new IllegalStateException("domain sockets need a native transport: " + serverVertx.unavailableNativeTransportCause());
+    }
+    serverVertx.deployVerticle(new MainVerticle(new StubFxClient(), new StubPromoClient(),
+                    new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), null, Tracing.NOOP))
+            .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+    server = listener.equals("uds")
+            ? SocketAddress.domainSocketAddress(socket.toString())
+            : SocketAddress.inetSocketAddress(Integer.parseInt(System.getProperty("http.actual.port")), "127.0.0.1");
+
+    clientVertx = Vertx.vertx(options);
+    client = WebClient.create(clientVertx, new WebClientOptions()
+            .setKeepAlive(true)
+            .setMaxPoolSize(256)
+            .setTcpNoDelay(true));
+    request = new RequestOptions().setHost("localhost").setURI(QuoteEndToEndBenchmark.PATH)
+            .putHeader("content-type", "application/json");
+    body = Buffer.buffer(QuoteJsonBenchmark.REQUEST_BODY);
+
+    int status = send();
+    if (status != 200) {
+      throw new IllegalStateException("sanity quote failed with HTTP " + status);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    if (client != null) client.close();
+    if (clientVertx != null) clientVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    if (serverVertx != null) serverVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    Files.deleteIfExists(dir.resolve("loyalty.sock"));
+    Files.deleteIfExists(dir);
+    System.clearProperty("http.port");
+    System.clearProperty("http.actual.port");
+    System.clearProperty("http.domain.socket");
+  }
+
+  int send() throws Exception {
+    return client.request(HttpMethod.POST, server, request)
+            .sendBuffer(body)
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS)
+            .statusCode();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public int quote_c1() throws Exception {
+    return send();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int quote_c16() throws Exception {
+    return send();
+  }
+}
@@ -0,0 +1,112 @@
+package com.kleadingsolutions.loyalty.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.api.QuoteConsumer;
+import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A quote from a verticle in the same Vert.x as the service: over loopback HTTP/1.1 (a WebClient
+ * posting the JSON body) against the event bus ({@link QuoteConsumer}, the request and response
+ * passed by reference). One Vert.x instance, one MainVerticle with stub FX/promo clients.
+ * {@code api} picks the path; {@code quote_cN} keeps N requests in flight; SampleTime reports the
+ * latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class EventBusQuoteBenchmark {
+
+  @Param({"http", "eventbus"})
+  public String api;
+
+  private Vertx vertx;
+  private WebClient client;
+  private int port;
+  private Buffer body;
+  private QuoteRequest request;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    System.setProperty("http.port", "0");
+    vertx = Vertx.vertx();
+    vertx.deployVerticle(new MainVerticle(new StubFxClient(), new StubPromoClient(),
+                    new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), null, Tracing.NOOP))
+            .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+    port = Integer.parseInt(System.getProperty("http.actual.port"));
+    client = WebClient.create(vertx, new WebClientOptions()
+            .setKeepAlive(true)
+            .setMaxPoolSize(256)
+            .setTcpNoDelay(true));
+    body = Buffer.buffer(QuoteJsonBenchmark.REQUEST_BODY);
+    // sent by reference and never modified, so every call can share it
+    request = new ObjectMapper().readValue(QuoteJsonBenchmark.REQUEST_BODY, QuoteRequest.class);
+
+    if (send() <= 0) {
+      throw new IllegalStateException("sanity quote returned no points");
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    if (client != null) client.close();
+    if (vertx != null) vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    System.clearProperty("http.port");
+    System.clearProperty("http.actual.port");
+  }
+
+  /** Total points of one quote, read from the body on HTTP and from the reply object on the bus. */
+  long send() throws Exception {
+    if (api.equals("eventbus")) {
+      return vertx.eventBus().<QuoteResponse>request(QuoteConsumer.ADDRESS, request)
+              .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS)
+              .body().getTotalPoints();
+    }
+    return client.post(port, "127.0.0.1", QuoteEndToEndBenchmark.PATH)
+            .putHeader("content-type", "application/json")
+            .sendBuffer(body)
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS)
+            .bodyAsJsonObject().getLong("totalPoints");
+  }
+
+  @Benchmark
+  @Threads(1)
+  public long quote_c1() throws Exception {
+    return send();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public long quote_c16() throws Exception {
+    return send();
+  }
+}
@@ -0,0 +1,82 @@
+package com.kleadingsolutions.loyalty.benchmarks;
+
+import com.kleadingsolutions.loyalty.dto.Promo;
+import com.kleadingsolutions.loyalty.service.CabinClass;
+import com.kleadingsolutions.loyalty.service.CustomerTier;
+import com.kleadingsolutions.loyalty.service.EarningPlan;
+import com.kleadingsolutions.loyalty.service.EarningRules;
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+import com.kleadingsolutions.loyalty.service.PointsResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One quote (base, tier and promo points, cap) three ways: {@code double} arithmetic
+ * ({@code calculateInto}), fixed point ({@code calculateFixedInto}: minor units and scaled longs)
+ * and the straightforward exact alternative on {@link BigDecimal}. Fixed point and BigDecimal give
+ * the same points; check {@code gc.alloc.rate.norm} as well as ns/op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointsArithmeticBenchmark {
+
+  private static final BigDecimal CAP = BigDecimal.valueOf(50_000L);
+
+  private final PointsCalculatorService calc = new PointsCalculatorService(EarningPlan.compile(EarningRules.defaults()));
+  private final PointsResult result = new PointsResult();
+  private Promo promo;
+
+  // a small rotating set so the JIT cannot fold the inputs
+  private final double[] fares = {1234.50, 100.00, 19.99, 8_750.25};
+  private final long[] fareMinorUnits = {123_450L, 10_000L, 1_999L, 875_025L};
+  private final BigDecimal[] fareDecimals = {new BigDecimal("1234.50"), new BigDecimal("100.00"), new BigDecimal("19.99"),
+          new BigDecimal("8750.25")};
+  private int next;
+
+  @Setup
+  public void setUp() {
+    promo = new Promo();
+    promo.setCode("SUMMER25");
+    promo.setPercent(0.25);
+    promo.setExpiresInDays(1);
+  }
+
+  @Benchmark
+  public long doubles() {
+    int i = next++ & 3;
+    return calc.calculateInto(fares[i], CustomerTier.SILVER, CabinClass.ECONOMY, 3.67, promo, result).getTotalPoints();
+  }
+
+  @Benchmark
+  public long fixedPoint() {
+    int i = next++ & 3;
+    return calc.calculateFixedInto(fareMinorUnits[i], 2, CustomerTier.SILVER, CabinClass.ECONOMY, 3.67, promo, result)
+            .getTotalPoints();
+  }
+
+  @Benchmark
+  public long bigDecimal() {
+    int i = next++ & 3;
+    BigDecimal fx = BigDecimal.valueOf(3.67);
+    BigDecimal base = fareDecimals[i].multiply(fx).multiply(BigDecimal.ONE).setScale(0, RoundingMode.FLOOR);
+    BigDecimal tier = base.multiply(BigDecimal.valueOf(0.15)).setScale(0, RoundingMode.FLOOR);
+    BigDecimal promoBonus = base.multiply(BigDecimal.valueOf(promo.getPercent())).setScale(0, RoundingMode.FLOOR);
+    return base.add(tier).add(promoBonus).min(CAP).longValueExact();
+  }
+}
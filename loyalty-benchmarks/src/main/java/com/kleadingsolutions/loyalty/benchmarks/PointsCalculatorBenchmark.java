@@ -0,0 +1,109 @@
+package com.kleadingsolutions.loyalty.benchmarks;
+
+import com.kleadingsolutions.loyalty.dto.Promo;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import com.kleadingsolutions.loyalty.service.CabinClass;
+import com.kleadingsolutions.loyalty.service.CustomerTier;
+import com.kleadingsolutions.loyalty.service.EarningPlan;
+import com.kleadingsolutions.loyalty.service.EarningRules;
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+import com.kleadingsolutions.loyalty.service.PointsResult;
+import com.kleadingsolutions.loyalty.service.PointsRounding;
+import com.kleadingsolutions.loyalty.service.PromoStacking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PointsCalculatorService#calculate} as QuoteHandler calls it (shared calculator, response
+ * DTO per quote) against a fresh calculator per quote, and the allocation-free
+ * {@code calculateInto} core with a reused {@link PointsResult}; expect {@code gc.alloc.rate.norm}
+ * of ~0 B/op for the latter. Across tiers, with/without promo, and with the default rules vs a
+ * richer rule set (cabin multipliers, half-up rounding, compound promo) to check that configured
+ * rules cost the same per quote.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointsCalculatorBenchmark {
+
+  @Param({"NONE", "SILVER", "PLATINUM"})
+  public String tier;
+
+  @Param({"true", "false"})
+  public boolean withPromo;
+
+  @Param({"default", "rich"})
+  public String rules;
+
+  private QuoteRequest request;
+  private Promo promo;
+  private PointsCalculatorService shared;
+  private CustomerTier customerTier;
+  private CabinClass cabinClass;
+  private final PointsResult result = new PointsResult();
+
+  @Setup
+  public void setup() {
+    request = new QuoteRequest();
+    request.setFareAmount(1234.50);
+    request.setCurrency("USD");
+    request.setCabinClass("BUSINESS");
+    request.setCustomerTier(tier);
+    request.setPromoCode(withPromo ? "SUMMER25" : null);
+
+    if (withPromo) {
+      promo = new Promo();
+      promo.setCode("SUMMER25");
+      promo.setPercent(0.25);
+      promo.setExpiresInDays(1);
+    }
+    shared = "rich".equals(rules)
+            ? new PointsCalculatorService(EarningPlan.compile(EarningRules.builder()
+                    .cabinMultiplier(CabinClass.PREMIUM_ECONOMY, 1.25)
+                    .cabinMultiplier(CabinClass.BUSINESS, 1.5)
+                    .cabinMultiplier(CabinClass.FIRST, 2.0)
+                    .tierBonus(CustomerTier.PLATINUM, 0.6)
+                    .rounding(PointsRounding.HALF_UP)
+                    .promoStacking(PromoStacking.COMPOUND)
+                    .cap(80_000)
+                    .build()))
+            : PointsCalculatorService.shared();
+    customerTier = CustomerTier.parse(tier);
+    cabinClass = CabinClass.parse(request.getCabinClass());
+  }
+
+  @Benchmark
+  public QuoteResponse calculate_newCalculatorPerQuote() {
+    return new PointsCalculatorService().calculate(request, 3.67, promo);
+  }
+
+  @Benchmark
+  public QuoteResponse calculate_sharedCalculator() {
+    return shared.calculate(request, 3.67, promo);
+  }
+
+  @Benchmark
+  public PointsResult calculateInto_reusedResult() {
+    return shared.calculateInto(request, 3.67, promo, result);
+  }
+
+  @Benchmark
+  public PointsResult calculateInto_parsedTier() {
+    return shared.calculateInto(1234.50, customerTier, cabinClass, 3.67, promo, result);
+  }
+}
@@ -0,0 +1,246 @@
+package com.kleadingsolutions.loyalty.benchmarks;
+
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of one quote through the real HTTP stack: MainVerticle (router, BodyHandler,
+ * QuoteHandler, Jackson, Micrometer) deployed on an embedded Vert.x with stub FX/promo clients,
+ * driven over loopback by a WebClient on a separate Vert.x instance.
+ *
+ * Concurrency is closed-loop: each JMH thread keeps exactly one request in flight, so the
+ * {@code quote_cN} methods run at N concurrent requests. {@code instances} is the number of
+ * MainVerticle instances sharing the port (0 = one per available core).
+ * {@code tracing} measures the OpenTelemetry overhead: {@code off} is the no-op tracer,
+ * {@code unsampled} an SDK that samples nothing (what most requests cost at a low sample ratio) and
+ * {@code sampled} records every request through a batch processor into a discarding exporter.
+ * {@code protocol} is how the client connects: {@code http1} pools up to 256 HTTP/1.1 connections,
+ * {@code h2c} and {@code h2} (TLS with ALPN, self-signed certificate) multiplex all requests over one
+ * HTTP/2 connection per verticle instance, within the server's {@code server.http2} stream limit.
+ * {@code transport} is the event-loop transport of both Vert.x instances: {@code nio} is the JDK
+ * selector, {@code native} prefers epoll (or io_uring when built with {@code -Pio_uring}) and falls
+ * back to NIO where neither loads, as the service does with {@code runtime.transport.native}.
+ * Throughput is reported in ops/ms, SampleTime gives the latency percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+public class QuoteEndToEndBenchmark {
+
+  static final String PATH = "/v1/points/quote";
+
+  @Param({"1", "4", "0"})
+  public int instances;
+
+  @Param({"off", "unsampled", "sampled"})
+  public String tracing;
+
+  @Param({"http1", "h2c", "h2"})
+  public String protocol;
+
+  @Param({"nio", "native"})
+  public String transport;
+
+  private Vertx serverVertx;
+  private Vertx clientVertx;
+  private WebClient client;
+  private int port;
+  private Buffer body;
+  private SdkTracerProvider tracerProvider;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    int verticles = instances > 0 ? instances : Runtime.getRuntime().availableProcessors();
+    port = freePort();
+    System.setProperty("http.port", String.valueOf(port));
+    if (protocol.equals("h2")) {
+      selfSignedCertificate();
+    }
+
+    VertxOptions vertxOptions = new VertxOptions().setPreferNativeTransport(transport.equals("native"));
+    serverVertx = Vertx.vertx(vertxOptions);
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    Tracing tracer = tracing();
+    serverVertx.deployVerticle(() -> new MainVerticle(new StubFxClient(), new StubPromoClient(), registry, null, tracer),
+                    new DeploymentOptions().setInstances(verticles))
+            .toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+
+    clientVertx = Vertx.vertx(vertxOptions);
+    WebClientOptions options = new WebClientOptions()
+            .setDefaultHost("127.0.0.1")
+            .setDefaultPort(port)
+            .setKeepAlive(true)
+            .setMaxPoolSize(256)
+            .setTcpNoDelay(true);
+    if (!protocol.equals("http1")) {
+      // one connection per server event loop, so instances > 1 still spread the load
+      options.setProtocolVersion(HttpVersion.HTTP_2)
+              .setHttp2ClearTextUpgrade(false)
+              .setHttp2MaxPoolSize(verticles);
+    }
+    if (protocol.equals("h2")) {
+      options.setSsl(true).setUseAlpn(true).setTrustAll(true).setVerifyHost(false);
+    }
+    client = WebClient.create(clientVertx, options);
+    body = Buffer.buffer(QuoteJsonBenchmark.REQUEST_BODY);
+
+    int status = send();
+    if (status != 200) {
+      throw new IllegalStateException("sanity quote failed with HTTP " + status);
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    if (client != null) client.close();
+    if (clientVertx != null) clientVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    if (serverVertx != null) serverVertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    if (tracerProvider != null) tracerProvider.close();
+    System.clearProperty("http.port");
+    System.clearProperty("http.actual.port");
+    System.clearProperty("tls.cert");
+    System.clearProperty("tls.key");
+  }
+
+  /** Generates a localhost key pair with keytool and points -Dtls.cert / -Dtls.key at PEM copies. */
+  private static void selfSignedCertificate() throws Exception {
+    Path dir = Files.createTempDirectory("loyalty-bench-tls");
+    dir.toFile().deleteOnExit();
+    Path store = dir.resolve("server.p12");
+    store.toFile().deleteOnExit();
+    char[] password = "changeit".toCharArray();
+    Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+            "-genkeypair", "-alias", "server", "-keyalg", "EC", "-dname", "CN=localhost", "-validity", "1",
+            "-storetype", "PKCS12", "-keystore", store.toString(), "-storepass", new String(password))
+            .redirectErrorStream(true).start();
+    if (!keytool.waitFor(60, TimeUnit.SECONDS) || keytool.exitValue() != 0) {
+      throw new IllegalStateException("keytool failed: " + new String(keytool.getInputStream().readAllBytes()));
+    }
+    KeyStore keys = KeyStore.getInstance("PKCS12");
+    try (InputStream in = Files.newInputStream(store)) {
+      keys.load(in, password);
+    }
+    System.setProperty("tls.cert", pem(dir.resolve("cert.pem"), "CERTIFICATE", keys.getCertificate("server").getEncoded()));
+    System.setProperty("tls.key", pem(dir.resolve("key.pem"), "PRIVATE KEY", keys.getKey("server", password).getEncoded()));
+  }
+
+  private static String pem(Path file, String type, byte[] der) throws IOException {
+    Files.writeString(file, "-----BEGIN " + type + "-----\n"
+            + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der)
+            + "\n-----END " + type + "-----\n");
+    file.toFile().deleteOnExit();
+    return file.toString();
+  }
+
+  private Tracing tracing() {
+    if (tracing.equals("off")) {
+      return Tracing.NOOP;
+    }
+    tracerProvider = SdkTracerProvider.builder()
+            .setSampler(Tracing.sampler(tracing.equals("sampled") ? 1.0 : 0.0))
+            .addSpanProcessor(BatchSpanProcessor.builder(new DiscardingExporter()).build())
+            .build();
+    return Tracing.of(OpenTelemetrySdk.builder()
+            .setTracerProvider(tracerProvider)
+            .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+            .build());
+  }
+
+  int send() throws Exception {
+    HttpResponse<Buffer> resp = client.post(PATH)
+            .putHeader("content-type", "application/json")
+            .sendBuffer(body)
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    return resp.statusCode();
+  }
+
+  @Benchmark
+  @Threads(1)
+  public int quote_c1() throws Exception {
+    return send();
+  }
+
+  @Benchmark
+  @Threads(16)
+  public int quote_c16() throws Exception {
+    return send();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public int quote_c64() throws Exception {
+    return send();
+  }
+
+  static final class DiscardingExporter implements SpanExporter {
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+      return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+      return CompletableResultCode.ofSuccess();
+    }
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      socket.setReuseAddress(true);
+      return socket.getLocalPort();
+    }
+  }
+}
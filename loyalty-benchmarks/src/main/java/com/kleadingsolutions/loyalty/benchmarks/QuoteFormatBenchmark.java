@@ -0,0 +1,81 @@
+package com.kleadingsolutions.loyalty.benchmarks;
+
+import com.kleadingsolutions.loyalty.api.QuoteFormat;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * QuoteHandler's body edges per wire format ({@link QuoteFormat}): request bytes -> QuoteRequest and
+ * QuoteResponse -> response bytes, the way the handler does them (JSON through a String, CBOR and
+ * Smile straight from and to bytes). {@code roundTrip} is both, the format's CPU per quote.
+ * The request and response sizes on the wire are printed at setup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuoteFormatBenchmark {
+
+  @Param({"json", "cbor", "smile"})
+  public String format;
+
+  private QuoteFormat wire;
+  private byte[] request;
+  private QuoteResponse response;
+
+  @Setup
+  public void setup() throws Exception {
+    wire = QuoteFormat.valueOf(format.toUpperCase(Locale.ROOT));
+    QuoteRequest req = QuoteFormat.JSON.mapper().readValue(QuoteJsonBenchmark.REQUEST_BODY, QuoteRequest.class);
+    request = wire.mapper().writeValueAsBytes(req);
+    response = new QuoteResponse();
+    response.setBasePoints(4530);
+    response.setTierBonus(679);
+    response.setPromoBonus(1132);
+    response.setTotalPoints(6341);
+    response.setEffectiveFxRate(3.67);
+    response.setWarnings(List.of("PROMO_EXPIRES_SOON"));
+    System.out.println(format + " on the wire: request " + request.length + " bytes, response "
+            + serializeResponse().length + " bytes");
+  }
+
+  @Benchmark
+  public QuoteRequest deserializeRequest() throws Exception {
+    if (wire == QuoteFormat.JSON) {
+      return wire.mapper().readValue(new String(request, StandardCharsets.UTF_8), QuoteRequest.class);
+    }
+    return wire.mapper().readValue(request, QuoteRequest.class);
+  }
+
+  @Benchmark
+  public byte[] serializeResponse() throws Exception {
+    if (wire == QuoteFormat.JSON) {
+      return wire.mapper().writeValueAsString(response).getBytes(StandardCharsets.UTF_8);
+    }
+    return wire.mapper().writeValueAsBytes(response);
+  }
+
+  @Benchmark
+  public byte[] roundTrip() throws Exception {
+    deserializeRequest();
+    return serializeResponse();
+  }
+}
@@ -0,0 +1,59 @@
+package com.kleadingsolutions.loyalty.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON edges of QuoteHandler: body String -> QuoteRequest and QuoteResponse -> String,
+ * using a plain ObjectMapper the way the handler holds one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuoteJsonBenchmark {
+
+  static final String REQUEST_BODY =
+          "{\"fareAmount\":1234.50,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"customerTier\":\"SILVER\",\"promoCode\":\"SUMMER25\"}";
+
+  private ObjectMapper mapper;
+  private QuoteResponse response;
+
+  @Setup
+  public void setup() {
+    mapper = new ObjectMapper();
+    response = new QuoteResponse();
+    response.setBasePoints(4530);
+    response.setTierBonus(679);
+    response.setPromoBonus(1132);
+    response.setTotalPoints(6341);
+    response.setEffectiveFxRate(3.67);
+    response.setWarnings(List.of("PROMO_EXPIRES_SOON"));
+  }
+
+  @Benchmark
+  public QuoteRequest deserializeRequest() throws Exception {
+    return mapper.readValue(REQUEST_BODY, QuoteRequest.class);
+  }
+
+  @Benchmark
+  public String serializeResponse() throws Exception {
+    return mapper.writeValueAsString(response);
+  }
+}
@@ -0,0 +1,110 @@
+package com.kleadingsolutions.loyalty.integration;
+
+import com.kleadingsolutions.loyalty.loadgen.EmbeddedService;
+import com.kleadingsolutions.loyalty.loadgen.LatencyProfile;
+import com.kleadingsolutions.loyalty.loadgen.LoadGenOptions;
+import com.kleadingsolutions.loyalty.loadgen.LoadGenerator;
+import com.kleadingsolutions.loyalty.loadgen.LoadReport;
+import com.kleadingsolutions.loyalty.loadgen.UpstreamStandIns;
+import io.vertx.core.Vertx;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.*;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ Latency SLO regression tests: the service is started against WireMock FX/Promo stand-ins with an
+ injected latency profile and driven at a fixed arrival rate (open model, latency corrected for
+ coordinated omission, see loyalty-loadgen). A breached bound fails the build like a functional failure.
+ Notes:
+ - Bounds are deliberately loose so they hold on a single-core CI runner where stand-ins, service and
+   load generator share the JVM; they catch regressions in the order of the upstream timeouts.
+ - Rate/duration can be raised locally with -Dperf.rate and -Dperf.duration.seconds.
+ - Reports (JSON with the SLO verdict, plus .hgrm) are written to target/perf-reports.
+*/
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class LatencySloIT {
+
+  private static final Path REPORT_DIR = Path.of("target", "perf-reports");
+  private static final double RATE = Double.parseDouble(System.getProperty("perf.rate", "25"));
+  private static final Duration DURATION = Duration.ofSeconds(Long.getLong("perf.duration.seconds", 10L));
+  private static final Duration WARMUP = Duration.ofSeconds(3);
+
+  // VertxPromoClient / VertxFxClient per-request timeout
+  private static final double UPSTREAM_TIMEOUT_MS = 1000;
+  private static final double EPSILON_MS = 500;
+
+  private Vertx vertx;
+
+  @BeforeAll
+  void beforeAll() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterAll
+  void afterAll() throws Exception {
+    if (vertx != null) vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void normal_upstreams() throws Exception {
+    LoadReport report = drive(LatencyProfile.uniform(2, 10), LatencyProfile.uniform(2, 10));
+
+    assertSlo("normal", report, 100, 500, 0.0);
+  }
+
+  @Test
+  public void slow_fx() throws Exception {
+    LoadReport report = drive(LatencyProfile.logNormal(150, 0.3), LatencyProfile.uniform(2, 10));
+
+    assertSlo("slow-fx", report, 500, 2000, 0.0);
+  }
+
+  @Test
+  public void dead_promo_is_bounded_by_promo_timeout() throws Exception {
+    // promo never answers within the client timeout: quotes fail open (200 + PROMO_UNAVAILABLE)
+    LoadReport report = drive(LatencyProfile.uniform(2, 10), LatencyProfile.fixed(5000));
+
+    assertSlo("dead-promo", report, 100, UPSTREAM_TIMEOUT_MS + EPSILON_MS, 0.0);
+  }
+
+  private LoadReport drive(LatencyProfile fx, LatencyProfile promo) throws Exception {
+    try (UpstreamStandIns standIns = UpstreamStandIns.start(fx, promo);
+         EmbeddedService service = EmbeddedService.start(vertx, standIns.fxBaseUrl(), standIns.promoBaseUrl())) {
+      LoadGenOptions options = new LoadGenOptions()
+              .setPort(service.port())
+              .setRatePerSecond(RATE)
+              .setWarmup(WARMUP)
+              .setDuration(DURATION)
+              .setRequestTimeoutMs(10_000);
+      long waitSeconds = WARMUP.toSeconds() + DURATION.toSeconds() + 30;
+      return new LoadGenerator(vertx, options).run().toCompletionStage().toCompletableFuture().get(waitSeconds, TimeUnit.SECONDS);
+    }
+  }
+
+  private static void assertSlo(String name, LoadReport report, double p50MaxMs, double p99MaxMs, double maxErrorRate) throws Exception {
+    double p50 = report.latencyMillis(50.0);
+    double p99 = report.latencyMillis(99.0);
+    boolean passed = p50 <= p50MaxMs && p99 <= p99MaxMs && report.errorRate() <= maxErrorRate && report.getUnexpected() == 0;
+
+    Map<String, Object> slo = new LinkedHashMap<>();
+    slo.put("p50MaxMillis", p50MaxMs);
+    slo.put("p99MaxMillis", p99MaxMs);
+    slo.put("maxErrorRate", maxErrorRate);
+    slo.put("passed", passed);
+    report.write(REPORT_DIR, "slo-" + name, Map.of("slo", slo));
+    report.print(System.out);
+
+    SoftAssertions softly = new SoftAssertions();
+    softly.assertThat(report.getMeasured()).as("measured requests").isGreaterThan(0);
+    softly.assertThat(p50).as(name + " p50 (ms)").isLessThanOrEqualTo(p50MaxMs);
+    softly.assertThat(p99).as(name + " p99 (ms)").isLessThanOrEqualTo(p99MaxMs);
+    softly.assertThat(report.errorRate()).as(name + " error rate").isLessThanOrEqualTo(maxErrorRate);
+    softly.assertThat(report.getUnexpected()).as(name + " unexpected statuses " + report.getStatusCounts()).isZero();
+    softly.assertAll();
+  }
+}
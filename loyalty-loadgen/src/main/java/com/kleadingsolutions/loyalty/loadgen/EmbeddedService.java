@@ -0,0 +1,68 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.client.impl.UpstreamMetrics;
+import com.kleadingsolutions.loyalty.client.impl.VertxFxClient;
+import com.kleadingsolutions.loyalty.client.impl.VertxPromoClient;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The loyalty service started in-process on an ephemeral port, wired to real Vert.x FX/Promo
+ * clients pointing at the given base URLs (typically {@link UpstreamStandIns}). Upstream metrics
+ * land in the same registry, so reports can split latency between the dependencies and the service.
+ */
+public final class EmbeddedService implements AutoCloseable {
+
+  private final Vertx vertx;
+  private final String deploymentId;
+  private final int port;
+  private final PrometheusMeterRegistry registry;
+
+  private EmbeddedService(Vertx vertx, String deploymentId, int port, PrometheusMeterRegistry registry) {
+    this.vertx = vertx;
+    this.deploymentId = deploymentId;
+    this.port = port;
+    this.registry = registry;
+  }
+
+  public static EmbeddedService start(Vertx vertx, String fxBaseUrl, String promoBaseUrl) throws Exception {
+    // MainVerticle publishes the bound port as http.actual.port
+    System.clearProperty("http.actual.port");
+    // the -D overrides still apply; only this service's port is changed, not the JVM's http.port
+    Properties props = new Properties();
+    props.putAll(System.getProperties());
+    props.setProperty("http.port", "0");
+    ConfigStore config = ConfigStore.of(LoyaltyConfig.fromClasspath(props));
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    UpstreamMetrics upstream = new UpstreamMetrics(registry);
+    MainVerticle verticle = new MainVerticle(
+            new VertxFxClient(vertx, fxBaseUrl, () -> config.current().getFx(), upstream),
+            new VertxPromoClient(vertx, promoBaseUrl, () -> config.current().getPromo(), upstream), registry, config);
+    String id = vertx.deployVerticle(verticle).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    String port = System.getProperty("http.actual.port");
+    if (port == null) {
+      throw new IllegalStateException("service did not publish http.actual.port");
+    }
+    return new EmbeddedService(vertx, id, Integer.parseInt(port), registry);
+  }
+
+  public int port() {
+    return port;
+  }
+
+  public PrometheusMeterRegistry registry() {
+    return registry;
+  }
+
+  @Override
+  public void close() throws Exception {
+    vertx.undeploy(deploymentId).toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,89 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import com.github.tomakehurst.wiremock.http.DelayDistribution;
+import com.github.tomakehurst.wiremock.http.FixedDelayDistribution;
+import com.github.tomakehurst.wiremock.http.LogNormal;
+import com.github.tomakehurst.wiremock.http.UniformDistribution;
+
+import java.util.Locale;
+
+/**
+ * Response latency of an upstream stand-in, parsed from a short spec:
+ * <ul>
+ *   <li>{@code none} — respond immediately</li>
+ *   <li>{@code fixed:MS} — constant delay</li>
+ *   <li>{@code uniform:MIN,MAX} — uniform between MIN and MAX ms</li>
+ *   <li>{@code lognormal:MEDIAN,SIGMA} — log-normal with the given median (ms) and sigma (long tail)</li>
+ * </ul>
+ */
+public final class LatencyProfile {
+
+  public static final LatencyProfile NONE = new LatencyProfile("none", null);
+
+  private final String spec;
+  private final DelayDistribution distribution;
+
+  private LatencyProfile(String spec, DelayDistribution distribution) {
+    this.spec = spec;
+    this.distribution = distribution;
+  }
+
+  public static LatencyProfile fixed(int millis) {
+    return new LatencyProfile("fixed:" + millis, new FixedDelayDistribution(millis));
+  }
+
+  public static LatencyProfile uniform(int minMillis, int maxMillis) {
+    if (maxMillis < minMillis) throw new IllegalArgumentException("uniform max < min: " + minMillis + "," + maxMillis);
+    return new LatencyProfile("uniform:" + minMillis + "," + maxMillis, new UniformDistribution(minMillis, maxMillis));
+  }
+
+  public static LatencyProfile logNormal(double medianMillis, double sigma) {
+    return new LatencyProfile("lognormal:" + medianMillis + "," + sigma, new LogNormal(medianMillis, sigma));
+  }
+
+  public static LatencyProfile parse(String spec) {
+    String s = spec == null ? "" : spec.trim().toLowerCase(Locale.ROOT);
+    if (s.isEmpty() || s.equals("none")) {
+      return NONE;
+    }
+    int colon = s.indexOf(':');
+    if (colon < 0) {
+      throw new IllegalArgumentException("invalid latency spec '" + spec + "' (expected none|fixed:MS|uniform:MIN,MAX|lognormal:MEDIAN,SIGMA)");
+    }
+    String kind = s.substring(0, colon);
+    String[] args = s.substring(colon + 1).split(",");
+    try {
+      switch (kind) {
+        case "fixed":
+          expectArgs(spec, args, 1);
+          return fixed(Integer.parseInt(args[0].trim()));
+        case "uniform":
+          expectArgs(spec, args, 2);
+          return uniform(Integer.parseInt(args[0].trim()), Integer.parseInt(args[1].trim()));
+        case "lognormal":
+          expectArgs(spec, args, 2);
+          return logNormal(Double.parseDouble(args[0].trim()), Double.parseDouble(args[1].trim()));
+        default:
+          throw new IllegalArgumentException("unknown latency distribution '" + kind + "'");
+      }
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid number in latency spec '" + spec + "'", e);
+    }
+  }
+
+  private static void expectArgs(String spec, String[] args, int n) {
+    if (args.length != n) {
+      throw new IllegalArgumentException("latency spec '" + spec + "' needs " + n + " argument(s)");
+    }
+  }
+
+  /** WireMock delay distribution, or null for no delay. */
+  public DelayDistribution distribution() {
+    return distribution;
+  }
+
+  @Override
+  public String toString() {
+    return spec;
+  }
+}
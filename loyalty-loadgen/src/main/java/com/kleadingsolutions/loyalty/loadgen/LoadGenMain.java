@@ -0,0 +1,139 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import io.vertx.core.Vertx;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Command line entry point.
+ *
+ * Against a running service:
+ *   LoadGenMain --target 127.0.0.1:8888 --rate 500 --duration 60s
+ *
+ * Against an in-process service wired to WireMock FX/Promo stand-ins:
+ *   LoadGenMain --embedded --fx-latency lognormal:20,0.4 --promo-latency uniform:5,40 --rate 500
+ */
+public final class LoadGenMain {
+
+  static final int EXIT_OK = 0;
+  static final int EXIT_USAGE = 2;
+
+  private static final String USAGE = String.join(System.lineSeparator(),
+          "usage: LoadGenMain (--target HOST:PORT | --embedded) [options]",
+          "  --rate N              arrivals per second (default 200)",
+          "  --duration D          measured duration, e.g. 30s, 500ms, 2m (default 30s)",
+          "  --warmup D            unrecorded warm-up (default 5s)",
+          "  --connections N       client connection pool size (default 64)",
+          "  --timeout-ms N        per-request timeout (default 5000)",
+          "  --mix SPEC            request mix, default " + RequestMix.DEFAULT_SPEC,
+          "  --seed N              random seed (default 42)",
+          "  --fx-latency SPEC     embedded only: none|fixed:MS|uniform:MIN,MAX|lognormal:MEDIAN,SIGMA",
+          "  --promo-latency SPEC  embedded only, same format",
+          "  --report-dir DIR      write <name>.json and <name>-latency.hgrm",
+          "  --name NAME           report file name (default loadgen)");
+
+  private LoadGenMain() {
+  }
+
+  public static void main(String[] args) {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  static int run(String[] args, PrintStream out, PrintStream err) {
+    LoadGenOptions options = new LoadGenOptions();
+    boolean embedded = false;
+    String target = null;
+    LatencyProfile fxLatency = LatencyProfile.NONE;
+    LatencyProfile promoLatency = LatencyProfile.NONE;
+    Path reportDir = null;
+    String name = "loadgen";
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        switch (arg) {
+          case "--target" -> target = value(args, ++i, arg);
+          case "--embedded" -> embedded = true;
+          case "--rate" -> options.setRatePerSecond(Double.parseDouble(value(args, ++i, arg)));
+          case "--duration" -> options.setDuration(parseDuration(value(args, ++i, arg)));
+          case "--warmup" -> options.setWarmup(parseDuration(value(args, ++i, arg)));
+          case "--connections" -> options.setConnections(Integer.parseInt(value(args, ++i, arg)));
+          case "--timeout-ms" -> options.setRequestTimeoutMs(Long.parseLong(value(args, ++i, arg)));
+          case "--mix" -> options.setMix(value(args, ++i, arg));
+          case "--seed" -> options.setSeed(Long.parseLong(value(args, ++i, arg)));
+          case "--fx-latency" -> fxLatency = LatencyProfile.parse(value(args, ++i, arg));
+          case "--promo-latency" -> promoLatency = LatencyProfile.parse(value(args, ++i, arg));
+          case "--report-dir" -> reportDir = Path.of(value(args, ++i, arg));
+          case "--name" -> name = value(args, ++i, arg);
+          default -> throw new IllegalArgumentException("unknown argument: " + arg);
+        }
+      }
+      if (embedded == (target != null)) {
+        throw new IllegalArgumentException("exactly one of --target or --embedded is required");
+      }
+      if (target != null) {
+        int colon = target.lastIndexOf(':');
+        if (colon <= 0) throw new IllegalArgumentException("--target must be HOST:PORT");
+        options.setHost(target.substring(0, colon)).setPort(Integer.parseInt(target.substring(colon + 1)));
+      }
+      RequestMix.parse(options.getMix(), options.getSeed()); // fail fast on a bad mix
+    } catch (IllegalArgumentException e) {
+      err.println(e.getMessage());
+      err.println(USAGE);
+      return EXIT_USAGE;
+    }
+
+    Vertx vertx = Vertx.vertx();
+    UpstreamStandIns standIns = null;
+    EmbeddedService service = null;
+    try {
+      if (embedded) {
+        standIns = UpstreamStandIns.start(fxLatency, promoLatency);
+        service = EmbeddedService.start(vertx, standIns.fxBaseUrl(), standIns.promoBaseUrl());
+        options.setHost("127.0.0.1").setPort(service.port());
+        out.printf(Locale.ROOT, "embedded service on port %d (fx=%s, promo=%s)%n", service.port(), fxLatency, promoLatency);
+      }
+      long waitSeconds = options.getWarmup().toSeconds() + options.getDuration().toSeconds()
+              + TimeUnit.MILLISECONDS.toSeconds(options.getRequestTimeoutMs()) + 30;
+      LoadReport report = new LoadGenerator(vertx, options).run()
+              .toCompletionStage().toCompletableFuture().get(waitSeconds, TimeUnit.SECONDS);
+      report.print(out);
+      if (reportDir != null) {
+        out.println("report written to " + report.write(reportDir, name));
+      }
+      return EXIT_OK;
+    } catch (Exception e) {
+      err.println("load run failed: " + e);
+      return EXIT_USAGE;
+    } finally {
+      try {
+        if (service != null) service.close();
+      } catch (Exception ignored) {
+      }
+      if (standIns != null) standIns.close();
+      vertx.close();
+    }
+  }
+
+  static Duration parseDuration(String s) {
+    String v = s.trim().toLowerCase(Locale.ROOT);
+    try {
+      if (v.endsWith("ms")) return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+      if (v.endsWith("s")) return Duration.ofSeconds(Long.parseLong(v.substring(0, v.length() - 1)));
+      if (v.endsWith("m")) return Duration.ofMinutes(Long.parseLong(v.substring(0, v.length() - 1)));
+      return Duration.ofSeconds(Long.parseLong(v));
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("invalid duration '" + s + "'", e);
+    }
+  }
+
+  private static String value(String[] args, int index, String flag) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException(flag + " requires a value");
+    }
+    return args[index];
+  }
+}
@@ -0,0 +1,72 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Settings for one {@link LoadGenerator} run (fluent setters, Vert.x options style).
+ */
+public class LoadGenOptions {
+
+  private String host = "127.0.0.1";
+  private int port = 8888;
+  private String path = "/v1/points/quote";
+  private double ratePerSecond = 200;
+  private Duration warmup = Duration.ofSeconds(5);
+  private Duration duration = Duration.ofSeconds(30);
+  private int connections = 64;
+  private long requestTimeoutMs = 5_000;
+  private long seed = 42L;
+  private String mix = RequestMix.DEFAULT_SPEC;
+
+  public String getHost() { return host; }
+  public LoadGenOptions setHost(String host) { this.host = Objects.requireNonNull(host, "host"); return this; }
+
+  public int getPort() { return port; }
+  public LoadGenOptions setPort(int port) { this.port = port; return this; }
+
+  public String getPath() { return path; }
+  public LoadGenOptions setPath(String path) { this.path = Objects.requireNonNull(path, "path"); return this; }
+
+  /** Fixed arrival rate; requests are scheduled at this rate whether or not earlier ones completed. */
+  public double getRatePerSecond() { return ratePerSecond; }
+  public LoadGenOptions setRatePerSecond(double ratePerSecond) {
+    if (!(ratePerSecond > 0)) throw new IllegalArgumentException("rate must be > 0");
+    this.ratePerSecond = ratePerSecond;
+    return this;
+  }
+
+  /** Load is applied but not recorded during warm-up. */
+  public Duration getWarmup() { return warmup; }
+  public LoadGenOptions setWarmup(Duration warmup) {
+    if (warmup.isNegative()) throw new IllegalArgumentException("warmup must be >= 0");
+    this.warmup = warmup;
+    return this;
+  }
+
+  /** Measured part of the run (after warm-up). */
+  public Duration getDuration() { return duration; }
+  public LoadGenOptions setDuration(Duration duration) {
+    if (duration.isZero() || duration.isNegative()) throw new IllegalArgumentException("duration must be > 0");
+    this.duration = duration;
+    return this;
+  }
+
+  /** HTTP connection pool size; requests beyond it wait in the client queue (and that wait is measured). */
+  public int getConnections() { return connections; }
+  public LoadGenOptions setConnections(int connections) {
+    if (connections < 1) throw new IllegalArgumentException("connections must be >= 1");
+    this.connections = connections;
+    return this;
+  }
+
+  public long getRequestTimeoutMs() { return requestTimeoutMs; }
+  public LoadGenOptions setRequestTimeoutMs(long requestTimeoutMs) { this.requestTimeoutMs = requestTimeoutMs; return this; }
+
+  public long getSeed() { return seed; }
+  public LoadGenOptions setSeed(long seed) { this.seed = seed; return this; }
+
+  /** Request mix spec, see {@link RequestMix#parse(String, long)}. */
+  public String getMix() { return mix; }
+  public LoadGenOptions setMix(String mix) { this.mix = Objects.requireNonNull(mix, "mix"); return this; }
+}
@@ -0,0 +1,174 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Open-model load generator: requests are scheduled at a fixed arrival rate, independent of how
+ * fast the service answers (no closed loop, no back-pressure from slow responses).
+ *
+ * Every request has an intended start time ({@code start + i / rate}). Latency is measured from
+ * that intended time, not from when the request actually went out, so time spent waiting behind a
+ * stalled service or a full connection pool is counted — i.e. the histogram is corrected for
+ * coordinated omission. The raw service time (actual send to response) is kept alongside for comparison.
+ *
+ * All scheduling and recording happens on one Vert.x context, so histograms need no synchronization.
+ */
+public final class LoadGenerator {
+
+  static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+  private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+  private final Vertx vertx;
+  private final LoadGenOptions options;
+  private final RequestMix mix;
+
+  public LoadGenerator(Vertx vertx, LoadGenOptions options) {
+    this.vertx = vertx;
+    this.options = options;
+    this.mix = RequestMix.parse(options.getMix(), options.getSeed());
+  }
+
+  public Future<LoadReport> run() {
+    Promise<LoadReport> promise = Promise.promise();
+    vertx.getOrCreateContext().runOnContext(v -> new Run(promise).start());
+    return promise.future();
+  }
+
+  private final class Run {
+    private final Promise<LoadReport> promise;
+    private final WebClient client;
+    private final SplittableRandom random = new SplittableRandom(options.getSeed());
+    private final double intervalNanos = NANOS_PER_SECOND / options.getRatePerSecond();
+    private final long total;
+
+    private final Histogram corrected = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final Histogram uncorrected = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    private final List<Histogram> perSecond = new ArrayList<>();
+    private final List<long[]> perSecondOutcomes = new ArrayList<>(); // [completed, errors]
+    private final TreeMap<Integer, Long> statusCounts = new TreeMap<>();
+    private long transportErrors;
+    private long unexpected;
+    private long recorded;
+
+    private long start;
+    private long measureFrom;
+    private long sent;
+    private long completed;
+    private long timerId = -1;
+
+    Run(Promise<LoadReport> promise) {
+      this.promise = promise;
+      this.client = WebClient.create(vertx, new WebClientOptions()
+              .setDefaultHost(options.getHost())
+              .setDefaultPort(options.getPort())
+              .setKeepAlive(true)
+              .setTcpNoDelay(true)
+              .setMaxPoolSize(options.getConnections()));
+      double seconds = (options.getWarmup().toNanos() + options.getDuration().toNanos()) / (double) NANOS_PER_SECOND;
+      this.total = Math.max(1L, (long) Math.floor(seconds * options.getRatePerSecond()));
+    }
+
+    void start() {
+      start = System.nanoTime();
+      measureFrom = start + options.getWarmup().toNanos();
+      tick();
+      if (sent < total) {
+        timerId = vertx.setPeriodic(1, id -> tick());
+      }
+    }
+
+    private void tick() {
+      long now = System.nanoTime();
+      while (sent < total) {
+        long intended = start + Math.round(sent * intervalNanos);
+        if (intended > now) {
+          break;
+        }
+        issue(intended);
+        sent++;
+      }
+      if (sent == total && timerId >= 0) {
+        vertx.cancelTimer(timerId);
+        timerId = -1;
+      }
+    }
+
+    private void issue(long intended) {
+      RequestMix.Shape shape = mix.next(random);
+      Buffer body = shape.body(random);
+      long sentAt = System.nanoTime();
+      client.request(HttpMethod.POST, options.getPath())
+              .putHeader("content-type", "application/json")
+              .timeout(options.getRequestTimeoutMs())
+              .sendBuffer(body, ar -> {
+                long end = System.nanoTime();
+                int status = ar.succeeded() ? ar.result().statusCode() : -1;
+                if (intended >= measureFrom) {
+                  record(intended, sentAt, end, status, shape.expectedStatus());
+                }
+                completed++;
+                if (completed == total) {
+                  finish();
+                }
+              });
+    }
+
+    private void record(long intended, long sentAt, long end, int status, int expectedStatus) {
+      long latency = Math.min(end - intended, HIGHEST_TRACKABLE_NANOS);
+      corrected.recordValue(latency);
+      uncorrected.recordValue(Math.min(end - sentAt, HIGHEST_TRACKABLE_NANOS));
+      recorded++;
+
+      boolean error;
+      if (status < 0) {
+        transportErrors++;
+        error = true;
+      } else {
+        statusCounts.merge(status, 1L, Long::sum);
+        error = status >= 500;
+      }
+      if (status != expectedStatus) {
+        unexpected++;
+      }
+
+      int second = (int) Math.max(0, (end - measureFrom) / NANOS_PER_SECOND);
+      while (perSecond.size() <= second) {
+        perSecond.add(new Histogram(HIGHEST_TRACKABLE_NANOS, 2));
+        perSecondOutcomes.add(new long[2]);
+      }
+      perSecond.get(second).recordValue(latency);
+      long[] outcome = perSecondOutcomes.get(second);
+      outcome[0]++;
+      if (error) outcome[1]++;
+    }
+
+    private void finish() {
+      client.close();
+      List<LoadReport.Interval> intervals = new ArrayList<>(perSecond.size());
+      for (int i = 0; i < perSecond.size(); i++) {
+        Histogram h = perSecond.get(i);
+        long[] outcome = perSecondOutcomes.get(i);
+        intervals.add(new LoadReport.Interval(i, outcome[0], outcome[1],
+                LoadReport.millis(h.getValueAtPercentile(50.0)),
+                LoadReport.millis(h.getValueAtPercentile(99.0)),
+                LoadReport.millis(h.getMaxValue())));
+      }
+      long elapsed = System.nanoTime() - start;
+      promise.complete(new LoadReport(options, total, recorded, elapsed, statusCounts, transportErrors,
+              unexpected, corrected, uncorrected, intervals));
+    }
+  }
+}
@@ -0,0 +1,183 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Result of a load run: latency percentiles (corrected for coordinated omission and raw service
+ * time), outcome counts and throughput per second of the measured window.
+ * Can be printed as text tables, or written as JSON plus an HdrHistogram percentile file (.hgrm).
+ */
+public final class LoadReport {
+
+  public static final double[] PERCENTILES = {50.0, 75.0, 90.0, 95.0, 99.0, 99.9, 99.99, 100.0};
+
+  /** Completions during one second of the measured window. */
+  public record Interval(int second, long completed, long errors, double p50Millis, double p99Millis, double maxMillis) {
+  }
+
+  private final LoadGenOptions options;
+  private final long scheduled;
+  private final long measured;
+  private final long elapsedNanos;
+  private final SortedMap<Integer, Long> statusCounts;
+  private final long transportErrors;
+  private final long unexpected;
+  private final Histogram corrected;
+  private final Histogram uncorrected;
+  private final List<Interval> intervals;
+
+  LoadReport(LoadGenOptions options, long scheduled, long measured, long elapsedNanos, SortedMap<Integer, Long> statusCounts,
+             long transportErrors, long unexpected, Histogram corrected, Histogram uncorrected, List<Interval> intervals) {
+    this.options = options;
+    this.scheduled = scheduled;
+    this.measured = measured;
+    this.elapsedNanos = elapsedNanos;
+    this.statusCounts = new TreeMap<>(statusCounts);
+    this.transportErrors = transportErrors;
+    this.unexpected = unexpected;
+    this.corrected = corrected;
+    this.uncorrected = uncorrected;
+    this.intervals = List.copyOf(intervals);
+  }
+
+  static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+
+  /** Requests scheduled over warm-up plus measured window. */
+  public long getScheduled() { return scheduled; }
+
+  /** Requests whose intended start fell in the measured window. */
+  public long getMeasured() { return measured; }
+
+  public SortedMap<Integer, Long> getStatusCounts() { return statusCounts; }
+
+  /** Connection failures and client-side timeouts. */
+  public long getTransportErrors() { return transportErrors; }
+
+  /** Responses whose status differs from the one expected for the request shape (200 for valid, 400 for invalid). */
+  public long getUnexpected() { return unexpected; }
+
+  public List<Interval> getIntervals() { return intervals; }
+
+  /** Coordinated-omission corrected latency (from intended start) at the given percentile, in ms. */
+  public double latencyMillis(double percentile) {
+    return millis(corrected.getValueAtPercentile(percentile));
+  }
+
+  /** Raw service time (from actual send) at the given percentile, in ms. */
+  public double serviceTimeMillis(double percentile) {
+    return millis(uncorrected.getValueAtPercentile(percentile));
+  }
+
+  /** Share of measured requests that failed at transport level or got a 5xx. */
+  public double errorRate() {
+    if (measured == 0) return 0.0;
+    long serverErrors = statusCounts.tailMap(500).values().stream().mapToLong(Long::longValue).sum();
+    return (transportErrors + serverErrors) / (double) measured;
+  }
+
+  /** Completions per second over the measured window. */
+  public double throughputPerSecond() {
+    return measured / (options.getDuration().toNanos() / 1e9);
+  }
+
+  public void print(PrintStream out) {
+    out.printf(Locale.ROOT, "target=%s:%d%s rate=%.1f/s warmup=%.1fs duration=%.1fs connections=%d%n",
+            options.getHost(), options.getPort(), options.getPath(), options.getRatePerSecond(),
+            options.getWarmup().toMillis() / 1000.0, options.getDuration().toMillis() / 1000.0, options.getConnections());
+    out.printf(Locale.ROOT, "scheduled=%d measured=%d throughput=%.1f/s errorRate=%.4f unexpected=%d transportErrors=%d status=%s%n",
+            scheduled, measured, throughputPerSecond(), errorRate(), unexpected, transportErrors, statusCounts);
+    out.println();
+    out.println("percentile   latency(ms)   service-time(ms)");
+    for (double p : PERCENTILES) {
+      out.printf(Locale.ROOT, "%10s %13.3f %18.3f%n", p + "%", latencyMillis(p), serviceTimeMillis(p));
+    }
+    out.println();
+    out.println("second   completed   errors   p50(ms)   p99(ms)   max(ms)");
+    for (Interval i : intervals) {
+      out.printf(Locale.ROOT, "%6d %11d %8d %9.3f %9.3f %9.3f%n",
+              i.second(), i.completed(), i.errors(), i.p50Millis(), i.p99Millis(), i.maxMillis());
+    }
+  }
+
+  public Map<String, Object> toMap() {
+    Map<String, Object> root = new LinkedHashMap<>();
+    Map<String, Object> opts = new LinkedHashMap<>();
+    opts.put("host", options.getHost());
+    opts.put("port", options.getPort());
+    opts.put("path", options.getPath());
+    opts.put("ratePerSecond", options.getRatePerSecond());
+    opts.put("warmupSeconds", options.getWarmup().toMillis() / 1000.0);
+    opts.put("durationSeconds", options.getDuration().toMillis() / 1000.0);
+    opts.put("connections", options.getConnections());
+    opts.put("mix", options.getMix());
+    root.put("options", opts);
+    root.put("scheduled", scheduled);
+    root.put("measured", measured);
+    root.put("elapsedSeconds", elapsedNanos / 1e9);
+    root.put("throughputPerSecond", throughputPerSecond());
+    root.put("errorRate", errorRate());
+    root.put("unexpected", unexpected);
+    root.put("transportErrors", transportErrors);
+    Map<String, Long> status = new LinkedHashMap<>();
+    statusCounts.forEach((k, v) -> status.put(String.valueOf(k), v));
+    root.put("statusCounts", status);
+    root.put("latencyMillis", percentiles(corrected));
+    root.put("serviceTimeMillis", percentiles(uncorrected));
+    List<Map<String, Object>> ivs = new ArrayList<>();
+    for (Interval i : intervals) {
+      Map<String, Object> m = new LinkedHashMap<>();
+      m.put("second", i.second());
+      m.put("completed", i.completed());
+      m.put("errors", i.errors());
+      m.put("p50Millis", i.p50Millis());
+      m.put("p99Millis", i.p99Millis());
+      m.put("maxMillis", i.maxMillis());
+      ivs.add(m);
+    }
+    root.put("intervals", ivs);
+    return root;
+  }
+
+  private static Map<String, Double> percentiles(Histogram h) {
+    Map<String, Double> m = new LinkedHashMap<>();
+    for (double p : PERCENTILES) {
+      m.put("p" + p, millis(h.getValueAtPercentile(p)));
+    }
+    return m;
+  }
+
+  /** Writes {@code <name>.json} and {@code <name>-latency.hgrm} (corrected latency, ms) into {@code dir}. */
+  public Path write(Path dir, String name) throws IOException {
+    return write(dir, name, Map.of());
+  }
+
+  /** As {@link #write(Path, String)}, with {@code extra} entries (e.g. SLO bounds and verdict) added to the JSON. */
+  public Path write(Path dir, String name, Map<String, ?> extra) throws IOException {
+    Files.createDirectories(dir);
+    Path json = dir.resolve(name + ".json");
+    Map<String, Object> root = toMap();
+    root.putAll(extra);
+    new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(json.toFile(), root);
+    try (PrintStream hgrm = new PrintStream(Files.newOutputStream(dir.resolve(name + "-latency.hgrm")), false, StandardCharsets.UTF_8)) {
+      corrected.outputPercentileDistribution(hgrm, 1_000_000.0);
+    }
+    return json;
+  }
+}
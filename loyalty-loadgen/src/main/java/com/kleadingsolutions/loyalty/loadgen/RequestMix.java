@@ -0,0 +1,152 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Weighted mix of quote request shapes. Bodies are pre-rendered when the mix is built so picking a
+ * request during the run is a couple of array lookups.
+ *
+ * Shapes: {@code valid} (no promo), {@code promo} (known promo code), {@code unknown-promo}
+ * (promo lookup fails, quote still 200), {@code invalid-json}, {@code invalid-fare},
+ * {@code invalid-currency} and {@code invalid-cabin} (all 400).
+ */
+public final class RequestMix {
+
+  public static final String DEFAULT_SPEC =
+          "valid=60,promo=25,unknown-promo=5,invalid-json=3,invalid-fare=3,invalid-currency=2,invalid-cabin=2";
+
+  private static final int VARIANTS = 64;
+  private static final String[] CURRENCIES = {"USD", "EUR", "AED"};
+  private static final String[] TIERS = {"NONE", "SILVER", "GOLD", "PLATINUM"};
+  private static final String[] CABINS = {"ECONOMY", "PREMIUM_ECONOMY", "BUSINESS", "FIRST"};
+  private static final String[] PROMOS = {"SUMMER25", "TEST10"};
+
+  /** One shape of request with the status the service is expected to answer. */
+  public static final class Shape {
+    private final String name;
+    private final int expectedStatus;
+    private final Buffer[] bodies;
+
+    Shape(String name, int expectedStatus, Buffer[] bodies) {
+      this.name = name;
+      this.expectedStatus = expectedStatus;
+      this.bodies = bodies;
+    }
+
+    public String name() { return name; }
+
+    public int expectedStatus() { return expectedStatus; }
+
+    Buffer body(SplittableRandom random) {
+      return bodies[random.nextInt(bodies.length)];
+    }
+  }
+
+  private final Shape[] shapes;
+  private final int[] cumulativeWeights;
+  private final int totalWeight;
+
+  private RequestMix(Shape[] shapes, int[] cumulativeWeights) {
+    this.shapes = shapes;
+    this.cumulativeWeights = cumulativeWeights;
+    this.totalWeight = cumulativeWeights[cumulativeWeights.length - 1];
+  }
+
+  public static RequestMix defaultMix(long seed) {
+    return parse(DEFAULT_SPEC, seed);
+  }
+
+  /** Parses {@code name=weight,...}; weights are relative, zero-weight shapes are dropped. */
+  public static RequestMix parse(String spec, long seed) {
+    Map<String, Integer> weights = new LinkedHashMap<>();
+    for (String part : spec.split(",")) {
+      String p = part.trim();
+      if (p.isEmpty()) continue;
+      int eq = p.indexOf('=');
+      if (eq < 0) throw new IllegalArgumentException("invalid mix entry '" + p + "' (expected name=weight)");
+      String name = p.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+      int weight;
+      try {
+        weight = Integer.parseInt(p.substring(eq + 1).trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("invalid weight in mix entry '" + p + "'", e);
+      }
+      if (weight < 0) throw new IllegalArgumentException("negative weight in mix entry '" + p + "'");
+      weights.put(name, weight);
+    }
+
+    SplittableRandom random = new SplittableRandom(seed);
+    List<Shape> shapes = new ArrayList<>();
+    List<Integer> cumulative = new ArrayList<>();
+    int total = 0;
+    for (Map.Entry<String, Integer> e : weights.entrySet()) {
+      Shape shape = build(e.getKey(), random);
+      if (e.getValue() == 0) continue;
+      total += e.getValue();
+      shapes.add(shape);
+      cumulative.add(total);
+    }
+    if (shapes.isEmpty()) {
+      throw new IllegalArgumentException("request mix has no shapes with weight > 0");
+    }
+    return new RequestMix(shapes.toArray(new Shape[0]), cumulative.stream().mapToInt(Integer::intValue).toArray());
+  }
+
+  private static Shape build(String name, SplittableRandom random) {
+    Buffer[] bodies = new Buffer[VARIANTS];
+    int status = 400;
+    for (int i = 0; i < VARIANTS; i++) {
+      String fare = String.format(Locale.ROOT, "%.2f", 20.0 + random.nextDouble() * 4980.0);
+      String currency = pick(CURRENCIES, random);
+      String tier = pick(TIERS, random);
+      String cabin = pick(CABINS, random);
+      String body;
+      switch (name) {
+        case "valid" -> { body = quote(fare, currency, cabin, tier, null); status = 200; }
+        case "promo" -> { body = quote(fare, currency, cabin, tier, pick(PROMOS, random)); status = 200; }
+        case "unknown-promo" -> { body = quote(fare, currency, cabin, tier, "NOPE" + random.nextInt(1000)); status = 200; }
+        case "invalid-json" -> body = "{\"fareAmount\":" + fare + ",\"currency\":";
+        case "invalid-fare" -> body = quote(random.nextBoolean() ? "0" : "-" + fare, currency, cabin, tier, null);
+        case "invalid-currency" -> body = quote(fare, "GBP", cabin, tier, null);
+        case "invalid-cabin" -> body = quote(fare, currency, "COACH", tier, null);
+        default -> throw new IllegalArgumentException("unknown request shape '" + name + "'");
+      }
+      bodies[i] = Buffer.buffer(body);
+    }
+    return new Shape(name, status, bodies);
+  }
+
+  private static String quote(String fare, String currency, String cabin, String tier, String promo) {
+    return "{\"fareAmount\":" + fare
+            + ",\"currency\":\"" + currency + "\""
+            + ",\"cabinClass\":\"" + cabin + "\""
+            + ",\"customerTier\":\"" + tier + "\""
+            + (promo == null ? "" : ",\"promoCode\":\"" + promo + "\"")
+            + "}";
+  }
+
+  private static String pick(String[] values, SplittableRandom random) {
+    return values[random.nextInt(values.length)];
+  }
+
+  public Shape next(SplittableRandom random) {
+    int r = random.nextInt(totalWeight);
+    for (int i = 0; i < cumulativeWeights.length; i++) {
+      if (r < cumulativeWeights[i]) {
+        return shapes[i];
+      }
+    }
+    return shapes[shapes.length - 1];
+  }
+
+  public List<Shape> shapes() {
+    return List.of(shapes);
+  }
+}
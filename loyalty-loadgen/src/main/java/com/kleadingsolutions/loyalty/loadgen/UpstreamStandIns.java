@@ -0,0 +1,102 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathMatching;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+
+/**
+ * WireMock stand-ins for the FX and Promo services with configurable latency.
+ * FX and Promo run on separate servers so a slow (or dead) promo service cannot starve FX of
+ * WireMock threads; delays are served asynchronously so they do not hold container threads either.
+ *
+ * FX: GET /fx/rate?currency=USD|EUR|AED. Promo: GET /promo/SUMMER25 and /promo/TEST10;
+ * any other code returns 404, which the service quotes as if no promo code had been given.
+ */
+public final class UpstreamStandIns implements AutoCloseable {
+
+  private static final int THREADS = 64;
+
+  private final WireMockServer fx;
+  private final WireMockServer promo;
+
+  private UpstreamStandIns(WireMockServer fx, WireMockServer promo) {
+    this.fx = fx;
+    this.promo = promo;
+  }
+
+  public static UpstreamStandIns start(LatencyProfile fxLatency, LatencyProfile promoLatency) {
+    WireMockServer fx = newServer();
+    WireMockServer promo = newServer();
+    try {
+      fx.start();
+      promo.start();
+      stubFx(fx, fxLatency);
+      stubPromo(promo, promoLatency);
+    } catch (RuntimeException e) {
+      fx.stop();
+      promo.stop();
+      throw e;
+    }
+    return new UpstreamStandIns(fx, promo);
+  }
+
+  private static WireMockServer newServer() {
+    return new WireMockServer(wireMockConfig()
+            .dynamicPort()
+            .containerThreads(THREADS)
+            .jettyAcceptors(2)
+            .asynchronousResponseEnabled(true)
+            .asynchronousResponseThreads(THREADS)
+            .disableRequestJournal());
+  }
+
+  private static void stubFx(WireMockServer server, LatencyProfile latency) {
+    stubFxRate(server, latency, "USD", 3.67);
+    stubFxRate(server, latency, "EUR", 4.00);
+    stubFxRate(server, latency, "AED", 1.00);
+  }
+
+  private static void stubFxRate(WireMockServer server, LatencyProfile latency, String currency, double rate) {
+    server.stubFor(get(urlPathEqualTo("/fx/rate"))
+            .withQueryParam("currency", equalTo(currency))
+            .willReturn(withLatency(json("{\"rate\":" + rate + "}"), latency)));
+  }
+
+  private static void stubPromo(WireMockServer server, LatencyProfile latency) {
+    server.stubFor(get(urlPathMatching("/promo/.*"))
+            .atPriority(10)
+            .willReturn(withLatency(aResponse().withStatus(404), latency)));
+    server.stubFor(get(urlPathEqualTo("/promo/SUMMER25"))
+            .willReturn(withLatency(json("{\"code\":\"SUMMER25\",\"percent\":0.25,\"expiresInDays\":1}"), latency)));
+    server.stubFor(get(urlPathEqualTo("/promo/TEST10"))
+            .willReturn(withLatency(json("{\"code\":\"TEST10\",\"percent\":0.10,\"expiresInDays\":10}"), latency)));
+  }
+
+  private static ResponseDefinitionBuilder json(String body) {
+    return aResponse().withStatus(200).withHeader("Content-Type", "application/json").withBody(body);
+  }
+
+  private static ResponseDefinitionBuilder withLatency(ResponseDefinitionBuilder response, LatencyProfile latency) {
+    return latency.distribution() == null ? response : response.withRandomDelay(latency.distribution());
+  }
+
+  public String fxBaseUrl() {
+    return "http://127.0.0.1:" + fx.port();
+  }
+
+  public String promoBaseUrl() {
+    return "http://127.0.0.1:" + promo.port();
+  }
+
+  @Override
+  public void close() {
+    fx.stop();
+    promo.stop();
+  }
+}
@@ -0,0 +1,31 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import com.github.tomakehurst.wiremock.http.FixedDelayDistribution;
+import com.github.tomakehurst.wiremock.http.LogNormal;
+import com.github.tomakehurst.wiremock.http.UniformDistribution;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LatencyProfileTest {
+
+  @Test
+  public void parses_supported_distributions() {
+    assertThat(LatencyProfile.parse(null).distribution()).isNull();
+    assertThat(LatencyProfile.parse(" none ")).isSameAs(LatencyProfile.NONE);
+    assertThat(LatencyProfile.parse("fixed:250").distribution()).isInstanceOf(FixedDelayDistribution.class);
+    assertThat(LatencyProfile.parse("uniform:5, 40").distribution()).isInstanceOf(UniformDistribution.class);
+    assertThat(LatencyProfile.parse("LogNormal:20,0.4").distribution()).isInstanceOf(LogNormal.class);
+    assertThat(LatencyProfile.parse("uniform:5,40")).hasToString("uniform:5,40");
+  }
+
+  @Test
+  public void rejects_bad_specs() {
+    assertThatThrownBy(() -> LatencyProfile.parse("fixed")).hasMessageContaining("invalid latency spec");
+    assertThatThrownBy(() -> LatencyProfile.parse("fixed:1,2")).hasMessageContaining("needs 1 argument");
+    assertThatThrownBy(() -> LatencyProfile.parse("fixed:abc")).hasMessageContaining("invalid number");
+    assertThatThrownBy(() -> LatencyProfile.parse("uniform:40,5")).hasMessageContaining("max < min");
+    assertThatThrownBy(() -> LatencyProfile.parse("pareto:1,2")).hasMessageContaining("unknown latency distribution");
+  }
+}
@@ -0,0 +1,59 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LoadGenMainTest {
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+  private int run(String... args) {
+    return LoadGenMain.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+            new PrintStream(err, true, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void embedded_run_against_stand_ins(@TempDir Path dir) throws Exception {
+    // low rate: the stand-ins, the service and the generator share the test JVM
+    int code = run("--embedded", "--rate", "20", "--warmup", "2s", "--duration", "1s",
+            "--fx-latency", "uniform:1,5", "--promo-latency", "fixed:2", "--mix", "valid=2,promo=1,invalid-json=1",
+            "--report-dir", dir.toString(), "--name", "smoke");
+
+    assertThat(code).as(err.toString(StandardCharsets.UTF_8)).isEqualTo(LoadGenMain.EXIT_OK);
+    assertThat(out.toString(StandardCharsets.UTF_8)).contains("embedded service on port", "measured=20", "400=");
+    assertThat(Files.readString(dir.resolve("smoke.json"))).contains("\"measured\" : 20");
+    assertThat(dir.resolve("smoke-latency.hgrm")).exists();
+  }
+
+  @Test
+  public void usage_errors_exit_two() {
+    assertThat(run()).isEqualTo(LoadGenMain.EXIT_USAGE);
+    assertThat(run("--embedded", "--target", "localhost:1")).isEqualTo(LoadGenMain.EXIT_USAGE);
+    assertThat(run("--target", "localhost")).isEqualTo(LoadGenMain.EXIT_USAGE);
+    assertThat(run("--embedded", "--rate")).isEqualTo(LoadGenMain.EXIT_USAGE);
+    assertThat(run("--embedded", "--rate", "0")).isEqualTo(LoadGenMain.EXIT_USAGE);
+    assertThat(run("--embedded", "--mix", "nope=1")).isEqualTo(LoadGenMain.EXIT_USAGE);
+    assertThat(run("--bogus")).isEqualTo(LoadGenMain.EXIT_USAGE);
+    assertThat(err.toString(StandardCharsets.UTF_8)).contains("usage: LoadGenMain");
+  }
+
+  @Test
+  public void parses_durations() {
+    assertThat(LoadGenMain.parseDuration("250ms")).isEqualTo(Duration.ofMillis(250));
+    assertThat(LoadGenMain.parseDuration("30s")).isEqualTo(Duration.ofSeconds(30));
+    assertThat(LoadGenMain.parseDuration("2m")).isEqualTo(Duration.ofMinutes(2));
+    assertThat(LoadGenMain.parseDuration("7")).isEqualTo(Duration.ofSeconds(7));
+    assertThatThrownBy(() -> LoadGenMain.parseDuration("soon")).isInstanceOf(IllegalArgumentException.class);
+  }
+}
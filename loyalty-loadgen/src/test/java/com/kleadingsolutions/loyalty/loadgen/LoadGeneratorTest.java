@@ -0,0 +1,106 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LoadGeneratorTest {
+
+  private Vertx vertx;
+  private HttpServer server;
+  private final AtomicBoolean stalled = new AtomicBoolean();
+
+  @BeforeEach
+  public void setUp() throws Exception {
+    vertx = Vertx.vertx();
+    // answers 200 immediately, or after 300 ms while "stalled"
+    server = vertx.createHttpServer()
+            .requestHandler(req -> req.body(b -> {
+              if (stalled.get()) {
+                vertx.setTimer(300, t -> req.response().end("{}"));
+              } else {
+                req.response().end("{}");
+              }
+            }))
+            .listen(0).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  @AfterEach
+  public void tearDown() throws Exception {
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  private LoadReport run(LoadGenOptions options) throws Exception {
+    return new LoadGenerator(vertx, options.setPort(server.actualPort()))
+            .run().toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void issues_requests_at_the_configured_rate() throws Exception {
+    LoadReport report = run(new LoadGenOptions()
+            .setRatePerSecond(200)
+            .setWarmup(Duration.ofMillis(500))
+            .setDuration(Duration.ofSeconds(1))
+            .setMix("valid=1"));
+
+    assertThat(report.getScheduled()).isEqualTo(300);
+    assertThat(report.getMeasured()).isEqualTo(200);
+    assertThat(report.getStatusCounts()).containsEntry(200, 200L);
+    assertThat(report.getUnexpected()).isZero();
+    assertThat(report.errorRate()).isZero();
+    assertThat(report.throughputPerSecond()).isEqualTo(200.0);
+  }
+
+  @Test
+  public void queueing_behind_a_stalled_server_is_counted_in_latency() throws Exception {
+    stalled.set(true);
+    // one connection, 300 ms per response, 20 arrivals/s: requests queue in the client pool and
+    // latency grows well beyond the 300 ms any single response takes on the server
+    LoadReport report = run(new LoadGenOptions()
+            .setRatePerSecond(20)
+            .setWarmup(Duration.ZERO)
+            .setDuration(Duration.ofMillis(500))
+            .setConnections(1)
+            .setRequestTimeoutMs(20_000)
+            .setMix("valid=1"));
+
+    assertThat(report.getMeasured()).isEqualTo(10);
+    assertThat(report.serviceTimeMillis(100.0)).isLessThanOrEqualTo(report.latencyMillis(100.0));
+    assertThat(report.latencyMillis(100.0)).isGreaterThan(2_000.0);
+  }
+
+  @Test
+  public void invalid_shapes_expect_400_and_report_is_written(@TempDir Path dir) throws Exception {
+    LoadReport report = run(new LoadGenOptions()
+            .setRatePerSecond(50)
+            .setWarmup(Duration.ZERO)
+            .setDuration(Duration.ofMillis(200))
+            .setMix("invalid-json=1"));
+
+    // the stub server answers 200 to everything
+    assertThat(report.getUnexpected()).isEqualTo(report.getMeasured());
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    report.print(new PrintStream(out, true, StandardCharsets.UTF_8));
+    assertThat(out.toString(StandardCharsets.UTF_8)).contains("percentile", "99.9%", "second");
+
+    Path json = report.write(dir, "run", Map.of("slo", Map.of("passed", true)));
+    assertThat(Files.readString(json)).contains("\"latencyMillis\"", "\"intervals\"", "\"passed\" : true");
+    assertThat(dir.resolve("run-latency.hgrm")).exists();
+  }
+}
@@ -0,0 +1,57 @@
+package com.kleadingsolutions.loyalty.loadgen;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RequestMixTest {
+
+  @Test
+  public void default_mix_has_all_shapes_with_expected_status() {
+    RequestMix mix = RequestMix.defaultMix(1L);
+
+    assertThat(mix.shapes()).extracting(RequestMix.Shape::name)
+            .containsExactly("valid", "promo", "unknown-promo", "invalid-json", "invalid-fare", "invalid-currency", "invalid-cabin");
+    assertThat(mix.shapes()).filteredOn(s -> s.name().startsWith("invalid"))
+            .allSatisfy(s -> assertThat(s.expectedStatus()).isEqualTo(400));
+    assertThat(mix.shapes()).filteredOn(s -> !s.name().startsWith("invalid"))
+            .allSatisfy(s -> assertThat(s.expectedStatus()).isEqualTo(200));
+  }
+
+  @Test
+  public void picks_follow_weights() {
+    RequestMix mix = RequestMix.parse("valid=3, promo=1, invalid-json=0", 7L);
+    SplittableRandom random = new SplittableRandom(7L);
+    Map<String, Integer> counts = new HashMap<>();
+    for (int i = 0; i < 40_000; i++) {
+      counts.merge(mix.next(random).name(), 1, Integer::sum);
+    }
+
+    assertThat(counts).containsOnlyKeys("valid", "promo");
+    assertThat(counts.get("valid") / 40_000.0).isBetween(0.73, 0.77);
+  }
+
+  @Test
+  public void bodies_are_deterministic_for_a_seed() {
+    RequestMix a = RequestMix.parse("promo=1", 5L);
+    RequestMix b = RequestMix.parse("promo=1", 5L);
+
+    String bodyA = a.shapes().get(0).body(new SplittableRandom(9L)).toString();
+    String bodyB = b.shapes().get(0).body(new SplittableRandom(9L)).toString();
+    assertThat(bodyA).isEqualTo(bodyB).contains("\"promoCode\":");
+  }
+
+  @Test
+  public void rejects_bad_specs() {
+    assertThatThrownBy(() -> RequestMix.parse("valid", 1L)).hasMessageContaining("name=weight");
+    assertThatThrownBy(() -> RequestMix.parse("valid=x", 1L)).hasMessageContaining("invalid weight");
+    assertThatThrownBy(() -> RequestMix.parse("valid=-1", 1L)).hasMessageContaining("negative weight");
+    assertThatThrownBy(() -> RequestMix.parse("bogus=1", 1L)).hasMessageContaining("unknown request shape");
+    assertThatThrownBy(() -> RequestMix.parse("valid=0", 1L)).hasMessageContaining("no shapes");
+  }
+}
@@ -1,22 +1,61 @@
 package com.kleadingsolutions.loyalty;
 
+import com.kleadingsolutions.loyalty.api.BatchQuoteHandler;
+import com.kleadingsolutions.loyalty.api.CompressionThreshold;
+import com.kleadingsolutions.loyalty.api.QuoteCodec;
+import com.kleadingsolutions.loyalty.api.QuoteConsumer;
 import com.kleadingsolutions.loyalty.api.QuoteHandler;
+import com.kleadingsolutions.loyalty.api.Warmup;
 import com.kleadingsolutions.loyalty.client.FxClient;
 import com.kleadingsolutions.loyalty.client.PromoClient;
 import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
 import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.client.impl.UpstreamMetrics;
 import com.kleadingsolutions.loyalty.client.impl.VertxFxClient;
 import com.kleadingsolutions.loyalty.client.impl.VertxPromoClient;
+import com.kleadingsolutions.loyalty.cluster.ClusteredFxClient;
+import com.kleadingsolutions.loyalty.cluster.ClusteredPromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.jfr.RecordingAdmin;
+import com.kleadingsolutions.loyalty.logging.AccessLog;
+import com.kleadingsolutions.loyalty.metrics.RuntimeMetrics;
+import com.kleadingsolutions.loyalty.metrics.ScrapeHandler;
+import com.kleadingsolutions.loyalty.metrics.StartupMetrics;
+import com.kleadingsolutions.loyalty.service.EarningPlan;
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.prometheus.PrometheusConfig;
 import io.micrometer.prometheus.PrometheusMeterRegistry;
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
+import io.vertx.core.http.Http2Settings;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.net.PemKeyCertOptions;
+import io.vertx.core.net.SocketAddress;
 import io.vertx.ext.web.Router;
+import io.vertx.ext.web.client.WebClientOptions;
 import io.vertx.ext.web.handler.BodyHandler;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * MainVerticle boots the HTTP server. Also exposes Prometheus metrics and simple health endpoints.
+ * Configuration is loaded at start and shared by the instances on one Vert.x ({@link ConfigStore#shared});
+ * with {@code -Dconfig.file} the file is watched once and reloads are published to the handlers, clients
+ * and earning rules. A {@link ConfigStore} passed in is used as is: its owner watches it and wires its rules.
+ * JVM and event loop metrics are bound at start ({@link RuntimeMetrics}); Vert.x metrics need
+ * {@link LoyaltyLauncher}. Tracing is built from the {@code tracing} config unless passed in; the
+ * access log ({@link AccessLog}) is opened from {@code logging.access-log} at start. {@code /ready}
+ * waits for the {@link Warmup}. The server's TCP, HTTP/2, limit, compression and TLS options come from
+ * {@code server} ({@link #serverOptions}). With {@code server.domain-socket.path} the same router is
+ * also served on that Unix domain socket, for callers on the same host; it needs a native transport.
+ * Verticles in the same Vert.x can skip HTTP altogether and quote over the event bus ({@link QuoteConsumer}).
+ * With {@code runtime.cluster.enabled} on a clustered Vert.x the FX and promo clients go through a
+ * cluster-wide cache ({@link ClusteredFxClient}, {@link ClusteredPromoClient}); start waits for it to join.
  */
 public class MainVerticle extends AbstractVerticle {
 
@@ -24,12 +63,19 @@ public class MainVerticle extends AbstractVerticle {
     private PromoClient promoClient;
 
     private final PrometheusMeterRegistry meterRegistry;
+    private ConfigStore config;
+    private boolean ownsConfig;
+    private RuntimeMetrics runtimeMetrics;
+    private Tracing tracing;
+    private boolean ownsTracing;
+    private AccessLog accessLog = AccessLog.NOOP;
 
     public MainVerticle() {
         // resolve in start() to use the verticle's vertx instance
         this.fxClient = null;
         this.promoClient = null;
-        this.meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        // shares the Vert.x metrics registry when started through LoyaltyLauncher
+        this.meterRegistry = RuntimeMetrics.prometheusRegistry();
     }
 
 
@@ -43,51 +89,210 @@ public class MainVerticle extends AbstractVerticle {
         }
     }
 
+    public MainVerticle(FxClient fxClient, PromoClient promoClient, MeterRegistry registry, ConfigStore config) {
+        this(fxClient, promoClient, registry);
+        this.config = config;
+    }
+
+    public MainVerticle(FxClient fxClient, PromoClient promoClient, MeterRegistry registry, ConfigStore config,
+                        Tracing tracing) {
+        this(fxClient, promoClient, registry, config);
+        this.tracing = tracing;
+    }
+
     public PrometheusMeterRegistry getMeterRegistry() {
         return meterRegistry;
     }
 
+    /** The verticle's configuration; null before start unless one was passed in. */
+    public ConfigStore getConfig() {
+        return config;
+    }
+
     @Override
     public void start(Promise<Void> startPromise) {
+        final LoyaltyConfig cfg;
+        try {
+            if (this.config == null) {
+                this.config = ConfigStore.shared(vertx, MainVerticle::wireRules);
+                ownsConfig = true;
+            }
+            cfg = config.current();
+            if (cfg.getServer().hasDomainSocket() && !vertx.isNativeTransportEnabled()) {
+                throw new IllegalStateException("server.domain-socket.path needs a native transport "
+                        + "(runtime.transport.native), which is unavailable: " + vertx.unavailableNativeTransportCause());
+            }
+            if (cfg.getCluster().enabled() && !vertx.isClustered()) {
+                throw new IllegalStateException("runtime.cluster.enabled needs a clustered Vert.x: start with -cluster "
+                        + "and a cluster manager on the classpath (mvn -Pcluster)");
+            }
+        } catch (RuntimeException e) {
+            release();
+            startPromise.fail(e);
+            return;
+        }
+        try {
+            serve(cfg, startPromise);
+        } catch (RuntimeException e) {
+            release();
+            startPromise.fail(e);
+        }
+    }
+
+    private void serve(LoyaltyConfig cfg, Promise<Void> startPromise) {
+        runtimeMetrics = RuntimeMetrics.start(vertx, meterRegistry);
+        StartupMetrics.bind(meterRegistry);
+        if (tracing == null) {
+            tracing = Tracing.create(cfg.getTracing(), System.getenv());
+            ownsTracing = true;
+        }
+        accessLog = AccessLog.open(cfg.getLogging(), meterRegistry);
+
+        LoyaltyConfig.Server server = cfg.getServer();
+        // the upstream clients run on the same transport and get the same socket options as the server
+        WebClientOptions upstreamOptions = new WebClientOptions()
+                .setTcpNoDelay(server.tcpNoDelay())
+                .setTcpQuickAck(server.tcpQuickAck());
+        UpstreamMetrics upstreamMetrics = new UpstreamMetrics(meterRegistry);
         if (this.fxClient == null) {
-            String fxBase = System.getProperty("fx.base.url", "").trim();
+            String fxBase = cfg.getFx().baseUrl();
             this.fxClient = !fxBase.isEmpty()
-                    ? new VertxFxClient(this.vertx, fxBase)
+                    ? new VertxFxClient(this.vertx, fxBase, () -> config.current().getFx(), upstreamMetrics, tracing,
+                            upstreamOptions)
                     : new StubFxClient();
         }
         if (this.promoClient == null) {
-            String promoBase = System.getProperty("promo.base.url", "").trim();
+            String promoBase = cfg.getPromo().baseUrl();
             this.promoClient = !promoBase.isEmpty()
-                    ? new VertxPromoClient(this.vertx, promoBase)
+                    ? new VertxPromoClient(this.vertx, promoBase, () -> config.current().getPromo(), upstreamMetrics, tracing,
+                            upstreamOptions)
                     : new StubPromoClient();
         }
+        Future<Void> clusterCaches = Future.succeededFuture();
+        if (cfg.getCluster().enabled()) {
+            ClusteredFxClient clusteredFx = new ClusteredFxClient(vertx, fxClient, () -> config.current().getCluster(), meterRegistry);
+            ClusteredPromoClient clusteredPromo = new ClusteredPromoClient(vertx, promoClient, () -> config.current().getCluster(),
+                    meterRegistry);
+            this.fxClient = clusteredFx;
+            this.promoClient = clusteredPromo;
+            clusterCaches = Future.all(clusteredFx.ready(), clusteredPromo.ready()).mapEmpty();
+        }
 
         Router router = Router.router(vertx);
+        if (server.compression() && server.compressionMinSize() > 0) {
+            router.route().handler(new CompressionThreshold(server.compressionMinSize()));
+        }
         router.route().handler(BodyHandler.create());
 
-        router.get("/metrics").handler(ctx -> {
-            ctx.response()
-                    .putHeader("content-type", "text/plain; version=0.0.4; charset=utf-8")
-                    .end(meterRegistry.scrape());
-        });
+        // rendered on a worker and cached, so a scrape does not stall quotes on this event loop
+        router.get("/metrics").handler(new ScrapeHandler(meterRegistry, () -> config.current().getMetrics()));
 
         router.get("/health").handler(ctx -> ctx.response().end("OK"));
-        router.get("/ready").handler(ctx -> ctx.response().end("OK"));
-
-        router.post("/v1/points/quote").handler(new QuoteHandler(fxClient, promoClient, meterRegistry));
-
-        int configuredPort = Integer.parseInt(System.getProperty("http.port", "8888"));
-        vertx.createHttpServer()
-                .requestHandler(router)
-                .listen(configuredPort, ar -> {
-                    if (ar.succeeded()) {
-                        int actual = ar.result().actualPort();
-                        System.setProperty("http.actual.port", String.valueOf(actual));
-                        System.out.println("HTTP server started on port " + actual);
-                        startPromise.complete();
-                    } else {
-                        startPromise.fail(ar.cause());
-                    }
-                });
+        // 503 until the warm-up (runtime.warmup) has run
+        Warmup warmup = new Warmup(vertx, router, config, fxClient);
+        router.get("/ready").handler(warmup);
+
+        if (cfg.getJfr().adminEnabled()) {
+            new RecordingAdmin(() -> config.current().getJfr()).mount(router);
+        }
+
+        QuoteHandler quoteHandler = new QuoteHandler(fxClient, promoClient, meterRegistry, config, tracing, accessLog);
+        router.post("/v1/points/quote").handler(quoteHandler);
+        router.post("/v1/points/quote/batch").handler(new BatchQuoteHandler(fxClient, promoClient, meterRegistry, config, tracing, accessLog));
+
+        // unregistered with the verticle on undeploy
+        QuoteCodec.register(vertx.eventBus());
+        vertx.eventBus().consumer(QuoteConsumer.ADDRESS, new QuoteConsumer(quoteHandler, meterRegistry));
+
+        HttpServerOptions options = serverOptions(server);
+        Future<HttpServer> tcp = server.tcp()
+                ? vertx.createHttpServer(options).requestHandler(router).listen(cfg.getHttpPort())
+                : Future.succeededFuture();
+        Future<HttpServer> domainSocket = server.hasDomainSocket()
+                ? vertx.createHttpServer(options).requestHandler(router).listen(SocketAddress.domainSocketAddress(server.domainSocket()))
+                : Future.succeededFuture();
+        Future.all(tcp, domainSocket, clusterCaches).onComplete(ar -> {
+            if (ar.failed()) {
+                // Vert.x does not call stop() for a failed start; servers, timers and consumers go with the deployment
+                release();
+                startPromise.fail(ar.cause());
+                return;
+            }
+            StartupMetrics.listening();
+            if (server.tcp()) {
+                int actual = tcp.result().actualPort();
+                warmup.start(SocketAddress.inetSocketAddress(actual, "localhost"));
+                System.setProperty("http.actual.port", String.valueOf(actual));
+                System.out.println("HTTP server started on port " + actual);
+            } else {
+                warmup.start(SocketAddress.domainSocketAddress(server.domainSocket()));
+            }
+            if (server.hasDomainSocket()) {
+                System.out.println("HTTP server started on unix:" + server.domainSocket());
+            }
+            startPromise.complete();
+        });
+    }
+
+    /** Runs once per shared store: an external file's rules replace the bundled ones until the store is released. */
+    private static void wireRules(ConfigStore store) {
+        if (store.file() == null) {
+            return;
+        }
+        PointsCalculatorService calc = PointsCalculatorService.shared();
+        EarningPlan bundled = calc.setRules(store.current().getRules());
+        store.onChange(c -> calc.setRules(c.getRules()));
+        store.onClose(() -> calc.setPlan(bundled));
+    }
+
+    /**
+     * Server options for {@code server}. HTTP/1.1 and h2c are always served; with a certificate the
+     * server speaks TLS and negotiates h2 or http/1.1 through ALPN.
+     */
+    public static HttpServerOptions serverOptions(LoyaltyConfig.Server server) {
+        HttpServerOptions options = new HttpServerOptions()
+                .setTcpNoDelay(server.tcpNoDelay())
+                .setTcpQuickAck(server.tcpQuickAck())
+                .setReusePort(server.reusePort())
+                .setAcceptBacklog(server.acceptBacklog())
+                .setIdleTimeout(server.idleTimeoutS())
+                .setIdleTimeoutUnit(TimeUnit.SECONDS)
+                .setMaxHeaderSize(server.maxHeaderSize())
+                .setMaxInitialLineLength(server.maxInitialLineLength())
+                .setCompressionSupported(server.compression())
+                .setCompressionLevel(server.compressionLevel())
+                .setInitialSettings(new Http2Settings()
+                        .setMaxConcurrentStreams(server.maxConcurrentStreams())
+                        .setMaxHeaderListSize(server.maxHeaderSize()))
+                .setHttp2ConnectionWindowSize(server.connectionWindowSize());
+        if (server.tls()) {
+            options.setSsl(true)
+                    .setUseAlpn(true)
+                    .setPemKeyCertOptions(new PemKeyCertOptions().setCertPath(server.tlsCert()).setKeyPath(server.tlsKey()));
+        }
+        return options;
+    }
+
+    @Override
+    public void stop() {
+        release();
+    }
+
+    /** Closes what start opened outside the deployment: the shared config, the lag timer, tracing and the access log. */
+    private void release() {
+        if (ownsConfig) {
+            config.release(vertx);
+            ownsConfig = false;
+        }
+        if (runtimeMetrics != null) {
+            runtimeMetrics.close();
+            runtimeMetrics = null;
+        }
+        if (ownsTracing) {
+            tracing.shutdown();
+            ownsTracing = false;
+        }
+        accessLog.close();
+        accessLog = AccessLog.NOOP;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,143 @@
+package com.kleadingsolutions.loyalty;
+
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.metrics.RuntimeMetrics;
+import com.kleadingsolutions.loyalty.metrics.StartupMetrics;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpServer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Training run for the AppCDS archive (see the Dockerfile): starts the service against in-process
+ * FX and promo stubs, waits for /ready (after a short warm-up), sends representative traffic
+ * (single and batch quotes for every currency, cabin and tier, with and without promo, invalid
+ * requests, /metrics, /health, /ready) and exits, so {@code -XX:ArchiveClassesAtExit} captures the
+ * classes a real first quote loads.
+ * {@code java -XX:ArchiveClassesAtExit=loyalty.jsa -cp loyalty-service-app.jar com.kleadingsolutions.loyalty.StartupTraining [rounds]}
+ */
+public final class StartupTraining {
+
+    static final String[] CURRENCIES = {"USD", "EUR", "AED"};
+    static final String[] CABINS = {"ECONOMY", "PREMIUM_ECONOMY", "BUSINESS", "FIRST"};
+    static final String[] TIERS = {"NONE", "SILVER", "GOLD", "PLATINUM"};
+    static final int WARMUP_QUOTES = 200;
+
+    private StartupTraining() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        // same Vert.x metrics and transport setup as LoyaltyLauncher, so those classes are archived too
+        Vertx vertx = Vertx.vertx(LoyaltyLauncher.configure(new VertxOptions()));
+        try {
+            int quotes = run(vertx, rounds);
+            System.out.println("training sent " + quotes + " quotes; first quote served "
+                    + StartupMetrics.firstQuoteMillis() + " ms after JVM start");
+        } finally {
+            vertx.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /** Deploys the service on {@code vertx} and sends {@code rounds} rounds of traffic; returns the quotes sent. */
+    static int run(Vertx vertx, int rounds) throws Exception {
+        HttpServer upstream = startUpstreamStub(vertx);
+        try {
+            Properties props = new Properties();
+            props.setProperty("http.port", "0");
+            props.setProperty("fx.base.url", "http://localhost:" + upstream.actualPort());
+            props.setProperty("promo.base.url", "http://localhost:" + upstream.actualPort());
+            props.setProperty("warmup.quotes", String.valueOf(WARMUP_QUOTES));
+            ConfigStore config = ConfigStore.of(LoyaltyConfig.fromClasspath(props));
+            MainVerticle verticle = new MainVerticle(null, null, RuntimeMetrics.prometheusRegistry(), config);
+            String deployment = await(vertx.deployVerticle(verticle));
+            int port = Integer.parseInt(System.getProperty("http.actual.port"));
+
+            WebClient client = WebClient.create(vertx);
+            awaitReady(vertx, client, port);
+            int quotes = 0;
+            for (int round = 0; round < rounds; round++) {
+                List<Future<?>> calls = new ArrayList<>();
+                for (String currency : CURRENCIES) {
+                    for (String cabin : CABINS) {
+                        for (String tier : TIERS) {
+                            JsonObject quote = new JsonObject()
+                                    .put("fareAmount", 100 + round * 7.5)
+                                    .put("currency", currency)
+                                    .put("cabinClass", cabin)
+                                    .put("customerTier", tier);
+                            if ((round + tier.length()) % 2 == 0) {
+                                quote.put("promoCode", "SUMMER25");
+                            }
+                            calls.add(post(client, port, "/v1/points/quote", quote));
+                            quotes++;
+                        }
+                    }
+                    calls.add(post(client, port, "/v1/points/quote/batch", new JsonObject()
+                            .put("currency", currency)
+                            .put("cabinClass", "ECONOMY")
+                            .put("customerTier", "GOLD")
+                            .put("promoCode", "SUMMER25")
+                            .put("fareAmounts", List.of(120.0, 340.5, 99.99, 1250.0))));
+                    quotes++;
+                }
+                calls.add(post(client, port, "/v1/points/quote", new JsonObject().put("fareAmount", -1)));
+                calls.add(client.request(HttpMethod.GET, port, "localhost", "/metrics").send());
+                calls.add(client.request(HttpMethod.GET, port, "localhost", "/health").send());
+                calls.add(client.request(HttpMethod.GET, port, "localhost", "/ready").send());
+                await(Future.all(calls));
+            }
+            client.close();
+            await(vertx.undeploy(deployment));
+            if (StartupMetrics.firstQuoteMillis() < 0) {
+                throw new IllegalStateException("training run served no successful quote");
+            }
+            return quotes;
+        } finally {
+            System.clearProperty("http.actual.port");
+            await(upstream.close());
+        }
+    }
+
+    /** Polls /ready like a readiness probe, so the warm-up path is part of the training too. */
+    private static void awaitReady(Vertx vertx, WebClient client, int port) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (await(client.request(HttpMethod.GET, port, "localhost", "/ready").send()).statusCode() != 200) {
+            if (System.nanoTime() > deadline) {
+                throw new IllegalStateException("service did not become ready");
+            }
+            await(Future.<Long>future(p -> vertx.setTimer(20, p::complete)));
+        }
+    }
+
+    private static Future<HttpResponse<Buffer>> post(WebClient client, int port, String path, JsonObject body) {
+        return client.request(HttpMethod.POST, port, "localhost", path).sendJsonObject(body);
+    }
+
+    /** FX and promo answers with the shapes VertxFxClient / VertxPromoClient expect. */
+    private static HttpServer startUpstreamStub(Vertx vertx) throws Exception {
+        Router router = Router.router(vertx);
+        router.get("/fx/rate").handler(ctx -> ctx.json(new JsonObject().put("rate", 3.67)));
+        router.get("/promo/:code").handler(ctx -> ctx.json(new JsonObject()
+                .put("code", ctx.pathParam("code"))
+                .put("percent", 0.25)
+                .put("expiresInDays", 10)));
+        return await(vertx.createHttpServer().requestHandler(router).listen(0));
+    }
+
+    private static <T> T await(Future<T> future) throws Exception {
+        return future.toCompletionStage().toCompletableFuture().get(30, TimeUnit.SECONDS);
+    }
+}
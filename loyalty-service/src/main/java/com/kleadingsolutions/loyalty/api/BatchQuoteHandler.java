@@ -0,0 +1,264 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kleadingsolutions.loyalty.client.FxClient;
+import com.kleadingsolutions.loyalty.client.PromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.dto.BatchQuoteRequest;
+import com.kleadingsolutions.loyalty.dto.Promo;
+import com.kleadingsolutions.loyalty.jfr.QuoteCalculatedEvent;
+import com.kleadingsolutions.loyalty.jfr.QuoteEvents;
+import com.kleadingsolutions.loyalty.logging.AccessLog;
+import com.kleadingsolutions.loyalty.logging.RateLimitedLogger;
+import com.kleadingsolutions.loyalty.service.CabinClass;
+import com.kleadingsolutions.loyalty.service.CustomerTier;
+import com.kleadingsolutions.loyalty.service.PointsBatch;
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.opentelemetry.context.Scope;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Handles /v1/points/quote/batch: one shared context (currency, cabin, tier, promo) and an array
+ * of fares, typically a search results page. FX and promo are looked up once; all fares are
+ * calculated in one columnar pass ({@link PointsCalculatorService#calculateBatch}) and returned
+ * as parallel arrays (traced, recorded and logged like {@link QuoteHandler}, see {@link RequestTracing}):
+ * <pre>
+ * {"effectiveFxRate":3.67,"warnings":[],"basePoints":[..],"tierBonus":[..],"promoBonus":[..],"totalPoints":[..]}
+ * </pre>
+ */
+public class BatchQuoteHandler implements io.vertx.core.Handler<RoutingContext> {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchQuoteHandler.class.getName());
+
+    static final String ROUTE = "/v1/points/quote/batch";
+    static final int MAX_FARES = 1000;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final FxClient fxClient;
+    private final PromoClient promoClient;
+    private final Supplier<PointsCalculatorService> calcSupplier;
+    private final ConfigStore config;
+
+    private final RequestMetrics metrics;
+    private final DistributionSummary batchSize;
+    private final RequestTracing requestTracing;
+    private final RateLimitedLogger errors;
+    private final ResponseSender responses;
+
+    public BatchQuoteHandler(FxClient fxClient, PromoClient promoClient, MeterRegistry meterRegistry) {
+        this(fxClient, promoClient, PointsCalculatorService::shared, meterRegistry);
+    }
+
+    public BatchQuoteHandler(FxClient fxClient, PromoClient promoClient, MeterRegistry meterRegistry, ConfigStore config) {
+        this(fxClient, promoClient, PointsCalculatorService::shared, meterRegistry, config, Tracing.NOOP);
+    }
+
+    public BatchQuoteHandler(FxClient fxClient, PromoClient promoClient, MeterRegistry meterRegistry, ConfigStore config,
+                             Tracing tracing) {
+        this(fxClient, promoClient, PointsCalculatorService::shared, meterRegistry, config, tracing);
+    }
+
+    public BatchQuoteHandler(FxClient fxClient, PromoClient promoClient, MeterRegistry meterRegistry, ConfigStore config,
+                             Tracing tracing, AccessLog accessLog) {
+        this(fxClient, promoClient, PointsCalculatorService::shared, meterRegistry, config, tracing, accessLog);
+    }
+
+    BatchQuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier,
+                      MeterRegistry meterRegistry) {
+        this(fxClient, promoClient, calcSupplier, meterRegistry, ConfigStore.load());
+    }
+
+    BatchQuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier,
+                      MeterRegistry meterRegistry, ConfigStore config) {
+        this(fxClient, promoClient, calcSupplier, meterRegistry, config, Tracing.NOOP);
+    }
+
+    BatchQuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier,
+                      MeterRegistry meterRegistry, ConfigStore config, Tracing tracing) {
+        this(fxClient, promoClient, calcSupplier, meterRegistry, config, tracing, AccessLog.NOOP);
+    }
+
+    BatchQuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier,
+                      MeterRegistry meterRegistry, ConfigStore config, Tracing tracing, AccessLog accessLog) {
+        this(fxClient, promoClient, calcSupplier, meterRegistry, config, tracing, accessLog, true);
+    }
+
+    /** {@code reportsStartup} off keeps this handler's batches out of {@code loyalty_startup_first_quote_seconds}. */
+    BatchQuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier,
+                      MeterRegistry meterRegistry, ConfigStore config, Tracing tracing, AccessLog accessLog,
+                      boolean reportsStartup) {
+        this.fxClient = fxClient;
+        this.promoClient = promoClient;
+        this.calcSupplier = Objects.requireNonNull(calcSupplier, "calcSupplier");
+        this.config = Objects.requireNonNull(config, "config");
+        this.metrics = new RequestMetrics(meterRegistry, "loyalty_quote_batches", "batch", reportsStartup);
+        this.batchSize = meterRegistry == null ? null
+                : DistributionSummary.builder("loyalty_quote_batch_fares").register(meterRegistry);
+        this.requestTracing = new RequestTracing(Objects.requireNonNull(tracing, "tracing"),
+                Objects.requireNonNull(accessLog, "accessLog"), ROUTE, "batch");
+        this.errors = new RateLimitedLogger(LOGGER, config.current().getLogging().errorsPerSecond());
+        this.responses = new ResponseSender(errors);
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        metrics.requestStarted();
+        final long start = System.nanoTime();
+        final RequestTracing.Trace trace = requestTracing.start(ctx, start);
+        try {
+            quote(ctx, trace, start);
+        } catch (Exception e) {
+            // a missing body, a throwing client or validator: answer with the JSON error and balance the metrics
+            errors.log(Level.SEVERE, e, () -> "Unhandled exception in batch quote: " + e.getMessage());
+            send(ctx, 500, "{\"error\":\"internal error\"}", RequestMetrics.Outcome.ERROR, trace, start);
+        }
+    }
+
+    /** Everything up to the upstream calls runs here synchronously; exceptions are handled by {@link #handle}. */
+    private void quote(RoutingContext ctx, RequestTracing.Trace trace, long start) {
+        final BatchQuoteRequest req;
+        try {
+            String body = ctx.body().asString();
+            req = body == null || body.isEmpty() ? null : mapper.readValue(body, BatchQuoteRequest.class);
+        } catch (JsonProcessingException e) {
+            LOGGER.log(Level.FINE, () -> "Invalid batch JSON payload: " + e.getMessage());
+            send(ctx, 400, "{\"error\":\"invalid request\"}", RequestMetrics.Outcome.INVALID, trace, start);
+            return;
+        }
+        final long parsed = System.nanoTime();
+        metrics.stage(RequestMetrics.Stage.PARSE, parsed - start);
+        requestTracing.stage(trace, RequestMetrics.Stage.PARSE, start, parsed);
+        String error = validate(req);
+        final long validated = System.nanoTime();
+        metrics.stage(RequestMetrics.Stage.VALIDATE, validated - parsed);
+        requestTracing.stage(trace, RequestMetrics.Stage.VALIDATE, parsed, validated);
+        if (error != null) {
+            send(ctx, 400, "{\"error\":\"" + error + "\"}", RequestMetrics.Outcome.INVALID, trace, start);
+            return;
+        }
+        if (batchSize != null) {
+            batchSize.record(req.getFareAmounts().length);
+        }
+        requestTracing.describe(trace, req.getCurrency(), req.getCustomerTier(), req.getFareAmounts().length);
+
+        CompletableFuture<Double> fxFuture;
+        CompletableFuture<Promo> promoFuture;
+        try (Scope ignored = trace.makeCurrent()) {
+            fxFuture = fxClient.getEffectiveRate(req.getCurrency());
+            promoFuture = promoClient.getPromo(req.getPromoCode());
+        }
+        if (fxFuture == null) {
+            send(ctx, 502, "{\"error\":\"fx service unavailable\"}", RequestMetrics.Outcome.FX_UNAVAILABLE, trace, start);
+            return;
+        }
+        if (promoFuture == null) {
+            promoFuture = CompletableFuture.failedFuture(new RuntimeException("promo client returned null"));
+        }
+        CompletableFuture<Promo> finalPromoFuture = promoFuture;
+        fxFuture.whenComplete((fxRate, fxEx) -> {
+            final long fxDone = System.nanoTime();
+            metrics.stage(RequestMetrics.Stage.FX_WAIT, fxDone - validated);
+            requestTracing.stage(trace, RequestMetrics.Stage.FX_WAIT, validated, fxDone);
+            if (fxEx != null) {
+                send(ctx, 502, "{\"error\":\"fx service unavailable\"}", RequestMetrics.Outcome.FX_UNAVAILABLE, trace, start);
+                return;
+            }
+            finalPromoFuture.handle((promo, promoEx) -> {
+                try {
+                    long promoDone = System.nanoTime();
+                    metrics.stage(RequestMetrics.Stage.PROMO_WAIT, promoDone - fxDone);
+                    requestTracing.stage(trace, RequestMetrics.Stage.PROMO_WAIT, fxDone, promoDone);
+                    double[] fares = req.getFareAmounts();
+                    QuoteCalculatedEvent calculation = QuoteEvents.beginCalculation();
+                    PointsBatch batch = calcSupplier.get().calculateBatch(req.getCurrency(), fares, fares.length,
+                            CustomerTier.parse(req.getCustomerTier()), CabinClass.parse(req.getCabinClass()),
+                            fxRate, promoEx != null ? null : promo, new PointsBatch(fares.length));
+                    QuoteEvents.calculated(calculation, ROUTE, req.getCurrency(), req.getCustomerTier(), fares.length);
+                    List<String> warnings = batch.warningList();
+                    if (promoEx != null) {
+                        warnings = new ArrayList<>(warnings);
+                        warnings.add("PROMO_UNAVAILABLE");
+                    }
+                    long calculated = System.nanoTime();
+                    metrics.stage(RequestMetrics.Stage.CALCULATE, calculated - promoDone);
+                    requestTracing.stage(trace, RequestMetrics.Stage.CALCULATE, promoDone, calculated);
+                    String json = write(batch, warnings);
+                    long serialized = System.nanoTime();
+                    metrics.stage(RequestMetrics.Stage.SERIALIZE, serialized - calculated);
+                    requestTracing.stage(trace, RequestMetrics.Stage.SERIALIZE, calculated, serialized);
+                    send(ctx, 200, json,
+                            promoEx != null ? RequestMetrics.Outcome.PROMO_UNAVAILABLE : RequestMetrics.Outcome.OK, trace, start);
+                } catch (Exception e) {
+                    errors.log(Level.SEVERE, e, () -> "Error while calculating batch: " + e.getMessage());
+                    send(ctx, 500, "{\"error\":\"internal error\"}", RequestMetrics.Outcome.ERROR, trace, start);
+                }
+                return null;
+            });
+        });
+    }
+
+    private String validate(BatchQuoteRequest req) {
+        if (req == null) {
+            return "invalid request";
+        }
+        double[] fares = req.getFareAmounts();
+        if (fares == null || fares.length == 0) {
+            return "fareAmounts must not be empty";
+        }
+        if (fares.length > MAX_FARES) {
+            return "at most " + MAX_FARES + " fareAmounts per batch";
+        }
+        for (double fare : fares) {
+            if (!QuoteValidation.isValidFare(fare)) {
+                return "fareAmounts must be > 0";
+            }
+        }
+        return QuoteValidation.checkContext(req.getCurrency(), req.getCabinClass(), config.current().getAllowedCurrencies());
+    }
+
+    String write(PointsBatch batch, List<String> warnings) throws IOException {
+        StringWriter out = new StringWriter(64 + batch.size() * 40);
+        try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+            int n = batch.size();
+            gen.writeStartObject();
+            gen.writeNumberField("effectiveFxRate", batch.getEffectiveFxRate());
+            gen.writeArrayFieldStart("warnings");
+            for (String w : warnings) {
+                gen.writeString(w);
+            }
+            gen.writeEndArray();
+            gen.writeFieldName("basePoints");
+            gen.writeArray(batch.basePoints(), 0, n);
+            gen.writeFieldName("tierBonus");
+            gen.writeArray(batch.tierBonus(), 0, n);
+            gen.writeFieldName("promoBonus");
+            gen.writeArray(batch.promoBonus(), 0, n);
+            gen.writeFieldName("totalPoints");
+            gen.writeArray(batch.totalPoints(), 0, n);
+            gen.writeEndObject();
+        }
+        return out.toString();
+    }
+
+    /** Sends a JSON {@code body} and closes the request's metrics and trace, like {@link QuoteHandler} does. */
+    private void send(RoutingContext ctx, int status, String body, RequestMetrics.Outcome outcome,
+                      RequestTracing.Trace trace, long start) {
+        responses.send(ctx, status, QuoteFormat.JSON, body);
+        requestTracing.finish(trace, metrics, outcome, start);
+    }
+}
@@ -0,0 +1,34 @@
+package com.kleadingsolutions.loyalty.api;
+
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.ext.web.RoutingContext;
+
+/**
+ * Keeps small responses uncompressed when server compression is on: a response with a
+ * {@code Content-Length} below {@code minSize} is marked {@code Content-Encoding: identity}, which
+ * Vert.x treats as "do not compress" (and drops). Compressing a 200 byte quote costs more CPU and
+ * latency than the bytes it saves. Responses that set their own encoding (e.g. /metrics) or are
+ * chunked are left alone.
+ */
+public final class CompressionThreshold implements Handler<RoutingContext> {
+
+    private final long minSize;
+
+    public CompressionThreshold(long minSize) {
+        this.minSize = minSize;
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        MultiMap headers = ctx.response().headers();
+        ctx.addHeadersEndHandler(v -> {
+            String length = headers.get(HttpHeaders.CONTENT_LENGTH);
+            if (length != null && !headers.contains(HttpHeaders.CONTENT_ENCODING) && Long.parseLong(length) < minSize) {
+                headers.set(HttpHeaders.CONTENT_ENCODING, HttpHeaders.IDENTITY);
+            }
+        });
+        ctx.next();
+    }
+}
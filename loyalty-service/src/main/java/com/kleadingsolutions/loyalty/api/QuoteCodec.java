@@ -0,0 +1,84 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.EventBus;
+import io.vertx.core.eventbus.MessageCodec;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Event-bus codec for the quote DTOs ({@link QuoteConsumer}). A local send hands the object over
+ * by reference ({@link #transform}); only a clustered send encodes it, as a length-prefixed CBOR
+ * body ({@link QuoteFormat#CBOR}) rather than the default JSON. Senders and consumers must not
+ * modify a request or response once sent.
+ */
+public final class QuoteCodec<T> implements MessageCodec<T, T> {
+
+    public static final QuoteCodec<QuoteRequest> REQUEST = new QuoteCodec<>("loyalty.QuoteRequest", QuoteRequest.class);
+    public static final QuoteCodec<QuoteResponse> RESPONSE = new QuoteCodec<>("loyalty.QuoteResponse", QuoteResponse.class);
+
+    private final String name;
+    private final Class<T> type;
+
+    private QuoteCodec(String name, Class<T> type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * Makes both codecs the default for their class on {@code eventBus}, so senders need no
+     * {@code DeliveryOptions}. Several verticles may register on the same event bus.
+     */
+    public static void register(EventBus eventBus) {
+        register(eventBus, REQUEST);
+        register(eventBus, RESPONSE);
+    }
+
+    private static <T> void register(EventBus eventBus, QuoteCodec<T> codec) {
+        try {
+            eventBus.registerDefaultCodec(codec.type, codec);
+        } catch (IllegalStateException alreadyRegistered) {
+            // another verticle instance on this Vert.x registered it first
+        }
+    }
+
+    @Override
+    public void encodeToWire(Buffer buffer, T value) {
+        byte[] bytes;
+        try {
+            bytes = QuoteFormat.CBOR.mapper().writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        buffer.appendInt(bytes.length).appendBytes(bytes);
+    }
+
+    @Override
+    public T decodeFromWire(int pos, Buffer buffer) {
+        int length = buffer.getInt(pos);
+        byte[] bytes = buffer.getBytes(pos + 4, pos + 4 + length);
+        try {
+            return QuoteFormat.CBOR.mapper().readValue(bytes, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T transform(T value) {
+        return value;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public byte systemCodecID() {
+        return -1;
+    }
+}
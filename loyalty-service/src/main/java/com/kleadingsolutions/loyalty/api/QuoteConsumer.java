@@ -0,0 +1,57 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Handler;
+import io.vertx.core.eventbus.Message;
+
+/**
+ * Quotes over the event bus at {@link #ADDRESS}, for verticles in the same Vert.x (or cluster).
+ * The body is a {@link QuoteRequest}, the reply a {@link QuoteResponse}; both go through
+ * {@link QuoteCodec}, so a local request is never serialized. Pricing is the HTTP route's
+ * ({@link QuoteHandler}); errors fail the message with the HTTP status as failure code and the
+ * error text as message. Requests are counted under {@code loyalty_eventbus_quotes_*}.
+ */
+public class QuoteConsumer implements Handler<Message<QuoteRequest>> {
+
+    public static final String ADDRESS = "loyalty.quote";
+
+    private final QuoteHandler handler;
+    private final RequestMetrics metrics;
+
+    public QuoteConsumer(QuoteHandler handler, MeterRegistry meterRegistry) {
+        this.handler = handler;
+        this.metrics = new RequestMetrics(meterRegistry, "loyalty_eventbus_quotes", "eventbus");
+    }
+
+    @Override
+    public void handle(Message<QuoteRequest> msg) {
+        metrics.requestStarted();
+        final long start = System.nanoTime();
+        QuoteRequest req = msg.body();
+        if (req == null) {
+            msg.fail(400, "invalid request");
+            metrics.finish(RequestMetrics.Outcome.INVALID, start);
+            return;
+        }
+        try {
+            handler.price(req, RequestTracing.Trace.NOOP, metrics, start, start, new QuoteHandler.Reply() {
+                @Override
+                public boolean quoted(QuoteResponse response, long calculatedNanos) {
+                    msg.reply(response);
+                    return true;
+                }
+
+                @Override
+                public void failed(int status, String error) {
+                    msg.fail(status, error);
+                }
+            });
+        } catch (RuntimeException e) {
+            // as on the HTTP route, a request the pipeline cannot even start on is invalid
+            msg.fail(400, "invalid request");
+            metrics.finish(RequestMetrics.Outcome.INVALID, start);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Wire formats of /v1/points/quote: the same QuoteRequest / QuoteResponse schema as JSON, CBOR
+ * (RFC 8949) or Smile (Jackson's binary JSON). The request format comes from {@code Content-Type}
+ * (anything unknown is read as JSON, as before); the response format from {@code Accept}, where
+ * {@code *}{@code /*}, a missing header or only unsupported types mean "same as the request".
+ * Internal callers save the text parsing and number formatting by sending
+ * {@code Content-Type: application/cbor} and {@code Accept: application/cbor}.
+ */
+public enum QuoteFormat {
+
+    JSON("application/json", new ObjectMapper()),
+    CBOR("application/cbor", new CBORMapper()),
+    SMILE("application/x-jackson-smile", new SmileMapper());
+
+    private final String mediaType;
+    private final ObjectMapper mapper;
+
+    QuoteFormat(String mediaType, ObjectMapper mapper) {
+        this.mediaType = mediaType;
+        this.mapper = mapper;
+    }
+
+    public String mediaType() {
+        return mediaType;
+    }
+
+    /** Shared and thread-safe, like the handlers' JSON mapper. */
+    public ObjectMapper mapper() {
+        return mapper;
+    }
+
+    /** The format a {@code Content-Type} header names; JSON when absent or not a binary type. */
+    public static QuoteFormat ofContentType(String contentType) {
+        if (contentType == null) {
+            return JSON;
+        }
+        QuoteFormat format = ofMediaType(mediaType(contentType));
+        return format == null ? JSON : format;
+    }
+
+    /**
+     * The supported format an {@code Accept} header prefers (highest q, then the first listed);
+     * wildcards, a missing header or no supported type fall back to {@code request}.
+     */
+    public static QuoteFormat ofAccept(String accept, QuoteFormat request) {
+        if (accept == null || accept.isEmpty()) {
+            return request;
+        }
+        QuoteFormat best = null;
+        double bestQ = 0;
+        for (String range : accept.split(",")) {
+            String type = mediaType(range);
+            QuoteFormat format = type.equals("*/*") || type.equals("application/*") ? request : ofMediaType(type);
+            double q = quality(range);
+            if (format != null && q > bestQ) {
+                best = format;
+                bestQ = q;
+            }
+        }
+        return best == null ? request : best;
+    }
+
+    /** Re-encodes one of the handlers' JSON error bodies in this format. */
+    byte[] fromJson(String json) throws IOException {
+        return mapper.writeValueAsBytes(JSON.mapper.readTree(json));
+    }
+
+    private static QuoteFormat ofMediaType(String type) {
+        for (QuoteFormat format : values()) {
+            if (format.mediaType.equals(type)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    private static String mediaType(String value) {
+        int semicolon = value.indexOf(';');
+        return (semicolon < 0 ? value : value.substring(0, semicolon)).trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static double quality(String range) {
+        for (String param : range.split(";")) {
+            String p = param.trim();
+            if (p.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(p.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+}
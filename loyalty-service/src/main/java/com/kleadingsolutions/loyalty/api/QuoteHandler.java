@@ -1,19 +1,26 @@
 package com.kleadingsolutions.loyalty.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.kleadingsolutions.loyalty.client.FxClient;
 import com.kleadingsolutions.loyalty.client.PromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
 import com.kleadingsolutions.loyalty.dto.Promo;
 import com.kleadingsolutions.loyalty.dto.QuoteRequest;
 import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import com.kleadingsolutions.loyalty.jfr.QuoteCalculatedEvent;
+import com.kleadingsolutions.loyalty.jfr.QuoteEvents;
+import com.kleadingsolutions.loyalty.logging.AccessLog;
+import com.kleadingsolutions.loyalty.logging.RateLimitedLogger;
 import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
 import io.micrometer.core.instrument.MeterRegistry;
-import io.micrometer.core.instrument.Counter;
-import io.micrometer.core.instrument.Timer;
-import io.micrometer.core.instrument.Timer.Sample;
+import io.opentelemetry.context.Scope;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerRequest;
 import io.vertx.ext.web.RoutingContext;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
@@ -21,35 +28,55 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * QuoteHandler with optional metrics instrumentation (Micrometer).
+ * QuoteHandler with optional metrics instrumentation (Micrometer, see {@link RequestMetrics}),
+ * tracing (OpenTelemetry, see {@link RequestTracing}), flight recorder events ({@link QuoteEvents}) and
+ * an access log ({@link AccessLog}). Log messages are built lazily; warnings and errors are capped
+ * at {@code logging.errors-per-second}.
  * Handles /v1/points/quote requests.
  * Validates input, calls FX and Promo clients asynchronously,
  * calculates points using PointsCalculatorService, and returns JSON response.
+ * Request and response bodies may also be CBOR or Smile, negotiated through {@code Content-Type}
+ * and {@code Accept} ({@link QuoteFormat}); errors are then encoded in the response format too.
  */
 public class QuoteHandler implements io.vertx.core.Handler<RoutingContext> {
 
     private static final Logger LOGGER = Logger.getLogger(QuoteHandler.class.getName());
 
+    static final String ROUTE = "/v1/points/quote";
+
     private final ObjectMapper mapper = new ObjectMapper();
     private final FxClient fxClient;
     private final PromoClient promoClient;
-    private final Set<String> allowedCurrencies;
-    private static final Set<String> DEFAULT_ALLOWED = Set.of("USD", "EUR", "AED");
-
-    private static final Set<String> VALID_CABINS = Set.of("ECONOMY", "PREMIUM_ECONOMY", "BUSINESS", "FIRST");
+    private final ConfigStore config;
 
     private final Supplier<PointsCalculatorService> calcSupplier;
 
-    private final MeterRegistry meterRegistry;
-    private final Counter requestCounter;
-    private final Timer requestTimer;
+    private final RequestMetrics metrics;
+    private final RequestTracing requestTracing;
+    private final RateLimitedLogger errors;
+    private final ResponseSender responses;
 
     public QuoteHandler(FxClient fxClient, PromoClient promoClient) {
-        this(fxClient, promoClient, PointsCalculatorService::new, null);
+        this(fxClient, promoClient, PointsCalculatorService::shared, null);
     }
 
     public QuoteHandler(FxClient fxClient, PromoClient promoClient, MeterRegistry meterRegistry) {
-        this(fxClient, promoClient, PointsCalculatorService::new, meterRegistry);
+        this(fxClient, promoClient, PointsCalculatorService::shared, meterRegistry);
+    }
+
+    /** Reads allowed currencies from {@code config} on every request, so reloads apply without a restart. */
+    public QuoteHandler(FxClient fxClient, PromoClient promoClient, MeterRegistry meterRegistry, ConfigStore config) {
+        this(fxClient, promoClient, PointsCalculatorService::shared, meterRegistry, config, Tracing.NOOP);
+    }
+
+    public QuoteHandler(FxClient fxClient, PromoClient promoClient, MeterRegistry meterRegistry, ConfigStore config,
+                        Tracing tracing) {
+        this(fxClient, promoClient, PointsCalculatorService::shared, meterRegistry, config, tracing);
+    }
+
+    public QuoteHandler(FxClient fxClient, PromoClient promoClient, MeterRegistry meterRegistry, ConfigStore config,
+                        Tracing tracing, AccessLog accessLog) {
+        this(fxClient, promoClient, PointsCalculatorService::shared, meterRegistry, config, tracing, accessLog);
     }
 
     QuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier) {
@@ -57,34 +84,42 @@ public class QuoteHandler implements io.vertx.core.Handler<RoutingContext> {
     }
 
     QuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier, MeterRegistry meterRegistry) {
+        // standalone handlers (tests, benchmarks) take a one-off snapshot of the file and system properties
+        this(fxClient, promoClient, calcSupplier, meterRegistry, ConfigStore.load());
+    }
+
+    QuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier,
+                 MeterRegistry meterRegistry, ConfigStore config) {
+        this(fxClient, promoClient, calcSupplier, meterRegistry, config, Tracing.NOOP);
+    }
+
+    QuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier,
+                 MeterRegistry meterRegistry, ConfigStore config, Tracing tracing) {
+        this(fxClient, promoClient, calcSupplier, meterRegistry, config, tracing, AccessLog.NOOP);
+    }
+
+    QuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier,
+                 MeterRegistry meterRegistry, ConfigStore config, Tracing tracing, AccessLog accessLog) {
+        this(fxClient, promoClient, calcSupplier, meterRegistry, config, tracing, accessLog, true);
+    }
+
+    /** {@code reportsStartup} off keeps this handler's quotes out of {@code loyalty_startup_first_quote_seconds}. */
+    QuoteHandler(FxClient fxClient, PromoClient promoClient, Supplier<PointsCalculatorService> calcSupplier,
+                 MeterRegistry meterRegistry, ConfigStore config, Tracing tracing, AccessLog accessLog,
+                 boolean reportsStartup) {
         this.fxClient = fxClient;
         this.promoClient = promoClient;
         this.calcSupplier = Objects.requireNonNull(calcSupplier, "calcSupplier");
-        this.allowedCurrencies = loadAllowedCurrencies();
-
-        this.meterRegistry = meterRegistry;
-        if (this.meterRegistry != null) {
-            this.requestCounter = this.meterRegistry.counter("loyalty_quotes_requests_total");
-            this.requestTimer = this.meterRegistry.timer("loyalty_quotes_request_duration_seconds");
-        } else {
-            this.requestCounter = null;
-            this.requestTimer = null;
-        }
+        this.config = Objects.requireNonNull(config, "config");
+        this.metrics = new RequestMetrics(meterRegistry, "loyalty_quotes", "quote", reportsStartup);
+        this.requestTracing = new RequestTracing(Objects.requireNonNull(tracing, "tracing"),
+                Objects.requireNonNull(accessLog, "accessLog"), ROUTE, "quote");
+        this.errors = new RateLimitedLogger(LOGGER, config.current().getLogging().errorsPerSecond());
+        this.responses = new ResponseSender(errors);
     }
 
-    private Set<String> loadAllowedCurrencies() {
-        String csv = System.getProperty("allowed.currencies", "").trim();
-        if (csv.isEmpty()) {
-            return DEFAULT_ALLOWED;
-        }
-        //else parse or call external config service in future
-        String[] parts = csv.split(",");
-        Set<String> s = new HashSet<>();
-        for (String p : parts) {
-            String t = p.trim().toUpperCase();
-            if (!t.isEmpty()) s.add(t);
-        }
-        return s.isEmpty() ? DEFAULT_ALLOWED : Collections.unmodifiableSet(s);
+    Set<String> allowedCurrencies() {
+        return config.current().getAllowedCurrencies();
     }
 
     private static String getBodyString(RoutingContext ctx) {
@@ -101,176 +136,193 @@ public class QuoteHandler implements io.vertx.core.Handler<RoutingContext> {
         return ctx.getBodyAsString();
     }
 
-    private boolean isValidCurrency(String currency) {
-        return currency != null && allowedCurrencies.contains(currency.toUpperCase());
+    /** Null for an empty body. JSON is read from the body string, binary formats from its bytes. */
+    private QuoteRequest readRequest(RoutingContext ctx, QuoteFormat format) throws IOException {
+        if (format == QuoteFormat.JSON) {
+            String body = getBodyString(ctx);
+            return body == null || body.isEmpty() ? null : mapper.readValue(body, QuoteRequest.class);
+        }
+        Buffer body = ctx.body().buffer();
+        return body == null || body.length() == 0 ? null : format.mapper().readValue(body.getBytes(), QuoteRequest.class);
+    }
+
+    // package-private so validation cost can be benchmarked (loyalty-benchmarks)
+    boolean isValidCurrency(String currency) {
+        return QuoteValidation.isValidCurrency(currency, config.current().getAllowedCurrencies());
     }
 
-    private boolean isValidCabin(String cabin) {
-        return cabin != null && VALID_CABINS.contains(cabin.toUpperCase());
+    boolean isValidCabin(String cabin) {
+        return QuoteValidation.isValidCabin(cabin);
     }
 
     /**
-     * Ensure we always run response sends on the Vert.x context to avoid cross-thread issues.
+     * Where a priced quote goes: the HTTP response ({@link #handle}) or an event-bus reply
+     * ({@link QuoteConsumer}). Called once per request, possibly off the event loop.
      */
-    private void safeSendResponseOnContext(RoutingContext ctx, int status, String body) {
-        try {
-            // ensure running on vertx event loop
-            ctx.vertx().runOnContext(v -> safeSendResponse(ctx, status, body));
-        } catch (Exception e) {
-            // fallback to direct call if ctx.vertx() throws for some reason
-            safeSendResponse(ctx, status, body);
-        }
-    }
-
-    private void safeSendResponse(RoutingContext ctx, int status, String body) {
-        try {
-            final io.vertx.core.http.HttpServerResponse resp = ctx.response();
+    interface Reply {
+        /** Sends {@code response}; false if it could not be (an error was sent instead). */
+        boolean quoted(QuoteResponse response, long calculatedNanos);
 
-            try {
-                resp.putHeader("content-type", "application/json");
-            } catch (Exception e) {
-                LOGGER.log(Level.FINE, "putHeader failed: " + e.getMessage(), e);
-            }
-            try {
-                resp.setStatusCode(status);
-            } catch (Exception e) {
-                LOGGER.log(Level.FINE, "setStatusCode failed: " + e.getMessage(), e);
-            }
-            try {
-                resp.end(body);
-            } catch (Exception e) {
-                LOGGER.log(Level.WARNING, "Failed to end response: " + e.getMessage(), e);
-            }
-        } catch (Exception outer) {
-            LOGGER.log(Level.SEVERE, "Unexpected error while sending response: " + outer.getMessage(), outer);
-        }
+        /** Sends an error; {@code error} is the short message, e.g. "invalid currency". */
+        void failed(int status, String error);
     }
 
     @Override
     public void handle(RoutingContext ctx) {
-        if (requestCounter != null) {
-            try { requestCounter.increment(); } catch (Exception ignored) {}
-        }
-        Sample sample = null;
-        if (requestTimer != null) {
-            try { sample = Timer.start(meterRegistry); } catch (Exception ignored) {}
-        }
-
-        String bodyStr = getBodyString(ctx);
+        metrics.requestStarted();
+        final long start = System.nanoTime();
+        final RequestTracing.Trace trace = requestTracing.start(ctx, start);
+
+        final HttpServerRequest request = ctx.request();
+        final QuoteFormat in = request == null ? QuoteFormat.JSON
+                : QuoteFormat.ofContentType(request.getHeader(HttpHeaders.CONTENT_TYPE));
+        final QuoteFormat out = request == null ? in : QuoteFormat.ofAccept(request.getHeader(HttpHeaders.ACCEPT), in);
         try {
-            if (bodyStr == null || bodyStr.isEmpty()) {
-                safeSendResponseOnContext(ctx, 400, "{\"error\":\"invalid request\"}");
-                recordTimer(sample);
-                return;
-            }
-
             final QuoteRequest req;
             try {
-                req = mapper.readValue(bodyStr, QuoteRequest.class);
-            } catch (JsonProcessingException ex) {
-                LOGGER.log(Level.FINE, "Invalid JSON payload: " + ex.getMessage());
-                safeSendResponseOnContext(ctx, 400, "{\"error\":\"invalid request\"}");
-                recordTimer(sample);
-                return;
-            }
-
-            // validate required fields - fareAmount, currency, cabinClass
-            // to be more robust, we could use a validation framework / move to DTO annotations / separate validator class
-            if (req.getFareAmount() <= 0) {
-                safeSendResponseOnContext(ctx, 400, "{\"error\":\"fareAmount must be > 0\"}");
-                recordTimer(sample);
-                return;
-            }
-            if (!isValidCurrency(req.getCurrency())) {
-                safeSendResponseOnContext(ctx, 400, "{\"error\":\"invalid currency\"}");
-                recordTimer(sample);
-                return;
-            }
-            if (!isValidCabin(req.getCabinClass())) {
-                safeSendResponseOnContext(ctx, 400, "{\"error\":\"invalid cabinClass\"}");
-                recordTimer(sample);
+                req = readRequest(ctx, in);
+            } catch (IOException ex) {
+                LOGGER.log(Level.FINE, () -> "Invalid " + in + " payload: " + ex.getMessage());
+                responses.error(ctx, 400, "{\"error\":\"invalid request\"}", out);
+                requestTracing.finish(trace, metrics, RequestMetrics.Outcome.INVALID, start);
                 return;
             }
-
-            CompletableFuture<Double> fxFuture = fxClient.getEffectiveRate(req.getCurrency());
-            CompletableFuture<Promo> promoFuture = promoClient.getPromo(req.getPromoCode());
-
-            if (fxFuture == null) {
-                safeSendResponseOnContext(ctx, 502, "{\"error\":\"fx service unavailable\"}");
-                recordTimer(sample);
+            if (req == null) {
+                responses.error(ctx, 400, "{\"error\":\"invalid request\"}", out);
+                requestTracing.finish(trace, metrics, RequestMetrics.Outcome.INVALID, start);
                 return;
             }
-            if (promoFuture == null) {
-                promoFuture = CompletableFuture.failedFuture(new RuntimeException("promo client returned null"));
-            }
-
-            Sample finalSample = sample;
-            CompletableFuture<Promo> finalPromoFuture = promoFuture;
-            fxFuture.whenComplete((fxRate, fxEx) -> {
-                try {
-                    if (fxEx != null) {
-                        safeSendResponseOnContext(ctx, 502, "{\"error\":\"fx service unavailable\"}");
-                        recordTimer(finalSample);
-                        return;
+            final long parsed = System.nanoTime();
+            metrics.stage(RequestMetrics.Stage.PARSE, parsed - start);
+            requestTracing.stage(trace, RequestMetrics.Stage.PARSE, start, parsed);
+
+            price(req, trace, metrics, start, parsed, new Reply() {
+                @Override
+                public boolean quoted(QuoteResponse resp, long calculated) {
+                    Object body;
+                    try {
+                        body = out == QuoteFormat.JSON
+                                ? mapper.writeValueAsString(resp)
+                                : Buffer.buffer(out.mapper().writeValueAsBytes(resp));
+                    } catch (Exception serEx) {
+                        errors.log(Level.WARNING, serEx, () -> "Failed to serialize response: " + serEx.getMessage());
+                        responses.error(ctx, 500, "{\"error\":\"internal error\"}", out);
+                        return false;
                     }
+                    long serialized = System.nanoTime();
+                    metrics.stage(RequestMetrics.Stage.SERIALIZE, serialized - calculated);
+                    requestTracing.stage(trace, RequestMetrics.Stage.SERIALIZE, calculated, serialized);
 
-                    finalPromoFuture.handle((promo, promoEx) -> {
-                        try {
-                            List<String> externalWarnings = new ArrayList<>();
-                            if (promoEx != null) {
-                                externalWarnings.add("PROMO_UNAVAILABLE");
-                                promo = null;
-                            }
-
-                            PointsCalculatorService calc = calcSupplier.get();
-                            QuoteResponse resp = calc.calculate(req, fxRate, promo);
-
-                            if (!externalWarnings.isEmpty()) {
-                                if (resp.getWarnings() == null) {
-                                    resp.setWarnings(externalWarnings);
-                                } else {
-                                    resp.getWarnings().addAll(externalWarnings);
-                                }
-                            }
-
-                            String json;
-                            try {
-                                json = mapper.writeValueAsString(resp);
-                            } catch (Exception serEx) {
-                                LOGGER.log(Level.WARNING, "Failed to serialize response: " + serEx.getMessage(), serEx);
-                                safeSendResponseOnContext(ctx, 500, "{\"error\":\"internal error\"}");
-                                recordTimer(finalSample);
-                                return null;
-                            }
-
-                            safeSendResponseOnContext(ctx, 200, json);
-                            recordTimer(finalSample);
-                        } catch (Exception e) {
-                            LOGGER.log(Level.SEVERE, "Error while handling promo/fx result: " + e.getMessage(), e);
-                            safeSendResponseOnContext(ctx, 500, "{\"error\":\"internal error\"}");
-                            recordTimer(finalSample);
-                        }
-                        return null;
-                    });
-                } catch (Exception e) {
-                    LOGGER.log(Level.SEVERE, "Unhandled exception in FX completion handler: " + e.getMessage(), e);
-                    safeSendResponseOnContext(ctx, 500, "{\"error\":\"internal error\"}");
-                    recordTimer(finalSample);
+                    responses.send(ctx, 200, out, body);
+                    return true;
                 }
-            });
 
+                @Override
+                public void failed(int status, String error) {
+                    responses.error(ctx, status, "{\"error\":\"" + error + "\"}", out);
+                }
+            });
         } catch (Exception e) {
-            LOGGER.log(Level.WARNING, "Invalid request processing error: " + e.getMessage(), e);
-            safeSendResponseOnContext(ctx, 400, "{\"error\":\"invalid request\"}");
-            recordTimer(sample);
+            errors.log(Level.WARNING, e, () -> "Invalid request processing error: " + e.getMessage());
+            responses.error(ctx, 400, "{\"error\":\"invalid request\"}", out);
+            requestTracing.finish(trace, metrics, RequestMetrics.Outcome.INVALID, start);
         }
     }
 
-    private void recordTimer(Sample sample) {
-        if (sample != null && requestTimer != null) {
-            try {
-                sample.stop(requestTimer);
-            } catch (Exception ignored) {}
+    /**
+     * Validation, the FX and promo lookups and the calculation for a parsed {@code req}, recorded in
+     * {@code metrics} and {@code trace} and answered through {@code reply}. Both the HTTP route and
+     * the event bus ({@link QuoteConsumer}) quote through here. Exceptions thrown before the
+     * upstream calls are left to the caller.
+     */
+    void price(QuoteRequest req, RequestTracing.Trace trace, RequestMetrics metrics, long start, long parsed, Reply reply) {
+        requestTracing.describe(trace, req.getCurrency(), req.getCustomerTier(), 1);
+
+        // validate required fields - fareAmount, currency, cabinClass
+        // to be more robust, we could use a validation framework / move to DTO annotations / separate validator class
+        String invalid = !QuoteValidation.isValidFare(req.getFareAmount()) ? "fareAmount must be > 0"
+                : QuoteValidation.checkContext(req.getCurrency(), req.getCabinClass(), config.current().getAllowedCurrencies());
+        final long validated = System.nanoTime();
+        metrics.stage(RequestMetrics.Stage.VALIDATE, validated - parsed);
+        requestTracing.stage(trace, RequestMetrics.Stage.VALIDATE, parsed, validated);
+        if (invalid != null) {
+            reply.failed(400, invalid);
+            requestTracing.finish(trace, metrics, RequestMetrics.Outcome.INVALID, start);
+            return;
+        }
+
+        CompletableFuture<Double> fxFuture;
+        CompletableFuture<Promo> promoFuture;
+        // client spans started here are children of the request span and propagate its context
+        try (Scope ignored = trace.makeCurrent()) {
+            fxFuture = fxClient.getEffectiveRate(req.getCurrency());
+            promoFuture = promoClient.getPromo(req.getPromoCode());
+        }
+
+        if (fxFuture == null) {
+            reply.failed(502, "fx service unavailable");
+            requestTracing.finish(trace, metrics, RequestMetrics.Outcome.FX_UNAVAILABLE, start);
+            return;
+        }
+        if (promoFuture == null) {
+            promoFuture = CompletableFuture.failedFuture(new RuntimeException("promo client returned null"));
         }
+
+        CompletableFuture<Promo> finalPromoFuture = promoFuture;
+        fxFuture.whenComplete((fxRate, fxEx) -> {
+            final long fxDone = System.nanoTime();
+            metrics.stage(RequestMetrics.Stage.FX_WAIT, fxDone - validated);
+            requestTracing.stage(trace, RequestMetrics.Stage.FX_WAIT, validated, fxDone);
+            try {
+                if (fxEx != null) {
+                    reply.failed(502, "fx service unavailable");
+                    requestTracing.finish(trace, metrics, RequestMetrics.Outcome.FX_UNAVAILABLE, start);
+                    return;
+                }
+
+                finalPromoFuture.handle((promo, promoEx) -> {
+                    try {
+                        long promoDone = System.nanoTime();
+                        metrics.stage(RequestMetrics.Stage.PROMO_WAIT, promoDone - fxDone);
+                        requestTracing.stage(trace, RequestMetrics.Stage.PROMO_WAIT, fxDone, promoDone);
+                        boolean promoUnavailable = promoEx != null;
+                        if (promoUnavailable) {
+                            promo = null;
+                        }
+
+                        QuoteCalculatedEvent calculation = QuoteEvents.beginCalculation();
+                        PointsCalculatorService calc = calcSupplier.get();
+                        QuoteResponse resp = calc.calculate(req, fxRate, promo);
+                        QuoteEvents.calculated(calculation, ROUTE, req.getCurrency(), req.getCustomerTier(), 1);
+
+                        if (promoUnavailable) {
+                            // calculator warnings are a shared immutable list; copy only on this path
+                            List<String> warnings = resp.getWarnings() == null
+                                    ? new ArrayList<>(1) : new ArrayList<>(resp.getWarnings());
+                            warnings.add("PROMO_UNAVAILABLE");
+                            resp.setWarnings(warnings);
+                        }
+                        long calculated = System.nanoTime();
+                        metrics.stage(RequestMetrics.Stage.CALCULATE, calculated - promoDone);
+                        requestTracing.stage(trace, RequestMetrics.Stage.CALCULATE, promoDone, calculated);
+
+                        if (!reply.quoted(resp, calculated)) {
+                            requestTracing.finish(trace, metrics, RequestMetrics.Outcome.ERROR, start);
+                            return null;
+                        }
+                        requestTracing.finish(trace, metrics, promoUnavailable ? RequestMetrics.Outcome.PROMO_UNAVAILABLE : RequestMetrics.Outcome.OK, start);
+                    } catch (Exception e) {
+                        errors.log(Level.SEVERE, e, () -> "Error while handling promo/fx result: " + e.getMessage());
+                        reply.failed(500, "internal error");
+                        requestTracing.finish(trace, metrics, RequestMetrics.Outcome.ERROR, start);
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                errors.log(Level.SEVERE, e, () -> "Unhandled exception in FX completion handler: " + e.getMessage());
+                reply.failed(500, "internal error");
+                requestTracing.finish(trace, metrics, RequestMetrics.Outcome.ERROR, start);
+            }
+        });
     }
-}
\ No newline at end of file
+}
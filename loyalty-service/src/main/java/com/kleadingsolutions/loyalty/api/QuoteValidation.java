@@ -0,0 +1,43 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.kleadingsolutions.loyalty.service.CabinClass;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Field checks shared by {@link QuoteHandler} and {@link BatchQuoteHandler}, so a single quote and
+ * a batch accept the same fares, currencies and cabins.
+ */
+final class QuoteValidation {
+
+    static final String INVALID_CURRENCY = "invalid currency";
+    static final String INVALID_CABIN = "invalid cabinClass";
+
+    private QuoteValidation() {
+    }
+
+    /** Positive and finite; NaN (which binary formats can carry) fails too. */
+    static boolean isValidFare(double fare) {
+        return fare > 0 && fare < Double.POSITIVE_INFINITY;
+    }
+
+    static boolean isValidCurrency(String currency, Set<String> allowed) {
+        return currency != null && allowed.contains(currency.toUpperCase(Locale.ROOT));
+    }
+
+    static boolean isValidCabin(String cabin) {
+        return CabinClass.parse(cabin) != null;
+    }
+
+    /** The error for the context every quote shares, or null: currency first, then cabin. */
+    static String checkContext(String currency, String cabin, Set<String> allowed) {
+        if (!isValidCurrency(currency, allowed)) {
+            return INVALID_CURRENCY;
+        }
+        if (!isValidCabin(cabin)) {
+            return INVALID_CABIN;
+        }
+        return null;
+    }
+}
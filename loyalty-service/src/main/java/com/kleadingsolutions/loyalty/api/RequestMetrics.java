@@ -0,0 +1,136 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.kleadingsolutions.loyalty.metrics.StartupMetrics;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request and per-stage timers for one endpoint. Every tag combination is registered up front and
+ * picked by enum ordinal, so recording is an array load and {@code Timer.record(nanos)}: no tag
+ * arrays, {@code Timer.Sample}s or registry lookups per request. With a null registry every call is a no-op.
+ *
+ * Meters:
+ * - {@code <prefix>_requests_total}
+ * - {@code <prefix>_request_duration_seconds{outcome,status}}: percentile histogram plus SLO buckets
+ * - {@code loyalty_quote_stage_duration_seconds{endpoint,stage}}: SLO buckets only
+ * A 200 outcome also reports the process's first served quote to {@link StartupMetrics}, unless
+ * {@code reportsStartup} is off (the {@link Warmup} handlers, whose synthetic quotes are not served to anyone).
+ */
+final class RequestMetrics {
+
+    static final String STAGE_TIMER = "loyalty_quote_stage_duration_seconds";
+
+    /** Bounded outcome tag; each outcome has exactly one status code. */
+    enum Outcome {
+        OK("ok", 200),
+        PROMO_UNAVAILABLE("promo_unavailable", 200),
+        INVALID("invalid_request", 400),
+        FX_UNAVAILABLE("fx_unavailable", 502),
+        ERROR("internal_error", 500);
+
+        final String tag;
+        final int status;
+
+        Outcome(String tag, int status) {
+            this.tag = tag;
+            this.status = status;
+        }
+    }
+
+    /**
+     * Stages of one quote. FX_WAIT runs from issuing both upstream calls to the FX result; PROMO_WAIT is
+     * the extra time spent on the promo result after that (0 when it was already done), so the stages
+     * add up to the request duration.
+     */
+    enum Stage {
+        PARSE("parse"),
+        VALIDATE("validate"),
+        FX_WAIT("fx_wait"),
+        PROMO_WAIT("promo_wait"),
+        CALCULATE("calculate"),
+        SERIALIZE("serialize");
+
+        final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    static final Duration[] REQUEST_SLOS = {
+            Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25), Duration.ofMillis(50),
+            Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1),
+            Duration.ofMillis(2500)};
+
+    static final Duration[] STAGE_SLOS = {
+            Duration.ofNanos(50_000), Duration.ofNanos(100_000), Duration.ofNanos(250_000), Duration.ofNanos(500_000),
+            Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(50),
+            Duration.ofMillis(100), Duration.ofMillis(500), Duration.ofSeconds(1)};
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+    private static final Stage[] STAGES = Stage.values();
+
+    private final Counter requests;
+    private final Timer[] requestTimers;
+    private final Timer[] stageTimers;
+    private final boolean reportsStartup;
+
+    RequestMetrics(MeterRegistry registry, String prefix, String endpoint) {
+        this(registry, prefix, endpoint, true);
+    }
+
+    RequestMetrics(MeterRegistry registry, String prefix, String endpoint, boolean reportsStartup) {
+        this.reportsStartup = reportsStartup;
+        if (registry == null) {
+            this.requests = null;
+            this.requestTimers = null;
+            this.stageTimers = null;
+            return;
+        }
+        this.requests = registry.counter(prefix + "_requests_total");
+        this.requestTimers = new Timer[OUTCOMES.length];
+        for (Outcome o : OUTCOMES) {
+            requestTimers[o.ordinal()] = Timer.builder(prefix + "_request_duration_seconds")
+                    .tag("outcome", o.tag)
+                    .tag("status", String.valueOf(o.status))
+                    .publishPercentileHistogram()
+                    .serviceLevelObjectives(REQUEST_SLOS)
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+        }
+        this.stageTimers = new Timer[STAGES.length];
+        for (Stage s : STAGES) {
+            stageTimers[s.ordinal()] = Timer.builder(STAGE_TIMER)
+                    .tag("endpoint", endpoint)
+                    .tag("stage", s.tag)
+                    .serviceLevelObjectives(STAGE_SLOS)
+                    .register(registry);
+        }
+    }
+
+    void requestStarted() {
+        if (requests != null) {
+            requests.increment();
+        }
+    }
+
+    void stage(Stage stage, long nanos) {
+        if (stageTimers != null) {
+            stageTimers[stage.ordinal()].record(Math.max(0L, nanos), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void finish(Outcome outcome, long startNanos) {
+        if (requestTimers != null) {
+            requestTimers[outcome.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            if (reportsStartup && outcome.status == 200) {
+                StartupMetrics.quoteServed();
+            }
+        }
+    }
+}
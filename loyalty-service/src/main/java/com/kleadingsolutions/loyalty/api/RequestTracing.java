@@ -0,0 +1,204 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.kleadingsolutions.loyalty.jfr.QuoteEvents;
+import com.kleadingsolutions.loyalty.jfr.QuoteRespondedEvent;
+import com.kleadingsolutions.loyalty.logging.AccessLog;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.context.propagation.TextMapGetter;
+import io.opentelemetry.sdk.common.Clock;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server span for one endpoint, parented on the request's {@code traceparent}, with a child span per
+ * CPU stage (parse, validate, calculate, serialize) built from the nanoTime marks the handlers
+ * already take for {@link RequestMetrics}. The FX and promo waits are covered by the clients' spans,
+ * which start while {@link Trace#makeCurrent()} is in effect.
+ *
+ * Cost by case: tracing off returns the shared {@link Trace#NOOP}; an unsampled request creates a
+ * non-recording span (needed to propagate the decision upstream) and nothing else; only sampled
+ * requests get attributes, stage spans and an exemplar scope around the request timer.
+ *
+ * The same per-request state carries the JFR QuoteReceived / QuoteResponded events (see
+ * {@link QuoteEvents}) when a flight recording has them enabled, and the request id and upstream
+ * waits for the {@link AccessLog} record written at {@link #finish}.
+ */
+final class RequestTracing {
+
+    static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.request.method");
+    static final AttributeKey<String> HTTP_ROUTE = AttributeKey.stringKey("http.route");
+    static final AttributeKey<Long> HTTP_STATUS = AttributeKey.longKey("http.response.status_code");
+    static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("loyalty.outcome");
+    static final AttributeKey<String> CURRENCY = AttributeKey.stringKey("loyalty.currency");
+
+    static final String REQUEST_ID_HEADER = "X-Request-Id";
+
+    private static final TextMapGetter<HttpServerRequest> HEADERS = new TextMapGetter<>() {
+        @Override
+        public Iterable<String> keys(HttpServerRequest request) {
+            return request.headers().names();
+        }
+
+        @Override
+        public String get(HttpServerRequest request, String key) {
+            return request == null ? null : request.getHeader(key);
+        }
+    };
+
+    /** Span, flight recorder and access log state for one request. */
+    static final class Trace {
+        static final Trace NOOP = new Trace(null, null, 0, null, false, null);
+
+        final Span span;
+        final Context context;
+        final long epochOffsetNanos;
+        final QuoteRespondedEvent event;
+        final boolean logged;
+        final String requestId;
+        long fxWaitNanos = -1;
+        long promoWaitNanos = -1;
+
+        private Trace(Span span, Context context, long epochOffsetNanos, QuoteRespondedEvent event,
+                      boolean logged, String requestId) {
+            this.span = span;
+            this.context = context;
+            this.epochOffsetNanos = epochOffsetNanos;
+            this.event = event;
+            this.logged = logged;
+            this.requestId = requestId;
+        }
+
+        boolean recording() {
+            return span != null && span.isRecording();
+        }
+
+        /** Makes the request span current, so client calls started in the scope become its children. */
+        Scope makeCurrent() {
+            return context == null ? Scope.noop() : context.makeCurrent();
+        }
+    }
+
+    private final Tracing tracing;
+    private final AccessLog accessLog;
+    private final Tracer tracer;
+    private final String route;
+    private final String spanName;
+    private final String[] stageNames;
+    private final Clock clock = Clock.getDefault();
+
+    RequestTracing(Tracing tracing, AccessLog accessLog, String route, String stagePrefix) {
+        this.tracing = tracing;
+        this.accessLog = accessLog;
+        this.tracer = tracing.tracer();
+        this.route = route;
+        this.spanName = "POST " + route;
+        RequestMetrics.Stage[] stages = RequestMetrics.Stage.values();
+        this.stageNames = new String[stages.length];
+        for (RequestMetrics.Stage s : stages) {
+            stageNames[s.ordinal()] = stagePrefix + "." + s.tag;
+        }
+    }
+
+    /** Starts the server span at {@code startNanos} (System.nanoTime). */
+    Trace start(RoutingContext ctx, long startNanos) {
+        QuoteRespondedEvent event = QuoteEvents.beginResponse(route);
+        if (event != null) {
+            QuoteEvents.received(route, bodyBytes(ctx));
+        }
+        boolean logged = accessLog.isEnabled();
+        String requestId = logged ? ctx.request().getHeader(REQUEST_ID_HEADER) : null;
+        if (!tracing.isEnabled()) {
+            return event == null && !logged ? Trace.NOOP : new Trace(null, null, 0, event, logged, requestId);
+        }
+        Context parent = tracing.propagator().extract(Context.root(), ctx.request(), HEADERS);
+        long epochOffset = clock.now() - System.nanoTime();
+        Span span = tracer.spanBuilder(spanName)
+                .setParent(parent)
+                .setSpanKind(SpanKind.SERVER)
+                .setStartTimestamp(startNanos + epochOffset, TimeUnit.NANOSECONDS)
+                .startSpan();
+        if (span.isRecording()) {
+            span.setAttribute(HTTP_METHOD, "POST");
+            span.setAttribute(HTTP_ROUTE, route);
+        }
+        return new Trace(span, parent.with(span), epochOffset, event, logged, requestId);
+    }
+
+    private static long bodyBytes(RoutingContext ctx) {
+        return ctx.body() == null ? 0 : ctx.body().length();
+    }
+
+    /** What was asked for, once the body is parsed; {@code fares} is 1 for a single quote. */
+    void describe(Trace trace, String currency, String customerTier, int fares) {
+        if (trace.recording() && currency != null) {
+            trace.span.setAttribute(CURRENCY, currency);
+        }
+        QuoteEvents.describe(trace.event, currency, customerTier, fares);
+    }
+
+    /**
+     * A child span for a CPU {@code stage}, from {@code startNanos} to {@code endNanos}, on sampled
+     * requests; FX and promo waits are only kept for the access log.
+     */
+    void stage(Trace trace, RequestMetrics.Stage stage, long startNanos, long endNanos) {
+        long nanos = endNanos - startNanos;
+        if (stage == RequestMetrics.Stage.FX_WAIT || stage == RequestMetrics.Stage.PROMO_WAIT) {
+            // only traces with an access log record own these fields; Trace.NOOP is shared by every request
+            if (trace.logged) {
+                if (stage == RequestMetrics.Stage.FX_WAIT) {
+                    trace.fxWaitNanos = nanos;
+                } else {
+                    trace.promoWaitNanos = nanos;
+                }
+            }
+            return;
+        }
+        QuoteEvents.stage(trace.event, stage.tag, nanos);
+        if (!trace.recording()) {
+            return;
+        }
+        tracer.spanBuilder(stageNames[stage.ordinal()])
+                .setParent(trace.context)
+                .setStartTimestamp(startNanos + trace.epochOffsetNanos, TimeUnit.NANOSECONDS)
+                .startSpan()
+                .end(endNanos + trace.epochOffsetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the request in {@code metrics} (with the span current, so the timer can keep an exemplar
+     * pointing at this trace), commits the QuoteResponded event, queues the access log record and
+     * ends the server span. 5xx outcomes mark the span as an error.
+     */
+    void finish(Trace trace, RequestMetrics metrics, RequestMetrics.Outcome outcome, long startNanos) {
+        Span span = trace.span;
+        if (span != null && span.isRecording()) {
+            span.setAttribute(HTTP_STATUS, outcome.status);
+            span.setAttribute(OUTCOME, outcome.tag);
+            if (outcome.status >= 500) {
+                span.setStatus(StatusCode.ERROR, outcome.tag);
+            }
+            try (Scope ignored = trace.context.makeCurrent()) {
+                metrics.finish(outcome, startNanos);
+            }
+        } else {
+            metrics.finish(outcome, startNanos);
+        }
+        QuoteEvents.responded(trace.event, outcome.tag, outcome.status);
+        if (trace.logged) {
+            accessLog.log(trace.requestId, "POST", route, outcome.status, outcome.tag, System.nanoTime() - startNanos,
+                    trace.fxWaitNanos, trace.promoWaitNanos);
+        }
+        if (span != null) {
+            span.end();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.kleadingsolutions.loyalty.logging.RateLimitedLogger;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes quote responses for {@link QuoteHandler} and {@link BatchQuoteHandler}. Sends run on the
+ * request's Vert.x context, whatever thread completed the upstream futures, and never throw: a
+ * failure to write is logged through the handler's rate-limited logger.
+ */
+final class ResponseSender {
+
+    private static final Logger LOGGER = Logger.getLogger(ResponseSender.class.getName());
+
+    private final RateLimitedLogger errors;
+
+    ResponseSender(RateLimitedLogger errors) {
+        this.errors = errors;
+    }
+
+    /** A JSON body (a handler error string) in {@code format}; binary formats are re-encoded. */
+    void error(RoutingContext ctx, int status, String body, QuoteFormat format) {
+        if (format == QuoteFormat.JSON) {
+            send(ctx, status, format, body);
+            return;
+        }
+        Buffer encoded;
+        try {
+            encoded = Buffer.buffer(format.fromJson(body));
+        } catch (Exception e) {
+            errors.log(Level.WARNING, e, () -> "Failed to encode " + format + " response: " + e.getMessage());
+            send(ctx, status, QuoteFormat.JSON, body);
+            return;
+        }
+        send(ctx, status, format, encoded);
+    }
+
+    /**
+     * Ensure we always run response sends on the Vert.x context to avoid cross-thread issues.
+     * {@code body} is a String (JSON) or a Buffer (binary formats).
+     */
+    void send(RoutingContext ctx, int status, QuoteFormat format, Object body) {
+        try {
+            // ensure running on vertx event loop
+            ctx.vertx().runOnContext(v -> end(ctx, status, format, body));
+        } catch (Exception e) {
+            // fallback to direct call if ctx.vertx() throws for some reason
+            end(ctx, status, format, body);
+        }
+    }
+
+    private void end(RoutingContext ctx, int status, QuoteFormat format, Object body) {
+        try {
+            final HttpServerResponse resp = ctx.response();
+
+            try {
+                resp.putHeader("content-type", format.mediaType());
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, e, () -> "putHeader failed: " + e.getMessage());
+            }
+            try {
+                resp.setStatusCode(status);
+            } catch (Exception e) {
+                LOGGER.log(Level.FINE, e, () -> "setStatusCode failed: " + e.getMessage());
+            }
+            try {
+                if (body instanceof Buffer) {
+                    resp.end((Buffer) body);
+                } else {
+                    resp.end((String) body);
+                }
+            } catch (Exception e) {
+                errors.log(Level.WARNING, e, () -> "Failed to end response: " + e.getMessage());
+            }
+        } catch (Exception outer) {
+            errors.log(Level.SEVERE, outer, () -> "Unexpected error while sending response: " + outer.getMessage());
+        }
+    }
+}
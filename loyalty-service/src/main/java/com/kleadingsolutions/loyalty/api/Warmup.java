@@ -0,0 +1,260 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.kleadingsolutions.loyalty.client.FxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.logging.AccessLog;
+import com.kleadingsolutions.loyalty.service.CabinClass;
+import com.kleadingsolutions.loyalty.service.CustomerTier;
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.Route;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves {@code /ready} and holds it at 503 until a warm-up has run, so a new instance only takes
+ * traffic once the JIT has compiled the quote path. With {@code runtime.warmup.quotes > 0}, once the
+ * server listens:
+ * - {@link #ROUTE} / {@link #BATCH_ROUTE} are mounted with a {@link QuoteHandler} and a
+ *   {@link BatchQuoteHandler} on stub FX/promo clients, with a throwaway meter registry and without
+ *   tracing or access log; they only answer requests carrying this warm-up's {@link #TOKEN_HEADER},
+ *   so outside callers get a 404 even while they are mounted;
+ * - that many quotes (every tenth a batch, currencies, cabins and tiers rotating) are sent to them
+ *   over loopback HTTP (or the domain socket when the TCP port is off), {@code concurrency} at a time, so HTTP parsing, routing, Jackson and the
+ *   calculator all warm up; then the routes are removed, also when the warm-up fails or times out;
+ * - with {@code upstreams}, every allowed currency is also resolved through the real FX client,
+ *   which opens pooled connections to the FX service and fills its cache.
+ * READY is reported when both are done or after {@code timeout-ms}. The body also says whether the
+ * FX cache holds every allowed currency; that is reported, not waited for.
+ */
+public final class Warmup implements Handler<RoutingContext> {
+
+    private static final Logger LOGGER = Logger.getLogger(Warmup.class.getName());
+
+    static final String ROUTE = "/internal/warmup/quote";
+    static final String BATCH_ROUTE = ROUTE + "/batch";
+    static final String TOKEN_HEADER = "X-Warmup-Token";
+    private static final int VARIANTS = 64;
+
+    private final Vertx vertx;
+    private final Router router;
+    private final ConfigStore config;
+    private final FxClient fxClient;
+
+    private volatile boolean ready;
+    private LoyaltyConfig.Warmup settings;
+    private long startNanos;
+    private volatile long durationMs = -1;
+    private volatile boolean timedOut;
+    private volatile int completed;
+    private volatile int failed;
+    private int issued;
+    private final String token = UUID.randomUUID().toString();
+
+    public Warmup(Vertx vertx, Router router, ConfigStore config, FxClient fxClient) {
+        this.vertx = vertx;
+        this.router = router;
+        this.config = config;
+        this.fxClient = fxClient;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    /** Starts the warm-up against this server's {@code address}; call on the verticle's event loop. */
+    public void start(SocketAddress address) {
+        settings = config.current().getWarmup();
+        startNanos = System.nanoTime();
+        if (settings.quotes() == 0) {
+            durationMs = 0;
+            ready = true;
+            return;
+        }
+        // the warm-up's meters land in a registry nobody scrapes, so /metrics only counts real traffic,
+        // and its quotes do not count as the process's first one
+        SimpleMeterRegistry throwaway = new SimpleMeterRegistry();
+        Route quoteRoute = router.post(ROUTE).handler(guarded(new QuoteHandler(new StubFxClient(), new StubPromoClient(),
+                PointsCalculatorService::shared, throwaway, config, Tracing.NOOP, AccessLog.NOOP, false)));
+        Route batchRoute = router.post(BATCH_ROUTE).handler(guarded(new BatchQuoteHandler(new StubFxClient(), new StubPromoClient(),
+                PointsCalculatorService::shared, throwaway, config, Tracing.NOOP, AccessLog.NOOP, false)));
+
+        try {
+            Future<Void> upstreams = settings.upstreams() ? resolveCurrencies() : Future.succeededFuture();
+            Future<Void> quotes = sendQuotes(address);
+            long timer = vertx.setTimer(settings.timeoutMs(), id -> finish(quoteRoute, batchRoute, true));
+            Future.join(upstreams, quotes).onComplete(ar -> {
+                vertx.cancelTimer(timer);
+                finish(quoteRoute, batchRoute, false);
+            });
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, e, () -> "warm-up could not start: " + e.getMessage());
+            finish(quoteRoute, batchRoute, false);
+        }
+    }
+
+    /** Passes only this warm-up's own requests to {@code handler}; anything else falls through to a 404. */
+    private Handler<RoutingContext> guarded(Handler<RoutingContext> handler) {
+        return ctx -> {
+            if (token.equals(ctx.request().getHeader(TOKEN_HEADER))) {
+                handler.handle(ctx);
+            } else {
+                ctx.next();
+            }
+        };
+    }
+
+    private void finish(Route quoteRoute, Route batchRoute, boolean timeout) {
+        if (ready) {
+            return;
+        }
+        quoteRoute.remove();
+        batchRoute.remove();
+        durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        timedOut = timeout;
+        ready = true;
+        LOGGER.info(() -> "warm-up " + (timeout ? "timed out" : "done") + " after " + durationMs + " ms: "
+                + completed + "/" + settings.quotes() + " quotes (" + failed + " failed)");
+    }
+
+    private Future<Void> sendQuotes(SocketAddress address) {
+        int concurrency = Math.min(settings.concurrency(), settings.quotes());
+        HttpClient client = vertx.createHttpClient(new HttpClientOptions()
+                .setKeepAlive(true)
+                .setMaxPoolSize(concurrency));
+        Buffer[] quotes = new Buffer[VARIANTS];
+        Buffer[] batches = new Buffer[VARIANTS];
+        String[] currencies = config.current().getAllowedCurrencies().toArray(new String[0]);
+        for (int i = 0; i < VARIANTS; i++) {
+            quotes[i] = quote(i, currencies);
+            batches[i] = batch(i, currencies);
+        }
+        Promise<Void> done = Promise.promise();
+        for (int lane = 0; lane < concurrency; lane++) {
+            send(client, address, issued++, quotes, batches, done);
+        }
+        return done.future().onComplete(ar -> client.close());
+    }
+
+    private void send(HttpClient client, SocketAddress address, int n, Buffer[] quotes, Buffer[] batches, Promise<Void> done) {
+        boolean batch = n % 10 == 9;
+        Buffer body = batch ? batches[n % VARIANTS] : quotes[n % VARIANTS];
+        client.request(new RequestOptions()
+                        .setServer(address)
+                        .setHost("localhost")
+                        .setMethod(HttpMethod.POST)
+                        .setURI(batch ? BATCH_ROUTE : ROUTE)
+                        .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                        .putHeader(TOKEN_HEADER, token))
+                .compose(req -> req.send(body))
+                .compose(HttpClientResponse::body)
+                .onComplete(ar -> {
+                    if (ar.failed()) {
+                        failed++;
+                    }
+                    completed++;
+                    if (completed >= settings.quotes() || ready) {
+                        done.tryComplete();
+                    } else if (issued < settings.quotes()) {
+                        send(client, address, issued++, quotes, batches, done);
+                    }
+                });
+    }
+
+    private static Buffer quote(int i, String[] currencies) {
+        JsonObject quote = new JsonObject()
+                .put("fareAmount", 50 + (i * 37 % 1000) + 0.25 * (i % 4))
+                .put("currency", currencies[i % currencies.length])
+                .put("cabinClass", CabinClass.values()[i % CabinClass.values().length].name())
+                .put("customerTier", CustomerTier.values()[i % CustomerTier.values().length].name());
+        if (i % 2 == 1) {
+            quote.put("promoCode", "SUMMER25");
+        }
+        return quote.toBuffer();
+    }
+
+    private static Buffer batch(int i, String[] currencies) {
+        JsonArray fares = new JsonArray();
+        for (int f = 0; f < 8; f++) {
+            fares.add(25 + ((i + f) * 53 % 2000) + 0.5);
+        }
+        return new JsonObject()
+                .put("currency", currencies[i % currencies.length])
+                .put("cabinClass", CabinClass.values()[i % CabinClass.values().length].name())
+                .put("customerTier", CustomerTier.values()[i % CustomerTier.values().length].name())
+                .put("promoCode", i % 2 == 1 ? "SUMMER25" : null)
+                .put("fareAmounts", fares)
+                .toBuffer();
+    }
+
+    /** One FX lookup per allowed currency; failures are logged, not fatal. */
+    private Future<Void> resolveCurrencies() {
+        List<Future<?>> lookups = new ArrayList<>();
+        for (String currency : config.current().getAllowedCurrencies()) {
+            lookups.add(Future.fromCompletionStage(fxClient.getEffectiveRate(currency))
+                    .recover(e -> {
+                        LOGGER.log(Level.WARNING, () -> "warm-up FX lookup for " + currency + " failed: " + e.getMessage());
+                        return Future.succeededFuture();
+                    }));
+        }
+        return Future.join(lookups).mapEmpty();
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        boolean isReady = ready;
+        JsonObject warmup = new JsonObject()
+                .put("quotes", settings == null ? 0 : settings.quotes())
+                .put("completed", completed)
+                .put("failed", failed);
+        if (isReady) {
+            warmup.put("durationMs", durationMs).put("timedOut", timedOut);
+        }
+        JsonObject body = new JsonObject()
+                .put("status", isReady ? "READY" : "WARMING_UP")
+                .put("warmup", warmup)
+                .put("caches", new JsonObject().put("fx", fxCache()));
+        ctx.response()
+                .setStatusCode(isReady ? 200 : 503)
+                .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                .end(body.encode());
+    }
+
+    /** {@code off} without an FX service or cache TTL, else {@code warm} once every allowed currency is cached. */
+    private JsonObject fxCache() {
+        LoyaltyConfig cfg = config.current();
+        if (cfg.getFx().baseUrl().isEmpty() || cfg.getFx().cacheTtlMs() == 0) {
+            return new JsonObject().put("state", "off");
+        }
+        Set<String> cached = fxClient.cachedCurrencies();
+        return new JsonObject()
+                .put("state", cached.containsAll(cfg.getAllowedCurrencies()) ? "warm" : "cold")
+                .put("cached", new JsonArray(new ArrayList<>(cached)));
+    }
+}
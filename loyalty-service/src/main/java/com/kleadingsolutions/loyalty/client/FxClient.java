@@ -1,5 +1,7 @@
 package com.kleadingsolutions.loyalty.client;
 
+import java.util.Locale;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 
 public interface FxClient {
@@ -8,4 +10,14 @@ public interface FxClient {
    * Example: if fare in USD and 1 USD -> 3.67 points, returns 3.67
    */
   CompletableFuture<Double> getEffectiveRate(String currency);
+
+  /** Currencies with an unexpired cached rate; empty for clients without a cache. */
+  default Set<String> cachedCurrencies() {
+    return Set.of();
+  }
+
+  /** The cache key for {@code currency}: trimmed upper case, so "usd" and "USD" share one rate; "" for null. */
+  static String key(String currency) {
+    return currency == null ? "" : currency.trim().toUpperCase(Locale.ROOT);
+  }
 }
\ No newline at end of file
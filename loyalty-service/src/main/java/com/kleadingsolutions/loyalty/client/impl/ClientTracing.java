@@ -0,0 +1,82 @@
+package com.kleadingsolutions.loyalty.client.impl;
+
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.propagation.TextMapSetter;
+import io.vertx.ext.web.client.HttpRequest;
+
+/**
+ * One CLIENT span per HTTP attempt to an upstream, parented on the context that was current when the
+ * lookup started (the request span, see QuoteHandler), and injected as {@code traceparent} so the
+ * upstream joins the trace. Retries are separate spans with {@code http.request.resend_count}.
+ * With tracing off nothing is created or injected.
+ */
+final class ClientTracing {
+
+  static final AttributeKey<String> HTTP_METHOD = AttributeKey.stringKey("http.request.method");
+  static final AttributeKey<String> URL = AttributeKey.stringKey("url.full");
+  static final AttributeKey<Long> HTTP_STATUS = AttributeKey.longKey("http.response.status_code");
+  static final AttributeKey<Long> RESEND_COUNT = AttributeKey.longKey("http.request.resend_count");
+  static final AttributeKey<String> DEPENDENCY = AttributeKey.stringKey("loyalty.dependency");
+  static final AttributeKey<String> ERROR_TYPE = AttributeKey.stringKey("error.type");
+
+  private static final TextMapSetter<HttpRequest<?>> HEADERS = (request, key, value) -> {
+    if (request != null) {
+      request.putHeader(key, value);
+    }
+  };
+
+  private final Tracing tracing;
+  private final String spanName;
+  private final String dependency;
+
+  ClientTracing(Tracing tracing, UpstreamMetrics.Dependency dependency, String route) {
+    this.tracing = tracing;
+    this.spanName = "GET " + route;
+    this.dependency = dependency.tag;
+  }
+
+  /** The context to parent this lookup's spans on: the caller's current context. */
+  Context parent() {
+    return tracing.isEnabled() ? Context.current() : null;
+  }
+
+  /** Starts the span for one attempt and adds the trace headers to {@code request}. */
+  Span start(Context parent, HttpRequest<?> request, String url, int retry) {
+    if (parent == null) {
+      return Span.getInvalid();
+    }
+    Span span = tracing.tracer().spanBuilder(spanName)
+            .setParent(parent)
+            .setSpanKind(SpanKind.CLIENT)
+            .startSpan();
+    if (span.isRecording()) {
+      span.setAttribute(HTTP_METHOD, "GET");
+      span.setAttribute(URL, url);
+      span.setAttribute(DEPENDENCY, dependency);
+      if (retry > 0) {
+        span.setAttribute(RESEND_COUNT, retry);
+      }
+    }
+    tracing.propagator().inject(parent.with(span), request, HEADERS);
+    return span;
+  }
+
+  /** Ends an attempt's span; {@code status} is the HTTP status or 0 when there was no response. */
+  void end(Span span, UpstreamMetrics.Outcome outcome, int status) {
+    if (span.isRecording()) {
+      if (status > 0) {
+        span.setAttribute(HTTP_STATUS, status);
+      }
+      if (outcome != UpstreamMetrics.Outcome.SUCCESS && outcome != UpstreamMetrics.Outcome.NOT_FOUND) {
+        span.setAttribute(ERROR_TYPE, outcome.tag);
+        span.setStatus(StatusCode.ERROR, outcome.tag);
+      }
+    }
+    span.end();
+  }
+}
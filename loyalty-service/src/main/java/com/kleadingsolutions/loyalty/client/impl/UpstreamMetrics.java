@@ -0,0 +1,132 @@
+package com.kleadingsolutions.loyalty.client.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Metrics for the FX and promo dependencies, registered up front on the service's registry:
+ * - {@code loyalty_upstream_request_duration_seconds{dependency,outcome}}: every HTTP attempt, SLO buckets
+ * - {@code loyalty_upstream_calls_total{dependency,outcome}}: final result of a lookup, after retries
+ * - {@code loyalty_upstream_retries_total{dependency,retry}}: retries by number (1, 2, 3+)
+ * - {@code loyalty_upstream_cache_requests_total{dependency,result}}: FX rate cache hits and misses
+ * Outcomes are success, not_found (a promo 404, answered as "no promo"), http_error (other status >= 400),
+ * timeout, malformed (unparseable body) and transport_error (connection refused/reset). Recording does no lookups or tag allocation.
+ */
+public final class UpstreamMetrics {
+
+  /** Records nothing; used when the clients are created without a registry. */
+  public static final UpstreamMetrics NOOP = new UpstreamMetrics(null);
+
+  public enum Dependency {
+    FX("fx"), PROMO("promo");
+
+    final String tag;
+
+    Dependency(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  public enum Outcome {
+    SUCCESS("success"), NOT_FOUND("not_found"), HTTP_ERROR("http_error"), TIMEOUT("timeout"), MALFORMED("malformed"),
+    TRANSPORT_ERROR("transport_error");
+
+    final String tag;
+
+    Outcome(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  static final Duration[] SLOS = {
+          Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25), Duration.ofMillis(50),
+          Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500), Duration.ofSeconds(1),
+          Duration.ofSeconds(2)};
+
+  private static final String[] RETRY_TAGS = {"1", "2", "3+"};
+
+  private final Timer[][] attempts;
+  private final Counter[][] calls;
+  private final Counter[][] retries;
+  private final Counter[] cacheHits;
+  private final Counter[] cacheMisses;
+
+  public UpstreamMetrics(MeterRegistry registry) {
+    if (registry == null) {
+      attempts = null;
+      calls = null;
+      retries = null;
+      cacheHits = null;
+      cacheMisses = null;
+      return;
+    }
+    Dependency[] deps = Dependency.values();
+    Outcome[] outcomes = Outcome.values();
+    attempts = new Timer[deps.length][outcomes.length];
+    calls = new Counter[deps.length][outcomes.length];
+    retries = new Counter[deps.length][RETRY_TAGS.length];
+    cacheHits = new Counter[deps.length];
+    cacheMisses = new Counter[deps.length];
+    for (Dependency d : deps) {
+      for (Outcome o : outcomes) {
+        attempts[d.ordinal()][o.ordinal()] = Timer.builder("loyalty_upstream_request_duration_seconds")
+                .tag("dependency", d.tag)
+                .tag("outcome", o.tag)
+                .serviceLevelObjectives(SLOS)
+                .register(registry);
+        calls[d.ordinal()][o.ordinal()] = Counter.builder("loyalty_upstream_calls_total")
+                .tag("dependency", d.tag)
+                .tag("outcome", o.tag)
+                .register(registry);
+      }
+      for (int i = 0; i < RETRY_TAGS.length; i++) {
+        retries[d.ordinal()][i] = Counter.builder("loyalty_upstream_retries_total")
+                .tag("dependency", d.tag)
+                .tag("retry", RETRY_TAGS[i])
+                .register(registry);
+      }
+      cacheHits[d.ordinal()] = Counter.builder("loyalty_upstream_cache_requests_total")
+              .tag("dependency", d.tag).tag("result", "hit").register(registry);
+      cacheMisses[d.ordinal()] = Counter.builder("loyalty_upstream_cache_requests_total")
+              .tag("dependency", d.tag).tag("result", "miss").register(registry);
+    }
+  }
+
+  /** One HTTP attempt that started at {@code startNanos} (System.nanoTime) finished with {@code outcome}. */
+  void attempt(Dependency dependency, Outcome outcome, long startNanos) {
+    if (attempts != null) {
+      attempts[dependency.ordinal()][outcome.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /** A lookup completed with {@code outcome}, after any retries. */
+  void call(Dependency dependency, Outcome outcome) {
+    if (calls != null) {
+      calls[dependency.ordinal()][outcome.ordinal()].increment();
+    }
+  }
+
+  /** Retry number {@code retry} (1 for the first retry) is about to be scheduled. */
+  void retry(Dependency dependency, int retry) {
+    if (retries != null) {
+      retries[dependency.ordinal()][Math.min(Math.max(retry, 1), RETRY_TAGS.length) - 1].increment();
+    }
+  }
+
+  void cache(Dependency dependency, boolean hit) {
+    if (cacheHits != null) {
+      (hit ? cacheHits : cacheMisses)[dependency.ordinal()].increment();
+    }
+  }
+
+  static Outcome classify(Throwable failure) {
+    Throwable t = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    return t instanceof TimeoutException ? Outcome.TIMEOUT : Outcome.TRANSPORT_ERROR;
+  }
+}
@@ -1,66 +1,163 @@
 package com.kleadingsolutions.loyalty.client.impl;
 
 import com.kleadingsolutions.loyalty.client.FxClient;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.jfr.FxResolvedEvent;
+import com.kleadingsolutions.loyalty.jfr.QuoteEvents;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.context.Context;
 import io.vertx.core.Vertx;
 import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.HttpRequest;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.core.json.JsonObject;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * WebClient-based FX client with simple retry behavior.
  * Expected endpoint: GET {baseUrl}/fx/rate?currency=USD  -> { "rate": 3.67 }
- * Configurable via system properties:
- * - fx.retries (default 2)
- * - fx.retry.delay.ms (default 200)
+ * Timeout, retries and retry delay come from {@code external.fx} (see {@link LoyaltyConfig}); they are
+ * read once per call from the settings supplier, so a config reload applies to the next lookup.
+ * A non-2xx status or an unparseable body fails the attempt (and is retried like a connection error).
+ * With {@code external.fx.cache-ttl-ms > 0} successful rates are reused per currency for that long; the code
+ * is upper-cased ({@link FxClient#key}) before the lookup, so "usd" and "USD" share one entry.
+ * Each attempt is a client span (see {@link ClientTracing}); cache hits are not traced. The whole
+ * lookup, retries and cache hits included, is one FxResolved flight recorder event ({@link QuoteEvents}).
  */
 public class VertxFxClient implements FxClient {
 
+  private record CachedRate(double rate, long expiresAtNanos) {
+  }
+
   private final WebClient webClient;
   private final String baseUrl;
   private final Vertx vertx;
+  private final Supplier<LoyaltyConfig.Upstream> settings;
+  private final UpstreamMetrics metrics;
+  private final ClientTracing tracing;
+  private final Map<String, CachedRate> cache = new ConcurrentHashMap<>();
 
+  /** Uses the settings loaded at construction (config file plus system properties). */
   public VertxFxClient(Vertx vertx, String baseUrl) {
-    this.webClient = WebClient.create(vertx);
+    this(vertx, baseUrl, constant(LoyaltyConfig.load().getFx()));
+  }
+
+  public VertxFxClient(Vertx vertx, String baseUrl, Supplier<LoyaltyConfig.Upstream> settings) {
+    this(vertx, baseUrl, settings, UpstreamMetrics.NOOP);
+  }
+
+  public VertxFxClient(Vertx vertx, String baseUrl, Supplier<LoyaltyConfig.Upstream> settings, UpstreamMetrics metrics) {
+    this(vertx, baseUrl, settings, metrics, Tracing.NOOP);
+  }
+
+  public VertxFxClient(Vertx vertx, String baseUrl, Supplier<LoyaltyConfig.Upstream> settings, UpstreamMetrics metrics,
+                       Tracing tracing) {
+    this(vertx, baseUrl, settings, metrics, tracing, new WebClientOptions());
+  }
+
+  /** {@code options} carries the socket settings (TCP_NODELAY, TCP_QUICKACK) shared with the HTTP server. */
+  public VertxFxClient(Vertx vertx, String baseUrl, Supplier<LoyaltyConfig.Upstream> settings, UpstreamMetrics metrics,
+                       Tracing tracing, WebClientOptions options) {
+    this.webClient = WebClient.create(vertx, options);
     this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length()-1) : baseUrl;
     this.vertx = vertx;
+    this.settings = settings;
+    this.metrics = metrics;
+    this.tracing = new ClientTracing(tracing, UpstreamMetrics.Dependency.FX, "/fx/rate");
+  }
+
+  private static Supplier<LoyaltyConfig.Upstream> constant(LoyaltyConfig.Upstream upstream) {
+    return () -> upstream;
   }
 
   @Override
   public CompletableFuture<Double> getEffectiveRate(String currency) {
-    int retries = Integer.parseInt(System.getProperty("fx.retries", "2"));
-    long retryDelay = Long.parseLong(System.getProperty("fx.retry.delay.ms", "200"));
+    LoyaltyConfig.Upstream s = settings.get();
+    String key = FxClient.key(currency);
+    FxResolvedEvent event = QuoteEvents.beginFx();
+    if (s.cacheTtlMs() > 0) {
+      CachedRate cached = cache.get(key);
+      boolean hit = cached != null && cached.expiresAtNanos() - System.nanoTime() > 0;
+      metrics.cache(UpstreamMetrics.Dependency.FX, hit);
+      if (hit) {
+        QuoteEvents.fxResolved(event, key, UpstreamMetrics.Outcome.SUCCESS.tag, 0);
+        return CompletableFuture.completedFuture(cached.rate());
+      }
+    }
     CompletableFuture<Double> fut = new CompletableFuture<>();
-    attemptGet(currency, retries, retryDelay, fut);
+    attemptGet(key, 0, s, tracing.parent(), event, fut);
     return fut;
   }
 
-  private void attemptGet(String currency, int attemptsLeft, long retryDelayMs, CompletableFuture<Double> fut) {
-    webClient.getAbs(baseUrl + "/fx/rate")
-            .addQueryParam("currency", currency == null ? "" : currency)
-            .timeout(1000)
-            .send(ar -> {
-              if (ar.succeeded()) {
-                HttpResponse<io.vertx.core.buffer.Buffer> resp = ar.result();
-                try {
-                  JsonObject obj = resp.bodyAsJsonObject();
-                  double rate = obj.getDouble("rate", 3.67);
-                  fut.complete(rate);
-                } catch (Exception e) {
-                  if (attemptsLeft > 0) {
-                    vertx.setTimer(retryDelayMs, id -> attemptGet(currency, attemptsLeft - 1, retryDelayMs, fut));
-                  } else {
-                    fut.completeExceptionally(e);
-                  }
-                }
-              } else {
-                if (attemptsLeft > 0) {
-                  vertx.setTimer(retryDelayMs, id -> attemptGet(currency, attemptsLeft - 1, retryDelayMs, fut));
-                } else {
-                  fut.completeExceptionally(ar.cause());
-                }
-              }
-            });
+  @Override
+  public Set<String> cachedCurrencies() {
+    long now = System.nanoTime();
+    Set<String> out = new TreeSet<>();
+    cache.forEach((currency, cached) -> {
+      if (cached.expiresAtNanos() - now > 0) {
+        out.add(currency);
+      }
+    });
+    return out;
+  }
+
+  private void attemptGet(String currency, int retry, LoyaltyConfig.Upstream s, Context parent, FxResolvedEvent event,
+                          CompletableFuture<Double> fut) {
+    long start = System.nanoTime();
+    String url = baseUrl + "/fx/rate";
+    HttpRequest<io.vertx.core.buffer.Buffer> request = webClient.getAbs(url)
+            .addQueryParam("currency", currency)
+            .timeout(s.timeoutMs());
+    Span span = tracing.start(parent, request, url, retry);
+    request.send(ar -> {
+      if (ar.succeeded()) {
+        HttpResponse<io.vertx.core.buffer.Buffer> resp = ar.result();
+        if (resp.statusCode() >= 400) {
+          failed(currency, retry, s, parent, event, fut, UpstreamMetrics.Outcome.HTTP_ERROR, start, span, resp.statusCode(),
+                  new IllegalStateException("fx service returned HTTP " + resp.statusCode()));
+          return;
+        }
+        double rate;
+        try {
+          JsonObject obj = resp.bodyAsJsonObject();
+          rate = obj.getDouble("rate", 3.67);
+        } catch (Exception e) {
+          failed(currency, retry, s, parent, event, fut, UpstreamMetrics.Outcome.MALFORMED, start, span, resp.statusCode(), e);
+          return;
+        }
+        tracing.end(span, UpstreamMetrics.Outcome.SUCCESS, resp.statusCode());
+        metrics.attempt(UpstreamMetrics.Dependency.FX, UpstreamMetrics.Outcome.SUCCESS, start);
+        metrics.call(UpstreamMetrics.Dependency.FX, UpstreamMetrics.Outcome.SUCCESS);
+        QuoteEvents.fxResolved(event, currency, UpstreamMetrics.Outcome.SUCCESS.tag, retry + 1);
+        if (s.cacheTtlMs() > 0) {
+          cache.put(currency, new CachedRate(rate, System.nanoTime() + s.cacheTtlMs() * 1_000_000L));
+        }
+        fut.complete(rate);
+      } else {
+        failed(currency, retry, s, parent, event, fut, UpstreamMetrics.classify(ar.cause()), start, span, 0, ar.cause());
+      }
+    });
+  }
+
+  private void failed(String currency, int retry, LoyaltyConfig.Upstream s, Context parent, FxResolvedEvent event,
+                      CompletableFuture<Double> fut, UpstreamMetrics.Outcome outcome, long start, Span span, int status, Throwable cause) {
+    tracing.end(span, outcome, status);
+    metrics.attempt(UpstreamMetrics.Dependency.FX, outcome, start);
+    if (retry < s.retries()) {
+      metrics.retry(UpstreamMetrics.Dependency.FX, retry + 1);
+      vertx.setTimer(s.retryDelayMs(), id -> attemptGet(currency, retry + 1, s, parent, event, fut));
+    } else {
+      metrics.call(UpstreamMetrics.Dependency.FX, outcome);
+      QuoteEvents.fxResolved(event, currency, outcome.tag, retry + 1);
+      fut.completeExceptionally(cause);
+    }
   }
-}
\ No newline at end of file
+}
@@ -1,27 +1,73 @@
 package com.kleadingsolutions.loyalty.client.impl;
 
 import com.kleadingsolutions.loyalty.client.PromoClient;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
 import com.kleadingsolutions.loyalty.dto.Promo;
+import com.kleadingsolutions.loyalty.jfr.PromoResolvedEvent;
+import com.kleadingsolutions.loyalty.jfr.QuoteEvents;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.opentelemetry.api.trace.Span;
 import io.vertx.core.Vertx;
 import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.client.HttpRequest;
 import io.vertx.ext.web.client.HttpResponse;
 import io.vertx.core.json.JsonObject;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 /**
  * Simple WebClient-based Promo client.
  * Expected endpoint:
  * GET {baseUrl}/promo/{code} -> { "code":"SUMMER25", "percent":0.25, "expiresInDays":1 }
+ * The timeout comes from {@code external.promo.timeout-ms} (see {@link LoyaltyConfig}).
+ * A 404 means there is no such promo and completes with null, as a blank code does; any other status
+ * of 400 or above fails the lookup like a malformed body or a connection error.
+ * The lookup is a client span (see {@link ClientTracing}) and a PromoResolved flight recorder event
+ * ({@link QuoteEvents}).
  */
 public class VertxPromoClient implements PromoClient {
 
   private final WebClient webClient;
   private final String baseUrl;
+  private final Vertx vertx;
+  private final Supplier<LoyaltyConfig.Upstream> settings;
+  private final UpstreamMetrics metrics;
+  private final ClientTracing tracing;
 
+  /** Uses the settings loaded at construction (config file plus system properties). */
   public VertxPromoClient(Vertx vertx, String baseUrl) {
-    this.webClient = WebClient.create(vertx);
+    this(vertx, baseUrl, constant(LoyaltyConfig.load().getPromo()));
+  }
+
+  public VertxPromoClient(Vertx vertx, String baseUrl, Supplier<LoyaltyConfig.Upstream> settings) {
+    this(vertx, baseUrl, settings, UpstreamMetrics.NOOP);
+  }
+
+  public VertxPromoClient(Vertx vertx, String baseUrl, Supplier<LoyaltyConfig.Upstream> settings, UpstreamMetrics metrics) {
+    this(vertx, baseUrl, settings, metrics, Tracing.NOOP);
+  }
+
+  public VertxPromoClient(Vertx vertx, String baseUrl, Supplier<LoyaltyConfig.Upstream> settings, UpstreamMetrics metrics,
+                          Tracing tracing) {
+    this(vertx, baseUrl, settings, metrics, tracing, new WebClientOptions());
+  }
+
+  /** {@code options} carries the socket settings (TCP_NODELAY, TCP_QUICKACK) shared with the HTTP server. */
+  public VertxPromoClient(Vertx vertx, String baseUrl, Supplier<LoyaltyConfig.Upstream> settings, UpstreamMetrics metrics,
+                          Tracing tracing, WebClientOptions options) {
+    this.webClient = WebClient.create(vertx, options);
     this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length()-1) : baseUrl;
+    this.vertx = vertx;
+    this.settings = settings;
+    this.metrics = metrics;
+    this.tracing = new ClientTracing(tracing, UpstreamMetrics.Dependency.PROMO, "/promo/{code}");
+  }
+
+  private static Supplier<LoyaltyConfig.Upstream> constant(LoyaltyConfig.Upstream upstream) {
+    return () -> upstream;
   }
 
   @Override
@@ -31,25 +77,67 @@ public class VertxPromoClient implements PromoClient {
       fut.complete(null);
       return fut;
     }
-    webClient.getAbs(baseUrl + "/promo/" + promoCode)
-      .timeout(1000)
+    // the request timeout only starts once a pooled connection is assigned; the deadline also covers
+    // the wait for the pool, so a dead promo service cannot hold a quote longer than timeoutMs
+    long timeoutMs = settings.get().timeoutMs();
+    long start = System.nanoTime();
+    PromoResolvedEvent event = QuoteEvents.beginPromo();
+    String url = baseUrl + "/promo/" + promoCode;
+    HttpRequest<io.vertx.core.buffer.Buffer> request = webClient.getAbs(url).timeout(timeoutMs);
+    Span span = tracing.start(tracing.parent(), request, url, 0);
+    long deadline = vertx.setTimer(timeoutMs, id -> fail(fut, event, promoCode, UpstreamMetrics.Outcome.TIMEOUT, start,
+      span, 0, new TimeoutException("promo lookup exceeded " + timeoutMs + " ms")));
+    fut.whenComplete((p, e) -> vertx.cancelTimer(deadline));
+    request
       .send(ar -> {
         if (ar.succeeded()) {
           HttpResponse<io.vertx.core.buffer.Buffer> resp = ar.result();
+          if (resp.statusCode() == 404) {
+            if (fut.complete(null)) {
+              tracing.end(span, UpstreamMetrics.Outcome.NOT_FOUND, resp.statusCode());
+              metrics.attempt(UpstreamMetrics.Dependency.PROMO, UpstreamMetrics.Outcome.NOT_FOUND, start);
+              metrics.call(UpstreamMetrics.Dependency.PROMO, UpstreamMetrics.Outcome.NOT_FOUND);
+              QuoteEvents.promoResolved(event, promoCode, UpstreamMetrics.Outcome.NOT_FOUND.tag);
+            }
+            return;
+          }
+          if (resp.statusCode() >= 400) {
+            fail(fut, event, promoCode, UpstreamMetrics.Outcome.HTTP_ERROR, start, span, resp.statusCode(),
+              new IllegalStateException("promo service returned HTTP " + resp.statusCode()));
+            return;
+          }
+          Promo p;
           try {
             JsonObject obj = resp.bodyAsJsonObject();
-            Promo p = new Promo();
+            p = new Promo();
             p.setCode(obj.getString("code"));
             p.setPercent(obj.getDouble("percent", 0.0));
             p.setExpiresInDays(obj.getInteger("expiresInDays", 0));
-            fut.complete(p);
           } catch (Exception e) {
-            fut.completeExceptionally(e);
+            fail(fut, event, promoCode, UpstreamMetrics.Outcome.MALFORMED, start, span, resp.statusCode(), e);
+            return;
+          }
+          if (fut.complete(p)) {
+            tracing.end(span, UpstreamMetrics.Outcome.SUCCESS, resp.statusCode());
+            metrics.attempt(UpstreamMetrics.Dependency.PROMO, UpstreamMetrics.Outcome.SUCCESS, start);
+            metrics.call(UpstreamMetrics.Dependency.PROMO, UpstreamMetrics.Outcome.SUCCESS);
+            QuoteEvents.promoResolved(event, promoCode, UpstreamMetrics.Outcome.SUCCESS.tag);
           }
         } else {
-          fut.completeExceptionally(ar.cause());
+          fail(fut, event, promoCode, UpstreamMetrics.classify(ar.cause()), start, span, 0, ar.cause());
         }
       });
     return fut;
   }
-}
\ No newline at end of file
+
+  // whichever of the response and the deadline completes the lookup first is the one recorded
+  private void fail(CompletableFuture<Promo> fut, PromoResolvedEvent event, String promoCode,
+                    UpstreamMetrics.Outcome outcome, long start, Span span, int status, Throwable cause) {
+    if (fut.completeExceptionally(cause)) {
+      tracing.end(span, outcome, status);
+      metrics.attempt(UpstreamMetrics.Dependency.PROMO, outcome, start);
+      metrics.call(UpstreamMetrics.Dependency.PROMO, outcome);
+      QuoteEvents.promoResolved(event, promoCode, outcome.tag);
+    }
+  }
+}
@@ -0,0 +1,343 @@
+package com.kleadingsolutions.loyalty.cluster;
+
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.MessageConsumer;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
+import io.vertx.core.impl.VertxInternal;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.spi.cluster.ClusterManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-through cache shared by the service nodes of a Vert.x cluster, for upstream answers that are the
+ * same on every node (FX rates, promos). A lookup tries, in order:
+ * - the node's near cache, a local copy kept at most {@code runtime.cluster.near-cache-ttl-ms};
+ * - the cluster-wide AsyncMap {@code loyalty.<name>}, where an entry lives {@code cache-ttl-ms};
+ * - the key's owner node, picked by rendezvous hashing over the cluster members, which calls the upstream
+ *   ({@code loader}) once for all nodes and stores the answer in the map.
+ * Concurrent misses for a key on a node share one lookup. If the owner cannot be reached within
+ * {@code fetch-timeout-ms} (it left, or does not run the service) the node calls the upstream itself.
+ * Failures are not cached. {@link #invalidate} drops a key from the map and broadcasts on the event bus,
+ * so every node drops its near copy. Lookups are counted as
+ * {@code loyalty_cluster_cache_requests_total{cache,result}}.
+ */
+public final class ClusterCache<V> {
+
+  private static final Logger LOGGER = Logger.getLogger(ClusterCache.class.getName());
+
+  enum Result {
+    NEAR("near"), SHARED("shared"), OWNER("owner"), REMOTE("remote"), FALLBACK("fallback");
+
+    final String tag;
+
+    Result(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  /** An answer and when it expires cluster-wide (epoch millis; node clocks are assumed to be in sync). */
+  private record Entry<V>(V value, long expiresAtMillis) {
+  }
+
+  private record Near<V>(Entry<V> entry, long expiresAtNanos) {
+  }
+
+  private final Vertx vertx;
+  private final String name;
+  private final Function<String, CompletableFuture<V>> loader;
+  private final Function<V, JsonObject> encoder;
+  private final Function<JsonObject, V> decoder;
+  private final Supplier<LoyaltyConfig.Cluster> settings;
+  private final ClusterManager clusterManager;
+  private final String nodeId;
+  private final Future<AsyncMap<String, JsonObject>> shared;
+  private final Future<Void> ready;
+  private final Map<String, Near<V>> near = new ConcurrentHashMap<>();
+  private final Map<String, CompletableFuture<Entry<V>>> inflight = new ConcurrentHashMap<>();
+  private final Counter[] requests;
+
+  /**
+   * {@code loader} calls the upstream on the owner node; {@code encoder}/{@code decoder} map an answer to
+   * and from the JSON kept in the cluster map and sent between nodes. Registers this node's event-bus
+   * consumers, so it is created in a verticle's start and removed with it.
+   */
+  public ClusterCache(Vertx vertx, String name, Function<String, CompletableFuture<V>> loader,
+                      Function<V, JsonObject> encoder, Function<JsonObject, V> decoder,
+                      Supplier<LoyaltyConfig.Cluster> settings, MeterRegistry registry) {
+    // the member list is only reachable through the internal API; Vert.x keeps it current
+    this.clusterManager = vertx.isClustered() ? ((VertxInternal) vertx).getClusterManager() : null;
+    if (clusterManager == null) {
+      throw new IllegalStateException("cluster cache '" + name + "' needs a clustered Vert.x");
+    }
+    this.vertx = vertx;
+    this.name = name;
+    this.loader = loader;
+    this.encoder = encoder;
+    this.decoder = decoder;
+    this.settings = settings;
+    this.nodeId = clusterManager.getNodeId();
+    this.shared = vertx.sharedData().getClusterWideMap("loyalty." + name);
+    this.ready = Future.all(shared,
+            registered(vertx.eventBus().consumer(fetchAddress(nodeId), this::onFetch)),
+            registered(vertx.eventBus().consumer(invalidateAddress(), this::onInvalidate))).mapEmpty();
+    if (registry == null) {
+      this.requests = null;
+    } else {
+      Result[] results = Result.values();
+      this.requests = new Counter[results.length];
+      for (Result r : results) {
+        requests[r.ordinal()] = Counter.builder("loyalty_cluster_cache_requests_total")
+                .tag("cache", name).tag("result", r.tag).register(registry);
+      }
+    }
+  }
+
+  private static Future<Void> registered(MessageConsumer<?> consumer) {
+    Promise<Void> promise = Promise.promise();
+    consumer.completionHandler(promise);
+    return promise.future();
+  }
+
+  /** Completes once the cluster map is open and this node's consumers are known to the cluster. */
+  public Future<Void> ready() {
+    return ready;
+  }
+
+  public CompletableFuture<V> get(String key) {
+    Entry<V> cached = nearEntry(key);
+    if (cached != null) {
+      count(Result.NEAR);
+      return CompletableFuture.completedFuture(cached.value());
+    }
+    return lookup(key, false).thenApply(Entry::value);
+  }
+
+  /** Keys with an unexpired near copy on this node. */
+  public Set<String> keys() {
+    long now = System.nanoTime();
+    Set<String> out = new TreeSet<>();
+    near.forEach((key, n) -> {
+      if (n.expiresAtNanos() - now > 0) {
+        out.add(key);
+      }
+    });
+    return out;
+  }
+
+  /**
+   * Drops {@code key} (every key when null) from the cluster map and publishes the invalidation, so each
+   * node drops its near copy; the next lookup goes to the owner. A lookup already in flight may still
+   * store the answer it gets.
+   */
+  public Future<Void> invalidate(String key) {
+    dropNear(key);
+    Future<Void> removed = shared.compose(map -> key == null ? map.clear() : map.remove(key).mapEmpty());
+    return removed.onComplete(ar -> vertx.eventBus().publish(invalidateAddress(), new JsonObject().put("key", key)));
+  }
+
+  /** The member that fetches {@code key} for the whole cluster: highest rendezvous score, ties by id. */
+  String owner(String key) {
+    List<String> nodes = clusterManager.getNodes();
+    String best = nodeId;
+    long bestScore = Long.MIN_VALUE;
+    for (String node : nodes) {
+      long score = score(key, node);
+      if (score > bestScore || (score == bestScore && node.compareTo(best) < 0)) {
+        best = node;
+        bestScore = score;
+      }
+    }
+    return best;
+  }
+
+  String nodeId() {
+    return nodeId;
+  }
+
+  // a member joining or leaving only moves the keys it wins or owned (rendezvous / highest random weight)
+  static long score(String key, String node) {
+    long h = key.hashCode() * 0x9E3779B97F4A7C15L + node.hashCode();
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private CompletableFuture<Entry<V>> lookup(String key, boolean owner) {
+    CompletableFuture<Entry<V>> fut = new CompletableFuture<>();
+    CompletableFuture<Entry<V>> pending = inflight.putIfAbsent(key, fut);
+    if (pending != null) {
+      return pending;
+    }
+    fut.whenComplete((entry, failure) -> inflight.remove(key, fut));
+    LoyaltyConfig.Cluster s = settings.get();
+    shared.compose(map -> map.get(key)).onComplete(ar -> {
+      try {
+        Entry<V> entry = ar.succeeded() ? entry(ar.result()) : null;
+        if (entry != null && entry.expiresAtMillis() > System.currentTimeMillis()) {
+          count(Result.SHARED);
+          complete(key, entry, s, fut);
+          return;
+        }
+        String ownerNode = owner ? nodeId : owner(key);
+        if (ownerNode.equals(nodeId)) {
+          count(Result.OWNER);
+          fetch(key, s, fut);
+        } else {
+          ask(ownerNode, key, s, fut);
+        }
+      } catch (RuntimeException e) {
+        fut.completeExceptionally(e);
+      }
+    });
+    return fut;
+  }
+
+  private void fetch(String key, LoyaltyConfig.Cluster s, CompletableFuture<Entry<V>> fut) {
+    CompletableFuture<V> upstream;
+    try {
+      upstream = loader.apply(key);
+    } catch (RuntimeException e) {
+      fut.completeExceptionally(e);
+      return;
+    }
+    if (upstream == null) {
+      fut.completeExceptionally(new IllegalStateException(name + " lookup returned no result"));
+      return;
+    }
+    upstream.whenComplete((value, failure) -> {
+      if (failure != null) {
+        fut.completeExceptionally(failure);
+        return;
+      }
+      try {
+        Entry<V> entry = new Entry<>(value, System.currentTimeMillis() + s.cacheTtlMs());
+        JsonObject json = json(entry);
+        // callers on this node do not wait for the write; other nodes read it once it lands
+        shared.compose(map -> map.put(key, json, s.cacheTtlMs()))
+                .onFailure(e -> LOGGER.log(Level.FINE, () -> name + " cache write failed: " + e.getMessage()));
+        complete(key, entry, s, fut);
+      } catch (RuntimeException e) {
+        fut.completeExceptionally(e);
+      }
+    });
+  }
+
+  private void ask(String ownerNode, String key, LoyaltyConfig.Cluster s, CompletableFuture<Entry<V>> fut) {
+    vertx.eventBus().<JsonObject>request(fetchAddress(ownerNode), key, new DeliveryOptions().setSendTimeout(s.fetchTimeoutMs()))
+            .onComplete(ar -> {
+              if (ar.succeeded()) {
+                count(Result.REMOTE);
+                try {
+                  complete(key, entry(ar.result().body()), s, fut);
+                } catch (RuntimeException e) {
+                  fut.completeExceptionally(e);
+                }
+              } else if (ar.cause() instanceof ReplyException reply && reply.failureType() == ReplyFailure.RECIPIENT_FAILURE) {
+                // the owner reached the upstream and it failed; asking it again from here only adds load
+                count(Result.REMOTE);
+                fut.completeExceptionally(reply);
+              } else {
+                // owner gone, not listening yet or too slow
+                count(Result.FALLBACK);
+                fetch(key, s, fut);
+              }
+            });
+  }
+
+  private void onFetch(Message<String> msg) {
+    String key = msg.body();
+    Entry<V> cached = nearEntry(key);
+    CompletableFuture<Entry<V>> answer = cached != null ? CompletableFuture.completedFuture(cached) : lookup(key, true);
+    answer.whenComplete((entry, failure) -> {
+      if (failure == null) {
+        msg.reply(json(entry));
+        return;
+      }
+      Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+      msg.fail(502, name + " lookup failed on the owner: " + cause.getMessage());
+    });
+  }
+
+  private void onInvalidate(Message<JsonObject> msg) {
+    dropNear(msg.body().getString("key"));
+  }
+
+  private void dropNear(String key) {
+    if (key == null) {
+      near.clear();
+    } else {
+      near.remove(key);
+    }
+  }
+
+  private Entry<V> nearEntry(String key) {
+    Near<V> n = near.get(key);
+    if (n == null) {
+      return null;
+    }
+    if (n.expiresAtNanos() - System.nanoTime() > 0) {
+      return n.entry();
+    }
+    near.remove(key, n);
+    return null;
+  }
+
+  private void complete(String key, Entry<V> entry, LoyaltyConfig.Cluster s, CompletableFuture<Entry<V>> fut) {
+    long nearMs = Math.min(s.nearCacheTtlMs(), entry.expiresAtMillis() - System.currentTimeMillis());
+    if (nearMs > 0) {
+      near.put(key, new Near<>(entry, System.nanoTime() + nearMs * 1_000_000L));
+    }
+    fut.complete(entry);
+  }
+
+  private JsonObject json(Entry<V> entry) {
+    return new JsonObject()
+            .put("value", entry.value() == null ? null : encoder.apply(entry.value()))
+            .put("expires", entry.expiresAtMillis());
+  }
+
+  private Entry<V> entry(JsonObject json) {
+    if (json == null) {
+      return null;
+    }
+    JsonObject value = json.getJsonObject("value");
+    return new Entry<>(value == null ? null : decoder.apply(value), json.getLong("expires", 0L));
+  }
+
+  private void count(Result result) {
+    if (requests != null) {
+      requests[result.ordinal()].increment();
+    }
+  }
+
+  private String fetchAddress(String node) {
+    return "loyalty.cluster." + name + ".fetch." + node;
+  }
+
+  private String invalidateAddress() {
+    return "loyalty.cluster." + name + ".invalidate";
+  }
+}
@@ -0,0 +1,50 @@
+package com.kleadingsolutions.loyalty.cluster;
+
+import com.kleadingsolutions.loyalty.client.FxClient;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * FX client for {@code runtime.cluster.enabled}: rates come from the {@link ClusterCache} {@code fx},
+ * and only a currency's owner node asks {@code delegate} (the HTTP client with its own retries and cache).
+ */
+public class ClusteredFxClient implements FxClient {
+
+  private final FxClient delegate;
+  private final ClusterCache<Double> cache;
+
+  public ClusteredFxClient(Vertx vertx, FxClient delegate, Supplier<LoyaltyConfig.Cluster> settings, MeterRegistry registry) {
+    this.delegate = delegate;
+    this.cache = new ClusterCache<>(vertx, "fx", delegate::getEffectiveRate,
+            rate -> new JsonObject().put("rate", rate), json -> json.getDouble("rate"), settings, registry);
+  }
+
+  @Override
+  public CompletableFuture<Double> getEffectiveRate(String currency) {
+    return cache.get(FxClient.key(currency));
+  }
+
+  @Override
+  public Set<String> cachedCurrencies() {
+    Set<String> out = new TreeSet<>(delegate.cachedCurrencies());
+    out.addAll(cache.keys());
+    return out;
+  }
+
+  public Future<Void> ready() {
+    return cache.ready();
+  }
+
+  /** Drops {@code currency} (all when null) on every node, see {@link ClusterCache#invalidate}. */
+  public Future<Void> invalidate(String currency) {
+    return cache.invalidate(currency);
+  }
+}
@@ -0,0 +1,61 @@
+package com.kleadingsolutions.loyalty.cluster;
+
+import com.kleadingsolutions.loyalty.client.PromoClient;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.dto.Promo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Promo client for {@code runtime.cluster.enabled}: promos come from the {@link ClusterCache} {@code promo},
+ * and only a code's owner node asks {@code delegate}. Requests without a code skip the cache.
+ */
+public class ClusteredPromoClient implements PromoClient {
+
+  private final PromoClient delegate;
+  private final ClusterCache<Promo> cache;
+
+  public ClusteredPromoClient(Vertx vertx, PromoClient delegate, Supplier<LoyaltyConfig.Cluster> settings,
+                              MeterRegistry registry) {
+    this.delegate = delegate;
+    this.cache = new ClusterCache<>(vertx, "promo", delegate::getPromo,
+            ClusteredPromoClient::toJson, ClusteredPromoClient::fromJson, settings, registry);
+  }
+
+  @Override
+  public CompletableFuture<Promo> getPromo(String promoCode) {
+    if (promoCode == null || promoCode.isBlank()) {
+      return delegate.getPromo(promoCode);
+    }
+    return cache.get(promoCode);
+  }
+
+  public Future<Void> ready() {
+    return cache.ready();
+  }
+
+  /** Drops {@code promoCode} (all when null) on every node, see {@link ClusterCache#invalidate}. */
+  public Future<Void> invalidate(String promoCode) {
+    return cache.invalidate(promoCode);
+  }
+
+  static JsonObject toJson(Promo promo) {
+    return new JsonObject()
+            .put("code", promo.getCode())
+            .put("percent", promo.getPercent())
+            .put("expiresInDays", promo.getExpiresInDays());
+  }
+
+  static Promo fromJson(JsonObject json) {
+    Promo promo = new Promo();
+    promo.setCode(json.getString("code"));
+    promo.setPercent(json.getDouble("percent", 0.0));
+    promo.setExpiresInDays(json.getInteger("expiresInDays", 0));
+    return promo;
+  }
+}
@@ -0,0 +1,225 @@
+package com.kleadingsolutions.loyalty.config;
+
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds the current {@link LoyaltyConfig}. Readers call {@link #current()} (one volatile read) and
+ * keep the snapshot for the rest of the request; a reload parses and validates the file off the
+ * event loop and swaps the reference only if the new config is valid, so a bad edit leaves the
+ * running config in place.
+ *
+ * Server port and upstream base URLs are bound at start; everything else (allowed currencies,
+ * upstream timeouts and retries, earning rules via {@link #onChange}) takes effect on reload.
+ *
+ * Verticles that load their own configuration share one store per Vert.x instance ({@link #shared}),
+ * so a file is parsed, watched and published once however many instances are deployed.
+ */
+public final class ConfigStore implements Shareable {
+
+  private static final Logger LOGGER = Logger.getLogger(ConfigStore.class.getName());
+
+  /** System property naming an external YAML file to load and watch instead of the bundled one. */
+  public static final String CONFIG_FILE_PROPERTY = "config.file";
+
+  private static final String SHARED_MAP = "loyalty.config";
+  private static final String SHARED_KEY = "store";
+
+  private final AtomicReference<LoyaltyConfig> current;
+  private final Path file;
+  private final List<Consumer<LoyaltyConfig>> listeners = new CopyOnWriteArrayList<>();
+  private volatile FileStamp stamp;
+  private final List<Runnable> closeHooks = new CopyOnWriteArrayList<>();
+  // guarded by this
+  private long timerId = -1;
+  private boolean closed;
+  // guarded by ConfigStore.class: the contexts of the shared() callers, and the one that owns the watch timer
+  private final List<Context> users = new ArrayList<>();
+  private Context watchOwner;
+
+  private ConfigStore(LoyaltyConfig initial, Path file) {
+    this.current = new AtomicReference<>(Objects.requireNonNull(initial, "initial"));
+    this.file = file;
+    this.stamp = file == null ? null : FileStamp.of(file);
+  }
+
+  /** Loads {@code -Dconfig.file} (watchable) or the bundled file, plus system property overrides. */
+  public static ConfigStore load() {
+    String file = System.getProperty(CONFIG_FILE_PROPERTY, "").trim();
+    return file.isEmpty() ? new ConfigStore(LoyaltyConfig.load(), null) : fromFile(Path.of(file));
+  }
+
+  public static ConfigStore fromFile(Path file) {
+    FileStamp before = FileStamp.of(file);
+    ConfigStore store = new ConfigStore(LoyaltyConfig.fromFile(file, System.getProperties()), file);
+    store.stamp = before;
+    return store;
+  }
+
+  /**
+   * The store shared by every caller on {@code vertx}. The first call loads it ({@link #load()}),
+   * passes it to {@code onLoad} and starts watching from the caller's context; later calls get the
+   * same instance. Each call must be paired with a {@link #release} on the same context.
+   */
+  public static ConfigStore shared(Vertx vertx, Consumer<ConfigStore> onLoad) {
+    Context caller = vertx.getOrCreateContext();
+    synchronized (ConfigStore.class) {
+      LocalMap<String, ConfigStore> map = vertx.sharedData().getLocalMap(SHARED_MAP);
+      ConfigStore store = map.get(SHARED_KEY);
+      if (store == null) {
+        store = load();
+        onLoad.accept(store);
+        map.put(SHARED_KEY, store);
+      }
+      store.users.add(caller);
+      if (store.watchOwner == null) {
+        store.watchOwner = caller;
+        store.watch(vertx);
+      }
+      return store;
+    }
+  }
+
+  /**
+   * Drops a {@link #shared} reference; the last one stops watching and runs the {@link #onClose} hooks.
+   * A timer dies with the deployment that set it, so when the watching caller leaves, the watch moves
+   * to one of the others.
+   */
+  public void release(Vertx vertx) {
+    Context caller = Vertx.currentContext();
+    synchronized (ConfigStore.class) {
+      if (users.isEmpty()) return;
+      Context gone = users.remove(caller) ? caller : users.remove(users.size() - 1);
+      if (!users.isEmpty()) {
+        if (watchOwner == gone) {
+          stopWatching(vertx);
+          Context next = users.get(0);
+          watchOwner = next;
+          next.runOnContext(v -> {
+            synchronized (ConfigStore.class) {
+              if (watchOwner == next) watch(vertx);
+            }
+          });
+        }
+        return;
+      }
+      watchOwner = null;
+      vertx.sharedData().<String, ConfigStore>getLocalMap(SHARED_MAP).remove(SHARED_KEY, this);
+      close(vertx);
+    }
+    for (Runnable hook : closeHooks) {
+      try {
+        hook.run();
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "config close hook failed: " + e.getMessage(), e);
+      }
+    }
+  }
+
+  /** A store that never reloads. */
+  public static ConfigStore of(LoyaltyConfig config) {
+    return new ConfigStore(config, null);
+  }
+
+  public LoyaltyConfig current() {
+    return current.get();
+  }
+
+  /** The watched file, or null when the config came from the classpath. */
+  public Path file() {
+    return file;
+  }
+
+  /** Called with each newly published config, on the thread that reloaded it. */
+  public void onChange(Consumer<LoyaltyConfig> listener) {
+    listeners.add(Objects.requireNonNull(listener, "listener"));
+  }
+
+  /** Called once when the last {@link #shared} reference is released. */
+  public void onClose(Runnable hook) {
+    closeHooks.add(Objects.requireNonNull(hook, "hook"));
+  }
+
+  /** Publishes {@code next} and notifies listeners; returns the config it replaced. */
+  public LoyaltyConfig publish(LoyaltyConfig next) {
+    LoyaltyConfig previous = current.getAndSet(Objects.requireNonNull(next, "next"));
+    for (Consumer<LoyaltyConfig> l : listeners) {
+      try {
+        l.accept(next);
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "config listener failed: " + e.getMessage(), e);
+      }
+    }
+    return previous;
+  }
+
+  /**
+   * Re-reads the file if its modification time or size changed since the last load. Blocking; returns
+   * true if a new config was published. An unreadable or invalid file is logged and ignored.
+   */
+  public boolean reloadIfModified() {
+    if (file == null) return false;
+    FileStamp now = FileStamp.of(file);
+    if (now.equals(stamp)) return false;
+    stamp = now;
+    try {
+      publish(LoyaltyConfig.fromFile(file, System.getProperties()));
+      LOGGER.info("reloaded configuration from " + file);
+      return true;
+    } catch (UncheckedIOException | IllegalArgumentException e) {
+      LOGGER.log(Level.WARNING, "keeping previous configuration, " + file + " is invalid: " + e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Checks the file every {@link LoyaltyConfig#getReloadIntervalMs()} ms, parsing on a worker thread.
+   * No-op for classpath configs, an interval of 0 or a released {@link #shared} store.
+   */
+  public synchronized void watch(Vertx vertx) {
+    long interval = current().getReloadIntervalMs();
+    if (file == null || interval == 0 || timerId >= 0 || closed) return;
+    timerId = vertx.setPeriodic(interval, id ->
+            vertx.executeBlocking(p -> {
+              reloadIfModified();
+              p.complete();
+            }, false));
+  }
+
+  public synchronized void stopWatching(Vertx vertx) {
+    if (timerId >= 0) {
+      vertx.cancelTimer(timerId);
+      timerId = -1;
+    }
+  }
+
+  private synchronized void close(Vertx vertx) {
+    closed = true;
+    stopWatching(vertx);
+  }
+
+  private record FileStamp(long modifiedMillis, long size) {
+    static FileStamp of(Path file) {
+      try {
+        return new FileStamp(Files.getLastModifiedTime(file).toMillis(), Files.size(file));
+      } catch (IOException e) {
+        return new FileStamp(-1, -1);
+      }
+    }
+  }
+}
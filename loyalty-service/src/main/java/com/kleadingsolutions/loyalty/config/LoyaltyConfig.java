@@ -0,0 +1,616 @@
+package com.kleadingsolutions.loyalty.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+import com.kleadingsolutions.loyalty.service.EarningRules;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Immutable, validated snapshot of {@code application-properties.yml}:
+ * <pre>
+ * server:
+ *   port: 8888
+ *   http2:                       # h2c is always accepted on cleartext, h2 is offered through ALPN with TLS
+ *     max-concurrent-streams: 256
+ *     connection-window-size: 1048576
+ *   tcp: { no-delay: true, quick-ack: true, reuse-port: false, accept-backlog: 1024 }
+ *   idle-timeout-s: 120          # 0 = never close idle connections
+ *   max-header-size: 8192
+ *   max-initial-line-length: 4096
+ *   compression: { enabled: false, level: 1, min-size: 1024 }
+ *   tls: { cert: "", key: "" }   # PEM files; empty = cleartext
+ *   domain-socket: { path: "" }  # also serve on this Unix domain socket; tcp.enabled false = only there
+ * external:
+ *   fx:    { base-url: "", timeout-ms: 1000, retries: 2, retry-delay-ms: 200, cache-ttl-ms: 0 }
+ *   promo: { base-url: "", timeout-ms: 1000 }
+ * business:
+ *   currencies: [USD, EUR, AED]
+ *   ...                          # earning rules, see EarningRules
+ * runtime:
+ *   config:
+ *     reload-interval-ms: 5000   # 0 disables the file watch
+ *   transport:
+ *     native: true               # io_uring / epoll when available, else NIO (read by LoyaltyLauncher)
+ *   metrics:
+ *     scrape-cache-ms: 1000      # reuse a /metrics scrape this long
+ *     gzip: true
+ *   jfr:
+ *     admin-enabled: false       # /admin/jfr endpoints
+ *     max-age-s: 900             # caps for the recording they start
+ *     max-size-mb: 64
+ *   warmup:
+ *     quotes: 0                  # synthetic quotes before /ready reports READY; 0 = ready at once
+ *     concurrency: 8
+ *     timeout-ms: 30000          # READY after this even if unfinished
+ *     upstreams: true            # also resolve each currency through the FX client (pool, cache)
+ *   cluster:
+ *     enabled: false             # share FX rates and promos between nodes (needs a clustered Vert.x)
+ *     cache-ttl-ms: 60000        # how long a shared entry is reused cluster-wide
+ *     near-cache-ttl-ms: 5000    # how long a node reuses its own copy without asking the cluster
+ *     fetch-timeout-ms: 2000     # wait for the owner node before fetching locally
+ * logging:
+ *   access-log:
+ *     file: ""                   # empty = no access log
+ *     max-file-mb: 64            # rolled to file.1 .. file.N at this size
+ *     max-files: 5
+ *     buffer-size: 8192          # ring slots (power of two); records are dropped when it is full
+ *   errors-per-second: 10        # handler WARNING/SEVERE records allowed per second
+ * tracing:
+ *   otlp-endpoint: ""            # empty = OTEL_EXPORTER_OTLP_ENDPOINT, else tracing is off
+ *   service-name: ""             # empty = OTEL_SERVICE_NAME, else loyalty-service
+ *   sample-ratio: 1.0
+ * </pre>
+ * System properties win over the file:
+ * <ul>
+ *   <li>server: {@code http.port}, {@code http.domain.socket}, {@code tls.cert}, {@code tls.key}</li>
+ *   <li>upstreams: {@code fx.base.url}, {@code fx.timeout.ms}, {@code fx.retries}, {@code fx.retry.delay.ms},
+ *       {@code fx.cache.ttl.ms}, {@code promo.base.url}, {@code promo.timeout.ms}</li>
+ *   <li>runtime: {@code warmup.quotes}, {@code transport.native}, {@code cluster.enabled}, {@code jfr.admin.enabled}</li>
+ *   <li>observability: {@code tracing.otlp.endpoint}, {@code tracing.sample.ratio}, {@code access.log.file}</li>
+ *   <li>business: {@code allowed.currencies} (comma separated)</li>
+ * </ul>
+ * Parsing only happens at load/reload time; request handling reads the snapshot through {@link ConfigStore#current()}.
+ */
+public final class LoyaltyConfig {
+
+  public static final String CLASSPATH_RESOURCE = EarningRules.CLASSPATH_RESOURCE;
+
+  static final Set<String> DEFAULT_ALLOWED_CURRENCIES = Set.of("USD", "EUR", "AED");
+
+  /**
+   * Settings for one upstream service; {@code retries} is the number of extra attempts and
+   * {@code cacheTtlMs} how long a successful answer may be reused (0 = no cache, FX only).
+   */
+  public record Upstream(String baseUrl, long timeoutMs, int retries, long retryDelayMs, long cacheTtlMs) {
+    public Upstream {
+      Objects.requireNonNull(baseUrl, "baseUrl");
+      if (timeoutMs <= 0) throw new IllegalArgumentException("timeout-ms must be > 0");
+      if (retries < 0) throw new IllegalArgumentException("retries must be >= 0");
+      if (retryDelayMs < 0) throw new IllegalArgumentException("retry-delay-ms must be >= 0");
+      if (cacheTtlMs < 0) throw new IllegalArgumentException("cache-ttl-ms must be >= 0");
+    }
+
+    public Upstream(String baseUrl, long timeoutMs, int retries, long retryDelayMs) {
+      this(baseUrl, timeoutMs, retries, retryDelayMs, 0);
+    }
+
+    static final Upstream FX_DEFAULTS = new Upstream("", 1000, 2, 200);
+    static final Upstream PROMO_DEFAULTS = new Upstream("", 1000, 0, 200);
+  }
+
+  /**
+   * HTTP server options, applied once at start; {@code tcpNoDelay} and {@code tcpQuickAck} also apply to
+   * the upstream clients, {@code reusePort} lets several processes bind the port. {@code maxConcurrentStreams} and
+   * {@code connectionWindowSize} are the HTTP/2 multiplexing limits per connection; {@code maxHeaderSize}
+   * also caps HTTP/2 header lists. Responses shorter than {@code compressionMinSize} bytes are never
+   * compressed. {@code tlsCert}/{@code tlsKey} are PEM files; with both set the server speaks TLS and
+   * offers h2 and http/1.1 through ALPN. With a {@code domainSocket} path the same routes are also
+   * served on that Unix domain socket (native transport only), and {@code tcp} false drops the TCP port.
+   */
+  public record Server(int maxConcurrentStreams, int connectionWindowSize, boolean tcpNoDelay, boolean tcpQuickAck,
+                       boolean reusePort, int acceptBacklog, int idleTimeoutS, int maxHeaderSize, int maxInitialLineLength,
+                       boolean compression, int compressionLevel, int compressionMinSize, String tlsCert, String tlsKey,
+                       String domainSocket, boolean tcp) {
+    public Server {
+      Objects.requireNonNull(tlsCert, "tlsCert");
+      Objects.requireNonNull(tlsKey, "tlsKey");
+      Objects.requireNonNull(domainSocket, "domainSocket");
+      if (maxConcurrentStreams < 1) throw new IllegalArgumentException("http2.max-concurrent-streams must be >= 1");
+      if (connectionWindowSize < 65_535) throw new IllegalArgumentException("http2.connection-window-size must be >= 65535");
+      if (acceptBacklog < 1) throw new IllegalArgumentException("tcp.accept-backlog must be >= 1");
+      if (idleTimeoutS < 0) throw new IllegalArgumentException("idle-timeout-s must be >= 0");
+      if (maxHeaderSize < 1024) throw new IllegalArgumentException("max-header-size must be >= 1024");
+      if (maxInitialLineLength < 256) throw new IllegalArgumentException("max-initial-line-length must be >= 256");
+      if (compressionLevel < 1 || compressionLevel > 9) throw new IllegalArgumentException("compression.level must be in [1, 9]");
+      if (compressionMinSize < 0) throw new IllegalArgumentException("compression.min-size must be >= 0");
+      if (tlsCert.isEmpty() != tlsKey.isEmpty()) throw new IllegalArgumentException("tls needs both cert and key");
+      if (!tcp && domainSocket.isEmpty()) throw new IllegalArgumentException("tcp.enabled false needs a domain-socket.path");
+    }
+
+    public boolean tls() {
+      return !tlsCert.isEmpty();
+    }
+
+    public boolean hasDomainSocket() {
+      return !domainSocket.isEmpty();
+    }
+
+    static final Server DEFAULTS = new Server(256, 1_048_576, true, true, false, 1024, 120, 8192, 4096, false, 1, 1024, "", "", "", true);
+  }
+
+  /**
+   * /metrics settings: a scrape is rendered on a worker and reused for {@code scrapeCacheMs}
+   * (0 = only concurrent scrapes share one); {@code gzip} allows gzip for clients that accept it.
+   */
+  public record Metrics(long scrapeCacheMs, boolean gzip) {
+    public Metrics {
+      if (scrapeCacheMs < 0) throw new IllegalArgumentException("scrape-cache-ms must be >= 0");
+    }
+
+    static final Metrics DEFAULTS = new Metrics(1000, true);
+  }
+
+  /**
+   * Flight recorder admin endpoints (see {@code RecordingAdmin}); off unless {@code adminEnabled}.
+   * The continuous recording they start keeps at most {@code maxAgeSeconds} and {@code maxSizeMb} of data.
+   */
+  public record Jfr(boolean adminEnabled, long maxAgeSeconds, long maxSizeMb) {
+    public Jfr {
+      if (maxAgeSeconds <= 0) throw new IllegalArgumentException("max-age-s must be > 0");
+      if (maxSizeMb <= 0) throw new IllegalArgumentException("max-size-mb must be > 0");
+    }
+
+    static final Jfr DEFAULTS = new Jfr(false, 900, 64);
+  }
+
+  /** Warm-up run before readiness, see {@code api.Warmup}. */
+  public record Warmup(int quotes, int concurrency, long timeoutMs, boolean upstreams) {
+    public Warmup {
+      if (quotes < 0) throw new IllegalArgumentException("quotes must be >= 0");
+      if (concurrency < 1) throw new IllegalArgumentException("concurrency must be >= 1");
+      if (timeoutMs <= 0) throw new IllegalArgumentException("timeout-ms must be > 0");
+    }
+
+    static final Warmup DEFAULTS = new Warmup(0, 8, 30_000, true);
+  }
+
+  /**
+   * Access log written by {@code AccessLog} ({@code accessLogFile} empty = off), and the cap on
+   * handler warnings and errors per second.
+   */
+  public record Logging(String accessLogFile, long maxFileMb, int maxFiles, int bufferSize, int errorsPerSecond) {
+    public Logging {
+      Objects.requireNonNull(accessLogFile, "accessLogFile");
+      if (maxFileMb <= 0) throw new IllegalArgumentException("access-log.max-file-mb must be > 0");
+      if (maxFiles < 1) throw new IllegalArgumentException("access-log.max-files must be >= 1");
+      if (bufferSize < 64 || Integer.bitCount(bufferSize) != 1) {
+        throw new IllegalArgumentException("access-log.buffer-size must be a power of two >= 64");
+      }
+      if (errorsPerSecond <= 0) throw new IllegalArgumentException("errors-per-second must be > 0");
+    }
+
+    static final Logging DEFAULTS = new Logging("", 64, 5, 8192, 10);
+  }
+
+  /**
+   * Tracing: spans are exported over OTLP/gRPC to {@code otlpEndpoint}. {@code sampleRatio} is the
+   * head sampling rate for traces that start here; an incoming traceparent's sampled flag is always
+   * followed, so upstreams and the collector see complete traces.
+   */
+  public record Tracing(String otlpEndpoint, String serviceName, double sampleRatio) {
+    public Tracing {
+      Objects.requireNonNull(otlpEndpoint, "otlpEndpoint");
+      Objects.requireNonNull(serviceName, "serviceName");
+      if (!(sampleRatio >= 0 && sampleRatio <= 1)) throw new IllegalArgumentException("sample-ratio must be in [0, 1]");
+    }
+
+    static final Tracing DEFAULTS = new Tracing("", "", 1.0);
+  }
+
+  /**
+   * Cluster-wide FX/promo cache (see {@code cluster.ClusterCache}), off unless {@code enabled}. Entries live
+   * {@code cacheTtlMs} in the cluster and at most {@code nearCacheTtlMs} in a node's own copy; a node waits
+   * {@code fetchTimeoutMs} for the key's owner before calling the upstream itself.
+   */
+  public record Cluster(boolean enabled, long cacheTtlMs, long nearCacheTtlMs, long fetchTimeoutMs) {
+    public Cluster {
+      if (cacheTtlMs <= 0) throw new IllegalArgumentException("cache-ttl-ms must be > 0");
+      if (nearCacheTtlMs < 0) throw new IllegalArgumentException("near-cache-ttl-ms must be >= 0");
+      if (fetchTimeoutMs <= 0) throw new IllegalArgumentException("fetch-timeout-ms must be > 0");
+    }
+
+    static final Cluster DEFAULTS = new Cluster(false, 60_000, 5_000, 2_000);
+  }
+
+  private final int httpPort;
+  private final Server server;
+  private final Upstream fx;
+  private final Upstream promo;
+  private final Set<String> allowedCurrencies;
+  private final EarningRules rules;
+  private final long reloadIntervalMs;
+  private final boolean nativeTransport;
+  private final Metrics metrics;
+  private final Tracing tracing;
+  private final Jfr jfr;
+  private final Logging logging;
+  private final Warmup warmup;
+  private final Cluster cluster;
+
+  private LoyaltyConfig(int httpPort, Server server, Upstream fx, Upstream promo, Set<String> allowedCurrencies,
+                        EarningRules rules, long reloadIntervalMs, boolean nativeTransport, Metrics metrics, Tracing tracing, Jfr jfr,
+                        Logging logging, Warmup warmup, Cluster cluster) {
+    this.httpPort = httpPort;
+    this.server = server;
+    this.fx = fx;
+    this.promo = promo;
+    this.allowedCurrencies = allowedCurrencies;
+    this.rules = rules;
+    this.reloadIntervalMs = reloadIntervalMs;
+    this.nativeTransport = nativeTransport;
+    this.metrics = metrics;
+    this.tracing = tracing;
+    this.jfr = jfr;
+    this.logging = logging;
+    this.warmup = warmup;
+    this.cluster = cluster;
+  }
+
+  public static LoyaltyConfig defaults() {
+    return fromConfig(null, new Properties());
+  }
+
+  /**
+   * The file named by {@code -Dconfig.file}, else the bundled {@code application-properties.yml},
+   * with the current system properties applied on top.
+   */
+  public static LoyaltyConfig load() {
+    String file = System.getProperty(ConfigStore.CONFIG_FILE_PROPERTY, "").trim();
+    return file.isEmpty() ? fromClasspath(System.getProperties()) : fromFile(Path.of(file), System.getProperties());
+  }
+
+  public static LoyaltyConfig fromClasspath(Properties overrides) {
+    try (InputStream in = LoyaltyConfig.class.getResourceAsStream(CLASSPATH_RESOURCE)) {
+      return in == null ? fromConfig(null, overrides) : fromYaml(in, overrides);
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to read " + CLASSPATH_RESOURCE, e);
+    }
+  }
+
+  public static LoyaltyConfig fromFile(Path file, Properties overrides) {
+    try (InputStream in = Files.newInputStream(file)) {
+      return fromYaml(in, overrides);
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to read " + file, e);
+    }
+  }
+
+  public static LoyaltyConfig fromYaml(InputStream in, Properties overrides) throws IOException {
+    return fromConfig(new YAMLMapper().readTree(in), overrides);
+  }
+
+  /** Reads the document root; throws IllegalArgumentException naming the offending key. */
+  public static LoyaltyConfig fromConfig(JsonNode root, Properties overrides) {
+    JsonNode doc = root == null ? MissingNode.getInstance() : root;
+    Properties props = overrides == null ? new Properties() : overrides;
+
+    int port = (int) longValue(doc.path("server").path("port"), props, "http.port", 8888, "server.port");
+    if (port < 0 || port > 65_535) throw new IllegalArgumentException("server.port must be in [0, 65535]");
+
+    Server server = server(doc.path("server"), props);
+
+    Upstream fx = upstream(doc.path("external").path("fx"), props, "fx", Upstream.FX_DEFAULTS);
+    Upstream promo = upstream(doc.path("external").path("promo"), props, "promo", Upstream.PROMO_DEFAULTS);
+
+    Set<String> currencies = currencies(doc.path("business").path("currencies"), props.getProperty("allowed.currencies"));
+
+    EarningRules rules = EarningRules.fromConfig(doc.get("business"));
+
+    long reload = longValue(doc.path("runtime").path("config").path("reload-interval-ms"), props, null, 5_000,
+            "runtime.config.reload-interval-ms");
+    if (reload < 0) throw new IllegalArgumentException("runtime.config.reload-interval-ms must be >= 0");
+
+    boolean nativeTransport = nativeTransport(doc.path("runtime").path("transport").path("native"),
+            props.getProperty("transport.native"));
+
+    Metrics metrics = metrics(doc.path("runtime").path("metrics"));
+
+    Tracing tracing = tracing(doc.path("tracing"), props);
+
+    Jfr jfr = jfr(doc.path("runtime").path("jfr"), props);
+
+    Logging logging = logging(doc.path("logging"), props);
+
+    Warmup warmup = warmup(doc.path("runtime").path("warmup"), props);
+
+    Cluster cluster = cluster(doc.path("runtime").path("cluster"), props);
+
+    return new LoyaltyConfig(port, server, fx, promo, currencies, rules, reload, nativeTransport, metrics, tracing, jfr, logging, warmup,
+            cluster);
+  }
+
+  private static Server server(JsonNode node, Properties props) {
+    String prefix = "server.";
+    JsonNode http2 = node.path("http2");
+    JsonNode tcp = node.path("tcp");
+    JsonNode compression = node.path("compression");
+    JsonNode tls = node.path("tls");
+    Server d = Server.DEFAULTS;
+    int streams = intValue(http2.path("max-concurrent-streams"), d.maxConcurrentStreams(), prefix + "http2.max-concurrent-streams");
+    int window = intValue(http2.path("connection-window-size"), d.connectionWindowSize(), prefix + "http2.connection-window-size");
+    boolean noDelay = booleanValue(tcp.path("no-delay"), d.tcpNoDelay(), prefix + "tcp.no-delay");
+    boolean quickAck = booleanValue(tcp.path("quick-ack"), d.tcpQuickAck(), prefix + "tcp.quick-ack");
+    boolean reusePort = booleanValue(tcp.path("reuse-port"), d.reusePort(), prefix + "tcp.reuse-port");
+    boolean tcpEnabled = booleanValue(tcp.path("enabled"), d.tcp(), prefix + "tcp.enabled");
+    int backlog = intValue(tcp.path("accept-backlog"), d.acceptBacklog(), prefix + "tcp.accept-backlog");
+    int idle = intValue(node.path("idle-timeout-s"), d.idleTimeoutS(), prefix + "idle-timeout-s");
+    int headerSize = intValue(node.path("max-header-size"), d.maxHeaderSize(), prefix + "max-header-size");
+    int lineLength = intValue(node.path("max-initial-line-length"), d.maxInitialLineLength(), prefix + "max-initial-line-length");
+    boolean compress = booleanValue(compression.path("enabled"), d.compression(), prefix + "compression.enabled");
+    int level = intValue(compression.path("level"), d.compressionLevel(), prefix + "compression.level");
+    int minSize = intValue(compression.path("min-size"), d.compressionMinSize(), prefix + "compression.min-size");
+    String cert = props.getProperty("tls.cert");
+    if (cert == null) cert = tls.path("cert").asText(d.tlsCert());
+    String key = props.getProperty("tls.key");
+    if (key == null) key = tls.path("key").asText(d.tlsKey());
+    String socket = props.getProperty("http.domain.socket");
+    if (socket == null) socket = node.path("domain-socket").path("path").asText(d.domainSocket());
+    try {
+      return new Server(streams, window, noDelay, quickAck, reusePort, backlog, idle, headerSize, lineLength, compress, level, minSize,
+              cert.trim(), key.trim(), socket.trim(), tcpEnabled);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(prefix + e.getMessage(), e);
+    }
+  }
+
+  private static boolean nativeTransport(JsonNode node, String override) {
+    if (override == null || override.isBlank()) return booleanValue(node, true, "runtime.transport.native");
+    if (!override.trim().equalsIgnoreCase("true") && !override.trim().equalsIgnoreCase("false")) {
+      throw new IllegalArgumentException("invalid value '" + override + "' for -Dtransport.native");
+    }
+    return Boolean.parseBoolean(override.trim());
+  }
+
+  private static Tracing tracing(JsonNode node, Properties props) {
+    String endpoint = props.getProperty("tracing.otlp.endpoint");
+    if (endpoint == null) endpoint = node.path("otlp-endpoint").asText(Tracing.DEFAULTS.otlpEndpoint());
+    endpoint = endpoint.trim();
+    if (!endpoint.isEmpty() && !endpoint.startsWith("http://") && !endpoint.startsWith("https://")) {
+      throw new IllegalArgumentException("invalid value '" + endpoint + "' for tracing.otlp-endpoint");
+    }
+    String serviceName = node.path("service-name").asText(Tracing.DEFAULTS.serviceName()).trim();
+    double ratio;
+    String override = props.getProperty("tracing.sample.ratio");
+    JsonNode ratioNode = node.path("sample-ratio");
+    try {
+      if (override != null && !override.isBlank()) {
+        ratio = Double.parseDouble(override.trim());
+      } else if (ratioNode.isMissingNode() || ratioNode.isNull()) {
+        ratio = Tracing.DEFAULTS.sampleRatio();
+      } else if (ratioNode.isNumber()) {
+        ratio = ratioNode.asDouble();
+      } else {
+        ratio = Double.parseDouble(ratioNode.asText().trim());
+      }
+      return new Tracing(endpoint, serviceName, ratio);
+    } catch (IllegalArgumentException e) {
+      String value = override != null && !override.isBlank() ? override : ratioNode.asText();
+      throw new IllegalArgumentException("invalid value '" + value + "' for tracing.sample-ratio", e);
+    }
+  }
+
+  private static Metrics metrics(JsonNode node) {
+    String prefix = "runtime.metrics.";
+    long cacheMs = longValue(node.path("scrape-cache-ms"), null, null, Metrics.DEFAULTS.scrapeCacheMs(), prefix + "scrape-cache-ms");
+    if (cacheMs < 0) throw new IllegalArgumentException(prefix + "scrape-cache-ms must be >= 0");
+    JsonNode gzip = node.path("gzip");
+    if (gzip.isMissingNode() || gzip.isNull()) return new Metrics(cacheMs, Metrics.DEFAULTS.gzip());
+    if (!gzip.isBoolean()) throw new IllegalArgumentException("invalid value '" + gzip.asText() + "' for " + prefix + "gzip");
+    return new Metrics(cacheMs, gzip.asBoolean());
+  }
+
+  private static Warmup warmup(JsonNode node, Properties props) {
+    String prefix = "runtime.warmup.";
+    long quotes = longValue(node.path("quotes"), props, "warmup.quotes", Warmup.DEFAULTS.quotes(), prefix + "quotes");
+    long concurrency = longValue(node.path("concurrency"), null, null, Warmup.DEFAULTS.concurrency(), prefix + "concurrency");
+    long timeoutMs = longValue(node.path("timeout-ms"), null, null, Warmup.DEFAULTS.timeoutMs(), prefix + "timeout-ms");
+    JsonNode upstreams = node.path("upstreams");
+    if (!upstreams.isMissingNode() && !upstreams.isNull() && !upstreams.isBoolean()) {
+      throw new IllegalArgumentException("invalid value '" + upstreams.asText() + "' for " + prefix + "upstreams");
+    }
+    try {
+      return new Warmup((int) Math.min(quotes, Integer.MAX_VALUE), (int) Math.min(concurrency, Integer.MAX_VALUE),
+              timeoutMs, upstreams.isBoolean() ? upstreams.asBoolean() : Warmup.DEFAULTS.upstreams());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(prefix + e.getMessage(), e);
+    }
+  }
+
+  private static Logging logging(JsonNode node, Properties props) {
+    JsonNode access = node.path("access-log");
+    String prefix = "logging.access-log.";
+    String file = props.getProperty("access.log.file");
+    if (file == null) file = access.path("file").asText(Logging.DEFAULTS.accessLogFile());
+    long maxFileMb = longValue(access.path("max-file-mb"), null, null, Logging.DEFAULTS.maxFileMb(), prefix + "max-file-mb");
+    long maxFiles = longValue(access.path("max-files"), null, null, Logging.DEFAULTS.maxFiles(), prefix + "max-files");
+    long bufferSize = longValue(access.path("buffer-size"), null, null, Logging.DEFAULTS.bufferSize(), prefix + "buffer-size");
+    long errors = longValue(node.path("errors-per-second"), null, null, Logging.DEFAULTS.errorsPerSecond(),
+            "logging.errors-per-second");
+    try {
+      return new Logging(file.trim(), maxFileMb, (int) Math.min(maxFiles, Integer.MAX_VALUE),
+              (int) Math.min(bufferSize, Integer.MAX_VALUE), (int) Math.min(errors, Integer.MAX_VALUE));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("logging." + e.getMessage(), e);
+    }
+  }
+
+  private static Jfr jfr(JsonNode node, Properties props) {
+    String prefix = "runtime.jfr.";
+    boolean enabled;
+    String override = props.getProperty("jfr.admin.enabled");
+    JsonNode enabledNode = node.path("admin-enabled");
+    if (override != null && !override.isBlank()) {
+      if (!override.trim().equalsIgnoreCase("true") && !override.trim().equalsIgnoreCase("false")) {
+        throw new IllegalArgumentException("invalid value '" + override + "' for -Djfr.admin.enabled");
+      }
+      enabled = Boolean.parseBoolean(override.trim());
+    } else if (enabledNode.isMissingNode() || enabledNode.isNull()) {
+      enabled = Jfr.DEFAULTS.adminEnabled();
+    } else if (enabledNode.isBoolean()) {
+      enabled = enabledNode.asBoolean();
+    } else {
+      throw new IllegalArgumentException("invalid value '" + enabledNode.asText() + "' for " + prefix + "admin-enabled");
+    }
+    long maxAge = longValue(node.path("max-age-s"), null, null, Jfr.DEFAULTS.maxAgeSeconds(), prefix + "max-age-s");
+    long maxSize = longValue(node.path("max-size-mb"), null, null, Jfr.DEFAULTS.maxSizeMb(), prefix + "max-size-mb");
+    try {
+      return new Jfr(enabled, maxAge, maxSize);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(prefix + e.getMessage(), e);
+    }
+  }
+
+  private static Cluster cluster(JsonNode node, Properties props) {
+    String prefix = "runtime.cluster.";
+    boolean enabled;
+    String override = props.getProperty("cluster.enabled");
+    if (override != null && !override.isBlank()) {
+      if (!override.trim().equalsIgnoreCase("true") && !override.trim().equalsIgnoreCase("false")) {
+        throw new IllegalArgumentException("invalid value '" + override + "' for -Dcluster.enabled");
+      }
+      enabled = Boolean.parseBoolean(override.trim());
+    } else {
+      enabled = booleanValue(node.path("enabled"), Cluster.DEFAULTS.enabled(), prefix + "enabled");
+    }
+    long ttl = longValue(node.path("cache-ttl-ms"), null, null, Cluster.DEFAULTS.cacheTtlMs(), prefix + "cache-ttl-ms");
+    long nearTtl = longValue(node.path("near-cache-ttl-ms"), null, null, Cluster.DEFAULTS.nearCacheTtlMs(), prefix + "near-cache-ttl-ms");
+    long fetchTimeout = longValue(node.path("fetch-timeout-ms"), null, null, Cluster.DEFAULTS.fetchTimeoutMs(), prefix + "fetch-timeout-ms");
+    try {
+      return new Cluster(enabled, ttl, nearTtl, fetchTimeout);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException(prefix + e.getMessage(), e);
+    }
+  }
+
+  private static Upstream upstream(JsonNode node, Properties props, String name, Upstream defaults) {
+    String prefix = "external." + name + ".";
+    String baseUrl = props.getProperty(name + ".base.url");
+    if (baseUrl == null) baseUrl = node.path("base-url").asText(defaults.baseUrl());
+    baseUrl = baseUrl.trim();
+    if (!baseUrl.isEmpty() && !baseUrl.startsWith("http://") && !baseUrl.startsWith("https://")) {
+      throw new IllegalArgumentException("invalid value '" + baseUrl + "' for " + prefix + "base-url");
+    }
+    try {
+      return new Upstream(baseUrl,
+              longValue(node.path("timeout-ms"), props, name + ".timeout.ms", defaults.timeoutMs(), prefix + "timeout-ms"),
+              (int) longValue(node.path("retries"), props, name + ".retries", defaults.retries(), prefix + "retries"),
+              longValue(node.path("retry-delay-ms"), props, name + ".retry.delay.ms", defaults.retryDelayMs(), prefix + "retry-delay-ms"),
+              longValue(node.path("cache-ttl-ms"), props, name + ".cache.ttl.ms", defaults.cacheTtlMs(), prefix + "cache-ttl-ms"));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("external." + name + ": " + e.getMessage(), e);
+    }
+  }
+
+  private static long longValue(JsonNode node, Properties props, String property, long def, String key) {
+    String override = property == null || props == null ? null : props.getProperty(property);
+    if (override != null && !override.isBlank()) {
+      try {
+        return Long.parseLong(override.trim());
+      } catch (NumberFormatException e) {
+        throw new IllegalArgumentException("invalid value '" + override + "' for -D" + property, e);
+      }
+    }
+    if (node.isMissingNode() || node.isNull()) return def;
+    // canConvertToLong() is also true for 1.5, which asLong() would truncate
+    if (node.isIntegralNumber() && node.canConvertToLong()) return node.asLong();
+    if (node.isTextual()) {
+      try {
+        return Long.parseLong(node.asText().trim());
+      } catch (NumberFormatException ignored) {
+        // reported below
+      }
+    }
+    throw new IllegalArgumentException("invalid value '" + node.asText() + "' for " + key);
+  }
+
+  private static int intValue(JsonNode node, int def, String key) {
+    long value = longValue(node, null, null, def, key);
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("invalid value '" + node.asText() + "' for " + key);
+    }
+    return (int) value;
+  }
+
+  private static boolean booleanValue(JsonNode node, boolean def, String key) {
+    if (node.isMissingNode() || node.isNull()) return def;
+    if (!node.isBoolean()) throw new IllegalArgumentException("invalid value '" + node.asText() + "' for " + key);
+    return node.asBoolean();
+  }
+
+  private static Set<String> currencies(JsonNode node, String csv) {
+    Set<String> out = new LinkedHashSet<>();
+    if (csv != null && !csv.isBlank()) {
+      for (String part : csv.split(",")) addCurrency(out, part, "-Dallowed.currencies");
+    } else if (node.isArray()) {
+      node.forEach(n -> addCurrency(out, n.asText(), "business.currencies"));
+    } else if (!node.isMissingNode() && !node.isNull()) {
+      for (String part : node.asText().split(",")) addCurrency(out, part, "business.currencies");
+    }
+    return out.isEmpty() ? DEFAULT_ALLOWED_CURRENCIES : Collections.unmodifiableSet(out);
+  }
+
+  private static void addCurrency(Set<String> out, String raw, String key) {
+    String code = raw.trim().toUpperCase(Locale.ROOT);
+    if (code.isEmpty()) return;
+    if (code.length() != 3 || !code.chars().allMatch(c -> c >= 'A' && c <= 'Z')) {
+      throw new IllegalArgumentException("invalid currency '" + raw.trim() + "' in " + key);
+    }
+    out.add(code);
+  }
+
+  /** Port to bind; read once at start. */
+  public int getHttpPort() { return httpPort; }
+
+  /** HTTP server options; read once at start. */
+  public Server getServer() { return server; }
+
+  public Upstream getFx() { return fx; }
+
+  public Upstream getPromo() { return promo; }
+
+  /** Upper-case ISO codes accepted by the quote endpoints. */
+  public Set<String> getAllowedCurrencies() { return allowedCurrencies; }
+
+  public EarningRules getRules() { return rules; }
+
+  /** How often {@link ConfigStore#watch} checks the config file; 0 disables reloading. */
+  public long getReloadIntervalMs() { return reloadIntervalMs; }
+
+  /** Whether Vert.x should prefer a native transport; read by {@code LoyaltyLauncher} before Vert.x starts. */
+  public boolean isNativeTransport() { return nativeTransport; }
+
+  public Metrics getMetrics() { return metrics; }
+
+  public Tracing getTracing() { return tracing; }
+
+  public Jfr getJfr() { return jfr; }
+
+  public Logging getLogging() { return logging; }
+
+  public Warmup getWarmup() { return warmup; }
+
+  /** Cluster cache settings; {@code enabled} is read once at start, the TTLs on every lookup. */
+  public Cluster getCluster() { return cluster; }
+}
@@ -0,0 +1,27 @@
+package com.kleadingsolutions.loyalty.dto;
+
+/**
+ * Many fares quoted with one shared context, e.g. the results of a search page.
+ */
+public class BatchQuoteRequest {
+  private String currency;
+  private String cabinClass;
+  private String customerTier;
+  private String promoCode;
+  private double[] fareAmounts;
+
+  public String getCurrency() { return currency; }
+  public void setCurrency(String currency) { this.currency = currency; }
+
+  public String getCabinClass() { return cabinClass; }
+  public void setCabinClass(String cabinClass) { this.cabinClass = cabinClass; }
+
+  public String getCustomerTier() { return customerTier; }
+  public void setCustomerTier(String customerTier) { this.customerTier = customerTier; }
+
+  public String getPromoCode() { return promoCode; }
+  public void setPromoCode(String promoCode) { this.promoCode = promoCode; }
+
+  public double[] getFareAmounts() { return fareAmounts; }
+  public void setFareAmounts(double[] fareAmounts) { this.fareAmounts = fareAmounts; }
+}
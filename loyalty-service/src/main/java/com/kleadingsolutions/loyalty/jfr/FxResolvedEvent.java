@@ -0,0 +1,32 @@
+package com.kleadingsolutions.loyalty.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kleadingsolutions.loyalty.FxResolved")
+@Label("FX Resolved")
+@Description("An FX rate lookup, including retries, from the first attempt to its result")
+@Category({"Loyalty", "Upstream"})
+@Enabled(false)
+@StackTrace(false)
+public final class FxResolvedEvent extends jdk.jfr.Event {
+
+  @Label("Currency")
+  String currency;
+
+  @Label("Outcome")
+  String outcome;
+
+  @Label("Attempts")
+  int attempts;
+
+  @Label("Cached")
+  boolean cached;
+
+  FxResolvedEvent() {
+  }
+}
@@ -0,0 +1,26 @@
+package com.kleadingsolutions.loyalty.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kleadingsolutions.loyalty.PromoResolved")
+@Label("Promo Resolved")
+@Description("A promo code lookup from request to result or deadline")
+@Category({"Loyalty", "Upstream"})
+@Enabled(false)
+@StackTrace(false)
+public final class PromoResolvedEvent extends jdk.jfr.Event {
+
+  @Label("Promo Code")
+  String promoCode;
+
+  @Label("Outcome")
+  String outcome;
+
+  PromoResolvedEvent() {
+  }
+}
@@ -0,0 +1,32 @@
+package com.kleadingsolutions.loyalty.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kleadingsolutions.loyalty.QuoteCalculated")
+@Label("Quote Calculated")
+@Description("Points calculation for a quote or a batch of fares")
+@Category({"Loyalty", "Quote"})
+@Enabled(false)
+@StackTrace(false)
+public final class QuoteCalculatedEvent extends jdk.jfr.Event {
+
+  @Label("Endpoint")
+  String endpoint;
+
+  @Label("Currency")
+  String currency;
+
+  @Label("Customer Tier")
+  String customerTier;
+
+  @Label("Fares")
+  int fares;
+
+  QuoteCalculatedEvent() {
+  }
+}
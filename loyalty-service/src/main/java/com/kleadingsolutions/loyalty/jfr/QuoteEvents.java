@@ -0,0 +1,147 @@
+package com.kleadingsolutions.loyalty.jfr;
+
+import jdk.jfr.EventType;
+
+/**
+ * JDK Flight Recorder events for quote processing: {@code QuoteReceived}, {@code FxResolved},
+ * {@code PromoResolved}, {@code QuoteCalculated} and {@code QuoteResponded} (names prefixed with
+ * {@code com.kleadingsolutions.loyalty.}). All are {@code @Enabled(false)}, so they only record in a
+ * recording that turns them on, e.g. the one started by {@link RecordingAdmin}.
+ *
+ * Duration events are begun by the {@code begin*} methods, which return null unless a running
+ * recording has the type enabled; every other method accepts that null. With no recording the cost is
+ * one enabled-flag read per event and nothing is allocated.
+ */
+public final class QuoteEvents {
+
+  private static final EventType RECEIVED = EventType.getEventType(QuoteReceivedEvent.class);
+  private static final EventType RESPONDED = EventType.getEventType(QuoteRespondedEvent.class);
+  private static final EventType CALCULATED = EventType.getEventType(QuoteCalculatedEvent.class);
+  private static final EventType FX = EventType.getEventType(FxResolvedEvent.class);
+  private static final EventType PROMO = EventType.getEventType(PromoResolvedEvent.class);
+
+  private QuoteEvents() {
+  }
+
+  public static void received(String endpoint, long bodyBytes) {
+    if (RECEIVED.isEnabled()) {
+      QuoteReceivedEvent event = new QuoteReceivedEvent();
+      event.endpoint = endpoint;
+      event.bodyBytes = bodyBytes;
+      event.commit();
+    }
+  }
+
+  /** Starts the request's QuoteResponded event; null unless enabled. */
+  public static QuoteRespondedEvent beginResponse(String endpoint) {
+    if (!RESPONDED.isEnabled()) {
+      return null;
+    }
+    QuoteRespondedEvent event = new QuoteRespondedEvent();
+    event.endpoint = endpoint;
+    event.begin();
+    return event;
+  }
+
+  public static void describe(QuoteRespondedEvent event, String currency, String customerTier, int fares) {
+    if (event != null) {
+      event.currency = currency;
+      event.customerTier = customerTier;
+      event.fares = fares;
+    }
+  }
+
+  /** Sets one stage's duration; {@code stage} is parse, validate, calculate or serialize (others are ignored). */
+  public static void stage(QuoteRespondedEvent event, String stage, long nanos) {
+    if (event == null) {
+      return;
+    }
+    switch (stage) {
+      case "parse" -> event.parse = nanos;
+      case "validate" -> event.validate = nanos;
+      case "calculate" -> event.calculate = nanos;
+      case "serialize" -> event.serialize = nanos;
+      default -> {
+        // fx and promo waits are covered by FxResolved / PromoResolved
+      }
+    }
+  }
+
+  /** Commits the event if its duration passes the recording's threshold. */
+  public static void responded(QuoteRespondedEvent event, String outcome, int status) {
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.outcome = outcome;
+        event.status = status;
+        event.commit();
+      }
+    }
+  }
+
+  public static QuoteCalculatedEvent beginCalculation() {
+    if (!CALCULATED.isEnabled()) {
+      return null;
+    }
+    QuoteCalculatedEvent event = new QuoteCalculatedEvent();
+    event.begin();
+    return event;
+  }
+
+  public static void calculated(QuoteCalculatedEvent event, String endpoint, String currency, String customerTier,
+                                int fares) {
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.endpoint = endpoint;
+        event.currency = currency;
+        event.customerTier = customerTier;
+        event.fares = fares;
+        event.commit();
+      }
+    }
+  }
+
+  public static FxResolvedEvent beginFx() {
+    if (!FX.isEnabled()) {
+      return null;
+    }
+    FxResolvedEvent event = new FxResolvedEvent();
+    event.begin();
+    return event;
+  }
+
+  /** {@code attempts} is 0 for a cache hit. */
+  public static void fxResolved(FxResolvedEvent event, String currency, String outcome, int attempts) {
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.currency = currency;
+        event.outcome = outcome;
+        event.attempts = attempts;
+        event.cached = attempts == 0;
+        event.commit();
+      }
+    }
+  }
+
+  public static PromoResolvedEvent beginPromo() {
+    if (!PROMO.isEnabled()) {
+      return null;
+    }
+    PromoResolvedEvent event = new PromoResolvedEvent();
+    event.begin();
+    return event;
+  }
+
+  public static void promoResolved(PromoResolvedEvent event, String promoCode, String outcome) {
+    if (event != null) {
+      event.end();
+      if (event.shouldCommit()) {
+        event.promoCode = promoCode;
+        event.outcome = outcome;
+        event.commit();
+      }
+    }
+  }
+}
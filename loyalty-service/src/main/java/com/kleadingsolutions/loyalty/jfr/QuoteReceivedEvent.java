@@ -0,0 +1,25 @@
+package com.kleadingsolutions.loyalty.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.kleadingsolutions.loyalty.QuoteReceived")
+@Label("Quote Received")
+@Description("A quote request reached its handler")
+@Category({"Loyalty", "Quote"})
+@Enabled(false)
+@StackTrace(false)
+final class QuoteReceivedEvent extends jdk.jfr.Event {
+
+  @Label("Endpoint")
+  String endpoint;
+
+  @Label("Body Size")
+  @DataAmount
+  long bodyBytes;
+}
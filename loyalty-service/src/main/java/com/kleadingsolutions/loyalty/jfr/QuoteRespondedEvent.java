@@ -0,0 +1,55 @@
+package com.kleadingsolutions.loyalty.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.kleadingsolutions.loyalty.QuoteResponded")
+@Label("Quote Responded")
+@Description("A quote request from arrival to response; the stage fields break the duration down")
+@Category({"Loyalty", "Quote"})
+@Enabled(false)
+@StackTrace(false)
+public final class QuoteRespondedEvent extends jdk.jfr.Event {
+
+  @Label("Endpoint")
+  String endpoint;
+
+  @Label("Currency")
+  String currency;
+
+  @Label("Customer Tier")
+  String customerTier;
+
+  @Label("Fares")
+  int fares;
+
+  @Label("Outcome")
+  String outcome;
+
+  @Label("Status")
+  int status;
+
+  @Label("Parse")
+  @Timespan
+  long parse;
+
+  @Label("Validate")
+  @Timespan
+  long validate;
+
+  @Label("Calculate")
+  @Timespan
+  long calculate;
+
+  @Label("Serialize")
+  @Timespan
+  long serialize;
+
+  QuoteRespondedEvent() {
+  }
+}
@@ -0,0 +1,238 @@
+package com.kleadingsolutions.loyalty.jfr;
+
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.Router;
+import io.vertx.ext.web.RoutingContext;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Admin endpoints for one bounded, continuous flight recording, so GC, lock and I/O events can be
+ * read next to the {@link QuoteEvents} of slow quotes without attaching a profiler:
+ * <ul>
+ *   <li>{@code POST /admin/jfr/start?maxAgeSeconds=&maxSizeMb=&thresholdMs=&settings=default|profile}:
+ *   starts it with the JDK's {@code default} (or {@code profile}) settings plus the quote events.
+ *   Age and size default to, and may not exceed, {@code runtime.jfr.max-age-s} / {@code max-size-mb}.
+ *   {@code thresholdMs} drops quote and upstream events shorter than that (and QuoteReceived).</li>
+ *   <li>{@code GET /admin/jfr}: its state.</li>
+ *   <li>{@code GET /admin/jfr/dump}: the data recorded so far as a {@code .jfr} file; the recording goes on.</li>
+ *   <li>{@code POST /admin/jfr/stop}: stops it and discards its data.</li>
+ * </ul>
+ * There is one such recording per JVM, found by name, so every verticle instance serves the same one.
+ * Recorder calls touch the disk repository and run on a worker.
+ */
+public final class RecordingAdmin {
+
+  private static final Logger LOGGER = Logger.getLogger(RecordingAdmin.class.getName());
+
+  static final String RECORDING_NAME = "loyalty-continuous";
+  static final String BASE_PATH = "/admin/jfr";
+  private static final Set<String> SETTINGS = Set.of("default", "profile");
+  private static final Object LOCK = new Object();
+
+  private final Supplier<LoyaltyConfig.Jfr> settings;
+
+  public RecordingAdmin(Supplier<LoyaltyConfig.Jfr> settings) {
+    this.settings = settings;
+  }
+
+  public void mount(Router router) {
+    router.get(BASE_PATH).handler(this::status);
+    router.post(BASE_PATH + "/start").handler(this::start);
+    router.get(BASE_PATH + "/dump").handler(this::dump);
+    router.post(BASE_PATH + "/stop").handler(this::stop);
+  }
+
+  private record Options(long maxAgeSeconds, long maxSizeMb, long thresholdMs, String settings) {
+  }
+
+  void start(RoutingContext ctx) {
+    Options options;
+    try {
+      LoyaltyConfig.Jfr limits = settings.get();
+      String settingsName = ctx.request().getParam("settings", "default");
+      if (!SETTINGS.contains(settingsName)) {
+        throw new IllegalArgumentException("settings must be one of " + SETTINGS);
+      }
+      options = new Options(
+              param(ctx, "maxAgeSeconds", limits.maxAgeSeconds(), 1, limits.maxAgeSeconds()),
+              param(ctx, "maxSizeMb", limits.maxSizeMb(), 1, limits.maxSizeMb()),
+              param(ctx, "thresholdMs", 0, 0, 60_000),
+              settingsName);
+    } catch (IllegalArgumentException e) {
+      json(ctx, 400, new JsonObject().put("error", e.getMessage()));
+      return;
+    }
+    if (!FlightRecorder.isAvailable()) {
+      json(ctx, 503, new JsonObject().put("error", "flight recorder not available"));
+      return;
+    }
+    ctx.vertx().<JsonObject>executeBlocking(p -> {
+      try {
+        p.complete(startRecording(options));
+      } catch (IOException | ParseException e) {
+        p.fail(e);
+      }
+    }, false, ar -> {
+      if (ar.failed()) {
+        LOGGER.log(Level.WARNING, "failed to start flight recording", ar.cause());
+        json(ctx, 500, new JsonObject().put("error", "failed to start recording"));
+      } else if (ar.result() == null) {
+        json(ctx, 409, new JsonObject().put("error", "recording already running"));
+      } else {
+        json(ctx, 200, ar.result());
+      }
+    });
+  }
+
+  void status(RoutingContext ctx) {
+    ctx.vertx().<JsonObject>executeBlocking(p -> {
+      synchronized (LOCK) {
+        Recording recording = running();
+        p.complete(recording == null ? new JsonObject().put("state", "STOPPED") : describe(recording));
+      }
+    }, false, ar -> {
+      if (ar.failed()) {
+        json(ctx, 500, new JsonObject().put("error", "failed to read recording state"));
+      } else {
+        json(ctx, 200, ar.result());
+      }
+    });
+  }
+
+  void dump(RoutingContext ctx) {
+    ctx.vertx().<Path>executeBlocking(p -> {
+      synchronized (LOCK) {
+        Recording recording = running();
+        if (recording == null) {
+          p.complete(null);
+          return;
+        }
+        try {
+          Path file = Files.createTempFile("loyalty-", ".jfr");
+          recording.dump(file);
+          p.complete(file);
+        } catch (IOException e) {
+          p.fail(e);
+        }
+      }
+    }, false, ar -> {
+      if (ar.failed()) {
+        LOGGER.log(Level.WARNING, "failed to dump flight recording", ar.cause());
+        json(ctx, 500, new JsonObject().put("error", "failed to dump recording"));
+        return;
+      }
+      Path file = ar.result();
+      if (file == null) {
+        json(ctx, 404, new JsonObject().put("error", "no recording running"));
+        return;
+      }
+      ctx.response()
+              .putHeader(HttpHeaders.CONTENT_TYPE, "application/octet-stream")
+              .putHeader("Content-Disposition", "attachment; filename=\"" + RECORDING_NAME + ".jfr\"")
+              .sendFile(file.toString())
+              .onComplete(sent -> ctx.vertx().fileSystem().delete(file.toString()));
+    });
+  }
+
+  void stop(RoutingContext ctx) {
+    ctx.vertx().<Boolean>executeBlocking(p -> {
+      synchronized (LOCK) {
+        Recording recording = running();
+        if (recording != null) {
+          recording.close();
+          LOGGER.info("flight recording " + RECORDING_NAME + " stopped");
+        }
+        p.complete(recording != null);
+      }
+    }, false, ar -> {
+      if (ar.failed()) {
+        json(ctx, 500, new JsonObject().put("error", "failed to stop recording"));
+      } else if (!ar.result()) {
+        json(ctx, 404, new JsonObject().put("error", "no recording running"));
+      } else {
+        json(ctx, 200, new JsonObject().put("state", "STOPPED"));
+      }
+    });
+  }
+
+  /** Starts the recording; null if one is already running. */
+  private static JsonObject startRecording(Options options) throws IOException, ParseException {
+    synchronized (LOCK) {
+      if (running() != null) {
+        return null;
+      }
+      Recording recording = new Recording(Configuration.getConfiguration(options.settings()));
+      recording.setName(RECORDING_NAME);
+      recording.setToDisk(true);
+      recording.setMaxAge(Duration.ofSeconds(options.maxAgeSeconds()));
+      recording.setMaxSize(options.maxSizeMb() * 1024 * 1024);
+      Duration threshold = Duration.ofMillis(options.thresholdMs());
+      if (threshold.isZero()) {
+        recording.enable(QuoteReceivedEvent.class);
+      }
+      recording.enable(QuoteRespondedEvent.class).withThreshold(threshold);
+      recording.enable(QuoteCalculatedEvent.class).withThreshold(threshold);
+      recording.enable(FxResolvedEvent.class).withThreshold(threshold);
+      recording.enable(PromoResolvedEvent.class).withThreshold(threshold);
+      recording.start();
+      LOGGER.info("flight recording " + RECORDING_NAME + " started: " + options);
+      return describe(recording).put("thresholdMs", options.thresholdMs()).put("settings", options.settings());
+    }
+  }
+
+  private static Recording running() {
+    for (Recording r : FlightRecorder.getFlightRecorder().getRecordings()) {
+      if (RECORDING_NAME.equals(r.getName()) && r.getState() == RecordingState.RUNNING) {
+        return r;
+      }
+    }
+    return null;
+  }
+
+  private static JsonObject describe(Recording recording) {
+    return new JsonObject()
+            .put("state", recording.getState().name())
+            .put("startTime", String.valueOf(recording.getStartTime()))
+            .put("maxAgeSeconds", recording.getMaxAge().toSeconds())
+            .put("maxSizeMb", recording.getMaxSize() / (1024 * 1024));
+  }
+
+  private static long param(RoutingContext ctx, String name, long def, long min, long max) {
+    String raw = ctx.request().getParam(name);
+    if (raw == null || raw.isBlank()) {
+      return def;
+    }
+    long value;
+    try {
+      value = Long.parseLong(raw.trim());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException(name + " must be a number");
+    }
+    if (value < min || value > max) {
+      throw new IllegalArgumentException(name + " must be in [" + min + ", " + max + "]");
+    }
+    return value;
+  }
+
+  private static void json(RoutingContext ctx, int status, JsonObject body) {
+    ctx.response()
+            .setStatusCode(status)
+            .putHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+            .end(body.encode());
+  }
+}
@@ -0,0 +1,298 @@
+package com.kleadingsolutions.loyalty.logging;
+
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Structured access log: one JSON line per request with timestamp, request id, method, path,
+ * status, outcome, latency and the FX / promo waits (microseconds, -1 when not reached):
+ * <pre>
+ * {"ts":"2024-05-01T10:00:00.123Z","id":"7f3a-000001","method":"POST","path":"/v1/points/quote",
+ *  "status":200,"outcome":"ok","latency_us":1840,"fx_us":1210,"promo_us":1190}
+ * </pre>
+ * {@code fx_us} runs from issuing the upstream calls to the FX answer, {@code promo_us} is any
+ * further wait for promo. The id is the caller's {@code X-Request-Id} if sent, else a per-process
+ * sequence.
+ *
+ * {@link #log} runs on the event loop and only copies primitives and existing strings into a
+ * preallocated ring slot; it never blocks. When the ring is full the record is dropped and counted
+ * ({@code loyalty_access_log_dropped_total}). A daemon thread drains the ring, formats the lines and
+ * writes them to a {@link RollingFileWriter}.
+ *
+ * {@link #open} starts one writer per file; deployments sharing it (e.g. several verticle
+ * instances) share the ring, which is flushed and closed when the last one is closed.
+ */
+public final class AccessLog implements AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(AccessLog.class.getName());
+
+  /** Logs nothing; used when no access log file is configured. */
+  public static final AccessLog NOOP = new AccessLog(null, null);
+
+  static final String DROPPED_METRIC = "loyalty_access_log_dropped_total";
+
+  private static final Map<Path, Ring> RINGS = new HashMap<>();
+
+  private final Path file;
+  private final Ring ring;
+  private boolean closed;
+
+  private AccessLog(Path file, Ring ring) {
+    this.file = file;
+    this.ring = ring;
+  }
+
+  /** The access log for {@code settings}, or {@link #NOOP} when no file is set; the ring is shared per file. */
+  public static AccessLog open(LoyaltyConfig.Logging settings, MeterRegistry registry) {
+    if (settings.accessLogFile().isEmpty()) {
+      return NOOP;
+    }
+    Path file = Path.of(settings.accessLogFile()).toAbsolutePath().normalize();
+    Ring ring;
+    synchronized (RINGS) {
+      ring = RINGS.get(file);
+      if (ring == null) {
+        try {
+          ring = new Ring(new RollingFileWriter(file, settings.maxFileMb() * 1024 * 1024, settings.maxFiles()),
+                  settings.bufferSize(), file.getFileName().toString());
+        } catch (IOException e) {
+          LOGGER.log(Level.WARNING, e, () -> "cannot open access log " + file + "; access logging is off");
+          return NOOP;
+        }
+        RINGS.put(file, ring);
+      } else {
+        ring.references++;
+      }
+    }
+    if (registry != null) {
+      FunctionCounter.builder(DROPPED_METRIC, ring.dropped, LongAdder::sum)
+              .description("Access log records dropped because the write buffer was full")
+              .register(registry);
+    }
+    return new AccessLog(file, ring);
+  }
+
+  public boolean isEnabled() {
+    return ring != null;
+  }
+
+  /**
+   * Queues one record. {@code requestId} may be null (a sequence number is used); waits are -1 when
+   * the request did not get that far.
+   */
+  public void log(String requestId, String method, String path, int status, String outcome,
+                  long latencyNanos, long fxWaitNanos, long promoWaitNanos) {
+    if (ring != null) {
+      ring.offer(System.currentTimeMillis() - TimeUnit.NANOSECONDS.toMillis(latencyNanos), requestId, method, path,
+              status, outcome, latencyNanos, fxWaitNanos, promoWaitNanos);
+    }
+  }
+
+  /** Records dropped because the ring was full. */
+  public long dropped() {
+    return ring == null ? 0 : ring.dropped.sum();
+  }
+
+  @Override
+  public void close() {
+    if (ring == null) {
+      return;
+    }
+    Ring released = null;
+    synchronized (RINGS) {
+      if (closed) return;
+      closed = true;
+      if (--ring.references == 0) {
+        released = RINGS.remove(file);
+      }
+    }
+    if (released != null) {
+      released.close();
+    }
+  }
+
+  /** One ring slot; filled by the producer that claimed it, then published by writing {@code sequence}. */
+  private static final class Entry {
+    volatile long sequence = -1;
+    long timestampMillis;
+    String requestId;
+    long requestNumber;
+    String method;
+    String path;
+    int status;
+    String outcome;
+    long latencyNanos;
+    long fxWaitNanos;
+    long promoWaitNanos;
+  }
+
+  /** Multi-producer, single-consumer ring of preallocated entries and the thread that drains it. */
+  private static final class Ring {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int MAX_ID_LENGTH = 128;
+
+    private final Entry[] entries;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();
+    private volatile long drained;
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong requestNumbers = new AtomicLong();
+    private final String idPrefix = Long.toHexString(ProcessHandle.current().pid()) + "-";
+    private final RollingFileWriter out;
+    private final Thread drainer;
+    private final StringBuilder line = new StringBuilder(256);
+    private volatile boolean closing;
+    private int references = 1;
+
+    Ring(RollingFileWriter out, int size, String name) {
+      this.out = out;
+      this.entries = new Entry[size];
+      for (int i = 0; i < size; i++) {
+        entries[i] = new Entry();
+      }
+      this.mask = size - 1;
+      this.drainer = new Thread(this::run, "loyalty-access-log-" + name);
+      drainer.setDaemon(true);
+      drainer.start();
+    }
+
+    void offer(long timestampMillis, String requestId, String method, String path, int status, String outcome,
+               long latencyNanos, long fxWaitNanos, long promoWaitNanos) {
+      long seq;
+      do {
+        seq = claimed.get();
+        if (seq - drained >= entries.length) {
+          dropped.increment();
+          return;
+        }
+      } while (!claimed.compareAndSet(seq, seq + 1));
+      Entry e = entries[(int) seq & mask];
+      e.timestampMillis = timestampMillis;
+      e.requestId = requestId;
+      e.requestNumber = requestId == null ? requestNumbers.incrementAndGet() : 0;
+      e.method = method;
+      e.path = path;
+      e.status = status;
+      e.outcome = outcome;
+      e.latencyNanos = latencyNanos;
+      e.fxWaitNanos = fxWaitNanos;
+      e.promoWaitNanos = promoWaitNanos;
+      e.sequence = seq;
+    }
+
+    private void run() {
+      boolean failing = false;
+      while (true) {
+        int written;
+        try {
+          written = drain();
+          if (written == 0) {
+            out.flush();
+          }
+          failing = false;
+        } catch (IOException e) {
+          if (!failing) {
+            LOGGER.log(Level.WARNING, e, () -> "access log write failed; records are skipped until it recovers");
+          }
+          failing = true;
+          written = 0;
+        }
+        if (written == 0) {
+          if (closing) {
+            break;
+          }
+          LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+      }
+      try {
+        out.close();
+      } catch (IOException e) {
+        LOGGER.log(Level.FINE, "closing access log failed", e);
+      }
+    }
+
+    /** Writes every published entry in order; an entry is released even if writing it fails. */
+    private int drain() throws IOException {
+      int n = 0;
+      long next = drained;
+      while (true) {
+        Entry e = entries[(int) next & mask];
+        if (e.sequence != next) {
+          return n;
+        }
+        try {
+          format(e);
+        } finally {
+          e.requestId = null;
+          drained = ++next;
+        }
+        out.writeLine(line);
+        n++;
+      }
+    }
+
+    private void format(Entry e) {
+      StringBuilder b = line;
+      b.setLength(0);
+      b.append("{\"ts\":\"");
+      DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(e.timestampMillis), b);
+      b.append("\",\"id\":\"");
+      if (e.requestId != null) {
+        appendEscaped(b, e.requestId);
+      } else {
+        b.append(idPrefix).append(e.requestNumber);
+      }
+      b.append("\",\"method\":\"").append(e.method)
+              .append("\",\"path\":\"").append(e.path)
+              .append("\",\"status\":").append(e.status)
+              .append(",\"outcome\":\"").append(e.outcome)
+              .append("\",\"latency_us\":").append(micros(e.latencyNanos))
+              .append(",\"fx_us\":").append(micros(e.fxWaitNanos))
+              .append(",\"promo_us\":").append(micros(e.promoWaitNanos))
+              .append('}');
+    }
+
+    private static long micros(long nanos) {
+      return nanos < 0 ? -1 : nanos / 1_000;
+    }
+
+    /** Caller-supplied ids are escaped for JSON and cut to {@value #MAX_ID_LENGTH} chars. */
+    private static void appendEscaped(StringBuilder b, String s) {
+      int len = Math.min(s.length(), MAX_ID_LENGTH);
+      for (int i = 0; i < len; i++) {
+        char c = s.charAt(i);
+        if (c == '"' || c == '\\') {
+          b.append('\\').append(c);
+        } else if (c < 0x20 || c > 0x7e) {
+          b.append("\\u").append(String.format("%04x", (int) c));
+        } else {
+          b.append(c);
+        }
+      }
+    }
+
+    void close() {
+      closing = true;
+      LockSupport.unpark(drainer);
+      try {
+        drainer.join(TimeUnit.SECONDS.toMillis(5));
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
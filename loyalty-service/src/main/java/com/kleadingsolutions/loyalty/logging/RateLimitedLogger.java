@@ -0,0 +1,59 @@
+package com.kleadingsolutions.loyalty.logging;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lets at most {@code perSecond} records through to a JUL logger, so an error on every request
+ * cannot turn into a synchronous console write on every request. The message is only built for
+ * records that pass; the number dropped is reported with the first record of the next second.
+ */
+public final class RateLimitedLogger {
+
+  private final Logger logger;
+  private final int perSecond;
+  private final LongSupplier nanoClock;
+  private final AtomicLong second = new AtomicLong(Long.MIN_VALUE);
+  private final AtomicInteger count = new AtomicInteger();
+  private final LongAdder suppressed = new LongAdder();
+
+  public RateLimitedLogger(Logger logger, int perSecond) {
+    this(logger, perSecond, System::nanoTime);
+  }
+
+  RateLimitedLogger(Logger logger, int perSecond, LongSupplier nanoClock) {
+    if (perSecond <= 0) throw new IllegalArgumentException("perSecond must be > 0");
+    this.logger = logger;
+    this.perSecond = perSecond;
+    this.nanoClock = nanoClock;
+  }
+
+  public void log(Level level, Throwable thrown, Supplier<String> message) {
+    if (!logger.isLoggable(level)) {
+      return;
+    }
+    long now = nanoClock.getAsLong() / 1_000_000_000L;
+    long current = second.get();
+    if (current != now && second.compareAndSet(current, now)) {
+      count.set(0);
+      long dropped = suppressed.sumThenReset();
+      if (dropped > 0) {
+        logger.log(level, () -> dropped + " log records suppressed (limit " + perSecond + "/s)");
+      }
+    }
+    if (count.incrementAndGet() > perSecond) {
+      suppressed.increment();
+      return;
+    }
+    logger.log(level, thrown, message);
+  }
+
+  long suppressed() {
+    return suppressed.sum();
+  }
+}
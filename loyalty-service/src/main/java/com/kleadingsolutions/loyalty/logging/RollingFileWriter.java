@@ -0,0 +1,74 @@
+package com.kleadingsolutions.loyalty.logging;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends lines to {@code file}; once it would exceed {@code maxBytes} it is renamed to
+ * {@code file.1} (older files shift up to {@code file.<maxFiles>}, the oldest is deleted) and a new
+ * file is started. Single-threaded: only the {@link AccessLog} drain thread uses it.
+ */
+final class RollingFileWriter implements Closeable {
+
+  private final Path file;
+  private final long maxBytes;
+  private final int maxFiles;
+  private Writer out;
+  private long size;
+
+  RollingFileWriter(Path file, long maxBytes, int maxFiles) throws IOException {
+    this.file = file;
+    this.maxBytes = maxBytes;
+    this.maxFiles = maxFiles;
+    Path dir = file.toAbsolutePath().getParent();
+    if (dir != null) {
+      Files.createDirectories(dir);
+    }
+    open();
+  }
+
+  private void open() throws IOException {
+    out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    size = Files.size(file);
+  }
+
+  /** Writes {@code line} and a newline; the size check counts chars, which are bytes for ASCII log lines. */
+  void writeLine(CharSequence line) throws IOException {
+    if (size > 0 && size + line.length() + 1 > maxBytes) {
+      roll();
+    }
+    out.append(line).append('\n');
+    size += line.length() + 1;
+  }
+
+  void flush() throws IOException {
+    out.flush();
+  }
+
+  private void roll() throws IOException {
+    out.close();
+    for (int i = maxFiles - 1; i >= 1; i--) {
+      Path older = sibling(i);
+      if (Files.exists(older)) {
+        Files.move(older, sibling(i + 1), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    Files.move(file, sibling(1), StandardCopyOption.REPLACE_EXISTING);
+    open();
+  }
+
+  private Path sibling(int index) {
+    return file.resolveSibling(file.getFileName() + "." + index);
+  }
+
+  @Override
+  public void close() throws IOException {
+    out.close();
+  }
+}
@@ -0,0 +1,75 @@
+package com.kleadingsolutions.loyalty.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.SingleThreadEventExecutor;
+import io.vertx.core.Vertx;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how late each event loop runs a task scheduled {@code interval} ahead: the delay is time
+ * the loop spent on other work (blocking handlers, long GC pauses, too many tasks) before getting to
+ * it. One task per loop re-schedules itself, so an idle service costs a few wake-ups per second.
+ *
+ * Meters, tagged by loop index:
+ * - {@code loyalty_event_loop_lag_seconds{loop}}: scheduling delay, SLO buckets
+ * - {@code loyalty_event_loop_pending_tasks{loop}}: tasks queued on the loop when scraped
+ */
+final class EventLoopLagProbe implements AutoCloseable {
+
+  static final String LAG_TIMER = "loyalty_event_loop_lag_seconds";
+  static final String PENDING_GAUGE = "loyalty_event_loop_pending_tasks";
+
+  static final Duration[] SLOS = {
+          Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25),
+          Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+          Duration.ofSeconds(1)};
+
+  private final MeterRegistry registry;
+  private final long intervalNanos;
+  private final List<Meter> meters = new ArrayList<>();
+  private volatile boolean closed;
+
+  EventLoopLagProbe(Vertx vertx, MeterRegistry registry, Duration interval) {
+    this.registry = registry;
+    this.intervalNanos = interval.toNanos();
+    int loop = 0;
+    for (EventExecutor executor : vertx.nettyEventLoopGroup()) {
+      String tag = String.valueOf(loop++);
+      Timer lag = Timer.builder(LAG_TIMER)
+              .tag("loop", tag)
+              .serviceLevelObjectives(SLOS)
+              .register(registry);
+      meters.add(lag);
+      if (executor instanceof SingleThreadEventExecutor) {
+        meters.add(Gauge.builder(PENDING_GAUGE, (SingleThreadEventExecutor) executor, SingleThreadEventExecutor::pendingTasks)
+                .tag("loop", tag)
+                .register(registry));
+      }
+      schedule(executor, lag);
+    }
+  }
+
+  private void schedule(EventExecutor executor, Timer lag) {
+    if (closed || executor.isShuttingDown()) return;
+    long due = System.nanoTime() + intervalNanos;
+    executor.schedule(() -> {
+      lag.record(Math.max(0L, System.nanoTime() - due), TimeUnit.NANOSECONDS);
+      schedule(executor, lag);
+    }, intervalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Stops re-scheduling (pending ticks run once more and end) and removes the probe's meters. */
+  @Override
+  public void close() {
+    closed = true;
+    meters.forEach(registry::remove);
+  }
+}
@@ -0,0 +1,157 @@
+package com.kleadingsolutions.loyalty.metrics;
+
+import com.kleadingsolutions.loyalty.tracing.TraceExemplars;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmHeapPressureMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.exemplars.DefaultExemplarSampler;
+import io.vertx.core.Vertx;
+import io.vertx.micrometer.Label;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import io.vertx.micrometer.backends.BackendRegistries;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runtime metrics for diagnosing saturation, on the same registry as the request metrics:
+ * - Vert.x metrics ({@link #vertxMetricsOptions}): HTTP server requests and connections, HTTP client
+ *   pools and queueing toward FX/promo, event bus, worker pool queue delay and usage. These need the
+ *   options at Vert.x creation, see {@code LoyaltyLauncher}.
+ * - JVM binders: GC pauses, allocated and promoted bytes (allocation rate), heap pressure, memory
+ *   pools, threads, class loading, CPU and uptime.
+ * - {@link EventLoopLagProbe}: per event loop scheduling delay and pending tasks.
+ * - {@code loyalty_transport_info{transport}}: 1, tagged with the network transport ({@link #transport}).
+ *
+ * {@link #start} binds once per registry; further deployments sharing the registry (e.g. several
+ * verticle instances) share the binding, which is released when the last one is closed.
+ */
+public final class RuntimeMetrics implements AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(RuntimeMetrics.class.getName());
+
+  /** Event loop probe interval. */
+  public static final Duration LAG_PROBE_INTERVAL = Duration.ofMillis(100);
+
+  static final String TRANSPORT_METRIC = "loyalty_transport_info";
+
+  private static final Map<MeterRegistry, Binding> BINDINGS = new IdentityHashMap<>();
+
+  private final MeterRegistry registry;
+  private boolean closed;
+
+  private RuntimeMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /**
+   * Vert.x metrics reporting to {@code registry}. Labels are limited to bounded values: no request
+   * paths or remote addresses, routes are the router's templates.
+   */
+  public static MicrometerMetricsOptions vertxMetricsOptions(MeterRegistry registry) {
+    return new MicrometerMetricsOptions()
+            .setEnabled(true)
+            .setMicrometerRegistry(registry)
+            .setJvmMetricsEnabled(false) // bound by start(), also when Vert.x metrics are off
+            .setLabels(EnumSet.of(Label.HTTP_METHOD, Label.HTTP_CODE, Label.HTTP_ROUTE, Label.POOL_TYPE,
+                    Label.POOL_NAME, Label.EB_ADDRESS, Label.EB_SIDE, Label.EB_FAILURE));
+  }
+
+  /** The Prometheus registry Vert.x metrics were set up with, or a new one if they are disabled. */
+  public static PrometheusMeterRegistry prometheusRegistry() {
+    MeterRegistry vertxRegistry = BackendRegistries.getDefaultNow();
+    return vertxRegistry instanceof PrometheusMeterRegistry
+            ? (PrometheusMeterRegistry) vertxRegistry
+            : newPrometheusRegistry();
+  }
+
+  /** A Prometheus registry whose histograms carry trace exemplars ({@link TraceExemplars}). */
+  public static PrometheusMeterRegistry newPrometheusRegistry() {
+    return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT, new CollectorRegistry(), Clock.SYSTEM,
+            new DefaultExemplarSampler(new TraceExemplars()));
+  }
+
+  /** The network transport {@code vertx} runs on: {@code io_uring}, {@code epoll}, {@code kqueue} or {@code nio}. */
+  public static String transport(Vertx vertx) {
+    String group = vertx.nettyEventLoopGroup().getClass().getSimpleName();
+    if (group.startsWith("IOUring")) return "io_uring";
+    if (group.startsWith("Epoll")) return "epoll";
+    if (group.startsWith("KQueue")) return "kqueue";
+    return "nio";
+  }
+
+  /** Binds the JVM metrics and starts the event loop probe on {@code registry}, unless already bound. */
+  public static RuntimeMetrics start(Vertx vertx, MeterRegistry registry) {
+    synchronized (BINDINGS) {
+      Binding binding = BINDINGS.get(registry);
+      if (binding == null) {
+        BINDINGS.put(registry, new Binding(vertx, registry));
+      } else {
+        binding.references++;
+      }
+    }
+    return new RuntimeMetrics(registry);
+  }
+
+  @Override
+  public void close() {
+    Binding released = null;
+    synchronized (BINDINGS) {
+      if (closed) return;
+      closed = true;
+      Binding binding = BINDINGS.get(registry);
+      if (binding != null && --binding.references == 0) {
+        released = BINDINGS.remove(registry);
+      }
+    }
+    if (released != null) {
+      released.close();
+    }
+  }
+
+  private static final class Binding {
+    private final JvmGcMetrics gc = new JvmGcMetrics();
+    private final JvmHeapPressureMetrics heapPressure = new JvmHeapPressureMetrics();
+    private final EventLoopLagProbe lagProbe;
+    private int references = 1;
+
+    Binding(Vertx vertx, MeterRegistry registry) {
+      new ClassLoaderMetrics().bindTo(registry);
+      new JvmMemoryMetrics().bindTo(registry);
+      new JvmThreadMetrics().bindTo(registry);
+      new ProcessorMetrics().bindTo(registry);
+      new UptimeMetrics().bindTo(registry);
+      gc.bindTo(registry);
+      heapPressure.bindTo(registry);
+      Gauge.builder(TRANSPORT_METRIC, () -> 1)
+              .tag("transport", transport(vertx))
+              .description("Network transport Vert.x runs on")
+              .register(registry);
+      lagProbe = new EventLoopLagProbe(vertx, registry, LAG_PROBE_INTERVAL);
+    }
+
+    void close() {
+      lagProbe.close();
+      try {
+        gc.close();
+        heapPressure.close();
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.FINE, "closing JVM metrics failed", e);
+      }
+    }
+  }
+}
@@ -0,0 +1,142 @@
+package com.kleadingsolutions.loyalty.metrics;
+
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serves /metrics without running {@code scrape()} on the event loop. The text (and its gzip form,
+ * if enabled) is rendered on a worker thread and kept as a buffer for {@code scrape-cache-ms};
+ * requests arriving while a render is in flight wait for that render instead of starting another.
+ * Render time is recorded as {@code loyalty_metrics_scrape_duration_seconds}.
+ *
+ * Scrapers that accept {@code application/openmetrics-text} (Prometheus with exemplar storage)
+ * get the OpenMetrics format, which carries the trace exemplars; each format is cached separately.
+ */
+public final class ScrapeHandler implements Handler<RoutingContext> {
+
+  private static final Logger LOGGER = Logger.getLogger(ScrapeHandler.class.getName());
+
+  public static final String SCRAPE_TIMER = "loyalty_metrics_scrape_duration_seconds";
+  static final String CONTENT_TYPE = TextFormat.CONTENT_TYPE_004;
+  static final String OPENMETRICS_CONTENT_TYPE = TextFormat.CONTENT_TYPE_OPENMETRICS_100;
+
+  private final PrometheusMeterRegistry registry;
+  private final Supplier<LoyaltyConfig.Metrics> settings;
+  private final Timer renderTimer;
+  // one per format: [0] Prometheus text, [1] OpenMetrics; guarded by this
+  @SuppressWarnings("unchecked")
+  private final Future<Snapshot>[] latest = new Future[2];
+
+  public ScrapeHandler(PrometheusMeterRegistry registry, Supplier<LoyaltyConfig.Metrics> settings) {
+    this.registry = registry;
+    this.settings = settings;
+    this.renderTimer = Timer.builder(SCRAPE_TIMER)
+            .description("Time to render the Prometheus scrape, including gzip")
+            .register(registry);
+  }
+
+  @Override
+  public void handle(RoutingContext ctx) {
+    LoyaltyConfig.Metrics s = settings.get();
+    boolean openMetrics = acceptsOpenMetrics(ctx.request().getHeader(HttpHeaders.ACCEPT));
+    snapshot(ctx.vertx(), s, openMetrics).onComplete(ar -> {
+      HttpServerResponse response = ctx.response();
+      if (ar.failed()) {
+        LOGGER.log(Level.WARNING, "metrics scrape failed", ar.cause());
+        response.setStatusCode(500).end();
+        return;
+      }
+      Snapshot snapshot = ar.result();
+      response.putHeader(HttpHeaders.CONTENT_TYPE, openMetrics ? OPENMETRICS_CONTENT_TYPE : CONTENT_TYPE);
+      response.putHeader(HttpHeaders.VARY, s.gzip() ? "Accept, Accept-Encoding" : "Accept");
+      if (snapshot.gzip() != null && acceptsGzip(ctx.request().getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+        response.putHeader(HttpHeaders.CONTENT_ENCODING, "gzip").end(snapshot.gzip());
+      } else {
+        response.end(snapshot.text());
+      }
+    });
+  }
+
+  /** The cached snapshot if still fresh or being rendered, else a new render on a worker. */
+  synchronized Future<Snapshot> snapshot(Vertx vertx, LoyaltyConfig.Metrics s, boolean openMetrics) {
+    int slot = openMetrics ? 1 : 0;
+    long now = System.nanoTime();
+    Future<Snapshot> current = latest[slot];
+    if (current != null && (!current.isComplete()
+            || current.succeeded() && now - current.result().renderedAtNanos() < s.scrapeCacheMs() * 1_000_000L)) {
+      return current;
+    }
+    String contentType = openMetrics ? OPENMETRICS_CONTENT_TYPE : CONTENT_TYPE;
+    latest[slot] = vertx.executeBlocking(p -> p.complete(render(contentType, s.gzip())), false);
+    return latest[slot];
+  }
+
+  private Snapshot render(String contentType, boolean gzip) {
+    long start = System.nanoTime();
+    byte[] text = registry.scrape(contentType).getBytes(StandardCharsets.UTF_8);
+    Buffer compressed = gzip ? Buffer.buffer(gzip(text)) : null;
+    long end = System.nanoTime();
+    renderTimer.record(end - start, TimeUnit.NANOSECONDS);
+    return new Snapshot(Buffer.buffer(text), compressed, end);
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(512, bytes.length / 4));
+    try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+      gz.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  static boolean acceptsOpenMetrics(String accept) {
+    return accept != null && accept.contains("application/openmetrics-text");
+  }
+
+  /** True if the Accept-Encoding header lists gzip (or *) without q=0. */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) return false;
+    for (String part : acceptEncoding.split(",")) {
+      String[] coding = part.trim().toLowerCase(Locale.ROOT).split(";");
+      String name = coding[0].trim();
+      if (!name.equals("gzip") && !name.equals("*")) continue;
+      boolean refused = false;
+      for (int i = 1; i < coding.length; i++) {
+        String param = coding[i].trim().replace(" ", "");
+        if (param.startsWith("q=")) {
+          try {
+            refused = Double.parseDouble(param.substring(2)) == 0;
+          } catch (NumberFormatException e) {
+            refused = true;
+          }
+        }
+      }
+      if (!refused) return true;
+    }
+    return false;
+  }
+
+  record Snapshot(Buffer text, Buffer gzip, long renderedAtNanos) {
+  }
+}
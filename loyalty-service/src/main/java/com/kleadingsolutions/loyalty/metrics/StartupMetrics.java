@@ -0,0 +1,69 @@
+package com.kleadingsolutions.loyalty.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+
+/**
+ * How long this JVM took to become useful, measured from JVM start (so class loading, CDS and JIT
+ * warm-up are included):
+ * - {@code loyalty_startup_listening_seconds}: until the HTTP server was bound.
+ * - {@code loyalty_startup_first_quote_seconds}: until the first quote answered with 200.
+ * Both are NaN until it happens. After the first quote {@link #quoteServed} is one volatile read.
+ */
+public final class StartupMetrics {
+
+  private static final Logger LOGGER = Logger.getLogger(StartupMetrics.class.getName());
+
+  private static volatile long listeningMillis = -1;
+  private static volatile long firstQuoteMillis = -1;
+
+  private StartupMetrics() {
+  }
+
+  public static void bind(MeterRegistry registry) {
+    Gauge.builder("loyalty_startup_listening_seconds", () -> seconds(listeningMillis))
+            .description("Time from JVM start until the HTTP server was listening")
+            .register(registry);
+    Gauge.builder("loyalty_startup_first_quote_seconds", () -> seconds(firstQuoteMillis))
+            .description("Time from JVM start until the first successful quote")
+            .register(registry);
+  }
+
+  public static synchronized void listening() {
+    if (listeningMillis < 0) {
+      listeningMillis = uptimeMillis();
+    }
+  }
+
+  /** Called for every successful quote; only the first one is recorded. */
+  public static void quoteServed() {
+    if (firstQuoteMillis >= 0) {
+      return;
+    }
+    long uptime;
+    synchronized (StartupMetrics.class) {
+      if (firstQuoteMillis >= 0) {
+        return;
+      }
+      uptime = uptimeMillis();
+      firstQuoteMillis = uptime;
+    }
+    LOGGER.info(() -> "first quote served " + uptime + " ms after JVM start");
+  }
+
+  /** Milliseconds from JVM start to the first successful quote; -1 before it. */
+  public static long firstQuoteMillis() {
+    return firstQuoteMillis;
+  }
+
+  private static double seconds(long millis) {
+    return millis < 0 ? Double.NaN : millis / 1000.0;
+  }
+
+  private static long uptimeMillis() {
+    return ManagementFactory.getRuntimeMXBean().getUptime();
+  }
+}
@@ -0,0 +1,32 @@
+package com.kleadingsolutions.loyalty.service;
+
+/**
+ * Cabin classes accepted by the quote endpoint.
+ */
+public enum CabinClass {
+  ECONOMY,
+  PREMIUM_ECONOMY,
+  BUSINESS,
+  FIRST;
+
+  private static final CabinClass[] VALUES = values();
+
+  /** Case-insensitive lookup that does not allocate; null for null or unknown values. */
+  public static CabinClass parse(String cabin) {
+    if (cabin == null) {
+      return null;
+    }
+    // exact match first (the usual upper-case input), then case-insensitive
+    for (CabinClass c : VALUES) {
+      if (c.name().equals(cabin)) {
+        return c;
+      }
+    }
+    for (CabinClass c : VALUES) {
+      if (c.name().equalsIgnoreCase(cabin)) {
+        return c;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,42 @@
+package com.kleadingsolutions.loyalty.service;
+
+/**
+ * Customer tiers and the bonus rate each earns on base points.
+ */
+public enum CustomerTier {
+  NONE(0.0),
+  SILVER(0.15),
+  GOLD(0.30),
+  PLATINUM(0.50);
+
+  private static final CustomerTier[] VALUES = values();
+
+  private final double bonusRate;
+
+  CustomerTier(double bonusRate) {
+    this.bonusRate = bonusRate;
+  }
+
+  public double bonusRate() {
+    return bonusRate;
+  }
+
+  /** Case-insensitive lookup that does not allocate; null or unknown tiers earn no bonus. */
+  public static CustomerTier parse(String tier) {
+    if (tier == null) {
+      return NONE;
+    }
+    // exact match first (the usual upper-case input), then case-insensitive
+    for (CustomerTier t : VALUES) {
+      if (t.name().equals(tier)) {
+        return t;
+      }
+    }
+    for (CustomerTier t : VALUES) {
+      if (t.name().equalsIgnoreCase(tier)) {
+        return t;
+      }
+    }
+    return NONE;
+  }
+}
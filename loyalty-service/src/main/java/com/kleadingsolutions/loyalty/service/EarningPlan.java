@@ -0,0 +1,95 @@
+package com.kleadingsolutions.loyalty.service;
+
+/**
+ * {@link EarningRules} compiled for the per-quote path: multipliers in arrays indexed by enum
+ * ordinal, modes as small ints, no maps or boxing. Immutable, so a plan can be swapped atomically
+ * while quotes are being calculated with the previous one.
+ */
+public final class EarningPlan {
+
+  static final int ROUND_FLOOR = 0;
+  static final int ROUND_HALF_UP = 1;
+  static final int ROUND_CEILING = 2;
+
+  static final int ARITH_DOUBLE = 0;
+  static final int ARITH_FIXED = 1;
+
+  static final int STACK_ADDITIVE = 0;
+  static final int STACK_COMPOUND = 1;
+  static final int STACK_EXCLUSIVE = 2;
+
+  private static final EarningPlan DEFAULT = compile(EarningRules.defaults());
+
+  final double[] cabinMultiplier;
+  final double[] tierBonus;
+  // the same in FixedPoint.FACTOR_SCALE units, for ARITH_FIXED
+  final long[] cabinMultiplierScaled;
+  final long[] tierBonusScaled;
+  final long cap;
+  final int rounding;
+  final int arithmetic;
+  final int stacking;
+  final int nearExpiryDays;
+  private final EarningRules rules;
+
+  private EarningPlan(EarningRules rules) {
+    this.rules = rules;
+    CabinClass[] cabins = CabinClass.values();
+    // last slot: request without (or with an unrecognised) cabin class
+    cabinMultiplier = new double[cabins.length + 1];
+    for (CabinClass c : cabins) {
+      cabinMultiplier[c.ordinal()] = rules.cabinMultiplier(c);
+    }
+    cabinMultiplier[cabins.length] = 1.0;
+    CustomerTier[] tiers = CustomerTier.values();
+    tierBonus = new double[tiers.length];
+    for (CustomerTier t : tiers) {
+      tierBonus[t.ordinal()] = rules.tierBonus(t);
+    }
+    cabinMultiplierScaled = new long[cabinMultiplier.length];
+    for (int i = 0; i < cabinMultiplier.length; i++) {
+      cabinMultiplierScaled[i] = FixedPoint.toScaled(cabinMultiplier[i], FixedPoint.FACTOR_SCALE);
+    }
+    tierBonusScaled = new long[tierBonus.length];
+    for (int i = 0; i < tierBonus.length; i++) {
+      tierBonusScaled[i] = FixedPoint.toScaled(tierBonus[i], FixedPoint.FACTOR_SCALE);
+    }
+    cap = rules.getCap();
+    rounding = rules.getRounding().ordinal();
+    arithmetic = rules.getArithmetic().ordinal();
+    stacking = rules.getPromoStacking().ordinal();
+    nearExpiryDays = rules.getNearExpiryDays();
+  }
+
+  public static EarningPlan compile(EarningRules rules) {
+    return new EarningPlan(rules);
+  }
+
+  /** The original hardcoded rules (cabin ignored, floor rounding, additive promo, cap 50000). */
+  public static EarningPlan defaults() {
+    return DEFAULT;
+  }
+
+  public EarningRules rules() {
+    return rules;
+  }
+
+  double cabinMultiplier(CabinClass cabin) {
+    return cabinMultiplier[cabinIndex(cabin)];
+  }
+
+  int cabinIndex(CabinClass cabin) {
+    return cabin == null ? cabinMultiplier.length - 1 : cabin.ordinal();
+  }
+
+  long round(double points) {
+    switch (rounding) {
+      case ROUND_HALF_UP:
+        return (long)Math.floor(points + 0.5);
+      case ROUND_CEILING:
+        return (long)Math.ceil(points);
+      default:
+        return (long)Math.floor(points);
+    }
+  }
+}
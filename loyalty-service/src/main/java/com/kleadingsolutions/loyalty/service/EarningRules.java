@@ -0,0 +1,212 @@
+package com.kleadingsolutions.loyalty.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.dataformat.yaml.YAMLMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Earning rules as configured under {@code business} in {@code application-properties.yml}:
+ * <pre>
+ * business:
+ *   promo:
+ *     near-expiry-days: 2
+ *     stacking: ADDITIVE          # ADDITIVE | COMPOUND | EXCLUSIVE
+ *   points:
+ *     cap: 50000
+ *     rounding: FLOOR             # FLOOR | HALF_UP | CEILING
+ *     arithmetic: DOUBLE          # DOUBLE | FIXED
+ *     cabin-multipliers: { ECONOMY: 1.0, BUSINESS: 1.5, ... }
+ *     tier-bonus: { SILVER: 0.15, GOLD: 0.30, ... }
+ * </pre>
+ * Missing keys keep their defaults (the original hardcoded rules). Immutable; use
+ * {@link EarningPlan#compile(EarningRules)} to get the per-quote evaluation form.
+ */
+public final class EarningRules {
+
+  public static final String CLASSPATH_RESOURCE = "/application-properties.yml";
+
+  private final long cap;
+  private final PointsRounding rounding;
+  private final PointsArithmetic arithmetic;
+  private final PromoStacking promoStacking;
+  private final int nearExpiryDays;
+  private final Map<CabinClass, Double> cabinMultipliers;
+  private final Map<CustomerTier, Double> tierBonus;
+
+  private EarningRules(Builder b) {
+    this.cap = b.cap;
+    this.rounding = b.rounding;
+    this.arithmetic = b.arithmetic;
+    this.promoStacking = b.promoStacking;
+    this.nearExpiryDays = b.nearExpiryDays;
+    this.cabinMultipliers = Map.copyOf(b.cabinMultipliers);
+    this.tierBonus = Map.copyOf(b.tierBonus);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public static EarningRules defaults() {
+    return builder().build();
+  }
+
+  /** Rules from the bundled {@code application-properties.yml}, or defaults if it is missing. */
+  public static EarningRules fromClasspath() {
+    try (InputStream in = EarningRules.class.getResourceAsStream(CLASSPATH_RESOURCE)) {
+      return in == null ? defaults() : fromYaml(in);
+    } catch (IOException e) {
+      throw new UncheckedIOException("failed to read " + CLASSPATH_RESOURCE, e);
+    }
+  }
+
+  public static EarningRules fromYaml(InputStream in) throws IOException {
+    JsonNode root = new YAMLMapper().readTree(in);
+    return fromConfig(root == null ? null : root.get("business"));
+  }
+
+  /** Reads the {@code business} node; throws IllegalArgumentException on invalid values. */
+  public static EarningRules fromConfig(JsonNode business) {
+    Builder b = builder();
+    if (business == null || business.isNull()) {
+      return b.build();
+    }
+    JsonNode promo = business.path("promo");
+    if (promo.has("near-expiry-days")) b.nearExpiryDays(intValue(promo.get("near-expiry-days"), "business.promo.near-expiry-days"));
+    if (promo.has("stacking")) b.promoStacking(parseEnum(PromoStacking.class, promo.get("stacking").asText(), "business.promo.stacking"));
+
+    JsonNode points = business.path("points");
+    if (points.has("cap")) b.cap(longValue(points.get("cap"), "business.points.cap"));
+    if (points.has("rounding")) b.rounding(parseEnum(PointsRounding.class, points.get("rounding").asText(), "business.points.rounding"));
+    if (points.has("arithmetic")) b.arithmetic(parseEnum(PointsArithmetic.class, points.get("arithmetic").asText(), "business.points.arithmetic"));
+    for (Iterator<Map.Entry<String, JsonNode>> it = points.path("cabin-multipliers").fields(); it.hasNext(); ) {
+      Map.Entry<String, JsonNode> e = it.next();
+      b.cabinMultiplier(parseEnum(CabinClass.class, e.getKey(), "business.points.cabin-multipliers"),
+              doubleValue(e.getValue(), "business.points.cabin-multipliers." + e.getKey()));
+    }
+    for (Iterator<Map.Entry<String, JsonNode>> it = points.path("tier-bonus").fields(); it.hasNext(); ) {
+      Map.Entry<String, JsonNode> e = it.next();
+      b.tierBonus(parseEnum(CustomerTier.class, e.getKey(), "business.points.tier-bonus"),
+              doubleValue(e.getValue(), "business.points.tier-bonus." + e.getKey()));
+    }
+    return b.build();
+  }
+
+  // Jackson's asInt()/asLong()/asDouble() turn anything non-numeric into 0; a typo must not compile into a plan
+  private static int intValue(JsonNode node, String key) {
+    if (!node.isIntegralNumber() || !node.canConvertToInt()) {
+      throw new IllegalArgumentException("invalid value '" + node.asText() + "' for " + key);
+    }
+    return node.intValue();
+  }
+
+  private static long longValue(JsonNode node, String key) {
+    if (!node.isIntegralNumber() || !node.canConvertToLong()) {
+      throw new IllegalArgumentException("invalid value '" + node.asText() + "' for " + key);
+    }
+    return node.longValue();
+  }
+
+  private static double doubleValue(JsonNode node, String key) {
+    if (!node.isNumber()) {
+      throw new IllegalArgumentException("invalid value '" + node.asText() + "' for " + key);
+    }
+    return node.doubleValue();
+  }
+
+  private static <E extends Enum<E>> E parseEnum(Class<E> type, String value, String key) {
+    try {
+      return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("invalid value '" + value + "' for " + key, e);
+    }
+  }
+
+  public long getCap() { return cap; }
+
+  public PointsRounding getRounding() { return rounding; }
+
+  public PointsArithmetic getArithmetic() { return arithmetic; }
+
+  public PromoStacking getPromoStacking() { return promoStacking; }
+
+  /** Promos expiring within this many days get PROMO_EXPIRES_SOON. */
+  public int getNearExpiryDays() { return nearExpiryDays; }
+
+  public double cabinMultiplier(CabinClass cabin) {
+    return cabinMultipliers.getOrDefault(cabin, 1.0);
+  }
+
+  public double tierBonus(CustomerTier tier) {
+    return tierBonus.getOrDefault(tier, tier.bonusRate());
+  }
+
+  public static final class Builder {
+    private long cap = 50_000L;
+    private PointsRounding rounding = PointsRounding.FLOOR;
+    private PointsArithmetic arithmetic = PointsArithmetic.DOUBLE;
+    private PromoStacking promoStacking = PromoStacking.ADDITIVE;
+    private int nearExpiryDays = 2;
+    private final Map<CabinClass, Double> cabinMultipliers = new EnumMap<>(CabinClass.class);
+    private final Map<CustomerTier, Double> tierBonus = new EnumMap<>(CustomerTier.class);
+
+    private Builder() {
+    }
+
+    public Builder cap(long cap) {
+      if (cap <= 0) throw new IllegalArgumentException("points cap must be > 0");
+      this.cap = cap;
+      return this;
+    }
+
+    public Builder rounding(PointsRounding rounding) {
+      this.rounding = Objects.requireNonNull(rounding, "rounding");
+      return this;
+    }
+
+    /** With {@link PointsArithmetic#FIXED}, multipliers and bonus rates are used to 4 decimal places. */
+    public Builder arithmetic(PointsArithmetic arithmetic) {
+      this.arithmetic = Objects.requireNonNull(arithmetic, "arithmetic");
+      return this;
+    }
+
+    public Builder promoStacking(PromoStacking promoStacking) {
+      this.promoStacking = Objects.requireNonNull(promoStacking, "promoStacking");
+      return this;
+    }
+
+    public Builder nearExpiryDays(int days) {
+      if (days < 0) throw new IllegalArgumentException("near-expiry-days must be >= 0");
+      this.nearExpiryDays = days;
+      return this;
+    }
+
+    public Builder cabinMultiplier(CabinClass cabin, double multiplier) {
+      if (!(multiplier >= 0) || Double.isInfinite(multiplier)) {
+        throw new IllegalArgumentException("cabin multiplier for " + cabin + " must be >= 0");
+      }
+      cabinMultipliers.put(Objects.requireNonNull(cabin, "cabin"), multiplier);
+      return this;
+    }
+
+    public Builder tierBonus(CustomerTier tier, double rate) {
+      if (!(rate >= 0) || Double.isInfinite(rate)) {
+        throw new IllegalArgumentException("tier bonus for " + tier + " must be >= 0");
+      }
+      tierBonus.put(Objects.requireNonNull(tier, "tier"), rate);
+      return this;
+    }
+
+    public EarningRules build() {
+      return new EarningRules(this);
+    }
+  }
+}
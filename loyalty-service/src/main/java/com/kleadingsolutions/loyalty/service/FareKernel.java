@@ -0,0 +1,19 @@
+package com.kleadingsolutions.loyalty.service;
+
+/**
+ * One pass over a column of fares that share currency, tier, cabin and promo. Implementations
+ * must give exactly the results of {@link PointsCalculatorService#calculateInto} for each fare.
+ *
+ * @see FareKernels
+ */
+public interface FareKernel {
+
+  String name();
+
+  /**
+   * Fills {@code [from, to)} of the output columns. Fares are expected to be non-negative
+   * (the handlers reject anything else); {@code promoRate} is 0 when there is no promo.
+   */
+  void compute(EarningPlan plan, double[] fares, int from, int to, double fxRate, double cabinMultiplier, double tierRate,
+               double promoRate, long[] base, long[] tier, long[] promo, long[] total);
+}
@@ -0,0 +1,50 @@
+package com.kleadingsolutions.loyalty.service;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Picks the fare kernel once: the Vector API kernel when {@code jdk.incubator.vector} is resolved
+ * (run with {@code --add-modules jdk.incubator.vector}) and not disabled with
+ * {@code -Dloyalty.vector.disabled=true}, otherwise the scalar loop.
+ */
+public final class FareKernels {
+
+  private static final Logger LOGGER = Logger.getLogger(FareKernels.class.getName());
+  /** Below this many fares the vector kernel's setup costs more than it saves (see BatchQuoteBenchmark). */
+  public static final int VECTOR_MIN_BATCH = 64;
+  static final String VECTOR_MODULE = "jdk.incubator.vector";
+  static final String VECTOR_KERNEL_CLASS = "com.kleadingsolutions.loyalty.service.VectorFareKernel";
+
+  private static final FareKernel VECTOR = load(VECTOR_KERNEL_CLASS);
+  private static final FareKernel PREFERRED =
+          Boolean.getBoolean("loyalty.vector.disabled") || VECTOR == null ? ScalarFareKernel.INSTANCE : VECTOR;
+
+  private FareKernels() {
+  }
+
+  public static FareKernel preferred() {
+    return PREFERRED;
+  }
+
+  public static FareKernel scalar() {
+    return ScalarFareKernel.INSTANCE;
+  }
+
+  /** The Vector API kernel, or null when the incubator module is not available. */
+  public static FareKernel vector() {
+    return VECTOR;
+  }
+
+  static FareKernel load(String className) {
+    if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+      return null;
+    }
+    try {
+      return (FareKernel) Class.forName(className).getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+      LOGGER.log(Level.WARNING, "Vector fare kernel unavailable, using scalar: " + e);
+      return null;
+    }
+  }
+}
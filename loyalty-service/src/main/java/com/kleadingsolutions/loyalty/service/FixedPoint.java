@@ -0,0 +1,104 @@
+package com.kleadingsolutions.loyalty.service;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Currency;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Integer arithmetic for {@link PointsArithmetic#FIXED}: fares in minor units of their currency,
+ * FX rates in millionths ({@link #FX_SCALE}), cabin multipliers and bonus rates in ten-thousandths
+ * ({@link #FACTOR_SCALE}). Products are exact; the single division at the end of each step applies
+ * the plan's rounding mode. Products that do not fit in 64 bits (fares in the millions) take a
+ * {@link BigInteger} path with the same result.
+ */
+final class FixedPoint {
+
+  static final long FX_SCALE = 1_000_000L;
+  static final long FACTOR_SCALE = 10_000L;
+
+  private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L};
+  private static final int DEFAULT_FRACTION_DIGITS = 2;
+  private static final ConcurrentHashMap<String, Integer> FRACTION_DIGITS = new ConcurrentHashMap<>();
+
+  private FixedPoint() {
+  }
+
+  /** ISO 4217 minor unit digits (USD 2, JPY 0, BHD 3); 2 for unknown codes. */
+  static int fractionDigits(String currency) {
+    if (currency == null) {
+      return DEFAULT_FRACTION_DIGITS;
+    }
+    Integer digits = FRACTION_DIGITS.get(currency);
+    if (digits == null) {
+      digits = FRACTION_DIGITS.computeIfAbsent(currency, FixedPoint::lookupFractionDigits);
+    }
+    return digits;
+  }
+
+  private static int lookupFractionDigits(String currency) {
+    try {
+      int digits = Currency.getInstance(currency.toUpperCase(Locale.ROOT)).getDefaultFractionDigits();
+      return digits < 0 || digits >= POW10.length ? DEFAULT_FRACTION_DIGITS : digits;
+    } catch (IllegalArgumentException e) {
+      return DEFAULT_FRACTION_DIGITS;
+    }
+  }
+
+  static long pow10(int digits) {
+    return POW10[digits];
+  }
+
+  /**
+   * Nearest multiple of {@code 1 / scale}. A decimal with at most log10(scale) fraction digits
+   * parses to a double within far less than half a unit of it, so this recovers it exactly. Values
+   * with more digits than the scale holds are rounded half-up, not rejected: a fare of 123.456 USD
+   * is earned on as 12346 cents, the same as 123.46.
+   */
+  static long toScaled(double value, long scale) {
+    return Math.round(value * scale);
+  }
+
+  /** {@code round(a * b / divisor)} for non-negative operands, rounded per the plan's mode. */
+  static long mulDiv(long a, long b, long divisor, int rounding) {
+    long high = Math.multiplyHigh(a, b);
+    long product = a * b;
+    if (high != 0 || product < 0) {
+      return mulDivBig(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)), divisor, rounding);
+    }
+    return divide(product, divisor, rounding);
+  }
+
+  /** {@code round(a * b * c / divisor)} for non-negative operands. */
+  static long mulDiv(long a, long b, long c, long divisor, int rounding) {
+    long high = Math.multiplyHigh(a, b);
+    long ab = a * b;
+    if (high != 0 || ab < 0) {
+      return mulDivBig(BigInteger.valueOf(a).multiply(BigInteger.valueOf(b)).multiply(BigInteger.valueOf(c)), divisor, rounding);
+    }
+    return mulDiv(ab, c, divisor, rounding);
+  }
+
+  static long divide(long dividend, long divisor, int rounding) {
+    long quotient = dividend / divisor;
+    long remainder = dividend - quotient * divisor;
+    switch (rounding) {
+      case EarningPlan.ROUND_HALF_UP:
+        return remainder >= divisor - remainder ? quotient + 1 : quotient;
+      case EarningPlan.ROUND_CEILING:
+        return remainder != 0 ? quotient + 1 : quotient;
+      default:
+        return quotient;
+    }
+  }
+
+  private static long mulDivBig(BigInteger product, long divisor, int rounding) {
+    RoundingMode mode = rounding == EarningPlan.ROUND_HALF_UP ? RoundingMode.HALF_UP
+            : rounding == EarningPlan.ROUND_CEILING ? RoundingMode.CEILING : RoundingMode.FLOOR;
+    BigInteger quotient = new BigDecimal(product).divide(BigDecimal.valueOf(divisor), 0, mode).toBigIntegerExact();
+    // saturate like (long) Math.floor does for huge doubles; totals are capped anyway
+    return quotient.bitLength() < 64 ? quotient.longValue() : Long.MAX_VALUE;
+  }
+}
@@ -0,0 +1,11 @@
+package com.kleadingsolutions.loyalty.service;
+
+/**
+ * Number representation used for the points calculation.
+ */
+public enum PointsArithmetic {
+  /** {@code double} products; fast, but a product just below a whole point floors one point low. */
+  DOUBLE,
+  /** Fares in currency minor units, rates as scaled longs; exact for the decimal inputs. */
+  FIXED
+}
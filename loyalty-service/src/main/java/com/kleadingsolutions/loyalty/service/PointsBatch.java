@@ -0,0 +1,50 @@
+package com.kleadingsolutions.loyalty.service;
+
+import java.util.List;
+
+/**
+ * Columnar results for a batch of fares quoted with one shared context (currency, tier, cabin,
+ * promo): one {@code long[]} per component, valid up to {@link #size()}. Reusable for batches up
+ * to its capacity.
+ */
+public final class PointsBatch {
+
+  final long[] basePoints;
+  final long[] tierBonus;
+  final long[] promoBonus;
+  final long[] totalPoints;
+  int size;
+  double effectiveFxRate;
+  int warnings;
+  // per-fare result of the FIXED path, copied into the columns; one per buffer, so batches do not allocate
+  final PointsResult scratch = new PointsResult();
+
+  public PointsBatch(int capacity) {
+    basePoints = new long[capacity];
+    tierBonus = new long[capacity];
+    promoBonus = new long[capacity];
+    totalPoints = new long[capacity];
+  }
+
+  public int capacity() { return basePoints.length; }
+
+  public int size() { return size; }
+
+  public double getEffectiveFxRate() { return effectiveFxRate; }
+
+  /** Backing arrays; only the first {@link #size()} entries belong to the current batch. */
+  public long[] basePoints() { return basePoints; }
+
+  public long[] tierBonus() { return tierBonus; }
+
+  public long[] promoBonus() { return promoBonus; }
+
+  public long[] totalPoints() { return totalPoints; }
+
+  /** Warning bits shared by every fare of the batch (they only depend on the promo). */
+  public int getWarnings() { return warnings; }
+
+  public List<String> warningList() {
+    return PointsResult.warningList(warnings);
+  }
+}
@@ -4,48 +4,227 @@ import com.kleadingsolutions.loyalty.dto.Promo;
 import com.kleadingsolutions.loyalty.dto.QuoteRequest;
 import com.kleadingsolutions.loyalty.dto.QuoteResponse;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Thread-safe: one instance ({@link #shared()}) serves all requests. Earning rules come from
+ * {@code business} in {@code application-properties.yml} and can be replaced at runtime with
+ * {@link #setRules(EarningRules)}; each calculation reads the current plan once, so it never
+ * mixes two rule sets.
+ */
 public class PointsCalculatorService {
 
-  private static final long CAP = 50_000L;
-  private static final Map<String, Double> TIER_MULT = Map.of(
-          "NONE", 0.0,
-          "SILVER", 0.15,
-          "GOLD", 0.30,
-          "PLATINUM", 0.50
-  );
+  private static final PointsCalculatorService SHARED = new PointsCalculatorService();
+
+  private final AtomicReference<EarningPlan> plan;
+
+  public PointsCalculatorService() {
+    this(ConfiguredPlan.PLAN);
+  }
+
+  public PointsCalculatorService(EarningPlan plan) {
+    this.plan = new AtomicReference<>(Objects.requireNonNull(plan, "plan"));
+  }
+
+  public static PointsCalculatorService shared() {
+    return SHARED;
+  }
+
+  public EarningPlan plan() {
+    return plan.get();
+  }
+
+  /** Compiles {@code rules} and swaps them in; returns the plan that was replaced. */
+  public EarningPlan setRules(EarningRules rules) {
+    return setPlan(EarningPlan.compile(rules));
+  }
+
+  /** Swaps in an already compiled plan, e.g. one returned by {@link #setRules}; returns the plan that was replaced. */
+  public EarningPlan setPlan(EarningPlan next) {
+    return plan.getAndSet(Objects.requireNonNull(next, "plan"));
+  }
 
   public QuoteResponse calculate(QuoteRequest req, double effectiveFxRate, Promo promo) {
-    long basePoints = (long)Math.floor(req.getFareAmount() * effectiveFxRate);
+    return calculateInto(req, effectiveFxRate, promo, new PointsResult()).toResponse();
+  }
+
+  /** Uses the plan's {@link PointsArithmetic}; in FIXED mode the fare is taken in minor units of the request currency. */
+  public PointsResult calculateInto(QuoteRequest req, double effectiveFxRate, Promo promo, PointsResult out) {
+    CustomerTier tier = CustomerTier.parse(req.getCustomerTier());
+    CabinClass cabin = CabinClass.parse(req.getCabinClass());
+    EarningPlan p = plan.get();
+    if (p.arithmetic == EarningPlan.ARITH_FIXED) {
+      int digits = FixedPoint.fractionDigits(req.getCurrency());
+      return calculateFixedInto(p, FixedPoint.toScaled(req.getFareAmount(), FixedPoint.pow10(digits)), digits, tier, cabin,
+              effectiveFxRate, promo, out);
+    }
+    return calculateInto(p, req.getFareAmount(), tier, cabin, effectiveFxRate, promo, out);
+  }
+
+  /**
+   * Allocation-free core in {@code double} arithmetic: overwrites every field of {@code out} and
+   * returns it. A null cabin (not given or not recognised) earns a multiplier of 1.
+   */
+  public PointsResult calculateInto(double fareAmount, CustomerTier tier, CabinClass cabin, double effectiveFxRate,
+                                    Promo promo, PointsResult out) {
+    return calculateInto(plan.get(), fareAmount, tier, cabin, effectiveFxRate, promo, out);
+  }
 
-    String tierKey = (req.getCustomerTier() == null) ? "NONE" : req.getCustomerTier().toUpperCase();
-    double tierMult = TIER_MULT.getOrDefault(tierKey, 0.0);
-    long tierBonus = (long)Math.floor(basePoints * tierMult);
+  // the cores take the plan the caller read, so a rules swap mid-calculation cannot mix two plans
+  private static PointsResult calculateInto(EarningPlan p, double fareAmount, CustomerTier tier, CabinClass cabin,
+                                            double effectiveFxRate, Promo promo, PointsResult out) {
+    long basePoints = p.round(fareAmount * effectiveFxRate * p.cabinMultiplier(cabin));
+    long tierBonus = p.round(basePoints * p.tierBonus[tier.ordinal()]);
 
     long promoBonus = 0;
-    List<String> warnings = new ArrayList<>();
+    int warnings = 0;
     if (promo != null && promo.getPercent() > 0) {
-      promoBonus = (long)Math.floor(basePoints * promo.getPercent());
-      if (promo.getExpiresInDays() <= 2) {
-        warnings.add("PROMO_EXPIRES_SOON");
+      long promoBase = p.stacking == EarningPlan.STACK_COMPOUND ? basePoints + tierBonus : basePoints;
+      promoBonus = p.round(promoBase * promo.getPercent());
+      if (promo.getExpiresInDays() <= p.nearExpiryDays) {
+        warnings |= PointsResult.PROMO_EXPIRES_SOON;
+      }
+      if (p.stacking == EarningPlan.STACK_EXCLUSIVE) {
+        if (promoBonus > tierBonus) {
+          tierBonus = 0;
+        } else {
+          promoBonus = 0;
+        }
       }
     }
 
-    long total = basePoints + tierBonus + promoBonus;
-    if (total > CAP) {
-      total = CAP;
+    long total = Math.min(basePoints + tierBonus + promoBonus, p.cap);
+
+    out.basePoints = basePoints;
+    out.tierBonus = tierBonus;
+    out.promoBonus = promoBonus;
+    out.totalPoints = total;
+    out.effectiveFxRate = effectiveFxRate;
+    out.warnings = warnings;
+    return out;
+  }
+
+  /**
+   * Allocation-free core in fixed-point arithmetic ({@link PointsArithmetic#FIXED}), whatever the
+   * plan's mode: {@code fareMinorUnits} with {@code fractionDigits} decimals (12345 and 2 for 123.45),
+   * the FX rate to 6 decimals and promo percent, multipliers and bonus rates to 4. Each step is
+   * an exact integer product with one rounded division: 100.00 at 1.15 is 115 points, where the
+   * double product is 114.99999999999999 and floors to 114.
+   */
+  public PointsResult calculateFixedInto(long fareMinorUnits, int fractionDigits, CustomerTier tier, CabinClass cabin,
+                                         double effectiveFxRate, Promo promo, PointsResult out) {
+    return calculateFixedInto(plan.get(), fareMinorUnits, fractionDigits, tier, cabin, effectiveFxRate, promo, out);
+  }
+
+  private static PointsResult calculateFixedInto(EarningPlan p, long fareMinorUnits, int fractionDigits, CustomerTier tier,
+                                                 CabinClass cabin, double effectiveFxRate, Promo promo, PointsResult out) {
+    long fx = FixedPoint.toScaled(effectiveFxRate, FixedPoint.FX_SCALE);
+    long basePoints = FixedPoint.mulDiv(fareMinorUnits, fx, p.cabinMultiplierScaled[p.cabinIndex(cabin)],
+            FixedPoint.pow10(fractionDigits) * FixedPoint.FX_SCALE * FixedPoint.FACTOR_SCALE, p.rounding);
+    long tierBonus = FixedPoint.mulDiv(basePoints, p.tierBonusScaled[tier.ordinal()], FixedPoint.FACTOR_SCALE, p.rounding);
+
+    long promoBonus = 0;
+    int warnings = 0;
+    if (promo != null && promo.getPercent() > 0) {
+      long promoBase = p.stacking == EarningPlan.STACK_COMPOUND ? basePoints + tierBonus : basePoints;
+      promoBonus = FixedPoint.mulDiv(promoBase, FixedPoint.toScaled(promo.getPercent(), FixedPoint.FACTOR_SCALE),
+              FixedPoint.FACTOR_SCALE, p.rounding);
+      if (promo.getExpiresInDays() <= p.nearExpiryDays) {
+        warnings |= PointsResult.PROMO_EXPIRES_SOON;
+      }
+      if (p.stacking == EarningPlan.STACK_EXCLUSIVE) {
+        if (promoBonus > tierBonus) {
+          tierBonus = 0;
+        } else {
+          promoBonus = 0;
+        }
+      }
+    }
+
+    out.basePoints = basePoints;
+    out.tierBonus = tierBonus;
+    out.promoBonus = promoBonus;
+    out.totalPoints = Math.min(basePoints + tierBonus + promoBonus, p.cap);
+    out.effectiveFxRate = effectiveFxRate;
+    out.warnings = warnings;
+    return out;
+  }
+
+  /**
+   * Batch form of {@link #calculateInto(QuoteRequest, double, Promo, PointsResult)}: follows the
+   * plan's {@link PointsArithmetic}, with fares in {@code currency}.
+   */
+  public PointsBatch calculateBatch(String currency, double[] fareAmounts, int count, CustomerTier tier, CabinClass cabin,
+                                    double effectiveFxRate, Promo promo, PointsBatch out) {
+    EarningPlan p = plan.get();
+    if (p.arithmetic != EarningPlan.ARITH_FIXED) {
+      return calculateBatch(p, kernel(count), fareAmounts, count, tier, cabin, effectiveFxRate, promo, out);
+    }
+    if (count > out.capacity() || count > fareAmounts.length) {
+      throw new IllegalArgumentException("batch of " + count + " fares exceeds buffer capacity");
+    }
+    int digits = FixedPoint.fractionDigits(currency);
+    long unit = FixedPoint.pow10(digits);
+    PointsResult r = out.scratch;
+    out.warnings = 0;
+    for (int i = 0; i < count; i++) {
+      calculateFixedInto(p, FixedPoint.toScaled(fareAmounts[i], unit), digits, tier, cabin, effectiveFxRate, promo, r);
+      out.basePoints[i] = r.basePoints;
+      out.tierBonus[i] = r.tierBonus;
+      out.promoBonus[i] = r.promoBonus;
+      out.totalPoints[i] = r.totalPoints;
+      out.warnings = r.warnings;
+    }
+    out.size = count;
+    out.effectiveFxRate = effectiveFxRate;
+    return out;
+  }
+
+  /**
+   * Quotes {@code count} fares that share tier, cabin, FX rate and promo over columnar buffers
+   * in {@code double} arithmetic,
+   * using {@link FareKernels#preferred()} from {@link FareKernels#VECTOR_MIN_BATCH} fares up.
+   * Results are identical to calling {@link #calculateInto} per fare.
+   */
+  public PointsBatch calculateBatch(double[] fareAmounts, int count, CustomerTier tier, CabinClass cabin,
+                                    double effectiveFxRate, Promo promo, PointsBatch out) {
+    return calculateBatch(plan.get(), kernel(count), fareAmounts, count, tier, cabin, effectiveFxRate, promo, out);
+  }
+
+  public PointsBatch calculateBatch(FareKernel kernel, double[] fareAmounts, int count, CustomerTier tier, CabinClass cabin,
+                                    double effectiveFxRate, Promo promo, PointsBatch out) {
+    return calculateBatch(plan.get(), kernel, fareAmounts, count, tier, cabin, effectiveFxRate, promo, out);
+  }
+
+  private static FareKernel kernel(int count) {
+    return count < FareKernels.VECTOR_MIN_BATCH ? FareKernels.scalar() : FareKernels.preferred();
+  }
+
+  private static PointsBatch calculateBatch(EarningPlan p, FareKernel kernel, double[] fareAmounts, int count,
+                                            CustomerTier tier, CabinClass cabin, double effectiveFxRate, Promo promo,
+                                            PointsBatch out) {
+    if (count > out.capacity() || count > fareAmounts.length) {
+      throw new IllegalArgumentException("batch of " + count + " fares exceeds buffer capacity");
+    }
+    double promoRate = 0.0;
+    int warnings = 0;
+    if (promo != null && promo.getPercent() > 0) {
+      promoRate = promo.getPercent();
+      if (promo.getExpiresInDays() <= p.nearExpiryDays) {
+        warnings |= PointsResult.PROMO_EXPIRES_SOON;
+      }
     }
+    kernel.compute(p, fareAmounts, 0, count, effectiveFxRate, p.cabinMultiplier(cabin), p.tierBonus[tier.ordinal()],
+            promoRate, out.basePoints, out.tierBonus, out.promoBonus, out.totalPoints);
+    out.size = count;
+    out.effectiveFxRate = effectiveFxRate;
+    out.warnings = warnings;
+    return out;
+  }
 
-    QuoteResponse resp = new QuoteResponse();
-    resp.setBasePoints(basePoints);
-    resp.setTierBonus(tierBonus);
-    resp.setPromoBonus(promoBonus);
-    resp.setTotalPoints(total);
-    resp.setEffectiveFxRate(effectiveFxRate);
-    resp.setWarnings(warnings);
-    return resp;
+  // loaded once, on first use
+  private static final class ConfiguredPlan {
+    static final EarningPlan PLAN = EarningPlan.compile(EarningRules.fromClasspath());
   }
-}
\ No newline at end of file
+}
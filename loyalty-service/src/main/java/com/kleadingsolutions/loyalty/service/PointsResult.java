@@ -0,0 +1,78 @@
+package com.kleadingsolutions.loyalty.service;
+
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flat, mutable result of one calculation. Hot-path callers reuse one instance (e.g. per thread),
+ * so calculating does not allocate. Warnings are kept as bits and turned into a shared immutable
+ * list only when a {@link QuoteResponse} is built.
+ */
+public final class PointsResult {
+
+  public static final int PROMO_EXPIRES_SOON = 1;
+
+  private static final String[] WARNING_NAMES = {"PROMO_EXPIRES_SOON"};
+  // one immutable list per combination of warning bits
+  private static final List<List<String>> WARNING_LISTS = warningLists();
+
+  long basePoints;
+  long tierBonus;
+  long promoBonus;
+  long totalPoints;
+  double effectiveFxRate;
+  int warnings;
+
+  private static List<List<String>> warningLists() {
+    List<List<String>> lists = new ArrayList<>();
+    for (int bits = 0; bits < (1 << WARNING_NAMES.length); bits++) {
+      List<String> names = new ArrayList<>();
+      for (int i = 0; i < WARNING_NAMES.length; i++) {
+        if ((bits & (1 << i)) != 0) {
+          names.add(WARNING_NAMES[i]);
+        }
+      }
+      lists.add(List.copyOf(names));
+    }
+    return List.copyOf(lists);
+  }
+
+  public long getBasePoints() { return basePoints; }
+
+  public long getTierBonus() { return tierBonus; }
+
+  public long getPromoBonus() { return promoBonus; }
+
+  public long getTotalPoints() { return totalPoints; }
+
+  public double getEffectiveFxRate() { return effectiveFxRate; }
+
+  /** Warning bits, e.g. {@link #PROMO_EXPIRES_SOON}. */
+  public int getWarnings() { return warnings; }
+
+  public boolean hasWarning(int warning) {
+    return (warnings & warning) != 0;
+  }
+
+  /** Warning names as a shared immutable list (no allocation). */
+  public List<String> warningList() {
+    return warningList(warnings);
+  }
+
+  static List<String> warningList(int warnings) {
+    return WARNING_LISTS.get(warnings);
+  }
+
+  public QuoteResponse toResponse() {
+    QuoteResponse resp = new QuoteResponse();
+    resp.setBasePoints(basePoints);
+    resp.setTierBonus(tierBonus);
+    resp.setPromoBonus(promoBonus);
+    resp.setTotalPoints(totalPoints);
+    resp.setEffectiveFxRate(effectiveFxRate);
+    resp.setWarnings(warningList());
+    return resp;
+  }
+}
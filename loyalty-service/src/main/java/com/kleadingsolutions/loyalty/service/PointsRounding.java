@@ -0,0 +1,10 @@
+package com.kleadingsolutions.loyalty.service;
+
+/**
+ * How fractional points are turned into whole points (applied to base, tier and promo points).
+ */
+public enum PointsRounding {
+  FLOOR,
+  HALF_UP,
+  CEILING
+}
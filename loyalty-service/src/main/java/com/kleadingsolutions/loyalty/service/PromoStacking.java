@@ -0,0 +1,13 @@
+package com.kleadingsolutions.loyalty.service;
+
+/**
+ * How a promo bonus combines with the tier bonus.
+ */
+public enum PromoStacking {
+  /** Tier and promo bonus are both a share of base points. */
+  ADDITIVE,
+  /** Promo percent applies to base points plus tier bonus. */
+  COMPOUND,
+  /** Only the larger of tier and promo bonus is granted. */
+  EXCLUSIVE
+}
@@ -0,0 +1,40 @@
+package com.kleadingsolutions.loyalty.service;
+
+/**
+ * Plain loop; used when the Vector API is not available and for the tail of a vector pass.
+ */
+final class ScalarFareKernel implements FareKernel {
+
+  static final ScalarFareKernel INSTANCE = new ScalarFareKernel();
+
+  private ScalarFareKernel() {
+  }
+
+  @Override
+  public String name() {
+    return "scalar";
+  }
+
+  @Override
+  public void compute(EarningPlan plan, double[] fares, int from, int to, double fxRate, double cabinMultiplier, double tierRate,
+                      double promoRate, long[] base, long[] tier, long[] promo, long[] total) {
+    boolean compound = plan.stacking == EarningPlan.STACK_COMPOUND;
+    boolean exclusive = plan.stacking == EarningPlan.STACK_EXCLUSIVE;
+    for (int i = from; i < to; i++) {
+      long b = plan.round(fares[i] * fxRate * cabinMultiplier);
+      long t = plan.round(b * tierRate);
+      long p = plan.round((compound ? b + t : b) * promoRate);
+      if (exclusive) {
+        if (p > t) {
+          t = 0;
+        } else {
+          p = 0;
+        }
+      }
+      base[i] = b;
+      tier[i] = t;
+      promo[i] = p;
+      total[i] = Math.min(b + t + p, plan.cap);
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package com.kleadingsolutions.loyalty.service;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * JDK Vector API (incubator) version of {@link ScalarFareKernel}. Only loaded by
+ * {@link FareKernels} when {@code jdk.incubator.vector} is in the boot layer
+ * ({@code --add-modules jdk.incubator.vector}).
+ *
+ * Written for what JDK 17's C2 can keep in registers; anything else makes it box every vector:
+ * <ul>
+ *   <li>no double/long lane conversion (not intrinsified on x86): arithmetic stays in double
+ *   lanes, where whole numbers below 2^51 are exact, and moves to and from long lanes by
+ *   reinterpreting the bits of {@code v + 1.5 * 2^52};</li>
+ *   <li>no branches on vector values: rule switches are lane masks and scalar factors;</li>
+ *   <li>small compilation units: one pass per column, each compiled separately.</li>
+ * </ul>
+ * Batches that could leave {@code [0, 2^50)} (negative, NaN or huge fares) go to the scalar kernel.
+ */
+final class VectorFareKernel implements FareKernel {
+
+  private static final VectorSpecies<Double> D = DoubleVector.SPECIES_PREFERRED;
+  // same bit size as D, hence the same lane count
+  private static final VectorSpecies<Long> L = LongVector.SPECIES_PREFERRED;
+  private static final double MAGIC = 0x1.8p52;
+  private static final long MAGIC_BITS = Double.doubleToRawLongBits(MAGIC);
+  private static final double EXACT_LIMIT = 0x1p50;
+  private static final DoubleVector ZERO = DoubleVector.zero(D);
+
+  @Override
+  public String name() {
+    return "vector-" + D.length() + "x64";
+  }
+
+  @Override
+  public void compute(EarningPlan plan, double[] fares, int from, int to, double fxRate, double cabinMultiplier,
+                      double tierRate, double promoRate, long[] base, long[] tier, long[] promo, long[] total) {
+    int upper = from + D.loopBound(to - from);
+    if (upper > from && exact(fares, from, to, fxRate * cabinMultiplier, tierRate, promoRate)) {
+      Columns c = new Columns(plan, fares, from, upper, fxRate, cabinMultiplier, tierRate, promoRate, base, tier, promo, total);
+      for (Pass pass : PASSES) {
+        pass.run(c);
+      }
+    } else {
+      upper = from;
+    }
+    if (upper < to) {
+      ScalarFareKernel.INSTANCE.compute(plan, fares, upper, to, fxRate, cabinMultiplier, tierRate, promoRate, base, tier, promo, total);
+    }
+  }
+
+  /**
+   * Whether every intermediate value stays a whole number in [0, 2^50) for this batch: no negative
+   * or NaN input, and the largest fare times every factor it can be multiplied by below the limit.
+   */
+  static boolean exact(double[] fares, int from, int to, double rate, double tierRate, double promoRate) {
+    if (!(rate >= 0) || !(tierRate >= 0) || !(promoRate >= 0)) {
+      return false;
+    }
+    double max = 0.0;
+    for (int i = from; i < to; i++) {
+      double fare = fares[i];
+      if (!(fare >= 0)) {
+        return false;
+      }
+      max = Math.max(max, fare);
+    }
+    // + 2 covers rounding up at each step
+    return (max * rate + 2) * (1 + tierRate) * (1 + promoRate) + 2 < EXACT_LIMIT;
+  }
+
+  /** Arguments of one {@link #compute} call, shared by the passes. */
+  private static final class Columns {
+    final double[] fares;
+    final int from;
+    final int upper;
+    final double fxRate;
+    final double cabinMultiplier;
+    final double tierRate;
+    final double promoRate;
+    // ceil(x) == -floor(-x)
+    final double sign;
+    final double offset;
+    final int stacking;
+    final long cap;
+    final long[] base;
+    final long[] tier;
+    final long[] promo;
+    final long[] total;
+
+    Columns(EarningPlan plan, double[] fares, int from, int upper, double fxRate, double cabinMultiplier, double tierRate,
+            double promoRate, long[] base, long[] tier, long[] promo, long[] total) {
+      this.fares = fares;
+      this.from = from;
+      this.upper = upper;
+      this.fxRate = fxRate;
+      this.cabinMultiplier = cabinMultiplier;
+      this.tierRate = tierRate;
+      this.promoRate = promoRate;
+      this.sign = plan.rounding == EarningPlan.ROUND_CEILING ? -1.0 : 1.0;
+      this.offset = plan.rounding == EarningPlan.ROUND_HALF_UP ? 0.5 : 0.0;
+      this.stacking = plan.stacking;
+      this.cap = plan.cap;
+      this.base = base;
+      this.tier = tier;
+      this.promo = promo;
+      this.total = total;
+    }
+  }
+
+  private interface Pass {
+    void run(Columns c);
+  }
+
+  // Called through one megamorphic call site, so C2 compiles every pass on its own instead of
+  // inlining all of them into compute(), which exceeds its node budget and makes it box vectors.
+  private static final Pass[] PASSES = {VectorFareKernel::basePass, VectorFareKernel::tierPass, VectorFareKernel::promoPass};
+
+  private static void basePass(Columns c) {
+    double fxRate = c.fxRate;
+    double cabinMultiplier = c.cabinMultiplier;
+    double sign = c.sign;
+    double offset = c.offset;
+    double[] fares = c.fares;
+    long[] base = c.base;
+    for (int i = c.from; i < c.upper; i += D.length()) {
+      DoubleVector x = DoubleVector.fromArray(D, fares, i).mul(fxRate).mul(cabinMultiplier);
+      toLong(round(x, sign, offset)).intoArray(base, i);
+    }
+  }
+
+  private static void tierPass(Columns c) {
+    double tierRate = c.tierRate;
+    double sign = c.sign;
+    double offset = c.offset;
+    long[] base = c.base;
+    long[] tier = c.tier;
+    for (int i = c.from; i < c.upper; i += D.length()) {
+      toLong(round(fromLong(base, i).mul(tierRate), sign, offset)).intoArray(tier, i);
+    }
+  }
+
+  /** Promo bonus, exclusive stacking (larger bonus wins, tier on a tie) and the capped total. */
+  private static void promoPass(Columns c) {
+    double promoRate = c.promoRate;
+    double sign = c.sign;
+    double offset = c.offset;
+    double compound = c.stacking == EarningPlan.STACK_COMPOUND ? 1.0 : 0.0;
+    VectorMask<Double> exclusive = D.maskAll(c.stacking == EarningPlan.STACK_EXCLUSIVE);
+    double cap = c.cap;
+    long[] base = c.base;
+    long[] tier = c.tier;
+    long[] promo = c.promo;
+    long[] total = c.total;
+    for (int i = c.from; i < c.upper; i += D.length()) {
+      DoubleVector b = fromLong(base, i);
+      DoubleVector t = fromLong(tier, i);
+      DoubleVector p = round(b.add(t.mul(compound)).mul(promoRate), sign, offset);
+      VectorMask<Double> promoWins = p.compare(VectorOperators.GT, t);
+      t = t.blend(ZERO, promoWins.and(exclusive));
+      p = p.blend(ZERO, promoWins.not().and(exclusive));
+      toLong(t).intoArray(tier, i);
+      toLong(p).intoArray(promo, i);
+      toLong(b.add(t).add(p).min(cap)).intoArray(total, i);
+    }
+  }
+
+  /**
+   * {@link EarningPlan#round} for {@code |x| < 2^50}: {@code sign * floor(sign * x + offset)}.
+   * Adding and removing 1.5 * 2^52 rounds to the nearest whole number, then one is taken off
+   * where that went up.
+   */
+  private static DoubleVector round(DoubleVector x, double sign, double offset) {
+    DoubleVector z = x.mul(sign).add(offset);
+    DoubleVector r = z.add(MAGIC).sub(MAGIC);
+    return r.sub(ZERO.blend(1.0, r.compare(VectorOperators.GT, z))).mul(sign);
+  }
+
+  /** Whole number in [0, 2^51) to long: its bits are the low mantissa bits of v + 1.5 * 2^52. */
+  private static LongVector toLong(DoubleVector v) {
+    return ((LongVector) v.add(MAGIC).viewAsIntegralLanes()).sub(MAGIC_BITS);
+  }
+
+  private static DoubleVector fromLong(long[] a, int i) {
+    return ((DoubleVector) LongVector.fromArray(L, a, i).add(MAGIC_BITS).viewAsFloatingLanes()).sub(MAGIC);
+  }
+}
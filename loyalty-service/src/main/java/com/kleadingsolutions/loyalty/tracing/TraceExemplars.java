@@ -0,0 +1,30 @@
+package com.kleadingsolutions.loyalty.tracing;
+
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.prometheus.client.exemplars.tracer.common.SpanContextSupplier;
+
+/**
+ * Links Prometheus histogram samples to traces: a value recorded while a sampled span is current
+ * can become the bucket's exemplar ({@code # {trace_id="...",span_id="..."}} in the OpenMetrics
+ * output). The quote handlers make the request span current when they record their timers.
+ */
+public final class TraceExemplars implements SpanContextSupplier {
+
+  @Override
+  public String getTraceId() {
+    SpanContext context = Span.current().getSpanContext();
+    return context.isValid() ? context.getTraceId() : null;
+  }
+
+  @Override
+  public String getSpanId() {
+    SpanContext context = Span.current().getSpanContext();
+    return context.isValid() ? context.getSpanId() : null;
+  }
+
+  @Override
+  public boolean isSampled() {
+    return Span.current().getSpanContext().isSampled();
+  }
+}
@@ -0,0 +1,120 @@
+package com.kleadingsolutions.loyalty.tracing;
+
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.context.propagation.TextMapPropagator;
+import io.opentelemetry.exporter.otlp.trace.OtlpGrpcSpanExporter;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * The service's OpenTelemetry tracer and W3C trace context propagator. {@link #NOOP} (tracing off)
+ * makes every span operation a no-op; handlers and clients check {@link #isEnabled()} first so
+ * that path allocates nothing.
+ *
+ * {@link #create} builds an SDK that batches spans to an OTLP/gRPC endpoint, sampling with
+ * {@link #sampler}: parent-based, so a sampled (or unsampled) incoming traceparent is followed,
+ * and trace-id-ratio for traces that start here. Ratio sampling on the trace id gives the same
+ * decision in every service; with a ratio of 1.0 all spans reach the collector, whose tail sampling
+ * keeps errors and slow traces (see otel-collector-config.yaml).
+ */
+public final class Tracing implements AutoCloseable {
+
+  private static final Logger LOGGER = Logger.getLogger(Tracing.class.getName());
+
+  public static final String INSTRUMENTATION_SCOPE = "com.kleadingsolutions.loyalty";
+  static final String DEFAULT_SERVICE_NAME = "loyalty-service";
+
+  public static final Tracing NOOP = new Tracing(OpenTelemetry.noop(), null);
+
+  private final Tracer tracer;
+  private final TextMapPropagator propagator;
+  private final SdkTracerProvider ownedProvider;
+  private final boolean enabled;
+
+  private Tracing(OpenTelemetry openTelemetry, SdkTracerProvider ownedProvider) {
+    this.tracer = openTelemetry.getTracer(INSTRUMENTATION_SCOPE);
+    this.propagator = openTelemetry.getPropagators().getTextMapPropagator();
+    this.ownedProvider = ownedProvider;
+    this.enabled = openTelemetry != OpenTelemetry.noop();
+  }
+
+  /** Uses an SDK configured elsewhere (tests, benchmarks); {@link #close()} leaves it running. */
+  public static Tracing of(OpenTelemetry openTelemetry) {
+    return new Tracing(openTelemetry, null);
+  }
+
+  /**
+   * Tracing for {@code config}; the endpoint and service name fall back to the standard
+   * {@code OTEL_EXPORTER_OTLP_ENDPOINT} and {@code OTEL_SERVICE_NAME} variables in {@code env}.
+   * Returns {@link #NOOP} when no endpoint is configured.
+   */
+  public static Tracing create(LoyaltyConfig.Tracing config, Map<String, String> env) {
+    String endpoint = firstNonBlank(config.otlpEndpoint(), env.get("OTEL_EXPORTER_OTLP_ENDPOINT"));
+    if (endpoint == null) {
+      return NOOP;
+    }
+    String serviceName = firstNonBlank(config.serviceName(), env.get("OTEL_SERVICE_NAME"));
+    SdkTracerProvider provider = SdkTracerProvider.builder()
+            .setResource(Resource.getDefault().merge(Resource.create(Attributes.of(
+                    AttributeKey.stringKey("service.name"), serviceName == null ? DEFAULT_SERVICE_NAME : serviceName))))
+            .setSampler(sampler(config.sampleRatio()))
+            .addSpanProcessor(BatchSpanProcessor.builder(OtlpGrpcSpanExporter.builder().setEndpoint(endpoint).build()).build())
+            .build();
+    OpenTelemetrySdk sdk = OpenTelemetrySdk.builder()
+            .setTracerProvider(provider)
+            .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+            .build();
+    LOGGER.info("tracing enabled, exporting to " + endpoint + " with sample ratio " + config.sampleRatio());
+    return new Tracing(sdk, provider);
+  }
+
+  public static Sampler sampler(double ratio) {
+    return Sampler.parentBased(Sampler.traceIdRatioBased(ratio));
+  }
+
+  private static String firstNonBlank(String first, String second) {
+    if (first != null && !first.isBlank()) return first.trim();
+    if (second != null && !second.isBlank()) return second.trim();
+    return null;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public Tracer tracer() {
+    return tracer;
+  }
+
+  public TextMapPropagator propagator() {
+    return propagator;
+  }
+
+  /** Starts flushing and stopping the exporter created by {@link #create}, without waiting (event loop safe). */
+  public void shutdown() {
+    if (ownedProvider != null) {
+      ownedProvider.shutdown();
+    }
+  }
+
+  /** Flushes and stops the exporter created by {@link #create}, waiting up to 5 seconds. */
+  @Override
+  public void close() {
+    if (ownedProvider != null) {
+      ownedProvider.shutdown().join(5, TimeUnit.SECONDS);
+    }
+  }
+}
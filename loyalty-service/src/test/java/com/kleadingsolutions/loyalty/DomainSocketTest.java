@@ -0,0 +1,123 @@
+package com.kleadingsolutions.loyalty;
+
+import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.net.SocketAddress;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+public class DomainSocketTest {
+
+  private static final String QUOTE = "{\"fareAmount\":1234.50,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\"}";
+
+  @TempDir
+  Path dir;
+
+  private Vertx vertx;
+  private WebClient client;
+
+  @AfterEach
+  void teardown() throws Exception {
+    System.clearProperty("http.actual.port");
+    if (vertx != null) {
+      vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  private void nativeVertx() {
+    vertx = Vertx.vertx(new VertxOptions().setPreferNativeTransport(true));
+    assumeTrue(vertx.isNativeTransportEnabled(), "needs epoll or kqueue");
+    client = WebClient.create(vertx);
+  }
+
+  private void deploy(String yaml, Path socket) throws Exception {
+    Properties props = new Properties();
+    props.setProperty("http.port", "0");
+    props.setProperty("http.domain.socket", socket.toString());
+    LoyaltyConfig config = LoyaltyConfig.fromYaml(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)), props);
+    await(vertx.deployVerticle(new MainVerticle(new StubFxClient(), new StubPromoClient(),
+            new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), ConfigStore.of(config))));
+  }
+
+  private HttpResponse<Buffer> send(SocketAddress server, HttpMethod method, String path, String body) throws Exception {
+    HttpRequest<Buffer> request = client.request(method, server, new RequestOptions().setHost("localhost").setURI(path))
+            .putHeader("content-type", "application/json");
+    return await(body == null ? request.send() : request.sendBuffer(Buffer.buffer(body)));
+  }
+
+  @Test
+  void quotes_are_served_on_the_socket_and_the_tcp_port() throws Exception {
+    nativeVertx();
+    Path socket = dir.resolve("loyalty.sock");
+    deploy("", socket);
+
+    HttpResponse<Buffer> uds = send(SocketAddress.domainSocketAddress(socket.toString()), HttpMethod.POST, "/v1/points/quote", QUOTE);
+    int port = Integer.parseInt(System.getProperty("http.actual.port"));
+    HttpResponse<Buffer> tcp = send(SocketAddress.inetSocketAddress(port, "localhost"), HttpMethod.POST, "/v1/points/quote", QUOTE);
+
+    assertThat(uds.statusCode()).isEqualTo(200);
+    assertThat(tcp.statusCode()).isEqualTo(200);
+    assertThat(uds.bodyAsJsonObject().getLong("totalPoints")).isPositive().isEqualTo(tcp.bodyAsJsonObject().getLong("totalPoints"));
+  }
+
+  @Test
+  void socket_only_warms_up_over_the_socket_and_replaces_a_stale_file() throws Exception {
+    nativeVertx();
+    Path socket = dir.resolve("loyalty.sock");
+    Files.writeString(socket, "left over by a previous run");
+    deploy("server: { tcp: { enabled: false } }\nruntime: { warmup: { quotes: 50 } }", socket);
+
+    assertThat(System.getProperty("http.actual.port")).isNull();
+    SocketAddress address = SocketAddress.domainSocketAddress(socket.toString());
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    HttpResponse<Buffer> ready;
+    while ((ready = send(address, HttpMethod.GET, "/ready", null)).statusCode() != 200 && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    JsonObject warmup = ready.bodyAsJsonObject().getJsonObject("warmup");
+    assertThat(ready.statusCode()).isEqualTo(200);
+    assertThat(warmup.getInteger("completed")).isEqualTo(50);
+    assertThat(warmup.getInteger("failed")).isZero();
+  }
+
+  @Test
+  void without_a_native_transport_start_fails() {
+    vertx = Vertx.vertx();
+
+    assertThatThrownBy(() -> deploy("", dir.resolve("loyalty.sock")))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("server.domain-socket.path needs a native transport");
+  }
+
+  private static <T> T await(Future<T> future) throws Exception {
+    return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+  }
+}
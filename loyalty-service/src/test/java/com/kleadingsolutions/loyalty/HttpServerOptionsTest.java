@@ -0,0 +1,171 @@
+package com.kleadingsolutions.loyalty;
+
+import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpClientOptions;
+import io.vertx.core.http.HttpClientResponse;
+import io.vertx.core.http.HttpMethod;
+import io.vertx.core.http.HttpVersion;
+import io.vertx.core.http.RequestOptions;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HttpServerOptionsTest {
+
+  private static final String QUOTE = "{\"fareAmount\":1234.50,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\"}";
+
+  private static final char[] PASSWORD = "changeit".toCharArray();
+
+  @TempDir
+  Path dir;
+
+  private Vertx vertx;
+  private int port;
+
+  @BeforeEach
+  void setup() {
+    vertx = Vertx.vertx();
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    System.clearProperty("http.actual.port");
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  private void deploy(String yaml, Properties props) throws Exception {
+    props.setProperty("http.port", "0");
+    LoyaltyConfig config = LoyaltyConfig.fromYaml(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)), props);
+    await(vertx.deployVerticle(new MainVerticle(new StubFxClient(), new StubPromoClient(),
+            new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), ConfigStore.of(config))));
+    port = Integer.parseInt(System.getProperty("http.actual.port"));
+  }
+
+  private HttpClientResponse post(HttpClient client, String path, String body, String... headers) throws Exception {
+    RequestOptions options = new RequestOptions().setMethod(HttpMethod.POST).setHost("localhost").setPort(port).setURI(path)
+            .putHeader("content-type", "application/json");
+    for (int i = 0; i < headers.length; i += 2) {
+      options.putHeader(headers[i], headers[i + 1]);
+    }
+    return await(client.request(options)
+            .compose(req -> req.send(Buffer.buffer(body)))
+            .compose(response -> response.body().map(response)));
+  }
+
+  @Test
+  void h2c_prior_knowledge_is_served_with_the_configured_stream_limit() throws Exception {
+    deploy("server: { http2: { max-concurrent-streams: 64 } }", new Properties());
+    HttpClient client = vertx.createHttpClient(new HttpClientOptions()
+            .setProtocolVersion(HttpVersion.HTTP_2)
+            .setHttp2ClearTextUpgrade(false));
+
+    HttpClientResponse response = post(client, "/v1/points/quote", QUOTE);
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.version()).isEqualTo(HttpVersion.HTTP_2);
+    assertThat(response.request().connection().remoteSettings().getMaxConcurrentStreams()).isEqualTo(64);
+
+    HttpClientResponse http1 = post(vertx.createHttpClient(), "/v1/points/quote", QUOTE);
+    assertThat(http1.statusCode()).isEqualTo(200);
+    assertThat(http1.version()).isEqualTo(HttpVersion.HTTP_1_1);
+  }
+
+  @Test
+  void with_a_certificate_alpn_negotiates_h2_or_http1() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("tls.cert", pem(dir.resolve("cert.pem"), "CERTIFICATE", keyStore().getCertificate("server").getEncoded()));
+    props.setProperty("tls.key", pem(dir.resolve("key.pem"), "PRIVATE KEY", keyStore().getKey("server", PASSWORD).getEncoded()));
+    deploy("", props);
+    HttpClientOptions tls = new HttpClientOptions().setSsl(true).setUseAlpn(true).setTrustAll(true).setVerifyHost(false);
+
+    HttpClientResponse h2 = post(vertx.createHttpClient(new HttpClientOptions(tls).setProtocolVersion(HttpVersion.HTTP_2)),
+            "/v1/points/quote", QUOTE);
+    HttpClientResponse http1 = post(vertx.createHttpClient(tls), "/v1/points/quote", QUOTE);
+
+    assertThat(h2.statusCode()).isEqualTo(200);
+    assertThat(h2.version()).isEqualTo(HttpVersion.HTTP_2);
+    assertThat(http1.statusCode()).isEqualTo(200);
+    assertThat(http1.version()).isEqualTo(HttpVersion.HTTP_1_1);
+  }
+
+  @Test
+  void compression_skips_responses_below_min_size() throws Exception {
+    deploy("server: { compression: { enabled: true, min-size: 1024 } }", new Properties());
+    HttpClient client = vertx.createHttpClient();
+    JsonArray fares = new JsonArray();
+    for (int i = 0; i < 200; i++) {
+      fares.add(100.0 + i);
+    }
+    String batch = new JsonObject().put("currency", "USD").put("cabinClass", "ECONOMY").put("fareAmounts", fares).encode();
+
+    HttpClientResponse single = post(client, "/v1/points/quote", QUOTE, "accept-encoding", "gzip");
+    HttpClientResponse large = post(client, "/v1/points/quote/batch", batch, "accept-encoding", "gzip");
+
+    assertThat(single.statusCode()).isEqualTo(200);
+    assertThat(single.getHeader("content-encoding")).isNull();
+    assertThat(large.statusCode()).isEqualTo(200);
+    assertThat(large.getHeader("content-encoding")).isEqualTo("gzip");
+  }
+
+  @Test
+  void oversized_headers_are_rejected() throws Exception {
+    deploy("server: { max-header-size: 1024 }", new Properties());
+
+    HttpClientResponse response = post(vertx.createHttpClient(), "/v1/points/quote", QUOTE, "x-padding", "p".repeat(2000));
+
+    assertThat(response.statusCode()).isEqualTo(431);
+  }
+
+  /** A self-signed localhost key pair from keytool, in PKCS#12. */
+  private KeyStore keyStore() throws Exception {
+    Path file = dir.resolve("server.p12");
+    if (!Files.exists(file)) {
+      Process keytool = new ProcessBuilder(Path.of(System.getProperty("java.home"), "bin", "keytool").toString(),
+              "-genkeypair", "-alias", "server", "-keyalg", "EC", "-dname", "CN=localhost", "-validity", "1",
+              "-storetype", "PKCS12", "-keystore", file.toString(), "-storepass", new String(PASSWORD))
+              .redirectErrorStream(true).start();
+      assertThat(keytool.waitFor(30, TimeUnit.SECONDS)).isTrue();
+      assertThat(keytool.exitValue()).isZero();
+    }
+    KeyStore store = KeyStore.getInstance("PKCS12");
+    try (InputStream in = Files.newInputStream(file)) {
+      store.load(in, PASSWORD);
+    }
+    return store;
+  }
+
+  private static String pem(Path file, String type, byte[] der) throws Exception {
+    Files.writeString(file, "-----BEGIN " + type + "-----\n"
+            + Base64.getMimeEncoder(64, "\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(der)
+            + "\n-----END " + type + "-----\n");
+    return file.toString();
+  }
+
+  private static <T> T await(Future<T> future) throws Exception {
+    return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+  }
+}
@@ -2,6 +2,9 @@ package com.kleadingsolutions.loyalty;
 
 import com.kleadingsolutions.loyalty.client.FxClient;
 import com.kleadingsolutions.loyalty.client.PromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.service.EarningPlan;
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.micrometer.prometheus.PrometheusConfig;
@@ -12,10 +15,15 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 
 import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 
 public class MainVerticleConstructorAndStartTest {
@@ -29,6 +37,56 @@ public class MainVerticleConstructorAndStartTest {
     System.clearProperty("promo.base.url");
     System.clearProperty("http.port");
     System.clearProperty("http.actual.port");
+    System.clearProperty(ConfigStore.CONFIG_FILE_PROPERTY);
+    System.clearProperty("access.log.file");
+  }
+
+  private static void await(io.vertx.core.Future<?> future) throws Exception {
+    future.toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  private static void write(Path file, String currency, long modifiedMillis) throws Exception {
+    Files.writeString(file, "business: { currencies: [" + currency + "] }\nruntime: { config: { reload-interval-ms: 20 } }");
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+  }
+
+  @Test
+  public void instances_share_one_config_store_and_rules_listener() throws Exception {
+    Path file = Files.createTempFile("loyalty", ".yml");
+    write(file, "USD", 1_000_000L);
+    System.setProperty(ConfigStore.CONFIG_FILE_PROPERTY, file.toString());
+    System.setProperty("http.port", "0");
+    PointsCalculatorService calc = PointsCalculatorService.shared();
+    EarningPlan bundled = calc.plan();
+
+    Vertx vertx = Vertx.vertx();
+    try {
+      MainVerticle first = new MainVerticle();
+      MainVerticle second = new MainVerticle();
+      String firstId = vertx.deployVerticle(first).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+      String secondId = vertx.deployVerticle(second).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+      assertThat(second.getConfig()).isSameAs(first.getConfig());
+      EarningPlan fromFile = calc.plan();
+      assertThat(fromFile).isNotSameAs(bundled);
+
+      // the watch outlives the deployment that loaded the file
+      await(vertx.undeploy(firstId));
+      write(file, "EUR", 2_000_000L);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (!second.getConfig().current().getAllowedCurrencies().contains("EUR") && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(second.getConfig().current().getAllowedCurrencies()).containsExactly("EUR");
+      assertThat(calc.plan()).isNotSameAs(fromFile);
+
+      // the last instance puts the bundled rules back
+      await(vertx.undeploy(secondId));
+      assertThat(calc.plan()).isSameAs(bundled);
+    } finally {
+      calc.setPlan(bundled);
+      vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+      Files.deleteIfExists(file);
+    }
   }
 
   /**
@@ -36,6 +94,36 @@ public class MainVerticleConstructorAndStartTest {
    * Deploying ensures fields are populated whether initialization happens
    * in the constructor or in start().
    */
+  @Test
+  void a_failed_listen_releases_what_start_opened() throws Exception {
+    Path dir = Files.createTempDirectory("loyalty-start");
+    System.setProperty("access.log.file", dir.resolve("failed-start.log").toString());
+    Vertx vertx = Vertx.vertx();
+    try (ServerSocket busy = new ServerSocket(0)) {
+      System.setProperty("http.port", String.valueOf(busy.getLocalPort()));
+      MainVerticle verticle = new MainVerticle();
+      assertThatThrownBy(() -> await(vertx.deployVerticle(verticle))).hasMessageContaining("Address already in use");
+
+      // the access-log drainer stops, and the next start loads a fresh shared config
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (drainerRunning() && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(drainerRunning()).isFalse();
+      System.setProperty("http.port", "0");
+      MainVerticle next = new MainVerticle();
+      await(vertx.deployVerticle(next));
+      assertThat(next.getConfig()).isNotSameAs(verticle.getConfig());
+    } finally {
+      vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  private static boolean drainerRunning() {
+    return Thread.getAllStackTraces().keySet().stream()
+            .anyMatch(t -> t.getName().equals("loyalty-access-log-failed-start.log") && t.isAlive());
+  }
+
   @Test
   public void defaultConstructor_usesStubClients_when_no_props() throws Exception {
     // ensure no props
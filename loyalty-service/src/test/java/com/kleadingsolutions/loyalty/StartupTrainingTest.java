@@ -0,0 +1,28 @@
+package com.kleadingsolutions.loyalty;
+
+import com.kleadingsolutions.loyalty.metrics.StartupMetrics;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupTrainingTest {
+
+  @Test
+  void training_run_serves_quotes_against_its_own_stubs_and_undeploys() throws Exception {
+    Vertx vertx = Vertx.vertx();
+    try {
+      int quotes = StartupTraining.run(vertx, 1);
+
+      assertThat(quotes).isEqualTo(StartupTraining.CURRENCIES.length
+              * (StartupTraining.CABINS.length * StartupTraining.TIERS.length + 1));
+      assertThat(StartupMetrics.firstQuoteMillis()).isNotNegative();
+      assertThat(vertx.deploymentIDs()).isEmpty();
+      assertThat(System.getProperty("http.actual.port")).isNull();
+    } finally {
+      vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+  }
+}
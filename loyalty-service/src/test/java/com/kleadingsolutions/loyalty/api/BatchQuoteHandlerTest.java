@@ -0,0 +1,175 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kleadingsolutions.loyalty.client.FxClient;
+import com.kleadingsolutions.loyalty.client.PromoClient;
+import com.kleadingsolutions.loyalty.dto.Promo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RequestBody;
+import io.vertx.ext.web.RoutingContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.MockitoAnnotations;
+
+import java.util.StringJoiner;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class BatchQuoteHandlerTest {
+
+    @Mock RoutingContext ctx;
+    @Mock HttpServerResponse response;
+    @Mock FxClient fxClient;
+    @Mock PromoClient promoClient;
+    @Mock RequestBody requestBody;
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        doReturn(response).when(ctx).response();
+        doReturn(response).when(response).putHeader(anyString(), anyString());
+        doReturn(response).when(response).setStatusCode(anyInt());
+        doAnswer(inv -> null).when(response).end(anyString());
+
+        when(fxClient.getEffectiveRate("USD")).thenReturn(CompletableFuture.completedFuture(3.67));
+        when(promoClient.getPromo(any())).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        Mockito.framework().clearInlineMocks();
+    }
+
+    private void stubBody(String json) {
+        doReturn(requestBody).when(ctx).body();
+        when(requestBody.asString()).thenReturn(json);
+    }
+
+    private String respond(int status) {
+        ArgumentCaptor<String> bodyCaptor = ArgumentCaptor.forClass(String.class);
+        verify(response, timeout(1000)).setStatusCode(status);
+        verify(response, timeout(1000)).end(bodyCaptor.capture());
+        return bodyCaptor.getValue();
+    }
+
+    @Test
+    void happyPath_returnsColumnsInFareOrder() throws Exception {
+        Promo p = new Promo(); p.setCode("SUMMER25"); p.setPercent(0.25); p.setExpiresInDays(1);
+        when(promoClient.getPromo("SUMMER25")).thenReturn(CompletableFuture.completedFuture(p));
+        stubBody("""
+          {"currency":"USD","cabinClass":"ECONOMY","customerTier":"SILVER","promoCode":"SUMMER25","fareAmounts":[1234.50,100.0]}
+          """);
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new BatchQuoteHandler(fxClient, promoClient, registry).handle(ctx);
+
+        JsonNode node = mapper.readTree(respond(200));
+        assertThat(node.get("effectiveFxRate").asDouble()).isEqualTo(3.67);
+        assertThat(node.get("warnings").get(0).asText()).isEqualTo("PROMO_EXPIRES_SOON");
+        long base = (long) Math.floor(1234.50 * 3.67);
+        assertThat(node.get("basePoints").get(0).asLong()).isEqualTo(base);
+        assertThat(node.get("basePoints").get(1).asLong()).isEqualTo(367L);
+        assertThat(node.get("tierBonus").get(0).asLong()).isEqualTo((long) Math.floor(base * 0.15));
+        assertThat(node.get("promoBonus").get(0).asLong()).isEqualTo((long) Math.floor(base * 0.25));
+        assertThat(node.get("totalPoints").size()).isEqualTo(2);
+        verify(fxClient, times(1)).getEffectiveRate("USD");
+        assertThat(registry.summary("loyalty_quote_batch_fares").totalAmount()).isEqualTo(2.0);
+        assertThat(registry.get("loyalty_quote_batches_request_duration_seconds").tags("outcome", "ok", "status", "200")
+                .timer().count()).isEqualTo(1);
+        assertThat(registry.get(RequestMetrics.STAGE_TIMER).tags("endpoint", "batch", "stage", "calculate")
+                .timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void promoFailure_isFailOpen() throws Exception {
+        when(promoClient.getPromo("SUMMER25")).thenReturn(CompletableFuture.failedFuture(new RuntimeException("timeout")));
+        stubBody("""
+          {"currency":"USD","cabinClass":"ECONOMY","promoCode":"SUMMER25","fareAmounts":[100.0]}
+          """);
+
+        new BatchQuoteHandler(fxClient, promoClient, null).handle(ctx);
+
+        JsonNode node = mapper.readTree(respond(200));
+        assertThat(node.get("warnings").toString()).contains("PROMO_UNAVAILABLE");
+        assertThat(node.get("promoBonus").get(0).asLong()).isZero();
+    }
+
+    @Test
+    void fxFailure_returns502() {
+        when(fxClient.getEffectiveRate("USD")).thenReturn(CompletableFuture.failedFuture(new RuntimeException("upstream")));
+        stubBody("""
+          {"currency":"USD","cabinClass":"ECONOMY","fareAmounts":[100.0]}
+          """);
+
+        new BatchQuoteHandler(fxClient, promoClient, null).handle(ctx);
+
+        assertThat(respond(502)).contains("fx service unavailable");
+    }
+
+    @Test
+    void synchronousFailures_return500AndFinishTheRequest() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        BatchQuoteHandler handler = new BatchQuoteHandler(fxClient, promoClient, registry);
+
+        // no body at all
+        doReturn(null).when(ctx).body();
+        handler.handle(ctx);
+        assertThat(respond(500)).contains("internal error");
+
+        // a client that throws instead of returning a failed future
+        reset(response);
+        doReturn(response).when(response).putHeader(anyString(), anyString());
+        doReturn(response).when(response).setStatusCode(anyInt());
+        when(fxClient.getEffectiveRate("USD")).thenThrow(new IllegalStateException("boom"));
+        stubBody("""
+          {"currency":"USD","cabinClass":"ECONOMY","fareAmounts":[100.0]}
+          """);
+        handler.handle(ctx);
+        assertThat(respond(500)).contains("internal error");
+
+        assertThat(registry.counter("loyalty_quote_batches_requests_total").count()).isEqualTo(2.0);
+        assertThat(registry.get("loyalty_quote_batches_request_duration_seconds")
+                .tag("outcome", RequestMetrics.Outcome.ERROR.tag).timer().count()).isEqualTo(2L);
+    }
+
+    @Test
+    void invalidBatches_return400() {
+        StringJoiner tooMany = new StringJoiner(",", "[", "]");
+        for (int i = 0; i <= BatchQuoteHandler.MAX_FARES; i++) {
+            tooMany.add("1.0");
+        }
+        String[] bodies = {
+                "{ not-json ",
+                "",
+                "{\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"fareAmounts\":[]}",
+                "{\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\"}",
+                "{\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"fareAmounts\":[10.0,0.0]}",
+                "{\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"fareAmounts\":" + tooMany + "}",
+                "{\"currency\":\"XXX\",\"cabinClass\":\"ECONOMY\",\"fareAmounts\":[10.0]}",
+                "{\"currency\":\"USD\",\"cabinClass\":\"STEERAGE\",\"fareAmounts\":[10.0]}"
+        };
+        BatchQuoteHandler handler = new BatchQuoteHandler(fxClient, promoClient, null);
+        for (String body : bodies) {
+            reset(response);
+            doReturn(response).when(response).putHeader(anyString(), anyString());
+            doReturn(response).when(response).setStatusCode(anyInt());
+            stubBody(body);
+
+            handler.handle(ctx);
+
+            verify(response, timeout(1000).description(body)).setStatusCode(400);
+        }
+        verify(fxClient, never()).getEffectiveRate(anyString());
+    }
+}
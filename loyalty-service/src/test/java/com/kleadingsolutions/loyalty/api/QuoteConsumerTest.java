@@ -0,0 +1,114 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.eventbus.Message;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.ext.web.client.WebClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QuoteConsumerTest {
+
+  private Vertx vertx;
+  private PrometheusMeterRegistry registry;
+
+  @BeforeEach
+  void setup() throws Exception {
+    vertx = Vertx.vertx();
+    registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    Properties props = new Properties();
+    props.setProperty("http.port", "0");
+    await(vertx.deployVerticle(new MainVerticle(new StubFxClient(), new StubPromoClient(), registry,
+            ConfigStore.of(LoyaltyConfig.fromClasspath(props)))));
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    System.clearProperty("http.actual.port");
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  private static QuoteRequest quote(String currency) {
+    QuoteRequest req = new QuoteRequest();
+    req.setFareAmount(1234.5);
+    req.setCurrency(currency);
+    req.setCabinClass("ECONOMY");
+    req.setCustomerTier("SILVER");
+    req.setPromoCode("SUMMER25");
+    return req;
+  }
+
+  @Test
+  void event_bus_quotes_match_the_http_answer() throws Exception {
+    int port = Integer.parseInt(System.getProperty("http.actual.port"));
+    QuoteResponse http = await(WebClient.create(vertx).post(port, "localhost", QuoteHandler.ROUTE)
+            .sendJson(quote("USD"))).bodyAsJson(QuoteResponse.class);
+
+    Message<QuoteResponse> reply = await(vertx.eventBus().request(QuoteConsumer.ADDRESS, quote("USD")));
+
+    assertThat(reply.body().getTotalPoints()).isPositive();
+    assertThat(reply.body()).usingRecursiveComparison().isEqualTo(http);
+    assertThat(registry.counter("loyalty_eventbus_quotes_requests_total").count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void errors_fail_the_message_with_the_http_status() throws Exception {
+    assertThatThrownBy(() -> await(vertx.eventBus().request(QuoteConsumer.ADDRESS, quote("XXX"))))
+            .isInstanceOf(ExecutionException.class)
+            .cause()
+            .isInstanceOfSatisfying(ReplyException.class, e -> {
+              assertThat(e.failureCode()).isEqualTo(400);
+              assertThat(e.getMessage()).isEqualTo("invalid currency");
+            });
+
+    QuoteHandler down = new QuoteHandler(currency -> CompletableFuture.failedFuture(new RuntimeException("down")),
+            new StubPromoClient());
+    vertx.eventBus().consumer("loyalty.quote.down", new QuoteConsumer(down, null));
+    assertThatThrownBy(() -> await(vertx.eventBus().request("loyalty.quote.down", quote("USD"))))
+            .cause()
+            .isInstanceOfSatisfying(ReplyException.class, e -> {
+              assertThat(e.failureCode()).isEqualTo(502);
+              assertThat(e.getMessage()).isEqualTo("fx service unavailable");
+            });
+  }
+
+  @Test
+  void local_sends_are_by_reference_and_the_wire_form_is_compact_cbor() throws Exception {
+    QuoteRequest req = quote("USD");
+    assertThat(QuoteCodec.REQUEST.transform(req)).isSameAs(req);
+
+    Buffer wire = Buffer.buffer("header");
+    QuoteCodec.REQUEST.encodeToWire(wire, req);
+    QuoteRequest decoded = QuoteCodec.REQUEST.decodeFromWire("header".length(), wire);
+
+    assertThat(decoded).usingRecursiveComparison().isEqualTo(req);
+    assertThat(wire.length() - "header".length())
+            .isLessThan(QuoteFormat.JSON.mapper().writeValueAsBytes(req).length);
+    // a second registration (another verticle instance) is harmless
+    QuoteCodec.register(vertx.eventBus());
+  }
+
+  private static <T> T await(Future<T> future) throws Exception {
+    return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+  }
+}
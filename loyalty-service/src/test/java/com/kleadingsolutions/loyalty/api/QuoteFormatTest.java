@@ -0,0 +1,136 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.ext.web.client.HttpRequest;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuoteFormatTest {
+
+  private Vertx vertx;
+  private WebClient client;
+  private int port;
+
+  @BeforeEach
+  void setup() throws Exception {
+    vertx = Vertx.vertx();
+    Properties props = new Properties();
+    props.setProperty("http.port", "0");
+    vertx.deployVerticle(new MainVerticle(new StubFxClient(), new StubPromoClient(),
+                    new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), ConfigStore.of(LoyaltyConfig.fromClasspath(props))))
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    port = Integer.parseInt(System.getProperty("http.actual.port"));
+    client = WebClient.create(vertx);
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    System.clearProperty("http.actual.port");
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  private static QuoteRequest quote(double fare) {
+    QuoteRequest req = new QuoteRequest();
+    req.setFareAmount(fare);
+    req.setCurrency("USD");
+    req.setCabinClass("ECONOMY");
+    req.setCustomerTier("SILVER");
+    req.setPromoCode("SUMMER25");
+    return req;
+  }
+
+  private HttpResponse<Buffer> post(QuoteFormat format, Object body, String accept) throws Exception {
+    HttpRequest<Buffer> request = client.post(port, "localhost", QuoteHandler.ROUTE)
+            .putHeader("content-type", format.mediaType());
+    if (accept != null) {
+      request.putHeader("accept", accept);
+    }
+    return request.sendBuffer(Buffer.buffer(format.mapper().writeValueAsBytes(body)))
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void negotiation_follows_content_type_and_accept() {
+    assertThat(QuoteFormat.ofContentType(null)).isEqualTo(QuoteFormat.JSON);
+    assertThat(QuoteFormat.ofContentType("text/plain")).isEqualTo(QuoteFormat.JSON);
+    assertThat(QuoteFormat.ofContentType("Application/CBOR")).isEqualTo(QuoteFormat.CBOR);
+    assertThat(QuoteFormat.ofContentType("application/x-jackson-smile; charset=binary")).isEqualTo(QuoteFormat.SMILE);
+
+    assertThat(QuoteFormat.ofAccept(null, QuoteFormat.CBOR)).isEqualTo(QuoteFormat.CBOR);
+    assertThat(QuoteFormat.ofAccept("*/*", QuoteFormat.SMILE)).isEqualTo(QuoteFormat.SMILE);
+    assertThat(QuoteFormat.ofAccept("application/xml", QuoteFormat.CBOR)).isEqualTo(QuoteFormat.CBOR);
+    assertThat(QuoteFormat.ofAccept("application/cbor", QuoteFormat.JSON)).isEqualTo(QuoteFormat.CBOR);
+    assertThat(QuoteFormat.ofAccept("application/json;q=0.5, application/x-jackson-smile", QuoteFormat.JSON))
+            .isEqualTo(QuoteFormat.SMILE);
+    assertThat(QuoteFormat.ofAccept("application/cbor;q=0, application/json;q=x, */*;q=0.1", QuoteFormat.JSON))
+            .isEqualTo(QuoteFormat.JSON);
+  }
+
+  @Test
+  void binary_quotes_match_the_json_answer() throws Exception {
+    HttpResponse<Buffer> json = post(QuoteFormat.JSON, quote(1234.5), null);
+    QuoteResponse expected = QuoteFormat.JSON.mapper().readValue(json.body().getBytes(), QuoteResponse.class);
+    assertThat(expected.getTotalPoints()).isPositive();
+
+    for (QuoteFormat format : new QuoteFormat[] {QuoteFormat.CBOR, QuoteFormat.SMILE}) {
+      HttpResponse<Buffer> binary = post(format, quote(1234.5), null);
+      assertThat(binary.statusCode()).isEqualTo(200);
+      assertThat(binary.getHeader("content-type")).isEqualTo(format.mediaType());
+      QuoteResponse actual = format.mapper().readValue(binary.body().getBytes(), QuoteResponse.class);
+      assertThat(actual).usingRecursiveComparison().isEqualTo(expected);
+      assertThat(binary.body().length()).isLessThan(json.body().length());
+    }
+
+    // JSON in, CBOR out, and the reverse
+    HttpResponse<Buffer> cbor = post(QuoteFormat.JSON, quote(1234.5), "application/cbor");
+    assertThat(cbor.getHeader("content-type")).isEqualTo("application/cbor");
+    assertThat(QuoteFormat.CBOR.mapper().readValue(cbor.body().getBytes(), QuoteResponse.class))
+            .usingRecursiveComparison().isEqualTo(expected);
+    HttpResponse<Buffer> text = post(QuoteFormat.SMILE, quote(1234.5), "application/json");
+    assertThat(text.getHeader("content-type")).isEqualTo("application/json");
+    assertThat(text.bodyAsJson(QuoteResponse.class)).usingRecursiveComparison().isEqualTo(expected);
+  }
+
+  @Test
+  void errors_are_encoded_in_the_response_format() throws Exception {
+    HttpResponse<Buffer> invalid = post(QuoteFormat.CBOR, quote(-1), null);
+    assertThat(invalid.statusCode()).isEqualTo(400);
+    assertThat(invalid.getHeader("content-type")).isEqualTo("application/cbor");
+    JsonNode error = QuoteFormat.CBOR.mapper().readTree(invalid.body().getBytes());
+    assertThat(error.path("error").asText()).isEqualTo("fareAmount must be > 0");
+
+    HttpResponse<Buffer> garbage = client.post(port, "localhost", QuoteHandler.ROUTE)
+            .putHeader("content-type", "application/x-jackson-smile")
+            .sendBuffer(Buffer.buffer(new byte[] {0x3a, 0x29, 0x0a, 0x00, (byte) 0xfa, 0x01}))
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    assertThat(garbage.statusCode()).isEqualTo(400);
+    assertThat(QuoteFormat.SMILE.mapper().readTree(garbage.body().getBytes()).path("error").asText()).isEqualTo("invalid request");
+
+    HttpResponse<Buffer> empty = client.post(port, "localhost", QuoteHandler.ROUTE)
+            .putHeader("content-type", "application/cbor")
+            .putHeader("accept", "application/json")
+            .send()
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    assertThat(empty.statusCode()).isEqualTo(400);
+    assertThat(empty.bodyAsJsonObject().getString("error")).isEqualTo("invalid request");
+  }
+}
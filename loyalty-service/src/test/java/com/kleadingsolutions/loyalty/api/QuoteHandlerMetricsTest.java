@@ -67,4 +67,54 @@ class QuoteHandlerMetricsTest {
     String scrape = registry.scrape();
     assertThat(scrape).contains("loyalty_quotes_requests_total");
   }
-}
\ No newline at end of file
+
+  @Test
+  void request_timer_is_tagged_by_outcome_and_stages_are_recorded() throws Exception {
+    System.setProperty("allowed.currencies", "USD,EUR");
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+
+    var fxClient = mock(com.kleadingsolutions.loyalty.client.FxClient.class);
+    var promoClient = mock(com.kleadingsolutions.loyalty.client.PromoClient.class);
+    when(fxClient.getEffectiveRate("USD")).thenReturn(CompletableFuture.completedFuture(3.0));
+    when(fxClient.getEffectiveRate("EUR")).thenReturn(CompletableFuture.failedFuture(new RuntimeException("down")));
+    when(promoClient.getPromo(any())).thenReturn(CompletableFuture.failedFuture(new RuntimeException("down")));
+
+    QuoteHandler handler = new QuoteHandler(fxClient, promoClient, registry);
+
+    stubBody("{\"fareAmount\":100.0,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"customerTier\":\"NONE\"}");
+    handler.handle(ctx);
+    stubBody("{\"fareAmount\":100.0,\"currency\":\"EUR\",\"cabinClass\":\"ECONOMY\",\"customerTier\":\"NONE\"}");
+    handler.handle(ctx);
+    stubBody("{\"fareAmount\":100.0,\"currency\":\"GBP\",\"cabinClass\":\"ECONOMY\",\"customerTier\":\"NONE\"}");
+    handler.handle(ctx);
+    stubBody("not json");
+    handler.handle(ctx);
+
+    String timer = "loyalty_quotes_request_duration_seconds";
+    assertThat(registry.get(timer).tags("outcome", "promo_unavailable", "status", "200").timer().count()).isEqualTo(1);
+    assertThat(registry.get(timer).tags("outcome", "fx_unavailable", "status", "502").timer().count()).isEqualTo(1);
+    assertThat(registry.get(timer).tags("outcome", "invalid_request", "status", "400").timer().count()).isEqualTo(2);
+    assertThat(registry.get(timer).tags("outcome", "ok").timer().count()).isZero();
+    assertThat(registry.get(timer).timers()).hasSize(RequestMetrics.Outcome.values().length);
+
+    String stage = RequestMetrics.STAGE_TIMER;
+    assertThat(registry.get(stage).tags("endpoint", "quote", "stage", "parse").timer().count()).isEqualTo(3);
+    assertThat(registry.get(stage).tags("endpoint", "quote", "stage", "validate").timer().count()).isEqualTo(3);
+    assertThat(registry.get(stage).tags("endpoint", "quote", "stage", "fx_wait").timer().count()).isEqualTo(2);
+    assertThat(registry.get(stage).tags("endpoint", "quote", "stage", "promo_wait").timer().count()).isEqualTo(1);
+    assertThat(registry.get(stage).tags("endpoint", "quote", "stage", "calculate").timer().count()).isEqualTo(1);
+    assertThat(registry.get(stage).tags("endpoint", "quote", "stage", "serialize").timer().count()).isEqualTo(1);
+
+    String scrape = registry.scrape();
+    assertThat(scrape).contains("loyalty_quotes_request_duration_seconds_bucket{outcome=\"promo_unavailable\",status=\"200\",le=\"0.05\"")
+            .contains("loyalty_quote_stage_duration_seconds_bucket{endpoint=\"quote\",stage=\"calculate\",le=\"1.0E-4\"");
+  }
+
+  @Test
+  void without_registry_metrics_are_no_ops() {
+    RequestMetrics metrics = new RequestMetrics(null, "loyalty_quotes", "quote");
+    metrics.requestStarted();
+    metrics.stage(RequestMetrics.Stage.PARSE, 1L);
+    metrics.finish(RequestMetrics.Outcome.OK, System.nanoTime());
+  }
+}
@@ -19,7 +19,6 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 
-import java.lang.reflect.Field;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -168,6 +167,23 @@ class QuoteHandlerTest {
         verify(response, timeout(1000)).end(anyString());
     }
 
+    @Test
+    void nonFiniteFare_returns400_likeTheBatchEndpoint() throws Exception {
+        // 1e400 overflows to Infinity; Jackson reads "NaN" into a double
+        for (String fare : new String[] {"1e400", "\"NaN\""}) {
+            Mockito.clearInvocations(response);
+            stubBody("{\"fareAmount\":" + fare + ",\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\"}");
+
+            new QuoteHandler(fxClient, promoClient).handle(ctx);
+
+            ArgumentCaptor<String> body = ArgumentCaptor.forClass(String.class);
+            verify(response, timeout(1000)).setStatusCode(400);
+            verify(response, timeout(1000)).end(body.capture());
+            assertThat(body.getValue()).contains("fareAmount must be > 0");
+        }
+        verifyNoInteractions(fxClient);
+    }
+
     @Test
     void happyPath_writesQuoteJson() throws Exception {
         // fx returns 3.67
@@ -318,10 +334,7 @@ class QuoteHandlerTest {
 
         QuoteHandler handler = new QuoteHandler(fxClient, promoClient);
 
-        // access private allowedCurrencies field via reflection
-        Field f = QuoteHandler.class.getDeclaredField("allowedCurrencies");
-        f.setAccessible(true);
-        Set<String> allowed = (Set<String>) f.get(handler);
+        Set<String> allowed = handler.allowedCurrencies();
 
         assertThat(allowed).containsExactlyInAnyOrder("USD", "EUR", "AED");
     }
@@ -0,0 +1,226 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.verification.LoggedRequest;
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.logging.AccessLog;
+import com.kleadingsolutions.loyalty.metrics.RuntimeMetrics;
+import com.kleadingsolutions.loyalty.tracing.Tracing;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.prometheus.client.exporter.common.TextFormat;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Spans for quotes against WireMock upstreams, exported in-process (no collector).
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class QuoteTracingTest {
+
+  static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+  static final String PARENT_ID = "00f067aa0ba902b7";
+  static final String QUOTE =
+          "{\"fareAmount\":1234.50,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"customerTier\":\"SILVER\",\"promoCode\":\"SUMMER25\"}";
+
+  private final InMemorySpanExporter exporter = InMemorySpanExporter.create();
+  private final HttpClient http = HttpClient.newHttpClient();
+  private WireMockServer wireMock;
+  private Vertx vertx;
+  private PrometheusMeterRegistry registry;
+  private SdkTracerProvider provider;
+  private int port;
+
+  @BeforeAll
+  void setup() throws Exception {
+    wireMock = new WireMockServer(0);
+    wireMock.start();
+    provider = SdkTracerProvider.builder()
+            .setSampler(Tracing.sampler(1.0))
+            .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+            .build();
+    Tracing tracing = Tracing.of(OpenTelemetrySdk.builder()
+            .setTracerProvider(provider)
+            .setPropagators(ContextPropagators.create(W3CTraceContextPropagator.getInstance()))
+            .build());
+
+    Properties props = new Properties();
+    props.setProperty("http.port", "0");
+    props.setProperty("fx.base.url", "http://localhost:" + wireMock.port());
+    props.setProperty("promo.base.url", "http://localhost:" + wireMock.port());
+    props.setProperty("fx.retry.delay.ms", "1");
+    ConfigStore config = ConfigStore.of(LoyaltyConfig.fromClasspath(props));
+
+    registry = RuntimeMetrics.newPrometheusRegistry();
+    vertx = Vertx.vertx();
+    vertx.deployVerticle(new MainVerticle(null, null, registry, config, tracing))
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    port = Integer.parseInt(System.getProperty("http.actual.port"));
+  }
+
+  @AfterAll
+  void teardown() throws Exception {
+    System.clearProperty("http.actual.port");
+    if (vertx != null) vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    if (wireMock != null) wireMock.stop();
+    if (provider != null) provider.close();
+  }
+
+  @BeforeEach
+  void reset() {
+    wireMock.resetAll();
+    exporter.reset();
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).willReturn(okJson("{\"rate\":3.67}")));
+    wireMock.stubFor(get(urlPathEqualTo("/promo/SUMMER25"))
+            .willReturn(okJson("{\"code\":\"SUMMER25\",\"percent\":0.25,\"expiresInDays\":1}")));
+  }
+
+  private HttpResponse<String> post(String path, String body, String traceparent) throws Exception {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .header("content-type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body));
+    if (traceparent != null) request.header("traceparent", traceparent);
+    return http.send(request.build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  // the server span ends right after the response is written
+  private List<SpanData> awaitSpans(String serverSpanName) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (exporter.getFinishedSpanItems().stream().noneMatch(s -> s.getName().equals(serverSpanName))
+            && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    return exporter.getFinishedSpanItems();
+  }
+
+  private static SpanData named(List<SpanData> spans, String name) {
+    return spans.stream().filter(s -> s.getName().equals(name)).findFirst()
+            .orElseThrow(() -> new AssertionError(name + " not in " + spans.stream().map(SpanData::getName).collect(Collectors.toList())));
+  }
+
+  @Test
+  public void sampled_quote_continues_the_incoming_trace_into_both_upstreams() throws Exception {
+    HttpResponse<String> response = post("/v1/points/quote", QUOTE, "00-" + TRACE_ID + "-" + PARENT_ID + "-01");
+    assertThat(response.statusCode()).isEqualTo(200);
+
+    List<SpanData> spans = awaitSpans("POST /v1/points/quote");
+    SpanData server = named(spans, "POST /v1/points/quote");
+    assertThat(server.getKind()).isEqualTo(SpanKind.SERVER);
+    assertThat(server.getTraceId()).isEqualTo(TRACE_ID);
+    assertThat(server.getParentSpanId()).isEqualTo(PARENT_ID);
+    assertThat(server.getAttributes().get(RequestTracing.HTTP_STATUS)).isEqualTo(200L);
+    assertThat(server.getAttributes().get(RequestTracing.CURRENCY)).isEqualTo("USD");
+
+    for (String stage : List.of("quote.parse", "quote.validate", "quote.calculate", "quote.serialize")) {
+      SpanData span = named(spans, stage);
+      assertThat(span.getParentSpanId()).isEqualTo(server.getSpanId());
+      assertThat(span.getStartEpochNanos()).isBetween(server.getStartEpochNanos(), server.getEndEpochNanos());
+    }
+
+    SpanData fx = named(spans, "GET /fx/rate");
+    SpanData promo = named(spans, "GET /promo/{code}");
+    assertThat(fx.getKind()).isEqualTo(SpanKind.CLIENT);
+    assertThat(fx.getParentSpanId()).isEqualTo(server.getSpanId());
+    assertThat(promo.getParentSpanId()).isEqualTo(server.getSpanId());
+    assertThat(promo.getAttributes().get(io.opentelemetry.api.common.AttributeKey.stringKey("loyalty.dependency"))).isEqualTo("promo");
+
+    LoggedRequest fxCall = wireMock.findAll(getRequestedFor(urlPathEqualTo("/fx/rate"))).get(0);
+    assertThat(fxCall.getHeader("traceparent")).isEqualTo("00-" + TRACE_ID + "-" + fx.getSpanId() + "-01");
+    LoggedRequest promoCall = wireMock.findAll(getRequestedFor(urlPathEqualTo("/promo/SUMMER25"))).get(0);
+    assertThat(promoCall.getHeader("traceparent")).isEqualTo("00-" + TRACE_ID + "-" + promo.getSpanId() + "-01");
+
+    assertThat(registry.scrape(TextFormat.CONTENT_TYPE_OPENMETRICS_100))
+            .containsPattern("loyalty_quotes_request_duration_seconds_bucket\\{[^}]*outcome=\"ok\"[^}]*\\} \\S+ # \\{span_id=\"\\w+\",trace_id=\"" + TRACE_ID + "\"\\}");
+  }
+
+  @Test
+  public void unsampled_parent_exports_nothing_but_still_propagates_the_decision() throws Exception {
+    HttpResponse<String> response = post("/v1/points/quote", QUOTE, "00-" + TRACE_ID + "-" + PARENT_ID + "-00");
+    assertThat(response.statusCode()).isEqualTo(200);
+    Thread.sleep(100);
+
+    assertThat(exporter.getFinishedSpanItems()).isEmpty();
+    String traceparent = wireMock.findAll(getRequestedFor(urlPathEqualTo("/fx/rate"))).get(0).getHeader("traceparent");
+    assertThat(traceparent).startsWith("00-" + TRACE_ID + "-").endsWith("-00").doesNotContain(PARENT_ID);
+  }
+
+  @Test
+  public void fx_failure_marks_server_and_every_attempt_as_errors() throws Exception {
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).willReturn(aResponse().withStatus(503)));
+
+    HttpResponse<String> response = post("/v1/points/quote", QUOTE, null);
+    assertThat(response.statusCode()).isEqualTo(502);
+
+    List<SpanData> spans = awaitSpans("POST /v1/points/quote");
+    SpanData server = named(spans, "POST /v1/points/quote");
+    assertThat(server.getParentSpanId()).isEqualTo("0000000000000000"); // new root trace
+    assertThat(server.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+    assertThat(server.getAttributes().get(RequestTracing.OUTCOME)).isEqualTo("fx_unavailable");
+
+    List<SpanData> attempts = spans.stream().filter(s -> s.getName().equals("GET /fx/rate")).collect(Collectors.toList());
+    assertThat(attempts).hasSize(3); // retries: 2 in the bundled config
+    assertThat(attempts).allSatisfy(a -> {
+      assertThat(a.getStatus().getStatusCode()).isEqualTo(StatusCode.ERROR);
+      assertThat(a.getAttributes().get(io.opentelemetry.api.common.AttributeKey.longKey("http.response.status_code"))).isEqualTo(503L);
+      assertThat(a.getParentSpanId()).isEqualTo(server.getSpanId());
+    });
+    assertThat(attempts).extracting(a -> a.getAttributes().get(io.opentelemetry.api.common.AttributeKey.longKey("http.request.resend_count")))
+            .containsExactlyInAnyOrder(null, 1L, 2L);
+  }
+
+  @Test
+  public void upstream_waits_are_not_written_into_the_shared_noop_trace() {
+    RequestTracing tracing = new RequestTracing(Tracing.NOOP, AccessLog.NOOP, "/v1/points/quote", "quote");
+    RequestTracing.Trace trace = tracing.start(null, System.nanoTime());
+    assertThat(trace).isSameAs(RequestTracing.Trace.NOOP);
+
+    tracing.stage(trace, RequestMetrics.Stage.FX_WAIT, 0, 1_000);
+    tracing.stage(trace, RequestMetrics.Stage.PROMO_WAIT, 1_000, 3_000);
+
+    assertThat(RequestTracing.Trace.NOOP.fxWaitNanos).isEqualTo(-1);
+    assertThat(RequestTracing.Trace.NOOP.promoWaitNanos).isEqualTo(-1);
+  }
+
+  @Test
+  public void batch_and_rejected_requests_are_traced() throws Exception {
+    String batch = "{\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"fareAmounts\":[100.0,200.0]}";
+    assertThat(post("/v1/points/quote/batch", batch, null).statusCode()).isEqualTo(200);
+    List<SpanData> spans = awaitSpans("POST /v1/points/quote/batch");
+    SpanData server = named(spans, "POST /v1/points/quote/batch");
+    assertThat(named(spans, "batch.calculate").getParentSpanId()).isEqualTo(server.getSpanId());
+    assertThat(named(spans, "GET /fx/rate").getParentSpanId()).isEqualTo(server.getSpanId());
+
+    exporter.reset();
+    assertThat(post("/v1/points/quote", "{\"fareAmount\":-1,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\"}", null)
+            .statusCode()).isEqualTo(400);
+    SpanData rejected = named(awaitSpans("POST /v1/points/quote"), "POST /v1/points/quote");
+    assertThat(rejected.getAttributes().get(RequestTracing.OUTCOME)).isEqualTo("invalid_request");
+    assertThat(rejected.getStatus().getStatusCode()).isEqualTo(StatusCode.UNSET);
+  }
+}
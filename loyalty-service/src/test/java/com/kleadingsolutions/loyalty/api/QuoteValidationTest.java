@@ -0,0 +1,42 @@
+package com.kleadingsolutions.loyalty.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Locale;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QuoteValidationTest {
+
+    @Test
+    void fares_must_be_positive_and_finite() {
+        assertThat(QuoteValidation.isValidFare(0.01)).isTrue();
+        assertThat(QuoteValidation.isValidFare(0.0)).isFalse();
+        assertThat(QuoteValidation.isValidFare(-1.0)).isFalse();
+        assertThat(QuoteValidation.isValidFare(Double.NaN)).isFalse();
+        assertThat(QuoteValidation.isValidFare(Double.POSITIVE_INFINITY)).isFalse();
+    }
+
+    @Test
+    void currency_check_ignores_case_whatever_the_default_locale() {
+        Locale previous = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr"));
+        try {
+            // "inr".toUpperCase() is "İNR" in Turkish
+            assertThat(QuoteValidation.isValidCurrency("inr", Set.of("INR"))).isTrue();
+        } finally {
+            Locale.setDefault(previous);
+        }
+        assertThat(QuoteValidation.isValidCurrency(null, Set.of("INR"))).isFalse();
+    }
+
+    @Test
+    void context_errors_come_currency_first() {
+        Set<String> allowed = Set.of("USD");
+        assertThat(QuoteValidation.checkContext("usd", "business", allowed)).isNull();
+        assertThat(QuoteValidation.checkContext("XXX", "nope", allowed)).isEqualTo(QuoteValidation.INVALID_CURRENCY);
+        assertThat(QuoteValidation.checkContext("USD", "nope", allowed)).isEqualTo(QuoteValidation.INVALID_CABIN);
+        assertThat(QuoteValidation.checkContext("USD", null, allowed)).isEqualTo(QuoteValidation.INVALID_CABIN);
+    }
+}
@@ -0,0 +1,150 @@
+package com.kleadingsolutions.loyalty.api;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import com.kleadingsolutions.loyalty.metrics.StartupMetrics;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * /ready against a deployed MainVerticle with the warm-up on and off.
+ */
+public class WarmupTest {
+
+  private final HttpClient http = HttpClient.newHttpClient();
+  private WireMockServer wireMock;
+  private Vertx vertx;
+  private PrometheusMeterRegistry registry;
+  private int port;
+
+  @BeforeEach
+  void setup() {
+    wireMock = new WireMockServer(0);
+    wireMock.start();
+    // slow enough that the warm-up is still waiting on FX when /ready is first asked
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).willReturn(okJson("{\"rate\":3.67}").withFixedDelay(300)));
+    vertx = Vertx.vertx();
+    registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    System.clearProperty("http.actual.port");
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    wireMock.stop();
+  }
+
+  private Properties props() {
+    Properties props = new Properties();
+    props.setProperty("http.port", "0");
+    props.setProperty("fx.base.url", "http://localhost:" + wireMock.port());
+    props.setProperty("fx.timeout.ms", "10000");
+    props.setProperty("fx.retry.delay.ms", "1");
+    props.setProperty("fx.cache.ttl.ms", "60000");
+    return props;
+  }
+
+  private void deploy(LoyaltyConfig loaded) throws Exception {
+    ConfigStore config = ConfigStore.of(loaded);
+    vertx.deployVerticle(new MainVerticle(null, null, registry, config))
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    port = Integer.parseInt(System.getProperty("http.actual.port"));
+  }
+
+  private HttpResponse<String> send(String method, String path, String body) throws Exception {
+    return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .header("content-type", "application/json")
+            .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+            .build(), HttpResponse.BodyHandlers.ofString());
+  }
+
+  private HttpResponse<String> awaitReady() throws Exception {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+    HttpResponse<String> ready;
+    while ((ready = send("GET", "/ready", null)).statusCode() != 200 && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    return ready;
+  }
+
+  @Test
+  void ready_waits_for_warmup_quotes_and_fx_then_reports_the_cache() throws Exception {
+    Properties props = props();
+    props.setProperty("warmup.quotes", "300");
+    long firstQuote = StartupMetrics.firstQuoteMillis();
+    deploy(LoyaltyConfig.fromClasspath(props));
+
+    HttpResponse<String> warming = send("GET", "/ready", null);
+    assertThat(warming.statusCode()).isEqualTo(503);
+    assertThat(new JsonObject(warming.body()).getString("status")).isEqualTo("WARMING_UP");
+
+    HttpResponse<String> ready = awaitReady();
+    assertThat(ready.statusCode()).isEqualTo(200);
+    JsonObject body = new JsonObject(ready.body());
+    assertThat(body.getString("status")).isEqualTo("READY");
+    assertThat(body.getJsonObject("warmup").getInteger("quotes")).isEqualTo(300);
+    assertThat(body.getJsonObject("warmup").getInteger("completed")).isEqualTo(300);
+    assertThat(body.getJsonObject("warmup").getInteger("failed")).isZero();
+    assertThat(body.getJsonObject("warmup").getBoolean("timedOut")).isFalse();
+    assertThat(body.getJsonObject("warmup").getLong("durationMs")).isGreaterThanOrEqualTo(300L);
+    JsonObject fx = body.getJsonObject("caches").getJsonObject("fx");
+    assertThat(fx.getString("state")).isEqualTo("warm");
+    assertThat(fx.getJsonArray("cached")).containsExactly("AED", "EUR", "USD");
+
+    // one FX call per currency, none from the warm-up quotes; no warm-up quote in the request metrics
+    wireMock.verify(3, getRequestedFor(urlPathEqualTo("/fx/rate")));
+    assertThat(registry.get("loyalty_quotes_requests_total").counter().count()).isZero();
+    // nor in the time to the first quote, which is left to real traffic
+    assertThat(StartupMetrics.firstQuoteMillis()).isEqualTo(firstQuote);
+    assertThat(send("POST", Warmup.ROUTE, "{}").statusCode()).isEqualTo(404);
+
+    assertThat(send("POST", "/v1/points/quote",
+            "{\"fareAmount\":100.0,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\"}").statusCode()).isEqualTo(200);
+    wireMock.verify(3, getRequestedFor(urlPathEqualTo("/fx/rate")));
+  }
+
+  @Test
+  void ready_after_the_timeout_even_if_unfinished() throws Exception {
+    String yaml = "runtime: { warmup: { quotes: 10000000, timeout-ms: 300 } }";
+    deploy(LoyaltyConfig.fromYaml(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)), props()));
+
+    HttpResponse<String> ready = awaitReady();
+    JsonObject warmup = new JsonObject(ready.body()).getJsonObject("warmup");
+    assertThat(ready.statusCode()).isEqualTo(200);
+    assertThat(warmup.getBoolean("timedOut")).isTrue();
+    assertThat(warmup.getInteger("completed")).isLessThan(10_000_000);
+    assertThat(send("POST", Warmup.BATCH_ROUTE, "{}").statusCode()).isEqualTo(404);
+  }
+
+  @Test
+  void without_warmup_ready_at_once_and_fx_untouched() throws Exception {
+    deploy(LoyaltyConfig.fromClasspath(props()));
+
+    HttpResponse<String> ready = send("GET", "/ready", null);
+    assertThat(ready.statusCode()).isEqualTo(200);
+    JsonObject body = new JsonObject(ready.body());
+    assertThat(body.getString("status")).isEqualTo("READY");
+    assertThat(body.getJsonObject("warmup").getInteger("quotes")).isZero();
+    assertThat(body.getJsonObject("caches").getJsonObject("fx").getString("state")).isEqualTo("cold");
+    wireMock.verify(0, getRequestedFor(urlPathEqualTo("/fx/rate")));
+  }
+}
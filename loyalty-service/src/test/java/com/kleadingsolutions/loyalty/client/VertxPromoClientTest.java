@@ -6,6 +6,9 @@ import com.github.tomakehurst.wiremock.WireMockServer;
 import io.vertx.core.Vertx;
 import org.junit.jupiter.api.*;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
@@ -48,6 +51,24 @@ public class VertxPromoClientTest {
     assertThat(p.getExpiresInDays()).isEqualTo(1);
   }
 
+  @Test
+  public void getPromo_notFoundMeansNoPromo() throws Exception {
+    // a 404 with a JSON error body used to read as a zero-percent promo; it is no promo at all
+    wireMock.stubFor(get(urlPathEqualTo("/promo/EXPIRED"))
+      .willReturn(aResponse()
+        .withHeader("Content-Type","application/json")
+        .withBody("{ \"error\":\"no such promo\" }")
+        .withStatus(404)));
+    wireMock.stubFor(get(urlPathEqualTo("/promo/BROKEN"))
+      .willReturn(aResponse().withStatus(503)));
+
+    String baseUrl = "http://localhost:" + wireMock.port();
+    VertxPromoClient client = new VertxPromoClient(vertx, baseUrl);
+
+    assertThat(client.getPromo("EXPIRED").get(3, TimeUnit.SECONDS)).isNull();
+    Assertions.assertThrows(Exception.class, () -> client.getPromo("BROKEN").get(3, TimeUnit.SECONDS));
+  }
+
   @Test
   public void getPromo_timeoutHandledAsFailure() {
     wireMock.stubFor(get(urlPathMatching("/promo/.*"))
@@ -62,4 +83,30 @@ public class VertxPromoClientTest {
 
     Assertions.assertThrows(Exception.class, () -> client.getPromo("SUMMER25").get(3, TimeUnit.SECONDS));
   }
-}
\ No newline at end of file
+
+  @Test
+  public void getPromo_deadlineCoversWaitForPooledConnection() throws Exception {
+    wireMock.stubFor(get(urlPathMatching("/promo/.*"))
+      .willReturn(aResponse()
+        .withFixedDelay(2000)
+        .withHeader("Content-Type","application/json")
+        .withBody("{ \"code\":\"SUMMER25\", \"percent\":0.25, \"expiresInDays\":1 }")
+      ));
+
+    String baseUrl = "http://localhost:" + wireMock.port();
+    VertxPromoClient client = new VertxPromoClient(vertx, baseUrl);
+
+    // more lookups than the default pool has connections: queued ones must not wait for a slot first
+    long start = System.nanoTime();
+    List<CompletableFuture<Promo>> lookups = new ArrayList<>();
+    for (int i = 0; i < 12; i++) {
+      lookups.add(client.getPromo("SUMMER25"));
+    }
+    CompletableFuture.allOf(lookups.toArray(new CompletableFuture[0]))
+      .handle((v, e) -> null).get(5, TimeUnit.SECONDS);
+    long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+    assertThat(lookups).allMatch(CompletableFuture::isCompletedExceptionally);
+    assertThat(elapsedMs).isLessThan(1800);
+  }
+}
@@ -0,0 +1,193 @@
+package com.kleadingsolutions.loyalty.client.impl;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.stubbing.Scenario;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class UpstreamMetricsTest {
+
+  private WireMockServer wireMock;
+  private Vertx vertx;
+  private SimpleMeterRegistry registry;
+  private UpstreamMetrics metrics;
+
+  @BeforeAll
+  void setup() {
+    wireMock = new WireMockServer(0);
+    wireMock.start();
+    vertx = Vertx.vertx();
+  }
+
+  @AfterAll
+  void teardown() throws Exception {
+    if (wireMock != null) wireMock.stop();
+    if (vertx != null) vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  @BeforeEach
+  void reset() {
+    wireMock.resetAll();
+    registry = new SimpleMeterRegistry();
+    metrics = new UpstreamMetrics(registry);
+  }
+
+  private String baseUrl() {
+    return "http://localhost:" + wireMock.port();
+  }
+
+  private double attempts(String dependency, String outcome) {
+    return registry.get("loyalty_upstream_request_duration_seconds")
+            .tags("dependency", dependency, "outcome", outcome).timer().count();
+  }
+
+  private double calls(String dependency, String outcome) {
+    return registry.get("loyalty_upstream_calls_total").tags("dependency", dependency, "outcome", outcome).counter().count();
+  }
+
+  private double retries(String dependency, String retry) {
+    return registry.get("loyalty_upstream_retries_total").tags("dependency", dependency, "retry", retry).counter().count();
+  }
+
+  // the promo client records after completing the lookup (only the winner of response vs deadline counts)
+  private void awaitPromoCalls(int expected) throws InterruptedException {
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+    while (registry.get("loyalty_upstream_calls_total").tag("dependency", "promo").counters().stream()
+            .mapToDouble(c -> c.count()).sum() < expected && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+  }
+
+  private double cache(String result) {
+    return registry.get("loyalty_upstream_cache_requests_total").tags("dependency", "fx", "result", result).counter().count();
+  }
+
+  @Test
+  public void fx_retries_after_http_error_and_malformed_body_then_succeeds() throws Exception {
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).inScenario("flaky").whenScenarioStateIs(Scenario.STARTED)
+            .willReturn(aResponse().withStatus(503).withBody("{\"rate\":1.0}")).willSetStateTo("garbage"));
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).inScenario("flaky").whenScenarioStateIs("garbage")
+            .willReturn(aResponse().withStatus(200).withBody("not-json")).willSetStateTo("ok"));
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).inScenario("flaky").whenScenarioStateIs("ok")
+            .willReturn(aResponse().withStatus(200).withBody("{\"rate\":3.67}")));
+
+    VertxFxClient client = new VertxFxClient(vertx, baseUrl(), () -> new LoyaltyConfig.Upstream("", 1000, 2, 10), metrics);
+
+    assertThat(client.getEffectiveRate("USD").get(3, TimeUnit.SECONDS)).isEqualTo(3.67);
+    assertThat(attempts("fx", "http_error")).isEqualTo(1);
+    assertThat(attempts("fx", "malformed")).isEqualTo(1);
+    assertThat(attempts("fx", "success")).isEqualTo(1);
+    assertThat(calls("fx", "success")).isEqualTo(1);
+    assertThat(calls("fx", "http_error")).isZero();
+    assertThat(retries("fx", "1")).isEqualTo(1);
+    assertThat(retries("fx", "2")).isEqualTo(1);
+    assertThat(cache("miss")).isZero(); // cache disabled
+  }
+
+  @Test
+  public void fx_failure_is_counted_once_after_retries() {
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).willReturn(aResponse().withStatus(500)));
+
+    VertxFxClient client = new VertxFxClient(vertx, baseUrl(), () -> new LoyaltyConfig.Upstream("", 1000, 3, 1), metrics);
+
+    assertThrows(Exception.class, () -> client.getEffectiveRate("USD").get(3, TimeUnit.SECONDS));
+    assertThat(attempts("fx", "http_error")).isEqualTo(4);
+    assertThat(calls("fx", "http_error")).isEqualTo(1);
+    assertThat(retries("fx", "3+")).isEqualTo(1);
+  }
+
+  @Test
+  public void fx_cache_serves_repeat_lookups_within_ttl() throws Exception {
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).willReturn(aResponse().withStatus(200).withBody("{\"rate\":4.0}")));
+
+    VertxFxClient client = new VertxFxClient(vertx, baseUrl(),
+            () -> new LoyaltyConfig.Upstream("", 1000, 0, 0, 60_000), metrics);
+
+    assertThat(client.getEffectiveRate("EUR").get(3, TimeUnit.SECONDS)).isEqualTo(4.0);
+    assertThat(client.getEffectiveRate("EUR").get(3, TimeUnit.SECONDS)).isEqualTo(4.0);
+    assertThat(client.getEffectiveRate("EUR").get(3, TimeUnit.SECONDS)).isEqualTo(4.0);
+
+    wireMock.verify(1, getRequestedFor(urlPathEqualTo("/fx/rate")));
+    assertThat(cache("miss")).isEqualTo(1);
+    assertThat(cache("hit")).isEqualTo(2);
+  }
+
+  @Test
+  public void fx_cache_key_ignores_currency_case() throws Exception {
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).willReturn(aResponse().withStatus(200).withBody("{\"rate\":4.0}")));
+
+    VertxFxClient client = new VertxFxClient(vertx, baseUrl(),
+            () -> new LoyaltyConfig.Upstream("", 1000, 0, 0, 60_000), metrics);
+
+    assertThat(client.getEffectiveRate("eur").get(3, TimeUnit.SECONDS)).isEqualTo(4.0);
+    assertThat(client.getEffectiveRate("EUR").get(3, TimeUnit.SECONDS)).isEqualTo(4.0);
+    assertThat(client.getEffectiveRate(" Eur ").get(3, TimeUnit.SECONDS)).isEqualTo(4.0);
+
+    wireMock.verify(1, getRequestedFor(urlPathEqualTo("/fx/rate")).withQueryParam("currency", equalTo("EUR")));
+    assertThat(client.cachedCurrencies()).containsExactly("EUR");
+    assertThat(cache("hit")).isEqualTo(2);
+  }
+
+  @Test
+  public void promo_outcomes_are_classified() throws Exception {
+    wireMock.stubFor(get(urlPathEqualTo("/promo/GONE")).willReturn(aResponse().withStatus(404).withBody("{}")));
+    wireMock.stubFor(get(urlPathEqualTo("/promo/DOWN")).willReturn(aResponse().withStatus(500).withBody("{}")));
+    wireMock.stubFor(get(urlPathEqualTo("/promo/BAD")).willReturn(aResponse().withStatus(200).withBody("this-is-not-json")));
+    wireMock.stubFor(get(urlPathEqualTo("/promo/SLOW")).willReturn(aResponse().withStatus(200).withFixedDelay(3000)
+            .withBody("{\"code\":\"SLOW\",\"percent\":0.1}")));
+    wireMock.stubFor(get(urlPathEqualTo("/promo/SUMMER25")).willReturn(aResponse().withStatus(200)
+            .withBody("{\"code\":\"SUMMER25\",\"percent\":0.25,\"expiresInDays\":1}")));
+
+    VertxPromoClient client = new VertxPromoClient(vertx, baseUrl(), () -> new LoyaltyConfig.Upstream("", 1000, 0, 0), metrics);
+
+    assertThat(client.getPromo("SUMMER25").get(3, TimeUnit.SECONDS).getPercent()).isEqualTo(0.25);
+    assertThat(client.getPromo("GONE").get(3, TimeUnit.SECONDS)).isNull();
+    assertThrows(Exception.class, () -> client.getPromo("DOWN").get(3, TimeUnit.SECONDS));
+    assertThrows(Exception.class, () -> client.getPromo("BAD").get(3, TimeUnit.SECONDS));
+    assertThrows(Exception.class, () -> client.getPromo("SLOW").get(5, TimeUnit.SECONDS));
+    awaitPromoCalls(5);
+
+    assertThat(calls("promo", "success")).isEqualTo(1);
+    assertThat(calls("promo", "not_found")).isEqualTo(1);
+    assertThat(calls("promo", "http_error")).isEqualTo(1);
+    assertThat(calls("promo", "malformed")).isEqualTo(1);
+    assertThat(calls("promo", "timeout")).isEqualTo(1);
+    assertThat(attempts("promo", "timeout")).isEqualTo(1);
+  }
+
+  @Test
+  public void promo_connection_refused_is_a_transport_error() throws Exception {
+    VertxPromoClient client = new VertxPromoClient(vertx, "http://localhost:9", () -> new LoyaltyConfig.Upstream("", 1000, 0, 0), metrics);
+
+    assertThrows(Exception.class, () -> client.getPromo("SUMMER25").get(3, TimeUnit.SECONDS));
+    awaitPromoCalls(1);
+    assertThat(calls("promo", "transport_error")).isEqualTo(1);
+  }
+
+  @Test
+  public void classify_and_noop() {
+    assertThat(UpstreamMetrics.classify(new TimeoutException())).isEqualTo(UpstreamMetrics.Outcome.TIMEOUT);
+    assertThat(UpstreamMetrics.classify(new CompletionException(new TimeoutException()))).isEqualTo(UpstreamMetrics.Outcome.TIMEOUT);
+    assertThat(UpstreamMetrics.classify(new java.net.ConnectException())).isEqualTo(UpstreamMetrics.Outcome.TRANSPORT_ERROR);
+
+    UpstreamMetrics.NOOP.attempt(UpstreamMetrics.Dependency.FX, UpstreamMetrics.Outcome.SUCCESS, System.nanoTime());
+    UpstreamMetrics.NOOP.call(UpstreamMetrics.Dependency.FX, UpstreamMetrics.Outcome.SUCCESS);
+    UpstreamMetrics.NOOP.retry(UpstreamMetrics.Dependency.FX, 1);
+    UpstreamMetrics.NOOP.cache(UpstreamMetrics.Dependency.FX, true);
+  }
+}
@@ -0,0 +1,208 @@
+package com.kleadingsolutions.loyalty.cluster;
+
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.client.FxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Future;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.impl.VertxInternal;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.test.fakecluster.FakeClusterManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ClusterCacheTest {
+
+  private static final LoyaltyConfig.Cluster SETTINGS = new LoyaltyConfig.Cluster(true, 60_000, 5_000, 2_000);
+
+  private final List<Vertx> nodes = new ArrayList<>();
+  private final Map<String, Double> rates = new ConcurrentHashMap<>();
+
+  @BeforeEach
+  void setup() {
+    FakeClusterManager.reset();
+    rates.put("USD", 3.67);
+    rates.put("EUR", 4.01);
+    rates.put("AED", 1.0);
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    System.clearProperty("http.actual.port");
+    for (Vertx node : nodes) {
+      node.close().toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    }
+    FakeClusterManager.reset();
+  }
+
+  private Vertx node() throws Exception {
+    Vertx node = await(Vertx.clusteredVertx(new VertxOptions().setClusterManager(new FakeClusterManager())));
+    nodes.add(node);
+    return node;
+  }
+
+  private ClusterCache<Double> cache(Vertx node, AtomicInteger fetches, PrometheusMeterRegistry registry) throws Exception {
+    ClusterCache<Double> cache = new ClusterCache<>(node, "fx", currency -> {
+      fetches.incrementAndGet();
+      Double rate = rates.get(currency);
+      return rate == null
+              ? CompletableFuture.failedFuture(new IllegalStateException("fx service returned HTTP 404"))
+              : CompletableFuture.completedFuture(rate);
+    }, rate -> new JsonObject().put("rate", rate), json -> json.getDouble("rate"), () -> SETTINGS, registry);
+    await(cache.ready());
+    return cache;
+  }
+
+  private static double result(PrometheusMeterRegistry registry, String result) {
+    return registry.counter("loyalty_cluster_cache_requests_total", "cache", "fx", "result", result).count();
+  }
+
+  @Test
+  void each_key_is_fetched_once_for_the_cluster_by_its_owner() throws Exception {
+    List<ClusterCache<Double>> caches = new ArrayList<>();
+    List<AtomicInteger> fetches = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      fetches.add(new AtomicInteger());
+      caches.add(cache(node(), fetches.get(i), null));
+    }
+
+    for (String currency : List.of("USD", "EUR", "AED")) {
+      List<CompletableFuture<Double>> answers = new ArrayList<>();
+      for (int round = 0; round < 5; round++) {
+        caches.forEach(cache -> answers.add(cache.get(currency)));
+      }
+      for (CompletableFuture<Double> answer : answers) {
+        assertThat(answer.get(10, TimeUnit.SECONDS)).isEqualTo(rates.get(currency));
+      }
+      String owner = caches.get(0).owner(currency);
+      assertThat(caches).allSatisfy(cache -> assertThat(cache.owner(currency)).isEqualTo(owner));
+    }
+
+    assertThat(fetches.stream().mapToInt(AtomicInteger::get).sum()).isEqualTo(3);
+    for (int i = 0; i < 3; i++) {
+      ClusterCache<Double> cache = caches.get(i);
+      long owned = List.of("USD", "EUR", "AED").stream().filter(c -> cache.owner(c).equals(cache.nodeId())).count();
+      assertThat(fetches.get(i).get()).isEqualTo(owned);
+    }
+    assertThat(caches.get(1).keys()).containsExactly("AED", "EUR", "USD");
+  }
+
+  @Test
+  void invalidation_reaches_every_node() throws Exception {
+    AtomicInteger fetches = new AtomicInteger();
+    List<ClusterCache<Double>> caches = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      caches.add(cache(node(), fetches, null));
+    }
+    for (ClusterCache<Double> cache : caches) {
+      assertThat(cache.get("USD").get(10, TimeUnit.SECONDS)).isEqualTo(3.67);
+    }
+
+    rates.put("USD", 3.70);
+    await(caches.get(2).invalidate("USD"));
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    for (ClusterCache<Double> cache : caches) {
+      while (cache.get("USD").get(10, TimeUnit.SECONDS) != 3.70 && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(cache.get("USD").get(10, TimeUnit.SECONDS)).isEqualTo(3.70);
+    }
+    assertThat(fetches.get()).isEqualTo(2);
+  }
+
+  @Test
+  void a_node_fetches_itself_when_the_owner_does_not_answer_but_owner_failures_are_final() throws Exception {
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    AtomicInteger local = new AtomicInteger();
+    AtomicInteger remote = new AtomicInteger();
+    ClusterCache<Double> cache = cache(node(), local, registry);
+    ClusterCache<Double> other = cache(node(), remote, null);
+    // a member that does not run the service
+    String bystander = ((VertxInternal) node()).getClusterManager().getNodeId();
+
+    String orphan = null;
+    String remoteKey = null;
+    for (int i = 0; orphan == null || remoteKey == null; i++) {
+      String key = "K" + i;
+      if (orphan == null && cache.owner(key).equals(bystander)) orphan = key;
+      if (remoteKey == null && cache.owner(key).equals(other.nodeId())) remoteKey = key;
+    }
+    rates.put(orphan, 2.5);
+
+    assertThat(cache.get(orphan).get(10, TimeUnit.SECONDS)).isEqualTo(2.5);
+    assertThat(local.get()).isEqualTo(1);
+    assertThat(result(registry, "fallback")).isEqualTo(1.0);
+
+    // the owner reached the upstream, which failed: no second attempt from this node
+    CompletableFuture<Double> failed = cache.get(remoteKey);
+    assertThatThrownBy(() -> failed.get(10, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCauseInstanceOf(ReplyException.class)
+            .hasMessageContaining("HTTP 404");
+    assertThat(remote.get()).isEqualTo(1);
+    assertThat(local.get()).isEqualTo(1);
+    assertThat(result(registry, "remote")).isEqualTo(1.0);
+  }
+
+  @Test
+  void clustered_service_nodes_share_fx_rates() throws Exception {
+    AtomicInteger fxCalls = new AtomicInteger();
+    FxClient fx = currency -> {
+      fxCalls.incrementAndGet();
+      return CompletableFuture.completedFuture(3.67);
+    };
+    Properties props = new Properties();
+    props.setProperty("http.port", "0");
+    props.setProperty("cluster.enabled", "true");
+    List<Integer> ports = new ArrayList<>();
+    for (int i = 0; i < 2; i++) {
+      Vertx node = node();
+      await(node.deployVerticle(new MainVerticle(fx, new StubPromoClient(), new PrometheusMeterRegistry(PrometheusConfig.DEFAULT),
+              ConfigStore.of(LoyaltyConfig.fromClasspath(props)))));
+      ports.add(Integer.parseInt(System.getProperty("http.actual.port")));
+    }
+
+    WebClient client = WebClient.create(nodes.get(0));
+    for (int port : ports) {
+      JsonObject quote = await(client.post(port, "localhost", "/v1/points/quote")
+              .sendJsonObject(new JsonObject().put("fareAmount", 1234.5).put("currency", "USD").put("cabinClass", "ECONOMY")))
+              .bodyAsJsonObject();
+      assertThat(quote.getDouble("effectiveFxRate")).isEqualTo(3.67);
+    }
+    assertThat(fxCalls.get()).isEqualTo(1);
+
+    // without a clustered Vert.x the mode refuses to start
+    Vertx plain = Vertx.vertx();
+    nodes.add(plain);
+    assertThatThrownBy(() -> await(plain.deployVerticle(new MainVerticle(fx, new StubPromoClient(),
+            new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), ConfigStore.of(LoyaltyConfig.fromClasspath(props))))))
+            .hasCauseInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("runtime.cluster.enabled needs a clustered Vert.x");
+  }
+
+  private static <T> T await(Future<T> future) throws Exception {
+    return future.toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+  }
+}
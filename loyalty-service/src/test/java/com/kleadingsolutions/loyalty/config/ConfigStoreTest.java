@@ -0,0 +1,319 @@
+package com.kleadingsolutions.loyalty.config;
+
+import com.kleadingsolutions.loyalty.service.PointsRounding;
+import io.vertx.core.Vertx;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConfigStoreTest {
+
+  @TempDir
+  Path dir;
+
+  @AfterEach
+  void clearProperties() {
+    System.clearProperty(ConfigStore.CONFIG_FILE_PROPERTY);
+    System.clearProperty("fx.retries");
+  }
+
+  private static LoyaltyConfig yaml(String yaml, Properties overrides) throws IOException {
+    return LoyaltyConfig.fromYaml(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)), overrides);
+  }
+
+  private Path write(String name, String yaml, long modifiedMillis) throws IOException {
+    Path file = dir.resolve(name);
+    Files.writeString(file, yaml);
+    Files.setLastModifiedTime(file, FileTime.fromMillis(modifiedMillis));
+    return file;
+  }
+
+  @Test
+  public void bundled_config_matches_previous_defaults() {
+    LoyaltyConfig config = LoyaltyConfig.fromClasspath(new Properties());
+
+    assertThat(config.getHttpPort()).isEqualTo(8888);
+    assertThat(config.getServer()).isEqualTo(LoyaltyConfig.Server.DEFAULTS);
+    assertThat(config.getServer().tls()).isFalse();
+    assertThat(config.isNativeTransport()).isTrue();
+    assertThat(config.getFx()).isEqualTo(new LoyaltyConfig.Upstream("", 1000, 2, 200));
+    assertThat(config.getPromo().timeoutMs()).isEqualTo(1000);
+    assertThat(config.getAllowedCurrencies()).containsExactlyInAnyOrder("USD", "EUR", "AED");
+    assertThat(config.getRules().getRounding()).isEqualTo(PointsRounding.FLOOR);
+    assertThat(config.getReloadIntervalMs()).isEqualTo(5000);
+    assertThat(config.getMetrics()).isEqualTo(new LoyaltyConfig.Metrics(1000, true));
+    assertThat(config.getTracing()).isEqualTo(new LoyaltyConfig.Tracing("", "", 1.0));
+    assertThat(config.getJfr()).isEqualTo(new LoyaltyConfig.Jfr(false, 900, 64));
+    assertThat(config.getLogging()).isEqualTo(new LoyaltyConfig.Logging("", 64, 5, 8192, 10));
+    assertThat(config.getWarmup()).isEqualTo(new LoyaltyConfig.Warmup(0, 8, 30_000, true));
+    assertThat(config.getCluster()).isEqualTo(new LoyaltyConfig.Cluster(false, 60_000, 5_000, 2_000));
+    assertThat(LoyaltyConfig.defaults().getAllowedCurrencies()).isEqualTo(config.getAllowedCurrencies());
+  }
+
+  @Test
+  public void system_properties_override_the_file() throws Exception {
+    Properties props = new Properties();
+    props.setProperty("http.port", "0");
+    props.setProperty("fx.retries", "5");
+    props.setProperty("fx.base.url", "http://fx:8081");
+    props.setProperty("promo.timeout.ms", "250");
+    props.setProperty("fx.cache.ttl.ms", "30000");
+    props.setProperty("allowed.currencies", " usd , gbp,, ");
+
+    LoyaltyConfig config = yaml(String.join("\n",
+            "server: { port: 9000 }",
+            "external:",
+            "  fx: { retries: 1, retry-delay-ms: 50 }",
+            "business:",
+            "  currencies: [EUR]"), props);
+
+    assertThat(config.getHttpPort()).isZero();
+    assertThat(config.getFx()).isEqualTo(new LoyaltyConfig.Upstream("http://fx:8081", 1000, 5, 50, 30_000));
+    assertThat(config.getPromo().timeoutMs()).isEqualTo(250);
+    assertThat(config.getAllowedCurrencies()).containsExactlyInAnyOrder("USD", "GBP");
+
+    props.setProperty("tracing.otlp.endpoint", "http://collector:4317");
+    props.setProperty("tracing.sample.ratio", "0.1");
+    assertThat(yaml("tracing: { service-name: quotes, sample-ratio: 0.5 }", props).getTracing())
+            .isEqualTo(new LoyaltyConfig.Tracing("http://collector:4317", "quotes", 0.1));
+
+    props.setProperty("jfr.admin.enabled", "true");
+    assertThat(yaml("runtime: { jfr: { admin-enabled: false, max-age-s: 60 } }", props).getJfr())
+            .isEqualTo(new LoyaltyConfig.Jfr(true, 60, 64));
+
+    props.setProperty("cluster.enabled", "true");
+    assertThat(yaml("runtime: { cluster: { enabled: false, near-cache-ttl-ms: 0 } }", props).getCluster())
+            .isEqualTo(new LoyaltyConfig.Cluster(true, 60_000, 0, 2_000));
+
+    props.setProperty("access.log.file", "/var/log/loyalty/access.log");
+    assertThat(yaml("logging: { access-log: { file: access.log, max-files: 2, buffer-size: 1024 }, errors-per-second: 3 }",
+            props).getLogging()).isEqualTo(new LoyaltyConfig.Logging("/var/log/loyalty/access.log", 64, 2, 1024, 3));
+
+    props.setProperty("tls.cert", "/etc/tls/tls.crt");
+    props.setProperty("tls.key", "/etc/tls/tls.key");
+    LoyaltyConfig.Server server = yaml(String.join("\n",
+            "server:",
+            "  http2: { max-concurrent-streams: 64 }",
+            "  tcp: { quick-ack: false, reuse-port: true, accept-backlog: 4096 }",
+            "  idle-timeout-s: 0",
+            "  compression: { enabled: true, level: 6, min-size: 0 }",
+            "  tls: { cert: a.pem, key: b.pem }"), props).getServer();
+    assertThat(server).isEqualTo(new LoyaltyConfig.Server(64, 1_048_576, true, false, true, 4096, 0, 8192, 4096, true, 6, 0,
+            "/etc/tls/tls.crt", "/etc/tls/tls.key", "", true));
+    assertThat(server.tls()).isTrue();
+    assertThat(server.hasDomainSocket()).isFalse();
+
+    LoyaltyConfig.Server socketOnly = yaml("server: { tcp: { enabled: false }, domain-socket: { path: /run/loyalty.sock } }", null)
+            .getServer();
+    assertThat(socketOnly.domainSocket()).isEqualTo("/run/loyalty.sock");
+    assertThat(socketOnly.tcp()).isFalse();
+    props.setProperty("http.domain.socket", "/tmp/quote.sock");
+    assertThat(yaml("server: { domain-socket: { path: /run/loyalty.sock } }", props).getServer().domainSocket())
+            .isEqualTo("/tmp/quote.sock");
+
+    props.setProperty("transport.native", "false");
+    assertThat(yaml("runtime: { transport: { native: true } }", props).isNativeTransport()).isFalse();
+    assertThat(yaml("runtime: { transport: { native: false } }", null).isNativeTransport()).isFalse();
+
+    props.setProperty("warmup.quotes", "2000");
+    assertThat(yaml("runtime: { warmup: { quotes: 10, timeout-ms: 5000, upstreams: false } }", props).getWarmup())
+            .isEqualTo(new LoyaltyConfig.Warmup(2000, 8, 5000, false));
+  }
+
+  @Test
+  public void invalid_values_name_the_key() {
+    assertThatThrownBy(() -> yaml("server: { port: 70000 }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("server.port");
+    assertThatThrownBy(() -> yaml("external: { fx: { retries: -1 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("external.fx");
+    assertThatThrownBy(() -> yaml("external: { promo: { timeout-ms: soon } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("external.promo.timeout-ms");
+    assertThatThrownBy(() -> yaml("external: { fx: { cache-ttl-ms: -5 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("cache-ttl-ms");
+    assertThatThrownBy(() -> yaml("external: { fx: { base-url: fx-service } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("external.fx.base-url");
+    assertThatThrownBy(() -> yaml("runtime: { metrics: { scrape-cache-ms: -1 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("runtime.metrics.scrape-cache-ms");
+    assertThatThrownBy(() -> yaml("runtime: { metrics: { gzip: maybe } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("runtime.metrics.gzip");
+    assertThatThrownBy(() -> yaml("tracing: { sample-ratio: 1.5 }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("tracing.sample-ratio");
+    assertThatThrownBy(() -> yaml("tracing: { otlp-endpoint: collector }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("tracing.otlp-endpoint");
+    assertThatThrownBy(() -> yaml("runtime: { cluster: { cache-ttl-ms: 0 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("runtime.cluster.cache-ttl-ms");
+    assertThatThrownBy(() -> yaml("runtime: { jfr: { max-size-mb: 0 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("runtime.jfr.max-size-mb");
+    assertThatThrownBy(() -> yaml("runtime: { jfr: { admin-enabled: yes please } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("runtime.jfr.admin-enabled");
+    assertThatThrownBy(() -> yaml("logging: { access-log: { buffer-size: 1000 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("logging.access-log.buffer-size");
+    assertThatThrownBy(() -> yaml("logging: { errors-per-second: 0 }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("logging.errors-per-second");
+    assertThatThrownBy(() -> yaml("server: { http2: { max-concurrent-streams: 0 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("server.http2.max-concurrent-streams");
+    assertThatThrownBy(() -> yaml("server: { tcp: { no-delay: sometimes } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("server.tcp.no-delay");
+    assertThatThrownBy(() -> yaml("server: { compression: { level: 10 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("server.compression.level");
+    assertThatThrownBy(() -> yaml("server: { max-header-size: 99999999999 } ", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("server.max-header-size");
+    // fractions are rejected, not truncated
+    assertThatThrownBy(() -> yaml("runtime: { config: { reload-interval-ms: 1.5 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("invalid value '1.5'");
+    assertThatThrownBy(() -> yaml("server: { port: 8080.5 }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("invalid value '8080.5'");
+    assertThatThrownBy(() -> yaml("server: { max-header-size: '8192.0' }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("server.max-header-size");
+    assertThatThrownBy(() -> yaml("server: { tls: { cert: tls.crt } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("server.tls");
+    assertThatThrownBy(() -> yaml("server: { tcp: { enabled: false } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("server.tcp.enabled");
+    assertThatThrownBy(() -> yaml("runtime: { warmup: { concurrency: 0 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("runtime.warmup.concurrency");
+    assertThatThrownBy(() -> yaml("runtime: { warmup: { quotes: -1 } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("runtime.warmup.quotes");
+    assertThatThrownBy(() -> yaml("business: { currencies: [USD, DOLLAR] }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("DOLLAR");
+    assertThatThrownBy(() -> yaml("business: { points: { rounding: UP } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("business.points.rounding");
+    Properties props = new Properties();
+    props.setProperty("fx.retries", "two");
+    assertThatThrownBy(() -> yaml("", props))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("-Dfx.retries");
+    assertThatThrownBy(() -> yaml("runtime: { transport: { native: epoll } }", null))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("runtime.transport.native");
+    Properties jfr = new Properties();
+    jfr.setProperty("jfr.admin.enabled", "on");
+    assertThatThrownBy(() -> yaml("", jfr))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("-Djfr.admin.enabled");
+  }
+
+  @Test
+  public void reload_publishes_changed_file_and_keeps_previous_on_error() throws Exception {
+    Path file = write("app.yml", "business: { currencies: [USD] }", 1_000_000L);
+    ConfigStore store = ConfigStore.fromFile(file);
+    List<LoyaltyConfig> published = new CopyOnWriteArrayList<>();
+    store.onChange(published::add);
+    store.onChange(c -> {
+      throw new IllegalStateException("listener failures are logged, not propagated");
+    });
+    LoyaltyConfig first = store.current();
+
+    assertThat(store.reloadIfModified()).isFalse();
+
+    write("app.yml", "business: { currencies: [USD, JPY] }", 2_000_000L);
+    assertThat(store.reloadIfModified()).isTrue();
+    assertThat(store.current()).isNotSameAs(first);
+    assertThat(store.current().getAllowedCurrencies()).containsExactlyInAnyOrder("USD", "JPY");
+    assertThat(published).containsExactly(store.current());
+
+    LoyaltyConfig good = store.current();
+    write("app.yml", "business: { points: { cap: -1 } }", 3_000_000L);
+    assertThat(store.reloadIfModified()).isFalse();
+    assertThat(store.current()).isSameAs(good);
+
+    Files.delete(file);
+    assertThat(store.reloadIfModified()).isFalse();
+    assertThat(store.current()).isSameAs(good);
+    assertThat(published).hasSize(1);
+  }
+
+  @Test
+  public void load_uses_config_file_property_and_classpath_store_never_reloads() throws Exception {
+    ConfigStore bundled = ConfigStore.load();
+    assertThat(bundled.file()).isNull();
+    assertThat(bundled.reloadIfModified()).isFalse();
+
+    Path file = write("app.yml", "server: { port: 0 }", 1_000_000L);
+    System.setProperty(ConfigStore.CONFIG_FILE_PROPERTY, file.toString());
+    System.setProperty("fx.retries", "0");
+
+    ConfigStore store = ConfigStore.load();
+    assertThat(store.file()).isEqualTo(file);
+    assertThat(store.current().getHttpPort()).isZero();
+    assertThat(store.current().getFx().retries()).isZero();
+    assertThat(LoyaltyConfig.load().getHttpPort()).isZero();
+
+    LoyaltyConfig fixed = LoyaltyConfig.defaults();
+    assertThat(ConfigStore.of(fixed).current()).isSameAs(fixed);
+  }
+
+  @Test
+  public void watch_picks_up_file_changes() throws Exception {
+    Path file = write("app.yml", String.join("\n",
+            "business: { currencies: [USD] }",
+            "runtime: { config: { reload-interval-ms: 20 } }"), 1_000_000L);
+    ConfigStore store = ConfigStore.fromFile(file);
+    Vertx vertx = Vertx.vertx();
+    try {
+      store.watch(vertx);
+      store.watch(vertx); // second call is a no-op
+      write("app.yml", String.join("\n",
+              "business: { currencies: [EUR] }",
+              "runtime: { config: { reload-interval-ms: 20 } }"), 2_000_000L);
+
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (!store.current().getAllowedCurrencies().contains("EUR") && System.nanoTime() < deadline) {
+        Thread.sleep(10);
+      }
+      assertThat(store.current().getAllowedCurrencies()).containsExactly("EUR");
+    } finally {
+      store.stopWatching(vertx);
+      store.stopWatching(vertx);
+      vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void a_released_shared_store_never_watches_again() throws Exception {
+    String usd = String.join("\n", "business: { currencies: [USD] }", "runtime: { config: { reload-interval-ms: 20 } }");
+    Path file = write("app.yml", usd, 1_000_000L);
+    System.setProperty(ConfigStore.CONFIG_FILE_PROPERTY, file.toString());
+    Vertx vertx = Vertx.vertx();
+    try {
+      List<LoyaltyConfig> published = new CopyOnWriteArrayList<>();
+      ConfigStore store = ConfigStore.shared(vertx, s -> s.onChange(published::add));
+      assertThat(ConfigStore.shared(vertx, s -> s.onChange(published::add))).isSameAs(store);
+      store.release(vertx);
+      store.release(vertx);
+      // e.g. a watch handed over to a caller that is already gone
+      store.watch(vertx);
+
+      write("app.yml", usd.replace("USD", "EUR"), 2_000_000L);
+      Thread.sleep(200);
+      assertThat(published).isEmpty();
+      assertThat(store.current().getAllowedCurrencies()).containsExactly("USD");
+
+      ConfigStore next = ConfigStore.shared(vertx, s -> { });
+      assertThat(next).isNotSameAs(store);
+      next.release(vertx);
+    } finally {
+      vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void watch_is_a_no_op_without_a_file() throws Exception {
+    Vertx vertx = Vertx.vertx();
+    try {
+      ConfigStore.of(LoyaltyConfig.defaults()).watch(vertx);
+    } finally {
+      vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    }
+  }
+}
@@ -0,0 +1,190 @@
+package com.kleadingsolutions.loyalty.jfr;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import jdk.jfr.EventType;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the /admin/jfr endpoints against a deployed MainVerticle and reads the dumped recording.
+ */
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class RecordingAdminTest {
+
+  private static final String PREFIX = "com.kleadingsolutions.loyalty.";
+
+  private final HttpClient http = HttpClient.newHttpClient();
+  private WireMockServer wireMock;
+  private Vertx vertx;
+  private int port;
+
+  @TempDir
+  Path dir;
+
+  @BeforeAll
+  void setup() throws Exception {
+    wireMock = new WireMockServer(0);
+    wireMock.start();
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).willReturn(okJson("{\"rate\":3.67}")));
+    wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).withQueryParam("currency", equalTo("EUR"))
+            .willReturn(aResponse().withStatus(503)));
+    wireMock.stubFor(get(urlPathEqualTo("/promo/SUMMER25"))
+            .willReturn(okJson("{\"code\":\"SUMMER25\",\"percent\":0.25,\"expiresInDays\":1}")));
+    wireMock.stubFor(get(urlPathEqualTo("/promo/NOPE")).willReturn(aResponse().withStatus(503)));
+
+    Properties props = new Properties();
+    props.setProperty("http.port", "0");
+    props.setProperty("fx.base.url", "http://localhost:" + wireMock.port());
+    props.setProperty("promo.base.url", "http://localhost:" + wireMock.port());
+    props.setProperty("fx.retry.delay.ms", "1");
+    props.setProperty("fx.cache.ttl.ms", "60000");
+    props.setProperty("jfr.admin.enabled", "true");
+    ConfigStore config = ConfigStore.of(LoyaltyConfig.fromClasspath(props));
+
+    vertx = Vertx.vertx();
+    vertx.deployVerticle(new MainVerticle(null, null, new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), config))
+            .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+    port = Integer.parseInt(System.getProperty("http.actual.port"));
+  }
+
+  @AfterAll
+  void teardown() throws Exception {
+    send("POST", "/admin/jfr/stop", null);
+    System.clearProperty("http.actual.port");
+    if (vertx != null) vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    if (wireMock != null) wireMock.stop();
+  }
+
+  private HttpResponse<byte[]> send(String method, String path, String body) throws Exception {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+            .header("content-type", "application/json")
+            .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+    return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private JsonObject json(HttpResponse<byte[]> response) {
+    return new JsonObject(new String(response.body()));
+  }
+
+  @Test
+  public void records_quote_and_upstream_events_in_a_bounded_recording() throws Exception {
+    assertThat(EventType.getEventType(QuoteRespondedEvent.class).isEnabled()).isFalse();
+    assertThat(QuoteEvents.beginResponse("/v1/points/quote")).isNull();
+    assertThat(json(send("GET", "/admin/jfr", null)).getString("state")).isEqualTo("STOPPED");
+    assertThat(send("GET", "/admin/jfr/dump", null).statusCode()).isEqualTo(404);
+    assertThat(send("POST", "/admin/jfr/stop", null).statusCode()).isEqualTo(404);
+
+    assertThat(send("POST", "/admin/jfr/start?maxAgeSeconds=901", null).statusCode()).isEqualTo(400);
+    assertThat(send("POST", "/admin/jfr/start?maxSizeMb=lots", null).statusCode()).isEqualTo(400);
+    assertThat(send("POST", "/admin/jfr/start?settings=everything", null).statusCode()).isEqualTo(400);
+
+    HttpResponse<byte[]> started = send("POST", "/admin/jfr/start?maxAgeSeconds=60&maxSizeMb=16", null);
+    assertThat(started.statusCode()).isEqualTo(200);
+    assertThat(json(started).getString("state")).isEqualTo("RUNNING");
+    assertThat(json(started).getLong("maxAgeSeconds")).isEqualTo(60L);
+    assertThat(json(started).getLong("maxSizeMb")).isEqualTo(16L);
+    assertThat(send("POST", "/admin/jfr/start", null).statusCode()).isEqualTo(409);
+    assertThat(json(send("GET", "/admin/jfr", null)).getString("state")).isEqualTo("RUNNING");
+
+    String quote = "{\"fareAmount\":1234.50,\"currency\":\"AED\",\"cabinClass\":\"ECONOMY\",\"customerTier\":\"SILVER\",\"promoCode\":\"SUMMER25\"}";
+    assertThat(send("POST", "/v1/points/quote", quote).statusCode()).isEqualTo(200);
+    assertThat(send("POST", "/v1/points/quote", quote).statusCode()).isEqualTo(200); // FX cache hit
+    assertThat(send("POST", "/v1/points/quote", quote.replace("AED", "EUR")).statusCode()).isEqualTo(502);
+    assertThat(send("POST", "/v1/points/quote/batch",
+            "{\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"promoCode\":\"NOPE\",\"fareAmounts\":[100.0,200.0]}")
+            .statusCode()).isEqualTo(200);
+
+    HttpResponse<byte[]> dump = send("GET", "/admin/jfr/dump", null);
+    assertThat(dump.statusCode()).isEqualTo(200);
+    assertThat(dump.headers().firstValue("content-disposition")).hasValueSatisfying(v -> assertThat(v).contains(".jfr"));
+    Path file = Files.write(dir.resolve("dump.jfr"), dump.body());
+    List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+            .filter(e -> e.getEventType().getName().startsWith(PREFIX))
+            .collect(Collectors.toList());
+
+    assertThat(named(events, "QuoteReceived")).hasSize(4)
+            .allSatisfy(e -> assertThat(e.getLong("bodyBytes")).isPositive());
+
+    List<RecordedEvent> responded = named(events, "QuoteResponded");
+    assertThat(responded).extracting(e -> e.getString("outcome"))
+            .containsExactlyInAnyOrder("ok", "ok", "fx_unavailable", "promo_unavailable");
+    RecordedEvent ok = responded.stream().filter(e -> e.getInt("status") == 200 && "SILVER".equals(e.getString("customerTier")))
+            .findFirst().orElseThrow();
+    assertThat(ok.getString("endpoint")).isEqualTo("/v1/points/quote");
+    assertThat(ok.getString("currency")).isEqualTo("AED");
+    assertThat(ok.getInt("fares")).isEqualTo(1);
+    assertThat(ok.getDuration().toNanos()).isPositive();
+    assertThat(ok.getDuration("parse").toNanos()).isPositive();
+    assertThat(ok.getDuration("serialize").toNanos()).isPositive();
+    assertThat(responded).anySatisfy(e -> {
+      assertThat(e.getString("endpoint")).isEqualTo("/v1/points/quote/batch");
+      assertThat(e.getInt("fares")).isEqualTo(2);
+    });
+
+    assertThat(named(events, "QuoteCalculated")).extracting(e -> e.getInt("fares")).containsExactlyInAnyOrder(1, 1, 2);
+
+    List<RecordedEvent> fx = named(events, "FxResolved");
+    assertThat(fx).anySatisfy(e -> {
+      assertThat(e.getString("currency")).isEqualTo("AED");
+      assertThat(e.getInt("attempts")).isEqualTo(1);
+      assertThat(e.getBoolean("cached")).isFalse();
+    });
+    assertThat(fx).anySatisfy(e -> assertThat(e.getBoolean("cached")).isTrue());
+    assertThat(fx).anySatisfy(e -> {
+      assertThat(e.getString("currency")).isEqualTo("EUR");
+      assertThat(e.getString("outcome")).isEqualTo("http_error");
+      assertThat(e.getInt("attempts")).isEqualTo(3);
+    });
+
+    assertThat(named(events, "PromoResolved")).extracting(e -> e.getString("promoCode") + "=" + e.getString("outcome"))
+            .contains("SUMMER25=success", "NOPE=http_error");
+
+    assertThat(json(send("POST", "/admin/jfr/stop", null)).getString("state")).isEqualTo("STOPPED");
+    assertThat(json(send("GET", "/admin/jfr", null)).getString("state")).isEqualTo("STOPPED");
+    assertThat(QuoteEvents.beginResponse("/v1/points/quote")).isNull();
+  }
+
+  @Test
+  public void threshold_keeps_only_slow_quotes() throws Exception {
+    assertThat(send("POST", "/admin/jfr/start?thresholdMs=60000&settings=profile", null).statusCode()).isEqualTo(200);
+    try {
+      assertThat(send("POST", "/v1/points/quote",
+              "{\"fareAmount\":100.0,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\"}").statusCode()).isEqualTo(200);
+      HttpResponse<byte[]> dump = send("GET", "/admin/jfr/dump", null);
+      Path file = Files.write(dir.resolve("slow.jfr"), dump.body());
+      assertThat(RecordingFile.readAllEvents(file)).noneMatch(e -> e.getEventType().getName().startsWith(PREFIX));
+    } finally {
+      send("POST", "/admin/jfr/stop", null);
+    }
+  }
+
+  private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+    return events.stream().filter(e -> e.getEventType().getName().equals(PREFIX + name)).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,169 @@
+package com.kleadingsolutions.loyalty.logging;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccessLogTest {
+
+  @TempDir
+  Path dir;
+
+  private LoyaltyConfig.Logging settings(Path file, int bufferSize) {
+    return new LoyaltyConfig.Logging(file.toString(), 64, 5, bufferSize, 10);
+  }
+
+  private static List<JsonObject> read(Path file) throws Exception {
+    return Files.readAllLines(file).stream().map(JsonObject::new).collect(Collectors.toList());
+  }
+
+  @Test
+  void without_a_file_nothing_is_logged() {
+    AccessLog log = AccessLog.open(new LoyaltyConfig.Logging("", 64, 5, 64, 10), null);
+
+    assertThat(log).isSameAs(AccessLog.NOOP);
+    assertThat(log.isEnabled()).isFalse();
+    log.log(null, "POST", "/v1/points/quote", 200, "ok", 1_000, -1, -1);
+    assertThat(log.dropped()).isZero();
+    log.close();
+  }
+
+  @Test
+  void writes_one_json_line_per_record_and_escapes_caller_ids() throws Exception {
+    Path file = dir.resolve("logs/access.log");
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    AccessLog log = AccessLog.open(settings(file, 64), registry);
+    AccessLog shared = AccessLog.open(settings(file, 64), registry);
+
+    log.log("abc\"\n1", "POST", "/v1/points/quote", 200, "ok", 1_840_000, 1_210_000, 30_000);
+    shared.log(null, "POST", "/v1/points/quote/batch", 502, "fx_unavailable", 5_000_000, 4_000_000, -1);
+    log.close();
+    shared.log(null, "POST", "/v1/points/quote", 400, "invalid", 90_000, -1, -1);
+    shared.close();
+
+    List<JsonObject> lines = read(file);
+    assertThat(lines).hasSize(3);
+    JsonObject first = lines.get(0);
+    assertThat(first.getString("id")).isEqualTo("abc\"\n1");
+    assertThat(first.getString("ts")).endsWith("Z");
+    assertThat(first.getString("method")).isEqualTo("POST");
+    assertThat(first.getString("path")).isEqualTo("/v1/points/quote");
+    assertThat(first.getInteger("status")).isEqualTo(200);
+    assertThat(first.getString("outcome")).isEqualTo("ok");
+    assertThat(first.getLong("latency_us")).isEqualTo(1840L);
+    assertThat(first.getLong("fx_us")).isEqualTo(1210L);
+    assertThat(first.getLong("promo_us")).isEqualTo(30L);
+    assertThat(lines.get(1).getString("id")).matches("[0-9a-f]+-1");
+    assertThat(lines.get(1).getLong("promo_us")).isEqualTo(-1L);
+    assertThat(lines.get(2).getString("id")).matches("[0-9a-f]+-2");
+    assertThat(registry.get(AccessLog.DROPPED_METRIC).functionCounter().count()).isZero();
+  }
+
+  @Test
+  void a_full_buffer_drops_records_instead_of_waiting() throws Exception {
+    Path file = dir.resolve("burst.log");
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    AccessLog log = AccessLog.open(settings(file, 64), registry);
+    int total = 200_000;
+    for (int i = 0; i < total; i++) {
+      log.log(null, "POST", "/v1/points/quote", 200, "ok", 1_000, 500, 0);
+    }
+    long dropped = log.dropped();
+    log.close();
+
+    assertThat(Files.readAllLines(file).size() + dropped).isEqualTo(total);
+    assertThat(registry.get(AccessLog.DROPPED_METRIC).functionCounter().count()).isEqualTo((double) dropped);
+  }
+
+  @Test
+  void rolls_files_by_size_and_keeps_max_files() throws Exception {
+    Path file = dir.resolve("roll.log");
+    String line = "x".repeat(39);
+    try (RollingFileWriter out = new RollingFileWriter(file, 100, 2)) {
+      for (int i = 0; i < 10; i++) {
+        out.writeLine(line);
+      }
+    }
+
+    assertThat(Files.readAllLines(file)).hasSize(2);
+    assertThat(Files.readAllLines(dir.resolve("roll.log.1"))).hasSize(2);
+    assertThat(Files.readAllLines(dir.resolve("roll.log.2"))).hasSize(2);
+    assertThat(dir.resolve("roll.log.3")).doesNotExist();
+  }
+
+  @Test
+  void quotes_are_logged_with_status_and_upstream_waits() throws Exception {
+    WireMockServer wireMock = new WireMockServer(0);
+    wireMock.start();
+    Vertx vertx = Vertx.vertx();
+    Path file = dir.resolve("quotes.log");
+    try {
+      wireMock.stubFor(get(urlPathEqualTo("/fx/rate")).willReturn(okJson("{\"rate\":3.67}")));
+      wireMock.stubFor(get(urlPathEqualTo("/promo/SUMMER25"))
+              .willReturn(okJson("{\"code\":\"SUMMER25\",\"percent\":0.25,\"expiresInDays\":1}")));
+      Properties props = new Properties();
+      props.setProperty("http.port", "0");
+      props.setProperty("fx.base.url", "http://localhost:" + wireMock.port());
+      props.setProperty("promo.base.url", "http://localhost:" + wireMock.port());
+      props.setProperty("fx.retry.delay.ms", "1");
+      props.setProperty("access.log.file", file.toString());
+      ConfigStore config = ConfigStore.of(LoyaltyConfig.fromClasspath(props));
+      vertx.deployVerticle(new MainVerticle(null, null, new PrometheusMeterRegistry(PrometheusConfig.DEFAULT), config))
+              .toCompletionStage().toCompletableFuture().get(10, TimeUnit.SECONDS);
+      int port = Integer.parseInt(System.getProperty("http.actual.port"));
+
+      HttpClient http = HttpClient.newHttpClient();
+      HttpResponse<String> ok = http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/points/quote"))
+              .header("content-type", "application/json")
+              .header("X-Request-Id", "req-42")
+              .POST(HttpRequest.BodyPublishers.ofString(
+                      "{\"fareAmount\":1234.50,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"promoCode\":\"SUMMER25\"}"))
+              .build(), HttpResponse.BodyHandlers.ofString());
+      HttpResponse<String> invalid = http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/v1/points/quote/batch"))
+              .header("content-type", "application/json")
+              .POST(HttpRequest.BodyPublishers.ofString("{\"currency\":\"USD\",\"fareAmounts\":[]}"))
+              .build(), HttpResponse.BodyHandlers.ofString());
+      assertThat(ok.statusCode()).isEqualTo(200);
+      assertThat(invalid.statusCode()).isEqualTo(400);
+    } finally {
+      System.clearProperty("http.actual.port");
+      vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+      wireMock.stop();
+    }
+
+    List<JsonObject> lines = read(file);
+    assertThat(lines).hasSize(2);
+    JsonObject quote = lines.stream().filter(l -> l.getInteger("status") == 200).findFirst().orElseThrow();
+    assertThat(quote.getString("id")).isEqualTo("req-42");
+    assertThat(quote.getString("path")).isEqualTo("/v1/points/quote");
+    assertThat(quote.getString("outcome")).isEqualTo("ok");
+    assertThat(quote.getLong("latency_us")).isPositive();
+    assertThat(quote.getLong("fx_us")).isPositive();
+    assertThat(quote.getLong("promo_us")).isNotNegative();
+    JsonObject batch = lines.stream().filter(l -> l.getInteger("status") == 400).findFirst().orElseThrow();
+    assertThat(batch.getString("path")).isEqualTo("/v1/points/quote/batch");
+    assertThat(batch.getString("outcome")).isEqualTo("invalid_request");
+    assertThat(batch.getLong("fx_us")).isEqualTo(-1L);
+  }
+}
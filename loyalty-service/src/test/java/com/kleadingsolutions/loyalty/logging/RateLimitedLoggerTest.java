@@ -0,0 +1,59 @@
+package com.kleadingsolutions.loyalty.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitedLoggerTest {
+
+  @Test
+  void lets_through_the_limit_per_second_and_reports_the_rest() {
+    Logger logger = Logger.getLogger(RateLimitedLoggerTest.class.getName() + ".limited");
+    logger.setUseParentHandlers(false);
+    List<LogRecord> records = new ArrayList<>();
+    logger.addHandler(new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        records.add(record);
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    });
+    AtomicLong now = new AtomicLong(5_000_000_000L);
+    RateLimitedLogger limited = new RateLimitedLogger(logger, 2, now::get);
+    AtomicInteger built = new AtomicInteger();
+    IllegalStateException boom = new IllegalStateException("boom");
+
+    for (int i = 0; i < 5; i++) {
+      limited.log(Level.WARNING, boom, () -> "failure " + built.incrementAndGet());
+    }
+    limited.log(Level.FINE, null, () -> "not loggable " + built.incrementAndGet());
+
+    assertThat(built).hasValue(2);
+    assertThat(records).extracting(LogRecord::getMessage).containsExactly("failure 1", "failure 2");
+    assertThat(records).allSatisfy(r -> assertThat(r.getThrown()).isSameAs(boom));
+    assertThat(limited.suppressed()).isEqualTo(3);
+
+    now.addAndGet(1_000_000_000L);
+    limited.log(Level.SEVERE, boom, () -> "failure " + built.incrementAndGet());
+
+    assertThat(records).extracting(LogRecord::getMessage)
+            .containsExactly("failure 1", "failure 2", "3 log records suppressed (limit 2/s)", "failure 3");
+    assertThat(limited.suppressed()).isZero();
+  }
+}
@@ -0,0 +1,172 @@
+package com.kleadingsolutions.loyalty.metrics;
+
+import com.kleadingsolutions.loyalty.LoyaltyLauncher;
+import com.kleadingsolutions.loyalty.MainVerticle;
+import com.kleadingsolutions.loyalty.client.impl.StubFxClient;
+import com.kleadingsolutions.loyalty.client.impl.StubPromoClient;
+import com.kleadingsolutions.loyalty.config.ConfigStore;
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.micrometer.MicrometerMetricsOptions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RuntimeMetricsTest {
+
+  private Vertx vertx;
+
+  @AfterEach
+  void close() throws Exception {
+    System.clearProperty("http.actual.port");
+    if (vertx != null) vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  private static ConfigStore ephemeralPort() {
+    Properties props = new Properties();
+    props.setProperty("http.port", "0");
+    return ConfigStore.of(LoyaltyConfig.fromClasspath(props));
+  }
+
+  private static double lagSamples(SimpleMeterRegistry registry) {
+    return registry.find(EventLoopLagProbe.LAG_TIMER).timers().stream().mapToLong(t -> t.count()).sum();
+  }
+
+  @Test
+  public void service_exposes_vertx_jvm_and_event_loop_metrics() throws Exception {
+    PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    vertx = Vertx.vertx(new VertxOptions().setMetricsOptions(RuntimeMetrics.vertxMetricsOptions(registry)));
+    MainVerticle verticle = new MainVerticle(new StubFxClient(), new StubPromoClient(), registry, ephemeralPort());
+    String id = vertx.deployVerticle(verticle).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    int port = Integer.parseInt(System.getProperty("http.actual.port"));
+
+    HttpResponse<String> health = HttpClient.newHttpClient().send(
+            HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/health")).build(),
+            HttpResponse.BodyHandlers.ofString());
+    assertThat(health.statusCode()).isEqualTo(200);
+    vertx.executeBlocking(p -> p.complete()).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (registry.find(EventLoopLagProbe.LAG_TIMER).timers().stream().allMatch(t -> t.count() == 0)
+            && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+
+    String scrape = registry.scrape();
+    assertThat(scrape)
+            .contains("vertx_http_server_requests_total")
+            .contains("vertx_pool_queue_time_seconds")
+            .contains("jvm_gc_memory_allocated_bytes_total")
+            .contains("jvm_memory_used_bytes")
+            .contains("jvm_threads_live_threads")
+            .contains("process_cpu_usage")
+            .contains("loyalty_event_loop_lag_seconds_bucket{loop=\"0\"")
+            .contains("loyalty_event_loop_pending_tasks{loop=\"0\"")
+            .doesNotContain("remote="); // client addresses are not used as labels
+    long loops = StreamSupport.stream(vertx.nettyEventLoopGroup().spliterator(), false).count();
+    assertThat(registry.find(EventLoopLagProbe.LAG_TIMER).timers())
+            .hasSize((int) loops)
+            .anyMatch(t -> t.count() > 0);
+
+    vertx.undeploy(id).toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    assertThat(registry.find(EventLoopLagProbe.LAG_TIMER).timers()).isEmpty();
+  }
+
+  @Test
+  public void binding_is_shared_per_registry_until_the_last_close() throws Exception {
+    vertx = Vertx.vertx();
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    RuntimeMetrics first = RuntimeMetrics.start(vertx, registry);
+    RuntimeMetrics second = RuntimeMetrics.start(vertx, registry);
+    int loops = registry.find(EventLoopLagProbe.LAG_TIMER).timers().size();
+    assertThat(loops).isPositive();
+
+    first.close();
+    first.close(); // idempotent, must not release the second reference
+    assertThat(registry.find(EventLoopLagProbe.LAG_TIMER).timers()).hasSize(loops);
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (lagSamples(registry) == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(20);
+    }
+    assertThat(lagSamples(registry)).isPositive();
+
+    second.close();
+    assertThat(registry.find(EventLoopLagProbe.LAG_TIMER).timers()).isEmpty();
+    assertThat(registry.find("jvm.gc.memory.allocated").counter()).isNotNull();
+  }
+
+  @Test
+  public void launcher_enables_vertx_metrics_and_verticle_shares_the_registry() throws Exception {
+    VertxOptions options = new VertxOptions();
+    new LoyaltyLauncher().beforeStartingVertx(options);
+    assertThat(options.getMetricsOptions()).isInstanceOf(MicrometerMetricsOptions.class);
+    MicrometerMetricsOptions metrics = (MicrometerMetricsOptions) options.getMetricsOptions();
+    assertThat(metrics.isEnabled()).isTrue();
+    assertThat(metrics.getMicrometerRegistry()).isInstanceOf(PrometheusMeterRegistry.class);
+
+    vertx = Vertx.vertx(options);
+    assertThat(RuntimeMetrics.prometheusRegistry()).isSameAs(metrics.getMicrometerRegistry());
+    assertThat(new MainVerticle().getMeterRegistry()).isSameAs(metrics.getMicrometerRegistry());
+
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    vertx = null;
+    assertThat(RuntimeMetrics.prometheusRegistry()).isNotSameAs(metrics.getMicrometerRegistry());
+
+    System.setProperty("vertx.metrics.options.enabled", "false");
+    try {
+      VertxOptions disabled = new VertxOptions();
+      new LoyaltyLauncher().beforeStartingVertx(disabled);
+      assertThat(disabled.getMetricsOptions().isEnabled()).isFalse();
+    } finally {
+      System.clearProperty("vertx.metrics.options.enabled");
+    }
+  }
+
+  @Test
+  public void launcher_prefers_a_native_transport_and_reports_it() throws Exception {
+    LoyaltyLauncher launcher = new LoyaltyLauncher();
+    VertxOptions options = new VertxOptions();
+    launcher.beforeStartingVertx(options);
+    assertThat(options.getPreferNativeTransport()).isTrue();
+
+    vertx = Vertx.vertx(options);
+    launcher.afterStartingVertx(vertx);
+    String transport = RuntimeMetrics.transport(vertx);
+    // epoll ships with the service; NIO only where it cannot load (non-Linux, unsupported arch)
+    if (vertx.isNativeTransportEnabled()) {
+      assertThat(transport).isIn("epoll", "io_uring", "kqueue");
+    } else {
+      assertThat(transport).isEqualTo("nio");
+      assertThat(vertx.unavailableNativeTransportCause()).isNotNull();
+    }
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    try (RuntimeMetrics ignored = RuntimeMetrics.start(vertx, registry)) {
+      assertThat(registry.get(RuntimeMetrics.TRANSPORT_METRIC).tag("transport", transport).gauge().value()).isEqualTo(1.0);
+    }
+
+    System.setProperty("transport.native", "false");
+    try {
+      VertxOptions nio = LoyaltyLauncher.configure(new VertxOptions());
+      assertThat(nio.getPreferNativeTransport()).isFalse();
+      Vertx plain = Vertx.vertx(nio);
+      assertThat(RuntimeMetrics.transport(plain)).isEqualTo("nio");
+      plain.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+    } finally {
+      System.clearProperty("transport.native");
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.kleadingsolutions.loyalty.metrics;
+
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.Router;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ScrapeHandlerTest {
+
+  private Vertx vertx;
+  private PrometheusMeterRegistry registry;
+  private final AtomicReference<String> scrapeThread = new AtomicReference<>();
+  private final HttpClient http = HttpClient.newHttpClient();
+
+  @BeforeEach
+  void setup() {
+    vertx = Vertx.vertx();
+    registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    Gauge.builder("scrape_probe", () -> {
+      scrapeThread.set(Thread.currentThread().getName());
+      return 1;
+    }).register(registry);
+  }
+
+  @AfterEach
+  void teardown() throws Exception {
+    vertx.close().toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS);
+  }
+
+  private int serve(LoyaltyConfig.Metrics settings) throws Exception {
+    Router router = Router.router(vertx);
+    router.get("/metrics").handler(new ScrapeHandler(registry, () -> settings));
+    return vertx.createHttpServer().requestHandler(router).listen(0)
+            .toCompletionStage().toCompletableFuture().get(5, TimeUnit.SECONDS).actualPort();
+  }
+
+  private HttpResponse<byte[]> get(int port, String acceptEncoding) throws Exception {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/metrics"));
+    if (acceptEncoding != null) request.header("Accept-Encoding", acceptEncoding);
+    return http.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+  }
+
+  private long renders() {
+    return registry.get(ScrapeHandler.SCRAPE_TIMER).timer().count();
+  }
+
+  @Test
+  public void renders_on_a_worker_and_reuses_the_result_within_the_cache_window() throws Exception {
+    int port = serve(new LoyaltyConfig.Metrics(60_000, true));
+
+    HttpResponse<byte[]> plain = get(port, null);
+    assertThat(plain.statusCode()).isEqualTo(200);
+    assertThat(plain.headers().firstValue("content-type")).hasValue(ScrapeHandler.CONTENT_TYPE);
+    assertThat(plain.headers().firstValue("content-encoding")).isEmpty();
+    assertThat(new String(plain.body(), StandardCharsets.UTF_8)).contains("scrape_probe 1.0");
+    assertThat(scrapeThread.get()).contains("worker").doesNotContain("eventloop");
+
+    HttpResponse<byte[]> gzipped = get(port, "br, gzip;q=0.8");
+    assertThat(gzipped.headers().firstValue("content-encoding")).hasValue("gzip");
+    assertThat(gzipped.headers().firstValue("vary")).hasValueSatisfying(v -> assertThat(v).containsIgnoringCase("accept-encoding"));
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.body()))) {
+      assertThat(in.readAllBytes()).isEqualTo(plain.body());
+    }
+    assertThat(renders()).isEqualTo(1);
+  }
+
+  @Test
+  public void concurrent_scrapes_share_one_render_when_not_caching() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Gauge.builder("slow_probe", () -> {
+      try {
+        release.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return 1;
+    }).register(registry);
+    int port = serve(new LoyaltyConfig.Metrics(0, false));
+
+    List<CompletableFuture<HttpResponse<byte[]>>> responses = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      responses.add(http.sendAsync(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/metrics"))
+              .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray()));
+    }
+    Thread.sleep(300); // let all four arrive while the first render is blocked
+    release.countDown();
+    for (CompletableFuture<HttpResponse<byte[]>> r : responses) {
+      HttpResponse<byte[]> response = r.get(5, TimeUnit.SECONDS);
+      assertThat(response.statusCode()).isEqualTo(200);
+      assertThat(response.headers().firstValue("content-encoding")).isEmpty(); // gzip disabled
+    }
+    assertThat(renders()).isEqualTo(1);
+
+    get(port, null);
+    assertThat(renders()).isEqualTo(2); // nothing cached once done
+  }
+
+  @Test
+  public void openmetrics_is_served_when_asked_for_and_cached_separately() throws Exception {
+    int port = serve(new LoyaltyConfig.Metrics(60_000, false));
+
+    HttpResponse<String> openMetrics = http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/metrics"))
+            .header("Accept", "application/openmetrics-text; version=1.0.0, text/plain;q=0.5").build(),
+            HttpResponse.BodyHandlers.ofString());
+    assertThat(openMetrics.headers().firstValue("content-type")).hasValue(ScrapeHandler.OPENMETRICS_CONTENT_TYPE);
+    assertThat(openMetrics.headers().firstValue("vary")).hasValue("Accept");
+    assertThat(openMetrics.body()).contains("scrape_probe 1.0").endsWith("# EOF\n");
+
+    HttpResponse<byte[]> plain = get(port, null);
+    assertThat(plain.headers().firstValue("content-type")).hasValue(ScrapeHandler.CONTENT_TYPE);
+    assertThat(new String(plain.body(), StandardCharsets.UTF_8)).doesNotContain("# EOF");
+    assertThat(renders()).isEqualTo(2);
+
+    assertThat(ScrapeHandler.acceptsOpenMetrics("text/plain")).isFalse();
+    assertThat(ScrapeHandler.acceptsOpenMetrics(null)).isFalse();
+  }
+
+  @Test
+  public void accept_encoding_parsing() {
+    assertThat(ScrapeHandler.acceptsGzip("gzip")).isTrue();
+    assertThat(ScrapeHandler.acceptsGzip("deflate, GZIP ; q=0.5")).isTrue();
+    assertThat(ScrapeHandler.acceptsGzip("*")).isTrue();
+    assertThat(ScrapeHandler.acceptsGzip(null)).isFalse();
+    assertThat(ScrapeHandler.acceptsGzip("identity")).isFalse();
+    assertThat(ScrapeHandler.acceptsGzip("gzip;q=0")).isFalse();
+    assertThat(ScrapeHandler.acceptsGzip("gzip;q=0.0, br")).isFalse();
+    assertThat(ScrapeHandler.acceptsGzip("gzip;q=x")).isFalse();
+  }
+}
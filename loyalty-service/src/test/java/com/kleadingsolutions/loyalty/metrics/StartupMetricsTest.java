@@ -0,0 +1,27 @@
+package com.kleadingsolutions.loyalty.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupMetricsTest {
+
+  @Test
+  void only_the_first_quote_and_bind_are_recorded() {
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    StartupMetrics.bind(registry);
+
+    StartupMetrics.listening();
+    StartupMetrics.quoteServed();
+    long first = StartupMetrics.firstQuoteMillis();
+    StartupMetrics.quoteServed();
+    StartupMetrics.listening();
+
+    assertThat(first).isNotNegative();
+    assertThat(StartupMetrics.firstQuoteMillis()).isEqualTo(first);
+    assertThat(registry.get("loyalty_startup_first_quote_seconds").gauge().value()).isEqualTo(first / 1000.0);
+    assertThat(registry.get("loyalty_startup_listening_seconds").gauge().value()).isNotNaN().isLessThanOrEqualTo(
+            registry.get("loyalty_startup_first_quote_seconds").gauge().value() + 60);
+  }
+}
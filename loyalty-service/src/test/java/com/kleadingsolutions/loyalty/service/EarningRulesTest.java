@@ -0,0 +1,95 @@
+package com.kleadingsolutions.loyalty.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class EarningRulesTest {
+
+  private static EarningRules yaml(String yaml) throws IOException {
+    return EarningRules.fromYaml(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)));
+  }
+
+  @Test
+  public void bundled_config_matches_original_rules() {
+    EarningRules rules = EarningRules.fromClasspath();
+
+    assertThat(rules.getCap()).isEqualTo(50_000L);
+    assertThat(rules.getRounding()).isEqualTo(PointsRounding.FLOOR);
+    assertThat(rules.getPromoStacking()).isEqualTo(PromoStacking.ADDITIVE);
+    assertThat(rules.getNearExpiryDays()).isEqualTo(2);
+    for (CabinClass c : CabinClass.values()) {
+      assertThat(rules.cabinMultiplier(c)).isEqualTo(1.0);
+    }
+    for (CustomerTier t : CustomerTier.values()) {
+      assertThat(rules.tierBonus(t)).isEqualTo(t.bonusRate());
+    }
+  }
+
+  @Test
+  public void reads_business_section() throws Exception {
+    EarningRules rules = yaml(String.join("\n",
+            "business:",
+            "  promo:",
+            "    near-expiry-days: 5",
+            "    stacking: compound",
+            "  points:",
+            "    cap: 80000",
+            "    rounding: HALF_UP",
+            "    cabin-multipliers:",
+            "      BUSINESS: 1.5",
+            "      first: 2",
+            "    tier-bonus:",
+            "      GOLD: 0.4"));
+
+    assertThat(rules.getNearExpiryDays()).isEqualTo(5);
+    assertThat(rules.getPromoStacking()).isEqualTo(PromoStacking.COMPOUND);
+    assertThat(rules.getCap()).isEqualTo(80_000L);
+    assertThat(rules.getRounding()).isEqualTo(PointsRounding.HALF_UP);
+    assertThat(rules.cabinMultiplier(CabinClass.BUSINESS)).isEqualTo(1.5);
+    assertThat(rules.cabinMultiplier(CabinClass.FIRST)).isEqualTo(2.0);
+    assertThat(rules.cabinMultiplier(CabinClass.ECONOMY)).isEqualTo(1.0);
+    assertThat(rules.tierBonus(CustomerTier.GOLD)).isEqualTo(0.4);
+    assertThat(rules.tierBonus(CustomerTier.SILVER)).isEqualTo(0.15);
+  }
+
+  @Test
+  public void missing_section_gives_defaults() throws Exception {
+    EarningRules rules = yaml("server:\n  port: 8888\n");
+
+    assertThat(rules.getCap()).isEqualTo(EarningRules.defaults().getCap());
+    assertThat(rules.getRounding()).isEqualTo(PointsRounding.FLOOR);
+  }
+
+  @Test
+  public void rejects_invalid_values() {
+    assertThatThrownBy(() -> yaml("business:\n  points:\n    rounding: BANKERS\n"))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("business.points.rounding");
+    assertThatThrownBy(() -> yaml("business:\n  points:\n    cabin-multipliers:\n      COACH: 1.0\n"))
+            .hasMessageContaining("business.points.cabin-multipliers");
+    assertThatThrownBy(() -> yaml("business:\n  points:\n    tier-bonus:\n      GOLD: -0.1\n"))
+            .hasMessageContaining("tier bonus for GOLD");
+    assertThatThrownBy(() -> yaml("business:\n  points:\n    cap: 0\n")).hasMessageContaining("cap");
+    assertThatThrownBy(() -> yaml("business:\n  promo:\n    near-expiry-days: -1\n")).hasMessageContaining("near-expiry-days");
+  }
+
+  @Test
+  public void rejects_non_numeric_values_instead_of_reading_zero() {
+    assertThatThrownBy(() -> yaml("business:\n  points:\n    cabin-multipliers:\n      BUSINESS: abc\n"))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("'abc'").hasMessageContaining("business.points.cabin-multipliers.BUSINESS");
+    assertThatThrownBy(() -> yaml("business:\n  points:\n    tier-bonus:\n      GOLD: lots\n"))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("business.points.tier-bonus.GOLD");
+    assertThatThrownBy(() -> yaml("business:\n  points:\n    cap: 50k\n"))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("business.points.cap");
+    assertThatThrownBy(() -> yaml("business:\n  points:\n    cap: 1.5\n"))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("business.points.cap");
+    assertThatThrownBy(() -> yaml("business:\n  promo:\n    near-expiry-days: soon\n"))
+            .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("business.promo.near-expiry-days");
+  }
+}
@@ -0,0 +1,115 @@
+package com.kleadingsolutions.loyalty.service;
+
+import com.kleadingsolutions.loyalty.dto.Promo;
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FareKernelTest {
+
+  private static final int[] SIZES = {1, 3, 7, 8, 15, 16, 17, 63, 257, 1000};
+
+  private static EarningRules rules(PointsRounding rounding, PromoStacking stacking) {
+    return EarningRules.builder()
+            .cap(20_000)
+            .rounding(rounding)
+            .promoStacking(stacking)
+            .cabinMultiplier(CabinClass.BUSINESS, 1.5)
+            .tierBonus(CustomerTier.GOLD, 0.35)
+            .build();
+  }
+
+  private static double[] fares(int n, long seed) {
+    SplittableRandom random = new SplittableRandom(seed);
+    double[] fares = new double[n];
+    for (int i = 0; i < n; i++) {
+      // cents, plus a few that land exactly on .5 after conversion and some that hit the cap
+      fares[i] = i % 11 == 0 ? 0.5 * (1 + random.nextInt(400)) : Math.round(random.nextDouble(1.0, 9_000.0) * 100) / 100.0;
+    }
+    return fares;
+  }
+
+  private static void assertMatchesPerFare(FareKernel kernel, PointsCalculatorService calc, int n, CustomerTier tier,
+                                           CabinClass cabin, double fx, Promo promo) {
+    double[] fares = fares(n, n * 31L + tier.ordinal());
+    PointsBatch batch = calc.calculateBatch(kernel, fares, n, tier, cabin, fx, promo, new PointsBatch(n));
+    PointsResult single = new PointsResult();
+    assertThat(batch.size()).isEqualTo(n);
+    for (int i = 0; i < n; i++) {
+      calc.calculateInto(fares[i], tier, cabin, fx, promo, single);
+      String at = kernel.getClass().getSimpleName() + " fare[" + i + "]=" + fares[i];
+      assertThat(batch.basePoints()[i]).as(at).isEqualTo(single.getBasePoints());
+      assertThat(batch.tierBonus()[i]).as(at).isEqualTo(single.getTierBonus());
+      assertThat(batch.promoBonus()[i]).as(at).isEqualTo(single.getPromoBonus());
+      assertThat(batch.totalPoints()[i]).as(at).isEqualTo(single.getTotalPoints());
+    }
+    assertThat(batch.getWarnings()).isEqualTo(single.getWarnings());
+  }
+
+  @Test
+  public void kernels_match_single_fare_calculation_for_every_rule_combination() {
+    Promo promo = new Promo();
+    promo.setPercent(0.2);
+    promo.setExpiresInDays(1);
+    for (PointsRounding rounding : PointsRounding.values()) {
+      for (PromoStacking stacking : PromoStacking.values()) {
+        PointsCalculatorService calc = new PointsCalculatorService(EarningPlan.compile(rules(rounding, stacking)));
+        for (int n : SIZES) {
+          assertMatchesPerFare(FareKernels.scalar(), calc, n, CustomerTier.GOLD, CabinClass.BUSINESS, 3.67, promo);
+          assertMatchesPerFare(FareKernels.scalar(), calc, n, CustomerTier.NONE, null, 1.0, null);
+          if (FareKernels.vector() != null) {
+            assertMatchesPerFare(FareKernels.vector(), calc, n, CustomerTier.GOLD, CabinClass.BUSINESS, 3.67, promo);
+            assertMatchesPerFare(FareKernels.vector(), calc, n, CustomerTier.SILVER, CabinClass.ECONOMY, 0.27, null);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void vector_kernel_is_preferred_when_module_is_present() {
+    // surefire runs with --add-modules jdk.incubator.vector
+    assertThat(FareKernels.vector()).isNotNull();
+    assertThat(FareKernels.preferred()).isSameAs(FareKernels.vector());
+  }
+
+  @Test
+  public void vector_kernel_hands_out_of_range_batches_to_scalar() {
+    PointsCalculatorService calc = new PointsCalculatorService(EarningPlan.compile(EarningRules.builder().cap(Long.MAX_VALUE).build()));
+    double[] fares = fares(64, 7);
+    fares[40] = 9.0e15;
+    PointsBatch vector = calc.calculateBatch(FareKernels.vector(), fares, 64, CustomerTier.GOLD, null, 3.67, null, new PointsBatch(64));
+    PointsBatch scalar = calc.calculateBatch(FareKernels.scalar(), fares, 64, CustomerTier.GOLD, null, 3.67, null, new PointsBatch(64));
+
+    assertThat(vector.totalPoints()).containsExactly(scalar.totalPoints());
+    assertThat(vector.basePoints()[40]).isEqualTo((long) Math.floor(9.0e15 * 3.67));
+  }
+
+  @Test
+  public void unknown_kernel_class_falls_back() {
+    assertThat(FareKernels.load("com.kleadingsolutions.loyalty.service.NoSuchKernel")).isNull();
+  }
+
+  @Test
+  public void batch_larger_than_buffer_is_rejected() {
+    PointsCalculatorService calc = new PointsCalculatorService(EarningPlan.defaults());
+    assertThatThrownBy(() -> calc.calculateBatch(new double[]{1, 2, 3}, 3, CustomerTier.NONE, null, 1.0, null, new PointsBatch(2)))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void buffer_is_reusable_for_smaller_batches() {
+    PointsCalculatorService calc = new PointsCalculatorService(EarningPlan.defaults());
+    PointsBatch batch = new PointsBatch(32);
+    calc.calculateBatch(fares(32, 1), 32, CustomerTier.GOLD, null, 2.0, null, batch);
+    calc.calculateBatch(new double[]{100.0, 250.0}, 2, CustomerTier.NONE, null, 1.0, null, batch);
+
+    assertThat(batch.size()).isEqualTo(2);
+    assertThat(batch.totalPoints()[0]).isEqualTo(100L);
+    assertThat(batch.totalPoints()[1]).isEqualTo(250L);
+    assertThat(batch.warningList()).isEmpty();
+  }
+}
@@ -0,0 +1,165 @@
+package com.kleadingsolutions.loyalty.service;
+
+import com.kleadingsolutions.loyalty.dto.Promo;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FixedPointTest {
+
+  private static PointsCalculatorService calc(PointsRounding rounding, PromoStacking stacking, PointsArithmetic arithmetic) {
+    return new PointsCalculatorService(EarningPlan.compile(EarningRules.builder()
+            .cap(Long.MAX_VALUE / 4)
+            .rounding(rounding)
+            .promoStacking(stacking)
+            .arithmetic(arithmetic)
+            .cabinMultiplier(CabinClass.BUSINESS, 1.25)
+            .build()));
+  }
+
+  private static Promo promo(double percent) {
+    Promo promo = new Promo();
+    promo.setPercent(percent);
+    promo.setExpiresInDays(10);
+    return promo;
+  }
+
+  private static long round(BigDecimal x, PointsRounding rounding) {
+    RoundingMode mode = rounding == PointsRounding.HALF_UP ? RoundingMode.HALF_UP
+            : rounding == PointsRounding.CEILING ? RoundingMode.CEILING : RoundingMode.FLOOR;
+    return x.setScale(0, mode).longValueExact();
+  }
+
+  /** The same rules evaluated on BigDecimal, as a reference. */
+  private static long[] reference(String fare, String fx, String cabin, String tierRate, String promoRate,
+                                  PointsRounding rounding, PromoStacking stacking) {
+    long b = round(new BigDecimal(fare).multiply(new BigDecimal(fx)).multiply(new BigDecimal(cabin)), rounding);
+    long t = round(BigDecimal.valueOf(b).multiply(new BigDecimal(tierRate)), rounding);
+    long promoBase = stacking == PromoStacking.COMPOUND ? b + t : b;
+    long p = round(BigDecimal.valueOf(promoBase).multiply(new BigDecimal(promoRate)), rounding);
+    if (stacking == PromoStacking.EXCLUSIVE) {
+      if (p > t) t = 0; else p = 0;
+    }
+    return new long[]{b, t, p};
+  }
+
+  @Test
+  public void exact_where_double_product_lands_just_below_a_point() {
+    PointsCalculatorService doubles = calc(PointsRounding.FLOOR, PromoStacking.ADDITIVE, PointsArithmetic.DOUBLE);
+    PointsCalculatorService fixed = calc(PointsRounding.FLOOR, PromoStacking.ADDITIVE, PointsArithmetic.FIXED);
+    QuoteRequest req = new QuoteRequest();
+    req.setFareAmount(100.00);
+    req.setCurrency("USD");
+
+    assertThat(doubles.calculate(req, 1.15, null).getBasePoints()).isEqualTo(114L);
+    assertThat(fixed.calculate(req, 1.15, null).getBasePoints()).isEqualTo(115L);
+  }
+
+  @Test
+  public void matches_bigdecimal_for_every_rounding_and_stacking_mode() {
+    SplittableRandom random = new SplittableRandom(11);
+    PointsResult out = new PointsResult();
+    for (PointsRounding rounding : PointsRounding.values()) {
+      for (PromoStacking stacking : PromoStacking.values()) {
+        PointsCalculatorService fixed = calc(rounding, stacking, PointsArithmetic.FIXED);
+        for (int i = 0; i < 2_000; i++) {
+          long minor = random.nextLong(1, 10_000_000L);
+          long fxMicros = random.nextLong(1, 5_000_000L);
+          long promoBp = random.nextLong(0, 10_000L);
+          CabinClass cabin = random.nextBoolean() ? CabinClass.BUSINESS : null;
+          fixed.calculateFixedInto(minor, 2, CustomerTier.GOLD, cabin, fxMicros / 1e6, promo(promoBp / 1e4), out);
+
+          long[] expected = reference(BigDecimal.valueOf(minor, 2).toPlainString(), BigDecimal.valueOf(fxMicros, 6).toPlainString(),
+                  cabin == null ? "1" : "1.25", "0.30", BigDecimal.valueOf(promoBp, 4).toPlainString(), rounding, stacking);
+          String at = rounding + "/" + stacking + " " + minor + "c @ " + fxMicros + "e-6";
+          assertThat(out.getBasePoints()).as(at).isEqualTo(expected[0]);
+          assertThat(out.getTierBonus()).as(at).isEqualTo(expected[1]);
+          assertThat(out.getPromoBonus()).as(at).isEqualTo(expected[2]);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void products_beyond_64_bits_stay_exact() {
+    PointsCalculatorService fixed = calc(PointsRounding.HALF_UP, PromoStacking.ADDITIVE, PointsArithmetic.FIXED);
+    PointsResult out = fixed.calculateFixedInto(987_654_321_012L, 2, CustomerTier.NONE, CabinClass.BUSINESS, 3.672519, null, new PointsResult());
+
+    long[] expected = reference("9876543210.12", "3.672519", "1.25", "0", "0", PointsRounding.HALF_UP, PromoStacking.ADDITIVE);
+    assertThat(out.getBasePoints()).isEqualTo(expected[0]);
+  }
+
+  @Test
+  public void fare_is_taken_in_minor_units_of_the_request_currency() {
+    assertThat(FixedPoint.fractionDigits("USD")).isEqualTo(2);
+    assertThat(FixedPoint.fractionDigits("jpy")).isEqualTo(0);
+    assertThat(FixedPoint.fractionDigits("BHD")).isEqualTo(3);
+    assertThat(FixedPoint.fractionDigits("XXX")).isEqualTo(2);
+    assertThat(FixedPoint.fractionDigits("NOPE")).isEqualTo(2);
+    assertThat(FixedPoint.fractionDigits(null)).isEqualTo(2);
+
+    PointsCalculatorService fixed = calc(PointsRounding.FLOOR, PromoStacking.ADDITIVE, PointsArithmetic.FIXED);
+    QuoteRequest req = new QuoteRequest();
+    req.setFareAmount(12.345);
+    req.setCurrency("BHD");
+    // 12.345 BHD x 100 = 1234.5
+    assertThat(fixed.calculate(req, 100.0, null).getBasePoints()).isEqualTo(1234L);
+  }
+
+  @Test
+  public void fares_finer_than_the_minor_unit_round_half_up() {
+    assertThat(FixedPoint.toScaled(123.456, FixedPoint.pow10(2))).isEqualTo(12346L);
+    assertThat(FixedPoint.toScaled(123.454, FixedPoint.pow10(2))).isEqualTo(12345L);
+    assertThat(FixedPoint.toScaled(1.5, FixedPoint.pow10(0))).isEqualTo(2L);
+
+    PointsCalculatorService fixed = calc(PointsRounding.FLOOR, PromoStacking.ADDITIVE, PointsArithmetic.FIXED);
+    QuoteRequest precise = new QuoteRequest();
+    precise.setFareAmount(123.456);
+    precise.setCurrency("USD");
+    QuoteRequest cents = new QuoteRequest();
+    cents.setFareAmount(123.46);
+    cents.setCurrency("USD");
+    assertThat(fixed.calculate(precise, 3.67, null).getBasePoints())
+            .isEqualTo(fixed.calculate(cents, 3.67, null).getBasePoints())
+            .isEqualTo(453L);
+  }
+
+  @Test
+  public void integer_division_rounds_per_mode() {
+    assertThat(FixedPoint.divide(25, 10, EarningPlan.ROUND_FLOOR)).isEqualTo(2L);
+    assertThat(FixedPoint.divide(25, 10, EarningPlan.ROUND_HALF_UP)).isEqualTo(3L);
+    assertThat(FixedPoint.divide(24, 10, EarningPlan.ROUND_HALF_UP)).isEqualTo(2L);
+    assertThat(FixedPoint.divide(21, 10, EarningPlan.ROUND_CEILING)).isEqualTo(3L);
+    assertThat(FixedPoint.divide(20, 10, EarningPlan.ROUND_CEILING)).isEqualTo(2L);
+  }
+
+  @Test
+  public void batch_follows_fixed_mode() {
+    PointsCalculatorService fixed = calc(PointsRounding.FLOOR, PromoStacking.COMPOUND, PointsArithmetic.FIXED);
+    double[] fares = {100.00, 1234.50, 19.99};
+    PointsBatch batch = fixed.calculateBatch("USD", fares, 3, CustomerTier.SILVER, null, 1.15, promo(0.25), new PointsBatch(3));
+
+    PointsResult single = new PointsResult();
+    for (int i = 0; i < fares.length; i++) {
+      fixed.calculateFixedInto(Math.round(fares[i] * 100), 2, CustomerTier.SILVER, null, 1.15, promo(0.25), single);
+      assertThat(batch.totalPoints()[i]).isEqualTo(single.getTotalPoints());
+    }
+    assertThat(batch.basePoints()[0]).isEqualTo(115L);
+  }
+
+  @Test
+  public void arithmetic_is_read_from_config() throws Exception {
+    String yaml = "business:\n  points:\n    arithmetic: fixed\n";
+    EarningRules rules = EarningRules.fromYaml(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)));
+
+    assertThat(rules.getArithmetic()).isEqualTo(PointsArithmetic.FIXED);
+    assertThat(EarningRules.fromClasspath().getArithmetic()).isEqualTo(PointsArithmetic.DOUBLE);
+  }
+}
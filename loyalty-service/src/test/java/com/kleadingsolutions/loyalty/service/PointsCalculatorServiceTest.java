@@ -5,7 +5,10 @@ import com.kleadingsolutions.loyalty.dto.QuoteRequest;
 import com.kleadingsolutions.loyalty.dto.QuoteResponse;
 import org.junit.jupiter.api.Test;
 
+import java.lang.management.ManagementFactory;
+
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class PointsCalculatorServiceTest {
   PointsCalculatorService calc = new PointsCalculatorService();
@@ -80,4 +83,177 @@ public class PointsCalculatorServiceTest {
     r = calc.calculate(req, 100.0, promo); // large FX to push totals high
     assertThat(r.getTotalPoints()).isEqualTo(50_000L); // capped
   }
-}
\ No newline at end of file
+
+  @Test
+  public void tier_lookup_is_case_insensitive_and_defaults_to_none() {
+    assertThat(CustomerTier.parse("gold")).isEqualTo(CustomerTier.GOLD);
+    assertThat(CustomerTier.parse("Platinum")).isEqualTo(CustomerTier.PLATINUM);
+    assertThat(CustomerTier.parse("DIAMOND")).isEqualTo(CustomerTier.NONE);
+    assertThat(CustomerTier.parse(null)).isEqualTo(CustomerTier.NONE);
+  }
+
+  @Test
+  public void calculateInto_overwrites_reused_result() {
+    Promo promo = new Promo();
+    promo.setPercent(0.25);
+    promo.setExpiresInDays(1);
+    PointsResult out = new PointsResult();
+
+    calc.calculateInto(100.0, CustomerTier.SILVER, CabinClass.ECONOMY, 3.0, promo, out);
+    assertThat(out.getTotalPoints()).isEqualTo(420L);
+    assertThat(out.hasWarning(PointsResult.PROMO_EXPIRES_SOON)).isTrue();
+
+    assertThat(calc.calculateInto(100.0, CustomerTier.NONE, null, 3.0, null, out)).isSameAs(out);
+    assertThat(out.getPromoBonus()).isZero();
+    assertThat(out.getWarnings()).isZero();
+    assertThat(out.warningList()).isEmpty();
+  }
+
+  @Test
+  public void warnings_are_shared_immutable_lists() {
+    QuoteRequest req = new QuoteRequest();
+    req.setFareAmount(10.0);
+    Promo promo = new Promo();
+    promo.setPercent(0.10);
+    promo.setExpiresInDays(1);
+
+    QuoteResponse a = PointsCalculatorService.shared().calculate(req, 1.0, promo);
+    QuoteResponse b = PointsCalculatorService.shared().calculate(req, 1.0, promo);
+    assertThat(a.getWarnings()).isSameAs(b.getWarnings()).containsExactly("PROMO_EXPIRES_SOON");
+    assertThatThrownBy(() -> a.getWarnings().add("X")).isInstanceOf(UnsupportedOperationException.class);
+  }
+
+  @Test
+  public void calculateInto_does_not_allocate() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Promo promo = new Promo();
+    promo.setPercent(0.25);
+    promo.setExpiresInDays(1);
+    QuoteRequest req = new QuoteRequest();
+    req.setFareAmount(1234.5);
+    req.setCustomerTier("gold");
+    PointsResult out = new PointsResult();
+    PointsCalculatorService shared = PointsCalculatorService.shared();
+
+    long sink = 0;
+    for (int i = 0; i < 20_000; i++) {
+      sink += shared.calculateInto(req, 3.67, promo, out).getTotalPoints();
+    }
+    long tid = Thread.currentThread().getId();
+    long before = threads.getThreadAllocatedBytes(tid);
+    for (int i = 0; i < 100_000; i++) {
+      sink += shared.calculateInto(req, 3.67, (i & 1) == 0 ? promo : null, out).getTotalPoints();
+    }
+    long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+    assertThat(sink).isPositive();
+    // a single object per call would be >= 1.6 MB; allow a little for the measurement itself
+    assertThat(allocated).isLessThan(4096);
+  }
+
+  @Test
+  public void fixed_batch_does_not_allocate() {
+    com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    PointsCalculatorService fixed = new PointsCalculatorService(
+            EarningPlan.compile(EarningRules.builder().arithmetic(PointsArithmetic.FIXED).build()));
+    Promo promo = promo(0.25, 1);
+    double[] fares = {1234.5, 99.99, 0.01, 5000.0, 42.42, 310.0, 18.75, 760.05};
+    PointsBatch out = new PointsBatch(fares.length);
+
+    long sink = 0;
+    for (int i = 0; i < 20_000; i++) {
+      sink += fixed.calculateBatch("USD", fares, fares.length, CustomerTier.GOLD, CabinClass.BUSINESS, 3.67, promo, out)
+              .totalPoints()[0];
+    }
+    long tid = Thread.currentThread().getId();
+    long before = threads.getThreadAllocatedBytes(tid);
+    for (int i = 0; i < 20_000; i++) {
+      sink += fixed.calculateBatch("USD", fares, fares.length, CustomerTier.GOLD, CabinClass.BUSINESS, 3.67,
+              (i & 1) == 0 ? promo : null, out).totalPoints()[0];
+    }
+    long allocated = threads.getThreadAllocatedBytes(tid) - before;
+
+    assertThat(sink).isPositive();
+    // a result per batch would be >= 640 KB
+    assertThat(allocated).isLessThan(4096);
+  }
+
+  private static Promo promo(double percent, int expiresInDays) {
+    Promo promo = new Promo();
+    promo.setPercent(percent);
+    promo.setExpiresInDays(expiresInDays);
+    return promo;
+  }
+
+  private static PointsResult calc(EarningRules rules, double fare, CustomerTier tier, CabinClass cabin, Promo promo) {
+    return new PointsCalculatorService(EarningPlan.compile(rules)).calculateInto(fare, tier, cabin, 1.0, promo, new PointsResult());
+  }
+
+  @Test
+  public void cabin_multiplier_applies_to_base_points() {
+    EarningRules rules = EarningRules.builder().cabinMultiplier(CabinClass.BUSINESS, 1.5).build();
+
+    assertThat(calc(rules, 100.0, CustomerTier.GOLD, CabinClass.BUSINESS, null).getBasePoints()).isEqualTo(150L);
+    assertThat(calc(rules, 100.0, CustomerTier.GOLD, CabinClass.BUSINESS, null).getTierBonus()).isEqualTo(45L);
+    assertThat(calc(rules, 100.0, CustomerTier.GOLD, CabinClass.ECONOMY, null).getBasePoints()).isEqualTo(100L);
+    assertThat(calc(rules, 100.0, CustomerTier.GOLD, null, null).getBasePoints()).isEqualTo(100L);
+  }
+
+  @Test
+  public void rounding_modes() {
+    // base 10.5 -> 10 / 11 / 11
+    assertThat(calc(EarningRules.defaults(), 10.5, CustomerTier.NONE, null, null).getBasePoints()).isEqualTo(10L);
+    assertThat(calc(EarningRules.builder().rounding(PointsRounding.HALF_UP).build(), 10.5, CustomerTier.NONE, null, null)
+            .getBasePoints()).isEqualTo(11L);
+    assertThat(calc(EarningRules.builder().rounding(PointsRounding.CEILING).build(), 10.2, CustomerTier.NONE, null, null)
+            .getBasePoints()).isEqualTo(11L);
+  }
+
+  @Test
+  public void promo_stacking_modes() {
+    // base 1000, SILVER 150, promo 10%
+    PointsResult additive = calc(EarningRules.defaults(), 1000.0, CustomerTier.SILVER, null, promo(0.10, 10));
+    assertThat(additive.getPromoBonus()).isEqualTo(100L);
+    assertThat(additive.getTotalPoints()).isEqualTo(1250L);
+
+    PointsResult compound = calc(EarningRules.builder().promoStacking(PromoStacking.COMPOUND).build(),
+            1000.0, CustomerTier.SILVER, null, promo(0.10, 10));
+    assertThat(compound.getPromoBonus()).isEqualTo(115L);
+    assertThat(compound.getTotalPoints()).isEqualTo(1265L);
+
+    EarningRules exclusive = EarningRules.builder().promoStacking(PromoStacking.EXCLUSIVE).build();
+    PointsResult tierWins = calc(exclusive, 1000.0, CustomerTier.SILVER, null, promo(0.10, 10));
+    assertThat(tierWins.getTierBonus()).isEqualTo(150L);
+    assertThat(tierWins.getPromoBonus()).isZero();
+    PointsResult promoWins = calc(exclusive, 1000.0, CustomerTier.SILVER, null, promo(0.25, 1));
+    assertThat(promoWins.getTierBonus()).isZero();
+    assertThat(promoWins.getPromoBonus()).isEqualTo(250L);
+    assertThat(promoWins.hasWarning(PointsResult.PROMO_EXPIRES_SOON)).isTrue();
+  }
+
+  @Test
+  public void cap_and_near_expiry_are_configurable() {
+    EarningRules rules = EarningRules.builder().cap(1000).nearExpiryDays(7).build();
+    PointsResult r = calc(rules, 5000.0, CustomerTier.NONE, null, promo(0.10, 7));
+
+    assertThat(r.getTotalPoints()).isEqualTo(1000L);
+    assertThat(r.hasWarning(PointsResult.PROMO_EXPIRES_SOON)).isTrue();
+  }
+
+  @Test
+  public void rules_swap_atomically() {
+    PointsCalculatorService service = new PointsCalculatorService();
+    EarningPlan original = service.plan();
+    QuoteRequest req = new QuoteRequest();
+    req.setFareAmount(100.0);
+    req.setCabinClass("first");
+
+    assertThat(service.calculate(req, 1.0, null).getBasePoints()).isEqualTo(100L);
+    EarningPlan replaced = service.setRules(EarningRules.builder().cabinMultiplier(CabinClass.FIRST, 3.0).build());
+
+    assertThat(replaced).isSameAs(original);
+    assertThat(service.plan().rules().cabinMultiplier(CabinClass.FIRST)).isEqualTo(3.0);
+    assertThat(service.calculate(req, 1.0, null).getBasePoints()).isEqualTo(300L);
+    assertThat(PointsCalculatorService.shared().calculate(req, 1.0, null).getBasePoints()).isEqualTo(100L);
+  }
+}
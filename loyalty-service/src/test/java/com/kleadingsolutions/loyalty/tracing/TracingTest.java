@@ -0,0 +1,83 @@
+package com.kleadingsolutions.loyalty.tracing;
+
+import com.kleadingsolutions.loyalty.config.LoyaltyConfig;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.TraceFlags;
+import io.opentelemetry.api.trace.TraceState;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import io.opentelemetry.sdk.trace.samplers.SamplingDecision;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TracingTest {
+
+  private static final String TRACE_ID = "4bf92f3577b34da6a3ce929d0e0e4736";
+
+  @Test
+  void without_an_endpoint_tracing_is_off() {
+    Tracing tracing = Tracing.create(new LoyaltyConfig.Tracing("", "", 1.0), Map.of());
+
+    assertThat(tracing).isSameAs(Tracing.NOOP);
+    assertThat(tracing.isEnabled()).isFalse();
+    assertThat(tracing.tracer().spanBuilder("x").startSpan().isRecording()).isFalse();
+    tracing.close();
+  }
+
+  @Test
+  void endpoint_can_come_from_the_standard_environment_variable() {
+    Tracing tracing = Tracing.create(new LoyaltyConfig.Tracing("", "", 0.5),
+            Map.of("OTEL_EXPORTER_OTLP_ENDPOINT", "http://localhost:1", "OTEL_SERVICE_NAME", "quotes"));
+    try {
+      assertThat(tracing.isEnabled()).isTrue();
+      assertThat(tracing.propagator().fields()).contains("traceparent");
+    } finally {
+      tracing.shutdown();
+      tracing.close();
+    }
+  }
+
+  @Test
+  void sampler_follows_the_parent_and_applies_the_ratio_to_new_traces() {
+    Sampler never = Tracing.sampler(0.0);
+    Sampler always = Tracing.sampler(1.0);
+
+    assertThat(decide(never, Context.root())).isEqualTo(SamplingDecision.DROP);
+    assertThat(decide(always, Context.root())).isEqualTo(SamplingDecision.RECORD_AND_SAMPLE);
+    assertThat(decide(never, remoteParent(TraceFlags.getSampled()))).isEqualTo(SamplingDecision.RECORD_AND_SAMPLE);
+    assertThat(decide(always, remoteParent(TraceFlags.getDefault()))).isEqualTo(SamplingDecision.DROP);
+  }
+
+  @Test
+  void exemplars_use_the_current_span() {
+    TraceExemplars exemplars = new TraceExemplars();
+    assertThat(exemplars.getTraceId()).isNull();
+    assertThat(exemplars.getSpanId()).isNull();
+    assertThat(exemplars.isSampled()).isFalse();
+
+    SpanContext sampled = SpanContext.create(TRACE_ID, "00f067aa0ba902b7", TraceFlags.getSampled(), TraceState.getDefault());
+    try (Scope ignored = Span.wrap(sampled).makeCurrent()) {
+      assertThat(exemplars.getTraceId()).isEqualTo(TRACE_ID);
+      assertThat(exemplars.getSpanId()).isEqualTo("00f067aa0ba902b7");
+      assertThat(exemplars.isSampled()).isTrue();
+    }
+  }
+
+  private static Context remoteParent(TraceFlags flags) {
+    return Context.root().with(Span.wrap(
+            SpanContext.createFromRemoteParent(TRACE_ID, "00f067aa0ba902b7", flags, TraceState.getDefault())));
+  }
+
+  private static SamplingDecision decide(Sampler sampler, Context parent) {
+    return sampler.shouldSample(parent, TRACE_ID, "POST /v1/points/quote", SpanKind.SERVER, Attributes.empty(), List.of())
+            .getDecision();
+  }
+}
@@ -0,0 +1,81 @@
+package com.kleadingsolutions.loyalty.tools.replay;
+
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Command line entry point for replaying recorded quotes.
+ *
+ * Usage: QuoteReplayTool --input quotes.jsonl [--threads N] [--iterations N] [--max-mismatches N]
+ *
+ * Exit codes: 0 all results match, 1 mismatches or errors, 2 usage / input error.
+ */
+public final class QuoteReplayTool {
+
+  static final int EXIT_OK = 0;
+  static final int EXIT_MISMATCH = 1;
+  static final int EXIT_USAGE = 2;
+
+  private static final String USAGE =
+          "usage: QuoteReplayTool --input <file.jsonl> [--threads N] [--iterations N] [--max-mismatches N]";
+
+  private QuoteReplayTool() {
+  }
+
+  public static void main(String[] args) {
+    System.exit(run(args, System.out, System.err));
+  }
+
+  static int run(String[] args, PrintStream out, PrintStream err) {
+    Path input = null;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int iterations = 1;
+    int maxMismatches = 20;
+    try {
+      for (int i = 0; i < args.length; i++) {
+        String arg = args[i];
+        switch (arg) {
+          case "--input" -> input = Path.of(value(args, ++i, arg));
+          case "--threads" -> threads = Integer.parseInt(value(args, ++i, arg));
+          case "--iterations" -> iterations = Integer.parseInt(value(args, ++i, arg));
+          case "--max-mismatches" -> maxMismatches = Integer.parseInt(value(args, ++i, arg));
+          default -> throw new IllegalArgumentException("unknown argument: " + arg);
+        }
+      }
+      if (input == null) {
+        throw new IllegalArgumentException("--input is required");
+      }
+      if (!Files.isReadable(input)) {
+        throw new IllegalArgumentException("cannot read " + input);
+      }
+
+      List<ReplayRecord> records = ReplayRecords.read(input);
+      QuoteReplayer replayer = new QuoteReplayer(PointsCalculatorService::new, threads, iterations, maxMismatches);
+      ReplayReport report = replayer.replay(records);
+      report.print(out);
+      return report.isClean() ? EXIT_OK : EXIT_MISMATCH;
+    } catch (IllegalArgumentException e) {
+      err.println(e.getMessage());
+      err.println(USAGE);
+      return EXIT_USAGE;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      err.println("interrupted");
+      return EXIT_USAGE;
+    } catch (Exception e) {
+      err.println("replay failed: " + e);
+      return EXIT_USAGE;
+    }
+  }
+
+  private static String value(String[] args, int index, String flag) {
+    if (index >= args.length) {
+      throw new IllegalArgumentException(flag + " requires a value");
+    }
+    return args[index];
+  }
+}
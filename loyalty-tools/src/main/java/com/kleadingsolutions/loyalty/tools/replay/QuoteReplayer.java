@@ -0,0 +1,184 @@
+package com.kleadingsolutions.loyalty.tools.replay;
+
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+import org.HdrHistogram.Histogram;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Replays recorded quotes through {@link PointsCalculatorService} on a fixed thread pool.
+ * Records are split into one contiguous slice per thread; each thread keeps its own histogram
+ * so workers never contend, and results are merged once all threads are done.
+ * Correctness is checked on the first pass only, later passes ({@code iterations > 1}) are for load.
+ */
+public class QuoteReplayer {
+
+  static final String PROMO_UNAVAILABLE = "PROMO_UNAVAILABLE";
+
+  // 1ns..60s at 3 significant digits
+  private static final long HIGHEST_TRACKABLE_NANOS = 60_000_000_000L;
+
+  private final Supplier<PointsCalculatorService> calcSupplier;
+  private final int threads;
+  private final int iterations;
+  private final int maxReportedMismatches;
+
+  public QuoteReplayer(Supplier<PointsCalculatorService> calcSupplier, int threads, int iterations,
+                       int maxReportedMismatches) {
+    if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+    if (iterations < 1) throw new IllegalArgumentException("iterations must be >= 1");
+    this.calcSupplier = Objects.requireNonNull(calcSupplier, "calcSupplier");
+    this.threads = threads;
+    this.iterations = iterations;
+    this.maxReportedMismatches = Math.max(0, maxReportedMismatches);
+  }
+
+  public ReplayReport replay(List<ReplayRecord> records) throws InterruptedException {
+    int workers = Math.max(1, Math.min(threads, records.size()));
+    ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+      Thread t = new Thread(r, "quote-replay");
+      t.setDaemon(true);
+      return t;
+    });
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Slice>> futures = new ArrayList<>(workers);
+      int chunk = (records.size() + workers - 1) / workers;
+      for (int w = 0; w < workers; w++) {
+        int from = Math.min(records.size(), w * chunk);
+        int to = Math.min(records.size(), from + chunk);
+        futures.add(pool.submit(() -> runSlice(records, from, to, start)));
+      }
+
+      long t0 = System.nanoTime();
+      start.countDown();
+      List<Slice> slices = new ArrayList<>(workers);
+      for (Future<Slice> f : futures) {
+        try {
+          slices.add(f.get());
+        } catch (ExecutionException e) {
+          throw new IllegalStateException("replay worker failed", e.getCause());
+        }
+      }
+      long elapsed = System.nanoTime() - t0;
+
+      Histogram merged = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+      List<ReplayReport.Mismatch> mismatches = new ArrayList<>();
+      long mismatchCount = 0;
+      long errors = 0;
+      long calculations = 0;
+      for (Slice s : slices) {
+        merged.add(s.latency);
+        mismatches.addAll(s.mismatches);
+        mismatchCount += s.mismatchCount;
+        errors += s.errors;
+        calculations += s.calculations;
+      }
+      mismatches.sort((a, b) -> Integer.compare(a.recordIndex(), b.recordIndex()));
+      if (mismatches.size() > maxReportedMismatches) {
+        mismatches = mismatches.subList(0, maxReportedMismatches);
+      }
+      return new ReplayReport(records.size(), calculations, mismatchCount, mismatches, errors,
+              elapsed, workers, merged);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private Slice runSlice(List<ReplayRecord> records, int from, int to, CountDownLatch start)
+          throws InterruptedException {
+    Slice slice = new Slice();
+    PointsCalculatorService calc = calcSupplier.get();
+    start.await();
+    for (int pass = 0; pass < iterations; pass++) {
+      for (int i = from; i < to; i++) {
+        ReplayRecord rec = records.get(i);
+        QuoteResponse actual;
+        long t0 = System.nanoTime();
+        try {
+          actual = calc.calculate(rec.getRequest(), rec.getFxRate(), rec.isPromoUnavailable() ? null : rec.getPromo());
+        } catch (RuntimeException e) {
+          slice.calculations++;
+          if (pass == 0) {
+            slice.errors++;
+            slice.addMismatch(new ReplayReport.Mismatch(i, "exception", "-", String.valueOf(e)), maxReportedMismatches);
+          }
+          continue;
+        }
+        slice.latency.recordValue(Math.min(System.nanoTime() - t0, HIGHEST_TRACKABLE_NANOS));
+        slice.calculations++;
+        if (pass == 0) {
+          ReplayReport.Mismatch m = compare(i, rec, actual);
+          if (m != null) {
+            slice.addMismatch(m, maxReportedMismatches);
+          }
+        }
+      }
+    }
+    return slice;
+  }
+
+  /** Returns the first differing field, or null when the replayed result matches the recording. */
+  static ReplayReport.Mismatch compare(int index, ReplayRecord rec, QuoteResponse actual) {
+    QuoteResponse expected = rec.getExpected();
+    if (expected.getBasePoints() != actual.getBasePoints()) {
+      return new ReplayReport.Mismatch(index, "basePoints", String.valueOf(expected.getBasePoints()), String.valueOf(actual.getBasePoints()));
+    }
+    if (expected.getTierBonus() != actual.getTierBonus()) {
+      return new ReplayReport.Mismatch(index, "tierBonus", String.valueOf(expected.getTierBonus()), String.valueOf(actual.getTierBonus()));
+    }
+    if (expected.getPromoBonus() != actual.getPromoBonus()) {
+      return new ReplayReport.Mismatch(index, "promoBonus", String.valueOf(expected.getPromoBonus()), String.valueOf(actual.getPromoBonus()));
+    }
+    if (expected.getTotalPoints() != actual.getTotalPoints()) {
+      return new ReplayReport.Mismatch(index, "totalPoints", String.valueOf(expected.getTotalPoints()), String.valueOf(actual.getTotalPoints()));
+    }
+    if (Double.compare(expected.getEffectiveFxRate(), actual.getEffectiveFxRate()) != 0) {
+      return new ReplayReport.Mismatch(index, "effectiveFxRate", String.valueOf(expected.getEffectiveFxRate()), String.valueOf(actual.getEffectiveFxRate()));
+    }
+    List<String> actualWarnings = actualWarnings(rec, actual);
+    List<String> expectedWarnings = expected.getWarnings() == null ? List.of() : expected.getWarnings();
+    if (actualWarnings.size() != expectedWarnings.size()
+            || !new HashSet<>(actualWarnings).equals(new HashSet<>(expectedWarnings))) {
+      return new ReplayReport.Mismatch(index, "warnings", expectedWarnings.toString(), actualWarnings.toString());
+    }
+    return null;
+  }
+
+  // mirrors QuoteHandler: a failed promo lookup is priced without promo and flagged PROMO_UNAVAILABLE
+  private static List<String> actualWarnings(ReplayRecord rec, QuoteResponse actual) {
+    List<String> warnings = actual.getWarnings() == null ? Collections.emptyList() : actual.getWarnings();
+    if (!rec.isPromoUnavailable()) {
+      return warnings;
+    }
+    List<String> merged = new ArrayList<>(warnings);
+    merged.add(PROMO_UNAVAILABLE);
+    return merged;
+  }
+
+  private static final class Slice {
+    final Histogram latency = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    final List<ReplayReport.Mismatch> mismatches = new ArrayList<>();
+    long mismatchCount;
+    long errors;
+    long calculations;
+
+    void addMismatch(ReplayReport.Mismatch m, int keep) {
+      mismatchCount++;
+      if (mismatches.size() < keep) {
+        mismatches.add(m);
+      }
+    }
+  }
+}
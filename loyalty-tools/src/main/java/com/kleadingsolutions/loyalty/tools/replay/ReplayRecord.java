@@ -0,0 +1,33 @@
+package com.kleadingsolutions.loyalty.tools.replay;
+
+import com.kleadingsolutions.loyalty.dto.Promo;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+
+/**
+ * One recorded quote: the request, the upstream values that were used to price it and the response
+ * that was returned. Stored one per line (JSON Lines), e.g.
+ * {"request":{...},"fxRate":3.67,"promo":{...},"promoUnavailable":false,"expected":{...}}
+ */
+public class ReplayRecord {
+  private QuoteRequest request;
+  private double fxRate;
+  private Promo promo; // null when no promo code or promo lookup returned nothing
+  private boolean promoUnavailable; // promo lookup failed; QuoteHandler added PROMO_UNAVAILABLE
+  private QuoteResponse expected;
+
+  public QuoteRequest getRequest() { return request; }
+  public void setRequest(QuoteRequest request) { this.request = request; }
+
+  public double getFxRate() { return fxRate; }
+  public void setFxRate(double fxRate) { this.fxRate = fxRate; }
+
+  public Promo getPromo() { return promo; }
+  public void setPromo(Promo promo) { this.promo = promo; }
+
+  public boolean isPromoUnavailable() { return promoUnavailable; }
+  public void setPromoUnavailable(boolean promoUnavailable) { this.promoUnavailable = promoUnavailable; }
+
+  public QuoteResponse getExpected() { return expected; }
+  public void setExpected(QuoteResponse expected) { this.expected = expected; }
+}
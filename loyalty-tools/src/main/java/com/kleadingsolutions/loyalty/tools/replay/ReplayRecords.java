@@ -0,0 +1,56 @@
+package com.kleadingsolutions.loyalty.tools.replay;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads recorded quotes from a JSON Lines file. Blank lines and lines starting with '#' are skipped,
+ * unknown properties are ignored so recordings may carry extra fields (timestamps, request ids...).
+ */
+public final class ReplayRecords {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+          .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+  private ReplayRecords() {
+  }
+
+  public static List<ReplayRecord> read(Path file) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return read(reader);
+    }
+  }
+
+  static List<ReplayRecord> read(BufferedReader reader) throws IOException {
+    List<ReplayRecord> records = new ArrayList<>();
+    String line;
+    int lineNo = 0;
+    while ((line = reader.readLine()) != null) {
+      lineNo++;
+      String trimmed = line.trim();
+      if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+        continue;
+      }
+      ReplayRecord rec;
+      try {
+        rec = MAPPER.readValue(trimmed, ReplayRecord.class);
+      } catch (JsonProcessingException e) {
+        throw new IllegalArgumentException("line " + lineNo + ": invalid record: " + e.getOriginalMessage(), e);
+      }
+      if (rec.getRequest() == null || rec.getExpected() == null) {
+        throw new IllegalArgumentException("line " + lineNo + ": 'request' and 'expected' are required");
+      }
+      records.add(rec);
+    }
+    return records;
+  }
+}
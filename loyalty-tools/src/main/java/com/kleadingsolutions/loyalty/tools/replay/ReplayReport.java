@@ -0,0 +1,83 @@
+package com.kleadingsolutions.loyalty.tools.replay;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Outcome of a replay run: correctness (mismatches against the recorded responses) and
+ * performance (throughput and per-calculation latency percentiles).
+ */
+public final class ReplayReport {
+
+  /** A replayed result that differs from the recorded one. */
+  public record Mismatch(int recordIndex, String field, String expected, String actual) {
+  }
+
+  private final int records;
+  private final long calculations;
+  private final long mismatchCount;
+  private final List<Mismatch> mismatches;
+  private final long errors;
+  private final long elapsedNanos;
+  private final int threads;
+  private final Histogram latencyNanos;
+
+  ReplayReport(int records, long calculations, long mismatchCount, List<Mismatch> mismatches, long errors,
+               long elapsedNanos, int threads, Histogram latencyNanos) {
+    this.records = records;
+    this.calculations = calculations;
+    this.mismatchCount = mismatchCount;
+    this.mismatches = List.copyOf(mismatches);
+    this.errors = errors;
+    this.elapsedNanos = elapsedNanos;
+    this.threads = threads;
+    this.latencyNanos = latencyNanos;
+  }
+
+  public int getRecords() { return records; }
+
+  public long getCalculations() { return calculations; }
+
+  /** Total number of mismatching records; {@link #getMismatches()} may hold only the first few. */
+  public long getMismatchCount() { return mismatchCount; }
+
+  public List<Mismatch> getMismatches() { return mismatches; }
+
+  /** Records whose calculation threw instead of returning a result (also counted as mismatches). */
+  public long getErrors() { return errors; }
+
+  public long getElapsedNanos() { return elapsedNanos; }
+
+  public Histogram getLatencyNanos() { return latencyNanos; }
+
+  public boolean isClean() {
+    return mismatchCount == 0 && errors == 0;
+  }
+
+  public double getThroughputPerSecond() {
+    return elapsedNanos <= 0 ? 0.0 : calculations * 1_000_000_000.0 / elapsedNanos;
+  }
+
+  public void print(PrintStream out) {
+    out.printf(Locale.ROOT, "records=%d calculations=%d threads=%d elapsed=%.3fs%n",
+            records, calculations, threads, elapsedNanos / 1e9);
+    out.printf(Locale.ROOT, "throughput=%.0f calc/s%n", getThroughputPerSecond());
+    out.printf(Locale.ROOT, "latency(ns): p50=%d p90=%d p99=%d p99.9=%d max=%d%n",
+            latencyNanos.getValueAtPercentile(50.0),
+            latencyNanos.getValueAtPercentile(90.0),
+            latencyNanos.getValueAtPercentile(99.0),
+            latencyNanos.getValueAtPercentile(99.9),
+            latencyNanos.getMaxValue());
+    out.printf(Locale.ROOT, "mismatches=%d errors=%d%n", mismatchCount, errors);
+    for (Mismatch m : mismatches) {
+      out.printf(Locale.ROOT, "  record #%d %s: expected=%s actual=%s%n",
+              m.recordIndex(), m.field(), m.expected(), m.actual());
+    }
+    if (mismatchCount > mismatches.size()) {
+      out.printf(Locale.ROOT, "  ... %d more not shown%n", mismatchCount - mismatches.size());
+    }
+  }
+}
@@ -0,0 +1,63 @@
+package com.kleadingsolutions.loyalty.tools.replay;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class QuoteReplayToolTest {
+
+  private static final String MATCHING =
+          "{\"request\":{\"fareAmount\":100.0,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"customerTier\":\"SILVER\"},"
+                  + "\"fxRate\":3.0,\"expected\":{\"basePoints\":300,\"tierBonus\":45,\"promoBonus\":0,\"totalPoints\":345,\"effectiveFxRate\":3.0}}";
+
+  private static final String PROMO_DOWN =
+          "{\"request\":{\"fareAmount\":100.0,\"currency\":\"USD\",\"cabinClass\":\"ECONOMY\",\"customerTier\":\"NONE\",\"promoCode\":\"SUMMER25\"},"
+                  + "\"fxRate\":3.0,\"promoUnavailable\":true,"
+                  + "\"expected\":{\"basePoints\":300,\"tierBonus\":0,\"promoBonus\":0,\"totalPoints\":300,\"effectiveFxRate\":3.0,\"warnings\":[\"PROMO_UNAVAILABLE\"]}}";
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private final ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+  private int run(String... args) {
+    return QuoteReplayTool.run(args, new PrintStream(out, true, StandardCharsets.UTF_8),
+            new PrintStream(err, true, StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void clean_replay_exits_zero_and_prints_report(@TempDir Path dir) throws Exception {
+    Path file = Files.writeString(dir.resolve("quotes.jsonl"), MATCHING + "\n" + PROMO_DOWN + "\n");
+
+    int code = run("--input", file.toString(), "--threads", "2", "--iterations", "5");
+
+    assertThat(code).isEqualTo(QuoteReplayTool.EXIT_OK);
+    String report = out.toString(StandardCharsets.UTF_8);
+    assertThat(report).contains("records=2", "calculations=10", "throughput=", "p99=", "mismatches=0 errors=0");
+  }
+
+  @Test
+  public void mismatch_exits_one(@TempDir Path dir) throws Exception {
+    Path file = Files.writeString(dir.resolve("quotes.jsonl"), MATCHING.replace("\"totalPoints\":345", "\"totalPoints\":346"));
+
+    int code = run("--input", file.toString(), "--max-mismatches", "5");
+
+    assertThat(code).isEqualTo(QuoteReplayTool.EXIT_MISMATCH);
+    assertThat(out.toString(StandardCharsets.UTF_8)).contains("record #0 totalPoints: expected=346 actual=345");
+  }
+
+  @Test
+  public void usage_errors_exit_two(@TempDir Path dir) throws Exception {
+    assertThat(run()).isEqualTo(QuoteReplayTool.EXIT_USAGE);
+    assertThat(run("--bogus")).isEqualTo(QuoteReplayTool.EXIT_USAGE);
+    assertThat(run("--threads")).isEqualTo(QuoteReplayTool.EXIT_USAGE);
+    assertThat(run("--input", dir.resolve("missing.jsonl").toString())).isEqualTo(QuoteReplayTool.EXIT_USAGE);
+    assertThat(run("--input", Files.writeString(dir.resolve("bad.jsonl"), "{").toString())).isEqualTo(QuoteReplayTool.EXIT_USAGE);
+    assertThat(err.toString(StandardCharsets.UTF_8)).contains("usage:");
+  }
+}
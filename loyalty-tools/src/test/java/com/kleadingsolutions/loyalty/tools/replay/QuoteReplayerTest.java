@@ -0,0 +1,156 @@
+package com.kleadingsolutions.loyalty.tools.replay;
+
+import com.kleadingsolutions.loyalty.dto.Promo;
+import com.kleadingsolutions.loyalty.dto.QuoteRequest;
+import com.kleadingsolutions.loyalty.dto.QuoteResponse;
+import com.kleadingsolutions.loyalty.service.PointsCalculatorService;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class QuoteReplayerTest {
+
+  private static ReplayRecord record(double fare, String tier, double fx, Promo promo, boolean promoUnavailable) {
+    QuoteRequest req = new QuoteRequest();
+    req.setFareAmount(fare);
+    req.setCurrency("USD");
+    req.setCabinClass("ECONOMY");
+    req.setCustomerTier(tier);
+
+    QuoteResponse expected = new PointsCalculatorService().calculate(req, fx, promoUnavailable ? null : promo);
+    if (promoUnavailable) {
+      List<String> warnings = new ArrayList<>(expected.getWarnings());
+      warnings.add("PROMO_UNAVAILABLE");
+      expected.setWarnings(warnings);
+    }
+
+    ReplayRecord rec = new ReplayRecord();
+    rec.setRequest(req);
+    rec.setFxRate(fx);
+    rec.setPromo(promo);
+    rec.setPromoUnavailable(promoUnavailable);
+    rec.setExpected(expected);
+    return rec;
+  }
+
+  private static Promo promo(double percent, int expiresInDays) {
+    Promo p = new Promo();
+    p.setCode("P");
+    p.setPercent(percent);
+    p.setExpiresInDays(expiresInDays);
+    return p;
+  }
+
+  private static List<ReplayRecord> sample(int n) {
+    List<ReplayRecord> records = new ArrayList<>();
+    for (int i = 0; i < n; i++) {
+      records.add(record(50.0 + i, i % 2 == 0 ? "GOLD" : "SILVER", 3.67, i % 3 == 0 ? promo(0.25, 1) : null, i % 5 == 0));
+    }
+    return records;
+  }
+
+  @Test
+  public void matching_recordings_replay_clean_across_threads() throws Exception {
+    List<ReplayRecord> records = sample(101);
+
+    ReplayReport report = new QuoteReplayer(PointsCalculatorService::new, 4, 3, 10).replay(records);
+
+    assertThat(report.isClean()).isTrue();
+    assertThat(report.getRecords()).isEqualTo(101);
+    assertThat(report.getCalculations()).isEqualTo(303L);
+    assertThat(report.getLatencyNanos().getTotalCount()).isEqualTo(303L);
+    assertThat(report.getThroughputPerSecond()).isPositive();
+  }
+
+  @Test
+  public void differing_results_are_reported_once_per_record() throws Exception {
+    List<ReplayRecord> records = sample(10);
+    records.get(3).getExpected().setTotalPoints(1);
+    records.get(7).getExpected().setTierBonus(-1);
+
+    ReplayReport report = new QuoteReplayer(PointsCalculatorService::new, 3, 2, 1).replay(records);
+
+    assertThat(report.isClean()).isFalse();
+    assertThat(report.getMismatchCount()).isEqualTo(2L);
+    // only the first mismatch is kept for display
+    assertThat(report.getMismatches()).hasSize(1);
+    assertThat(report.getMismatches().get(0).recordIndex()).isEqualTo(3);
+    assertThat(report.getMismatches().get(0).field()).isEqualTo("totalPoints");
+  }
+
+  @Test
+  public void calculator_exceptions_count_as_errors() throws Exception {
+    PointsCalculatorService throwing = new PointsCalculatorService() {
+      @Override
+      public QuoteResponse calculate(QuoteRequest req, double effectiveFxRate, Promo promo) {
+        throw new IllegalStateException("boom");
+      }
+    };
+
+    ReplayReport report = new QuoteReplayer(() -> throwing, 2, 1, 5).replay(sample(4));
+
+    assertThat(report.getErrors()).isEqualTo(4L);
+    assertThat(report.getMismatches()).extracting(ReplayReport.Mismatch::field).containsOnly("exception");
+  }
+
+  @Test
+  public void compare_detects_each_field() {
+    ReplayRecord rec = record(100.0, "SILVER", 3.0, promo(0.25, 1), false);
+    QuoteResponse actual = new PointsCalculatorService().calculate(rec.getRequest(), 3.0, rec.getPromo());
+    assertThat(QuoteReplayer.compare(0, rec, actual)).isNull();
+
+    actual.setEffectiveFxRate(3.1);
+    assertThat(QuoteReplayer.compare(0, rec, actual).field()).isEqualTo("effectiveFxRate");
+    actual.setEffectiveFxRate(3.0);
+
+    actual.setWarnings(List.of());
+    assertThat(QuoteReplayer.compare(0, rec, actual).field()).isEqualTo("warnings");
+
+    actual.setPromoBonus(0);
+    assertThat(QuoteReplayer.compare(0, rec, actual).field()).isEqualTo("promoBonus");
+
+    actual.setBasePoints(0);
+    assertThat(QuoteReplayer.compare(0, rec, actual).field()).isEqualTo("basePoints");
+  }
+
+  @Test
+  public void invalid_arguments_are_rejected() {
+    assertThatThrownBy(() -> new QuoteReplayer(PointsCalculatorService::new, 0, 1, 1))
+            .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new QuoteReplayer(PointsCalculatorService::new, 1, 0, 1))
+            .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void records_are_read_from_json_lines() throws Exception {
+    String jsonl = """
+            # recorded 2026-10-01
+            {"request":{"fareAmount":100.0,"currency":"USD","cabinClass":"ECONOMY","customerTier":"SILVER"},"fxRate":3.0,"expected":{"basePoints":300,"tierBonus":45,"promoBonus":0,"totalPoints":345,"effectiveFxRate":3.0,"warnings":[]},"recordedAt":"2026-10-01T10:00:00Z"}
+
+            {"request":{"fareAmount":10.0,"currency":"EUR","cabinClass":"FIRST","customerTier":"NONE","promoCode":"X"},"fxRate":4.0,"promo":{"code":"X","percent":0.1,"expiresInDays":10},"expected":{"basePoints":40,"tierBonus":0,"promoBonus":4,"totalPoints":44,"effectiveFxRate":4.0,"warnings":[]}}
+            """;
+
+    List<ReplayRecord> records = ReplayRecords.read(new BufferedReader(new StringReader(jsonl)));
+
+    assertThat(records).hasSize(2);
+    assertThat(records.get(1).getPromo().getPercent()).isEqualTo(0.1d);
+    assertThat(QuoteReplayer.compare(0, records.get(0),
+            new PointsCalculatorService().calculate(records.get(0).getRequest(), 3.0, null))).isNull();
+  }
+
+  @Test
+  public void malformed_or_incomplete_lines_report_line_number() {
+    assertThatThrownBy(() -> ReplayRecords.read(new BufferedReader(new StringReader("{not json"))))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("line 1");
+    assertThatThrownBy(() -> ReplayRecords.read(new BufferedReader(new StringReader("\n{\"fxRate\":1.0}"))))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("line 2");
+  }
+}